@@ -0,0 +1,81 @@
+package com.thom.filesystem.bench;
+
+import com.thom.filesystem.api.FileSystem;
+import com.thom.filesystem.core.InMemoryFileSystem;
+import com.thom.filesystem.core.InMemoryFileSystem.Backend;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The object-graph and array-backed backends holding the same tree: a complete 16-ary tree of
+ * directories. {@code fullGc} times a full collection with the tree live, which is dominated by
+ * marking it; {@code cd} is an absolute lookup a few levels deep.
+ */
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-XX:+UseParallelGC"})
+@State(Scope.Benchmark)
+public class BackendBenchmark {
+    private static final int FANOUT = 16;
+    private static final int LOOKUP_POOL = 1 << 12;
+
+    @Param({"TREE", "ARRAY"})
+    Backend backend;
+
+    @Param({"1000000", "5000000"})
+    int nodes;
+
+    FileSystem fs;
+    String[] lookups;
+    int cursor;
+
+    @Setup
+    public void setUp() {
+        fs = InMemoryFileSystem.create(backend);
+        for (int node = 1; node < nodes; node++) {
+            fs.mkdir(path(node));
+        }
+        lookups = new String[LOOKUP_POOL];
+        var random = new SplittableRandom(42);
+        for (int i = 0; i < LOOKUP_POOL; i++) {
+            lookups[i] = path(1 + random.nextInt(nodes - 1));
+        }
+    }
+
+    // Node n (1-based, breadth first) is child (n - 1) % FANOUT of node (n - 1) / FANOUT.
+    static String path(int node) {
+        var path = new StringBuilder();
+        while (node > 0) {
+            path.insert(0, "/n" + ((node - 1) % FANOUT));
+            node = (node - 1) / FANOUT;
+        }
+        return path.toString();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void fullGc() {
+        System.gc();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public FileSystem cd() {
+        fs.cd(lookups[cursor++ & (LOOKUP_POOL - 1)]);
+        return fs;
+    }
+}
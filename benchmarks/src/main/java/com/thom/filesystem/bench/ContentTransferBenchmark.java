@@ -0,0 +1,79 @@
+package com.thom.filesystem.bench;
+
+import com.thom.filesystem.io.FileContentChannel;
+import com.thom.filesystem.models.FileContent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContentTransferBenchmark {
+    @Param({"67108864"})
+    int size;
+
+    @Param({"true", "false"})
+    boolean direct;
+
+    FileContent source;
+    Path scratch;
+    FileChannel disk;
+
+    @Setup
+    public void setUp() throws IOException {
+        source = new FileContent(FileContent.DEFAULT_CHUNK_SIZE, direct);
+        var block = ByteBuffer.allocate(1 << 20);
+        for (long written = 0; written < size; written += block.capacity()) {
+            source.write(written, block.clear());
+        }
+        scratch = Files.createTempFile("imfs-bench", ".bin");
+        disk = FileChannel.open(scratch, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        source.transferTo(0, size, disk);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        disk.close();
+        Files.deleteIfExists(scratch);
+    }
+
+    @Benchmark
+    public FileContent copyBetweenFiles() throws IOException {
+        var target = new FileContent(FileContent.DEFAULT_CHUNK_SIZE, direct);
+        source.transferTo(0, size, new FileContentChannel(target, false, true, false));
+        return target;
+    }
+
+    @Benchmark
+    public long writeToDisk() throws IOException {
+        return source.transferTo(0, size, disk.position(0));
+    }
+
+    @Benchmark
+    public FileContent readFromDisk() throws IOException {
+        var target = new FileContent(FileContent.DEFAULT_CHUNK_SIZE, direct);
+        target.transferFrom(disk.position(0), 0, size);
+        return target;
+    }
+}
@@ -0,0 +1,106 @@
+package com.thom.filesystem.bench;
+
+import com.thom.filesystem.core.FileTree;
+import com.thom.filesystem.core.FileTreeOptions;
+import com.thom.filesystem.models.DirectoryNode;
+import com.thom.filesystem.models.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DeepPathBenchmark {
+    @Param({"8", "64", "256"})
+    int depth;
+
+    @Param({"0", "1024"})
+    int cacheSize;
+
+    FileTree tree;
+    DirectoryNode root;
+    DirectoryNode midDir;
+    DirectoryNode deepDir;
+
+    String absolutePath;
+    String relativePath;
+    String dotDotPath;
+    String climbPath;
+    String parentPath;
+
+    @Setup
+    public void setUp() {
+        tree = new FileTree(FileTreeOptions.defaults().withResolutionCacheSize(cacheSize));
+        root = tree.root();
+        deepDir = Trees.buildDeep(tree, depth);
+
+        var mid = depth / 2;
+        midDir = tree.resolveDir(Trees.absoluteDeepPath(mid), root);
+
+        absolutePath = Trees.absoluteDeepPath(depth);
+        relativePath = Trees.relativeDeepPath(mid, depth);
+        dotDotPath = Trees.dotDotHeavyPath(depth);
+        climbPath = Trees.climbPath(depth, Trees.levelName(0));
+        parentPath = absolutePath + "/leaf";
+    }
+
+    @Benchmark
+    public Node resolveAbsolute() {
+        return tree.resolve(absolutePath, root);
+    }
+
+    @Benchmark
+    public Node resolveRelative() {
+        return tree.resolve(relativePath, midDir);
+    }
+
+    @Benchmark
+    public Node resolveDotDot() {
+        return tree.resolve(dotDotPath, root);
+    }
+
+    @Benchmark
+    public Node resolveClimbFromDeep() {
+        return tree.resolve(climbPath, deepDir);
+    }
+
+    @Benchmark
+    public FileTree.ResolvedParent resolveParentAbsolute() {
+        return tree.resolveParent(parentPath, root);
+    }
+
+    @Benchmark
+    public List<String> lsDeep() {
+        return tree.ls(absolutePath, root);
+    }
+
+    @Benchmark
+    public String pathOf() {
+        return FileTree.pathOf(deepDir);
+    }
+
+    // What callers did before pathOf: prepend each name in turn.
+    @Benchmark
+    public String pathOfByConcatenation() {
+        var path = "";
+        for (Node current = deepDir; current.parent() != null; current = current.parent()) {
+            path = "/" + current.name() + path;
+        }
+        return path.isEmpty() ? "/" : path;
+    }
+}
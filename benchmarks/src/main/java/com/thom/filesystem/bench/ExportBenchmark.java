@@ -0,0 +1,142 @@
+package com.thom.filesystem.bench;
+
+import com.thom.filesystem.core.FileTree;
+import com.thom.filesystem.io.TreeExporter;
+import com.thom.filesystem.io.TreeMirror;
+import com.thom.filesystem.models.DirectoryNode;
+import com.thom.filesystem.models.FileNode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Writing a tree of {@code directories} directories of {@code filesPerDirectory} small files to an
+ * empty directory on disk: with {@link TreeExporter} on one thread and on every processor, against a
+ * serial walk that writes each file with {@code Files.write}. {@code mirrorSync} appends to
+ * {@code changed} random files and syncs a {@link TreeMirror} of the same tree.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ExportBenchmark {
+    @Param({"200"})
+    int directories;
+
+    @Param({"100"})
+    int filesPerDirectory;
+
+    @Param({"100"})
+    int changed;
+
+    FileTree tree;
+    Path work;
+    Path target;
+    TreeMirror mirror;
+    Random random;
+
+    @Setup
+    public void setUp() throws IOException {
+        tree = new FileTree();
+        var root = tree.root();
+        var payload = new byte[256];
+        for (int d = 0; d < directories; d++) {
+            var dir = tree.mkdirs("/d" + (d % 16) + "/dir" + d, root);
+            for (int f = 0; f < filesPerDirectory; f++) {
+                tree.write("file" + f + ".txt", payload, dir);
+            }
+        }
+        work = Files.createTempDirectory("imfs-export");
+        target = work.resolve("out");
+        mirror = TreeMirror.open(tree, work.resolve("mirror"));
+        random = new Random(42);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        mirror.close();
+        delete(work);
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyTargetAndChangeFiles() throws IOException {
+        delete(target);
+        var root = tree.root();
+        for (int i = 0; i < changed; i++) {
+            int d = random.nextInt(directories);
+            tree.append("/d" + (d % 16) + "/dir" + d + "/file" + random.nextInt(filesPerDirectory) + ".txt",
+                    new byte[16], root);
+        }
+    }
+
+    @Benchmark
+    public TreeExporter.Result exportSingleThread() throws IOException {
+        return TreeExporter.export(tree, target, 1);
+    }
+
+    @Benchmark
+    public TreeExporter.Result exportParallel() throws IOException {
+        return TreeExporter.export(tree, target);
+    }
+
+    @Benchmark
+    public Path serialFilesWrite() throws IOException {
+        var pending = new ArrayDeque<DirectoryNode>();
+        pending.push(tree.root());
+        while (!pending.isEmpty()) {
+            var dir = pending.pop();
+            var path = target.resolve(FileTree.pathOf(dir).substring(1));
+            Files.createDirectories(path);
+            for (var child : dir.children()) {
+                switch (child) {
+                    case DirectoryNode subdirectory -> pending.push(subdirectory);
+                    case FileNode file -> Files.write(path.resolve(file.name()),
+                            tree.read(FileTree.pathOf(file), 0, Integer.MAX_VALUE, tree.root()));
+                }
+            }
+        }
+        return target;
+    }
+
+    @Benchmark
+    public TreeExporter.Result mirrorSync() throws IOException {
+        return mirror.sync();
+    }
+
+    private static void delete(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(each -> {
+                try {
+                    Files.delete(each);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+}
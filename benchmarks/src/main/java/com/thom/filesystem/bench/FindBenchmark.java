@@ -0,0 +1,92 @@
+package com.thom.filesystem.bench;
+
+import com.thom.filesystem.api.FileSystem;
+import com.thom.filesystem.core.InMemoryFileSystem;
+import com.thom.filesystem.core.InMemoryFileSystem.Backend;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * {@code find} over a directory of {@code width} children and a 16-ary tree of about
+ * {@code width} nodes. {@code prefix} matches eleven names by their literal prefix, which TREE and
+ * PERSISTENT answer with a range scan of the sorted children; {@code regexScan} is the same query
+ * done by listing the directory and filtering it with a regular expression. {@code anyDepth}
+ * collects a {@code **} walk, forked per directory on TREE; {@code anyDepthStream} walks on the
+ * calling thread.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class FindBenchmark {
+    private static final int FILES_PER_DIRECTORY = 4;
+    private static final Pattern PREFIX_REGEX = Pattern.compile("c12345.*");
+
+    @Param({"TREE", "ARRAY", "PERSISTENT"})
+    Backend backend;
+
+    @Param({"100000", "1000000"})
+    int width;
+
+    FileSystem fs;
+
+    @Setup
+    public void setUp() {
+        fs = InMemoryFileSystem.create(backend);
+        fs.mkdir("/wide");
+        for (int i = 0; i < width; i++) {
+            if ((i & 1) == 0) {
+                fs.mkdir("/wide/" + Trees.wideChildName(i));
+            } else {
+                fs.write("/wide/" + Trees.wideChildName(i), new byte[0]);
+            }
+        }
+        fs.mkdir("/src");
+        int directories = width / (1 + FILES_PER_DIRECTORY);
+        for (int node = 1; node < directories; node++) {
+            var path = "/src" + BackendBenchmark.path(node);
+            fs.mkdir(path);
+            for (int f = 0; f < FILES_PER_DIRECTORY; f++) {
+                fs.write(path + "/f" + f, new byte[0]);
+            }
+        }
+    }
+
+    @Benchmark
+    public List<String> prefix() {
+        return fs.find("/wide/c12345*");
+    }
+
+    @Benchmark
+    public List<String> regexScan() {
+        return fs.ls("/wide").stream().filter(name -> PREFIX_REGEX.matcher(name).matches()).toList();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<String> anyDepth() {
+        return fs.find("/src/**/f1");
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void anyDepthStream(Blackhole blackhole) {
+        fs.find("/src/**/f1", blackhole::consume);
+    }
+}
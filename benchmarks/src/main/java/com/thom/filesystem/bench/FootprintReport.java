@@ -0,0 +1,61 @@
+package com.thom.filesystem.bench;
+
+import com.thom.filesystem.core.FileTree;
+import com.thom.filesystem.core.FileTreeOptions;
+import com.thom.filesystem.core.NameIndex;
+import org.openjdk.jol.info.GraphLayout;
+
+/**
+ * Retained heap per node for a source-checkout-shaped tree, with and without compact mode.
+ * Every project repeats the same directory and file names, and most directories hold only a
+ * handful of entries. Each tree is then measured again with a {@link NameIndex} attached, without
+ * and with suffixes, to show what the index adds per node. Measured with JOL, so run with
+ * {@code java -Djdk.attach.allowAttachSelf -XX:+EnableDynamicAgentLoading -cp target/benchmarks.jar com.thom.filesystem.bench.FootprintReport [projects]}.
+ */
+public final class FootprintReport {
+    private static final String[] MODULES = {"api", "core", "web", "util"};
+    private static final String[] FILES = {"index.html", "README.md", ".gitkeep", "package-info.java"};
+
+    private FootprintReport() {
+    }
+
+    public static void main(String[] args) {
+        int projects = args.length > 0 ? Integer.parseInt(args[0]) : 2_000;
+        for (var compact : new boolean[]{false, true}) {
+            var tree = new FileTree(FileTreeOptions.defaults().withCompact(compact));
+            long nodes = build(tree, projects);
+            long bytes = GraphLayout.parseInstance(tree).totalSize();
+            System.out.printf("compact=%-5s nodes=%,d bytes=%,d bytes/node=%.1f%n",
+                    compact, nodes, bytes, (double) bytes / nodes);
+            for (var suffixes : new boolean[]{false, true}) {
+                try (var index = NameIndex.attach(tree, suffixes)) {
+                    long indexed = GraphLayout.parseInstance(tree, index).totalSize() - bytes;
+                    System.out.printf("  name index suffixes=%-5s bytes=%,d bytes/node=%.1f%n",
+                            suffixes, indexed, (double) indexed / nodes);
+                }
+            }
+        }
+    }
+
+    static long build(FileTree tree, int projects) {
+        var root = tree.root();
+        long nodes = 0;
+        for (int p = 0; p < projects; p++) {
+            var project = "/project" + p;
+            tree.mkdir(project, root);
+            nodes++;
+            for (var module : MODULES) {
+                var base = project + "/" + module;
+                for (var dir : new String[]{base, base + "/src", base + "/src/main", base + "/src/test"}) {
+                    tree.mkdir(dir, root);
+                    nodes++;
+                    for (var file : FILES) {
+                        tree.append(dir + "/" + file, new byte[0], root);
+                        nodes++;
+                    }
+                }
+            }
+        }
+        return nodes;
+    }
+}
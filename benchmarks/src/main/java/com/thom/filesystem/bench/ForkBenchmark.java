@@ -0,0 +1,65 @@
+package com.thom.filesystem.bench;
+
+import com.thom.filesystem.core.PersistentFileSystem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Snapshots and forks of a {@link PersistentFileSystem} holding a complete 16-ary tree of
+ * {@code nodes} directories. {@code snapshot} and {@code fork} are O(1) whatever the size;
+ * {@code forkAndWrite} adds the first write to the fork, which copies the directories on the path to
+ * a file at the deepest level and nothing else. Compare with {@code SubtreeBenchmark.copy}, the
+ * deep copy the other backends need for an independent tree.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ForkBenchmark {
+    @Param({"100000", "1000000"})
+    int nodes;
+
+    PersistentFileSystem fs;
+    String deepFile;
+    byte[] payload;
+
+    @Setup
+    public void setUp() {
+        fs = new PersistentFileSystem();
+        for (int node = 1; node < nodes; node++) {
+            fs.mkdir(BackendBenchmark.path(node));
+        }
+        deepFile = BackendBenchmark.path(nodes - 1) + "/f";
+        payload = new byte[64];
+    }
+
+    @Benchmark
+    public PersistentFileSystem snapshot() {
+        return fs.snapshot();
+    }
+
+    @Benchmark
+    public PersistentFileSystem fork() {
+        return fs.fork();
+    }
+
+    @Benchmark
+    public PersistentFileSystem forkAndWrite() {
+        var fork = fs.fork();
+        fork.write(deepFile, payload);
+        return fork;
+    }
+}
@@ -0,0 +1,132 @@
+package com.thom.filesystem.bench;
+
+import com.thom.filesystem.core.FileTree;
+import com.thom.filesystem.core.FileTreeOptions;
+import com.thom.filesystem.io.TreeImporter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Importing a shuffled manifest of {@code entries} file paths, four directories deep in a 16-ary
+ * tree, with {@link TreeImporter} on one thread and on every processor, against reading the same
+ * lines and creating each file through {@code mkdirs} and {@code touch}; the same manifest sorted;
+ * and importing a real directory of {@code directoryEntries} small files.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ImportBenchmark {
+    private static final int FANOUT = 16;
+    private static final int DEPTH = 4;
+
+    @Param({"1000000"})
+    int entries;
+
+    @Param({"20000"})
+    int directoryEntries;
+
+    Path work;
+    Path manifest;
+    Path sortedManifest;
+    Path directory;
+
+    @Setup
+    public void writeInputs() throws IOException {
+        work = Files.createTempDirectory("imfs-import");
+        var random = new Random(42);
+        var lines = new ArrayList<String>(entries);
+        for (int i = 0; i < entries; i++) {
+            lines.add(path(random) + "f" + i);
+        }
+        manifest = Files.write(work.resolve("manifest.txt"), lines);
+        Collections.sort(lines);
+        sortedManifest = Files.write(work.resolve("sorted.txt"), lines);
+
+        directory = work.resolve("source");
+        var content = new byte[64];
+        for (int i = 0; i < directoryEntries; i++) {
+            var parent = directory.resolve(path(random));
+            Files.createDirectories(parent);
+            Files.write(parent.resolve("f" + i), content);
+        }
+    }
+
+    @TearDown
+    public void deleteInputs() throws IOException {
+        try (Stream<Path> paths = Files.walk(work)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    @Benchmark
+    public FileTree manifestPerLine() throws IOException {
+        var tree = new FileTree();
+        List<String> lines = Files.readAllLines(manifest);
+        for (var line : lines) {
+            int slash = line.lastIndexOf('/');
+            var parent = tree.mkdirs("/" + line.substring(0, slash), tree.root());
+            tree.touch(line.substring(slash + 1), parent);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    public TreeImporter.Result manifestSingleThread() throws IOException {
+        return TreeImporter.fromManifest(manifest, FileTreeOptions.defaults(), 1);
+    }
+
+    @Benchmark
+    public TreeImporter.Result manifestParallel() throws IOException {
+        return TreeImporter.fromManifest(manifest);
+    }
+
+    // Consecutive lines share directories, which the importer does not look up again.
+    @Benchmark
+    public TreeImporter.Result sortedManifestParallel() throws IOException {
+        return TreeImporter.fromManifest(sortedManifest);
+    }
+
+    @Benchmark
+    public TreeImporter.Result directory() throws IOException {
+        return TreeImporter.fromDirectory(directory);
+    }
+
+    private static String path(Random random) {
+        var path = new StringBuilder();
+        for (int level = 0; level < DEPTH; level++) {
+            path.append('d').append(random.nextInt(FANOUT)).append('/');
+        }
+        return path.toString();
+    }
+}
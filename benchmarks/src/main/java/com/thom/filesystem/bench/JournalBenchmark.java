@@ -0,0 +1,88 @@
+package com.thom.filesystem.bench;
+
+import com.thom.filesystem.core.FileTree;
+import com.thom.filesystem.io.FsyncPolicy;
+import com.thom.filesystem.io.Journal;
+import com.thom.filesystem.models.DirectoryNode;
+import com.thom.filesystem.models.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * mkdir latency with and without a journal attached. Every iteration starts a fresh tree and
+ * journal; each thread creates directories under its own parent so only the journal is shared.
+ * Run with {@code -t 4} or more to see concurrent writers share forces under {@code every}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class JournalBenchmark {
+    @Param({"off", "none", "group", "every"})
+    String policy;
+
+    FileTree tree;
+    Journal journal;
+    Path file;
+    final AtomicInteger threadIds = new AtomicInteger();
+
+    @State(Scope.Thread)
+    public static class Writer {
+        DirectoryNode parent;
+        int next;
+
+        @Setup(Level.Iteration)
+        public void setUp(JournalBenchmark benchmark) {
+            parent = benchmark.tree.mkdir("/t" + benchmark.threadIds.getAndIncrement(), benchmark.tree.root());
+            next = 0;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        tree = FileTree.concurrent();
+        threadIds.set(0);
+        file = Files.createTempFile("imfs-bench", ".journal");
+        Files.delete(file);
+        journal = switch (policy) {
+            case "off" -> null;
+            case "none" -> Journal.open(file, tree, FsyncPolicy.none());
+            case "group" -> Journal.open(file, tree, FsyncPolicy.groupCommit(Duration.ofMillis(5)));
+            case "every" -> Journal.open(file, tree, FsyncPolicy.everyOp());
+            default -> throw new IllegalArgumentException(policy);
+        };
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        if (journal != null) {
+            journal.close();
+        }
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public Node mkdir(Writer writer) {
+        return tree.mkdir("d" + writer.next++, writer.parent);
+    }
+}
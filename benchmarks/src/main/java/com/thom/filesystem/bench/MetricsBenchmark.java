@@ -0,0 +1,81 @@
+package com.thom.filesystem.bench;
+
+import com.thom.filesystem.api.FileSystem;
+import com.thom.filesystem.core.FileTree;
+import com.thom.filesystem.core.InMemoryFileSystem;
+import com.thom.filesystem.metrics.FileSystemMetrics;
+import com.thom.filesystem.metrics.MeteredFileSystem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of timing every call: {@code mkdir}, {@code ls} and a failing {@code cd} on a plain
+ * file system and on one wrapped in a {@link MeteredFileSystem}, plus reading the tree gauges,
+ * which walk the whole tree when their cache has expired.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MetricsBenchmark {
+    @Param({"false", "true"})
+    boolean metered;
+
+    FileTree tree;
+    FileSystem fs;
+    int next;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        tree = new FileTree();
+        FileSystem plain = new InMemoryFileSystem(tree);
+        fs = metered ? new MeteredFileSystem(plain, FileSystemMetrics.forTree(tree)) : plain;
+        fs.mkdir("/work");
+        for (int i = 0; i < 100; i++) {
+            fs.mkdir("/work/d" + i);
+        }
+        fs.cd("/work");
+        next = 0;
+    }
+
+    @Benchmark
+    public void mkdir() {
+        fs.mkdir("n" + next++);
+    }
+
+    @Benchmark
+    public List<String> ls() {
+        return fs.ls("/work/d7");
+    }
+
+    @Benchmark
+    public Object failingCd() {
+        try {
+            fs.cd("/missing");
+            return null;
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    // Walks the tree: what a JMX poll costs once every second.
+    @Benchmark
+    public Object treeStats() {
+        return tree.stats();
+    }
+}
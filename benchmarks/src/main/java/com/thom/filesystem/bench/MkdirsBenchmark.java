@@ -0,0 +1,108 @@
+package com.thom.filesystem.bench;
+
+import com.thom.filesystem.api.FileSystem;
+import com.thom.filesystem.core.InMemoryFileSystem;
+import com.thom.filesystem.core.InMemoryFileSystem.Backend;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Creating every directory of a shuffled manifest of {@code paths} leaf paths, {@code depth}
+ * levels deep in a 16-ary tree: a loader that checks and creates one level at a time, one
+ * {@code mkdirs} per path, and a single bulk {@code mkdirs} that sorts the manifest (unless it
+ * already is) and walks each shared prefix once. Every invocation starts from an empty file system.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class MkdirsBenchmark {
+    private static final int FANOUT = 16;
+
+    @Param({"TREE", "ARRAY", "PERSISTENT"})
+    Backend backend;
+
+    @Param({"100000"})
+    int paths;
+
+    @Param({"8"})
+    int depth;
+
+    List<String> manifest;
+    List<String> sortedManifest;
+    FileSystem fs;
+
+    @Setup
+    public void buildManifest() {
+        var random = new Random(42);
+        manifest = new ArrayList<>(paths);
+        for (int i = 0; i < paths; i++) {
+            var path = new StringBuilder();
+            for (int level = 0; level < depth; level++) {
+                path.append("/d").append(random.nextInt(FANOUT));
+            }
+            manifest.add(path.toString());
+        }
+        Collections.shuffle(manifest, random);
+        sortedManifest = new ArrayList<>(manifest);
+        Collections.sort(sortedManifest);
+    }
+
+    @Setup(Level.Invocation)
+    public void emptyFileSystem() {
+        fs = InMemoryFileSystem.create(backend);
+    }
+
+    @Benchmark
+    public FileSystem levelByLevel() {
+        for (var path : manifest) {
+            for (int slash = path.indexOf('/', 1); ; slash = path.indexOf('/', slash + 1)) {
+                var prefix = slash < 0 ? path : path.substring(0, slash);
+                if (!fs.exists(prefix)) {
+                    fs.mkdir(prefix);
+                }
+                if (slash < 0) {
+                    break;
+                }
+            }
+        }
+        return fs;
+    }
+
+    @Benchmark
+    public FileSystem mkdirsEach() {
+        for (var path : manifest) {
+            fs.mkdirs(path);
+        }
+        return fs;
+    }
+
+    @Benchmark
+    public long mkdirsBulk() {
+        return fs.mkdirs(manifest);
+    }
+
+    // A manifest that is already in order skips the sort.
+    @Benchmark
+    public long mkdirsBulkSorted() {
+        return fs.mkdirs(sortedManifest);
+    }
+}
@@ -0,0 +1,81 @@
+package com.thom.filesystem.bench;
+
+import com.thom.filesystem.core.FileTree;
+import com.thom.filesystem.models.DirectoryNode;
+import com.thom.filesystem.models.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mutations cannot be repeated against the same tree, so every iteration starts from a freshly
+ * built tree and runs exactly {@link #BATCH} operations. Scores and gc.alloc.rate.norm are per
+ * batch; divide by {@link #BATCH} for per-operation figures.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, batchSize = MutationBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = MutationBenchmark.BATCH)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class MutationBenchmark {
+    static final int BATCH = 50_000;
+    private static final int DEPTH = 32;
+
+    @Param({"0", "100000"})
+    int width;
+
+    FileTree tree;
+    DirectoryNode root;
+    DirectoryNode wideDir;
+
+    String[] leafNames;
+    String[] deepAbsolutePaths;
+    int cursor;
+
+    @Setup(Level.Trial)
+    public void generateNames() {
+        var deepPrefix = Trees.absoluteDeepPath(DEPTH);
+        leafNames = new String[BATCH];
+        deepAbsolutePaths = new String[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            leafNames[i] = "n" + i;
+            deepAbsolutePaths[i] = deepPrefix + "/n" + i;
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void buildTree() {
+        tree = new FileTree();
+        root = tree.root();
+        Trees.buildDeep(tree, DEPTH);
+        wideDir = Trees.buildWide(tree, "wide", width);
+        cursor = 0;
+    }
+
+    @Benchmark
+    public Node mkdirRelative() {
+        return tree.mkdir(leafNames[cursor++], wideDir);
+    }
+
+    @Benchmark
+    public Node mkdirDeepAbsolute() {
+        return tree.mkdir(deepAbsolutePaths[cursor++], root);
+    }
+
+    @Benchmark
+    public Node touch() {
+        return tree.touch(leafNames[cursor++], wideDir);
+    }
+}
@@ -0,0 +1,90 @@
+package com.thom.filesystem.bench;
+
+import com.thom.filesystem.core.FileTree;
+import com.thom.filesystem.core.NameIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * "Every file named X" over the source-checkout tree of {@link FootprintReport}: a {@code find}
+ * walk of the whole tree against a {@link NameIndex} lookup, for a name held by one node and one
+ * held by a fifth of them. {@code suffix} finds every {@code .md} file through the suffix index,
+ * and {@code mkdirIndexed} shows what maintaining the index adds to a mutation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class NameIndexBenchmark {
+    @Param({"2000"})
+    int projects;
+
+    FileTree tree;
+    FileTree indexedTree;
+    NameIndex index;
+    int next;
+
+    @Setup
+    public void setUp() {
+        tree = new FileTree();
+        FootprintReport.build(tree, projects);
+        tree.touch("unique.txt", tree.root());
+        indexedTree = new FileTree();
+        FootprintReport.build(indexedTree, projects);
+        indexedTree.touch("unique.txt", indexedTree.root());
+        index = NameIndex.attach(indexedTree, true);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<String> walkUnique() {
+        return tree.find("/**/unique.txt", tree.root());
+    }
+
+    @Benchmark
+    public List<String> indexUnique() {
+        return index.pathsNamed("unique.txt");
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<String> walkCommon() {
+        return tree.find("/**/README.md", tree.root());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<String> indexCommon() {
+        return index.pathsNamed("README.md");
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<String> suffix() {
+        return index.pathsEndingWith(".md");
+    }
+
+    @Benchmark
+    public Object mkdir() {
+        return tree.mkdir("/m" + next++, tree.root());
+    }
+
+    @Benchmark
+    public Object mkdirIndexed() {
+        return indexedTree.mkdir("/m" + next++, indexedTree.root());
+    }
+}
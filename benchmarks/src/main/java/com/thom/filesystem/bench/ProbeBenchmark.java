@@ -0,0 +1,69 @@
+package com.thom.filesystem.bench;
+
+import com.thom.filesystem.api.FileSystem;
+import com.thom.filesystem.core.InMemoryFileSystem;
+import com.thom.filesystem.core.InMemoryFileSystem.Backend;
+import com.thom.filesystem.errors.NotFoundException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * "Does this path exist?" for a path that usually does not: {@code exists} against calling
+ * {@code ls} and catching the {@link NotFoundException}, and the cost of the same exception with
+ * a stack trace filled in, as lookups used to throw it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProbeBenchmark {
+    @Param({"TREE", "ARRAY", "PERSISTENT"})
+    Backend backend;
+
+    FileSystem fs;
+    String missing;
+
+    @Setup
+    public void setUp() {
+        fs = InMemoryFileSystem.create(backend);
+        var path = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            path.append("/d").append(i);
+            fs.mkdir(path.toString());
+        }
+        missing = path + "/missing";
+    }
+
+    @Benchmark
+    public boolean exists() {
+        return fs.exists(missing);
+    }
+
+    @Benchmark
+    public boolean catchNotFound() {
+        try {
+            fs.ls(missing);
+            return true;
+        } catch (NotFoundException e) {
+            return false;
+        }
+    }
+
+    @Benchmark
+    public Object withStackTrace() {
+        return new NotFoundException("not found: missing");
+    }
+}
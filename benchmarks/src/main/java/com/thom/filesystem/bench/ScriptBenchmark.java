@@ -0,0 +1,130 @@
+package com.thom.filesystem.bench;
+
+import com.thom.filesystem.api.FileSystem;
+import com.thom.filesystem.cli.BatchRunner;
+import com.thom.filesystem.cli.CommandDispatcher;
+import com.thom.filesystem.cli.CommandParser;
+import com.thom.filesystem.cli.ReusableCommand;
+import com.thom.filesystem.cli.Script;
+import com.thom.filesystem.core.InMemoryFileSystem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A script of {@code lines} commands: a {@code mkdir} and {@code cd} into each of a thousand
+ * directories, then {@code touch} for the rest of that directory's share. {@code raw} makes the
+ * same calls on the {@link FileSystem} directly; {@code repl} dispatches line by line with the
+ * REPL's prompt and flush; {@code batch} runs the script through {@link BatchRunner};
+ * {@code dispatchAll} runs the lines already split. {@code compiled} runs a {@link Script} parsed
+ * once in setup, and {@code reusable} parses each line into one {@link ReusableCommand}.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ScriptBenchmark {
+    private static final int DIRECTORIES = 1_000;
+
+    @Param({"1000000"})
+    int lines;
+
+    List<String> script;
+    byte[] scriptBytes;
+    Script compiled;
+    FileSystem fs;
+
+    @Setup
+    public void buildScript() {
+        script = new ArrayList<>(lines);
+        int perDirectory = lines / DIRECTORIES;
+        for (int d = 0; d < DIRECTORIES; d++) {
+            script.add("mkdir /d" + d);
+            script.add("cd /d" + d);
+            for (int f = 2; f < perDirectory; f++) {
+                script.add("touch f" + f);
+            }
+        }
+        scriptBytes = (String.join("\n", script) + "\n").getBytes(StandardCharsets.UTF_8);
+        compiled = Script.compile(script);
+    }
+
+    @Setup(Level.Invocation)
+    public void newFileSystem() {
+        fs = new InMemoryFileSystem();
+    }
+
+    @Benchmark
+    public FileSystem raw() {
+        int perDirectory = lines / DIRECTORIES;
+        for (int d = 0; d < DIRECTORIES; d++) {
+            fs.mkdir("/d" + d);
+            fs.cd("/d" + d);
+            for (int f = 2; f < perDirectory; f++) {
+                fs.touch("f" + f);
+            }
+        }
+        return fs;
+    }
+
+    @Benchmark
+    public FileSystem repl() {
+        var out = new PrintStream(OutputStream.nullOutputStream());
+        var dispatcher = new CommandDispatcher(fs);
+        for (var line : script) {
+            out.print("€ ");
+            out.flush();
+            dispatcher.dispatch(line, out::println);
+        }
+        return fs;
+    }
+
+    @Benchmark
+    public long batch() throws IOException {
+        return new BatchRunner(fs).run(new ByteArrayInputStream(scriptBytes), OutputStream.nullOutputStream(),
+                new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @Benchmark
+    public Object dispatchAll() {
+        return new CommandDispatcher(fs).dispatchAll(script);
+    }
+
+    @Benchmark
+    public FileSystem compiled() {
+        compiled.run(fs, line -> {
+        });
+        return fs;
+    }
+
+    @Benchmark
+    public FileSystem reusable() {
+        var parser = new CommandParser();
+        var command = new ReusableCommand();
+        for (var line : script) {
+            parser.parse(line, command).execute(fs, ignored -> {
+            });
+        }
+        return fs;
+    }
+}
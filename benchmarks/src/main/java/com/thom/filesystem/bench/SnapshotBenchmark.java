@@ -0,0 +1,72 @@
+package com.thom.filesystem.bench;
+
+import com.thom.filesystem.core.FileTree;
+import com.thom.filesystem.io.TreeSnapshot;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SnapshotBenchmark {
+    @Param({"1000"})
+    int directories;
+
+    @Param({"100"})
+    int filesPerDirectory;
+
+    FileTree tree;
+    Path snapshot;
+    Path scratch;
+
+    @Setup
+    public void setUp() throws IOException {
+        tree = new FileTree();
+        var root = tree.root();
+        var payload = new byte[256];
+        for (int d = 0; d < directories; d++) {
+            var dir = tree.mkdir("/dir" + d, root);
+            for (int f = 0; f < filesPerDirectory; f++) {
+                tree.write("file" + f + ".txt", payload, dir);
+            }
+        }
+        snapshot = Files.createTempFile("imfs-bench", ".snap");
+        scratch = Files.createTempFile("imfs-bench", ".snap");
+        TreeSnapshot.write(tree, snapshot);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(snapshot);
+        Files.deleteIfExists(scratch);
+    }
+
+    @Benchmark
+    public Path write() throws IOException {
+        TreeSnapshot.write(tree, scratch);
+        return scratch;
+    }
+
+    @Benchmark
+    public FileTree read() throws IOException {
+        return TreeSnapshot.read(snapshot);
+    }
+}
@@ -0,0 +1,92 @@
+package com.thom.filesystem.bench;
+
+import com.thom.filesystem.api.FileSystem;
+import com.thom.filesystem.core.InMemoryFileSystem;
+import com.thom.filesystem.core.InMemoryFileSystem.Backend;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code cp -r} and {@code rm -r} of a subtree of about {@code nodes} nodes: a 16-ary tree of
+ * directories, each holding four small files. The TREE backend copies one directory per fork-join
+ * task on the common pool, so its copy scales with cores; the ARRAY backend copies on the calling
+ * thread. Removal is an O(1) unlink for TREE and a walk that frees every id for ARRAY. PERSISTENT
+ * shares the source subtree with the copy, so both are O(depth) there.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class SubtreeBenchmark {
+    private static final int FANOUT = 16;
+    private static final int FILES_PER_DIRECTORY = 4;
+
+    @Param({"TREE", "ARRAY", "PERSISTENT"})
+    Backend backend;
+
+    @Param({"100000", "1000000"})
+    int nodes;
+
+    FileSystem fs;
+
+    @Setup
+    public void setUp() {
+        fs = InMemoryFileSystem.create(backend);
+        fs.mkdir("/src");
+        var payload = new byte[64];
+        int directories = nodes / (1 + FILES_PER_DIRECTORY);
+        for (int node = 1; node < directories; node++) {
+            var path = "/src" + BackendBenchmark.path(node);
+            fs.mkdir(path);
+            for (int f = 0; f < FILES_PER_DIRECTORY; f++) {
+                fs.write(path + "/f" + f, payload);
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class WithoutCopy {
+        @Setup(Level.Invocation)
+        public void removeCopy(SubtreeBenchmark benchmark) {
+            if (benchmark.fs.ls("/").contains("copy/")) {
+                benchmark.fs.rm("/copy", true);
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class WithCopy {
+        @Setup(Level.Invocation)
+        public void makeCopy(SubtreeBenchmark benchmark) {
+            if (!benchmark.fs.ls("/").contains("copy/")) {
+                benchmark.fs.cp("/src", "/copy", true);
+            }
+        }
+    }
+
+    @Benchmark
+    public FileSystem copy(WithoutCopy state) {
+        fs.cp("/src", "/copy", true);
+        return fs;
+    }
+
+    @Benchmark
+    public FileSystem remove(WithCopy state) {
+        fs.rm("/copy", true);
+        return fs;
+    }
+}
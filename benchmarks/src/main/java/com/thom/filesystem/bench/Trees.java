@@ -0,0 +1,78 @@
+package com.thom.filesystem.bench;
+
+import com.thom.filesystem.core.FileTree;
+import com.thom.filesystem.models.DirectoryNode;
+
+final class Trees {
+    static final int SIBLINGS_PER_LEVEL = 16;
+
+    private Trees() {
+    }
+
+    static String levelName(int level) {
+        return "d" + level;
+    }
+
+    static String absoluteDeepPath(int depth) {
+        var sb = new StringBuilder();
+        for (int level = 0; level < depth; level++) {
+            sb.append('/').append(levelName(level));
+        }
+        return sb.isEmpty() ? "/" : sb.toString();
+    }
+
+    static String relativeDeepPath(int fromLevel, int depth) {
+        var sb = new StringBuilder();
+        for (int level = fromLevel; level < depth; level++) {
+            if (!sb.isEmpty()) {
+                sb.append('/');
+            }
+            sb.append(levelName(level));
+        }
+        return sb.toString();
+    }
+
+    static String dotDotHeavyPath(int depth) {
+        var sb = new StringBuilder();
+        for (int level = 0; level < depth; level++) {
+            var name = levelName(level);
+            sb.append('/').append(name).append("/../").append(name).append("/.");
+        }
+        return sb.isEmpty() ? "/" : sb.toString();
+    }
+
+    static String climbPath(int levels, String target) {
+        var sb = new StringBuilder();
+        for (int i = 0; i < levels; i++) {
+            sb.append("../");
+        }
+        return sb.append(target).toString();
+    }
+
+    static DirectoryNode buildDeep(FileTree tree, int depth) {
+        var current = tree.root();
+        for (int level = 0; level < depth; level++) {
+            for (int sibling = 0; sibling < SIBLINGS_PER_LEVEL; sibling++) {
+                tree.touch("s" + level + "_" + sibling, current);
+            }
+            current = tree.mkdir(levelName(level), current);
+        }
+        return current;
+    }
+
+    static DirectoryNode buildWide(FileTree tree, String name, int width) {
+        var dir = tree.mkdir("/" + name, tree.root());
+        for (int i = 0; i < width; i++) {
+            if ((i & 1) == 0) {
+                tree.mkdir(wideChildName(i), dir);
+            } else {
+                tree.touch(wideChildName(i), dir);
+            }
+        }
+        return dir;
+    }
+
+    static String wideChildName(int i) {
+        return "c" + i;
+    }
+}
@@ -0,0 +1,98 @@
+package com.thom.filesystem.bench;
+
+import com.thom.filesystem.core.FileTree;
+import com.thom.filesystem.models.DirectoryNode;
+import com.thom.filesystem.models.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Benchmark)
+public class WideDirectoryBenchmark {
+    private static final int LOOKUP_POOL = 1 << 12;
+
+    @Param({"100000", "1000000"})
+    int width;
+
+    FileTree tree;
+    DirectoryNode root;
+    DirectoryNode wideDir;
+
+    String[] absolutePaths;
+    String[] relativeNames;
+    String[] parentPaths;
+    int cursor;
+
+    @Setup
+    public void setUp() {
+        tree = new FileTree();
+        root = tree.root();
+        wideDir = Trees.buildWide(tree, "wide", width);
+
+        absolutePaths = new String[LOOKUP_POOL];
+        relativeNames = new String[LOOKUP_POOL];
+        parentPaths = new String[LOOKUP_POOL];
+        var random = new SplittableRandom(42);
+        for (int i = 0; i < LOOKUP_POOL; i++) {
+            var name = Trees.wideChildName(random.nextInt(width));
+            absolutePaths[i] = "/wide/" + name;
+            relativeNames[i] = name;
+            parentPaths[i] = "/wide/" + name + "x";
+        }
+    }
+
+    private int next() {
+        return cursor++ & (LOOKUP_POOL - 1);
+    }
+
+    @Benchmark
+    public Node resolveAbsolute() {
+        return tree.resolve(absolutePaths[next()], root);
+    }
+
+    @Benchmark
+    public Node resolveRelative() {
+        return tree.resolve(relativeNames[next()], wideDir);
+    }
+
+    @Benchmark
+    public FileTree.ResolvedParent resolveParentAbsolute() {
+        return tree.resolveParent(parentPaths[next()], root);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<String> lsWide() {
+        return tree.ls("/wide", root);
+    }
+
+    // One page of 100 entries from a random point in the directory.
+    @Benchmark
+    public List<String> lsPage() {
+        return tree.ls("/wide", relativeNames[next()], 100, root);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void lsStream(Blackhole blackhole) {
+        tree.ls("/wide", blackhole::consume, root);
+    }
+}
@@ -1,23 +1,80 @@
 package com.thom.filesystem;
 
+import com.thom.filesystem.cli.BatchRunner;
 import com.thom.filesystem.cli.CommandDispatcher;
+import com.thom.filesystem.cli.CommandParser;
+import com.thom.filesystem.api.FileSystem;
+import com.thom.filesystem.core.FileTree;
 import com.thom.filesystem.core.InMemoryFileSystem;
 import com.thom.filesystem.errors.FileSystemException;
+import com.thom.filesystem.metrics.FileSystemMetrics;
+import com.thom.filesystem.metrics.MeteredFileSystem;
 
 import java.io.BufferedReader;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
 import java.nio.charset.StandardCharsets;
+import javax.management.ObjectName;
 
 public class App {
+    static final String METRICS_NAME = "com.thom.filesystem:type=FileSystemMetrics";
+
     public static void main(String[] args) throws Exception {
-        run(System.in, System.out, System.err);
+        boolean batch = false;
+        boolean metered = false;
+        for (var arg : args) {
+            switch (arg) {
+                case "--batch" -> batch = true;
+                case "--metrics" -> metered = true;
+                default -> {
+                    System.err.println("usage: App [--batch] [--metrics]");
+                    System.exit(2);
+                }
+            }
+        }
+
+        FileSystem fs;
+        CommandParser parser;
+        if (metered) {
+            // Every command is timed, which the stats command reports and JMX clients can read.
+            var tree = new FileTree();
+            var metrics = FileSystemMetrics.forTree(tree);
+            metrics.register(ManagementFactory.getPlatformMBeanServer(), new ObjectName(METRICS_NAME));
+            fs = new MeteredFileSystem(new InMemoryFileSystem(tree), metrics);
+            parser = new CommandParser(metrics::report);
+        } else {
+            fs = new InMemoryFileSystem();
+            parser = new CommandParser();
+        }
+
+        if (batch) {
+            if (runBatch(fs, parser, System.in, System.out, System.err) > 0) {
+                System.exit(1);
+            }
+        } else {
+            run(fs, parser, System.in, System.out, System.err);
+        }
+    }
+
+    // Scripts: no prompt or banner, buffered output, and the number of failed commands returned.
+    static long runBatch(InputStream in, PrintStream out, PrintStream err) throws Exception {
+        return runBatch(new InMemoryFileSystem(), new CommandParser(), in, out, err);
+    }
+
+    static long runBatch(FileSystem fs, CommandParser parser, InputStream in, PrintStream out, PrintStream err)
+            throws Exception {
+        return new BatchRunner(fs, parser).run(in, out, err);
     }
 
     static void run(InputStream in, PrintStream out, PrintStream err) throws Exception {
-        var fs = new InMemoryFileSystem();
-        var dispatcher = new CommandDispatcher(fs);
+        run(new InMemoryFileSystem(), new CommandParser(), in, out, err);
+    }
+
+    static void run(FileSystem fs, CommandParser parser, InputStream in, PrintStream out, PrintStream err)
+            throws Exception {
+        var dispatcher = new CommandDispatcher(fs, parser);
 
         out.println("Welcome to the in-memory file system.");
         out.println("Type 'quit' or 'exit' to leave.");
@@ -41,10 +98,7 @@ public class App {
                 }
 
                 try {
-                    var result = dispatcher.dispatch(line);
-                    for (var outputLine : result.outputLines()) {
-                        out.println(outputLine);
-                    }
+                    dispatcher.dispatch(line, out::println);
                 } catch (FileSystemException e) {
                     err.println(e.getMessage());
                 }
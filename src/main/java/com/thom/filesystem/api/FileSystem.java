@@ -1,15 +1,74 @@
 package com.thom.filesystem.api;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.OpenOption;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface FileSystem {
     void mkdir(String path);
 
+    // mkdir -p: also creates any missing directories on the way, and is not an error if path is
+    // already a directory.
+    void mkdirs(String path);
+
+    // mkdirs for each path, sorted so that consecutive paths share the walk to their common prefix.
+    // Returns how many directories were created; the first path that fails stops the rest.
+    long mkdirs(Collection<String> paths);
+
+    // The working directory follows moves. Once it is removed, relative paths fail with
+    // NotFoundException until the next cd.
     void cd(String path);
 
+    // The absolute path of the working directory, or of where it was when it was removed.
+    String pwd();
+
+    // Like resolving path for ls or cd, but a miss is a status rather than an exception, so probing
+    // for paths that are usually absent costs no more than finding ones that are there.
+    PathStatus tryResolve(String path);
+
+    default boolean exists(String path) {
+        return tryResolve(path) != PathStatus.MISSING;
+    }
+
     List<String> ls();
 
     List<String> ls(String path);
 
+    // A page of ls: up to limit entries in name order, starting after the entry named startAfter
+    // (from the first if null). Passing the last entry of a page as startAfter gives the next one.
+    List<String> ls(String path, String startAfter, int limit);
+
+    // Every entry, in name order, handed to sink as it is read rather than collected first.
+    void ls(String path, Consumer<? super String> sink);
+
+    // Entries matching a glob ('*', '?', [a-z] classes and "**" for any number of directories),
+    // spelled as the pattern's leading directories followed by the matched names. Directories end
+    // in '/', like in ls.
+    List<String> find(String pattern);
+
+    void find(String pattern, Consumer<? super String> sink);
+
     void touch(String filename);
+
+    void rm(String path, boolean recursive);
+
+    void mv(String source, String target);
+
+    void cp(String source, String target, boolean recursive);
+
+    void write(String path, byte[] data);
+
+    void append(String path, byte[] data);
+
+    byte[] read(String path, long offset, int length);
+
+    SeekableByteChannel newByteChannel(String path, OpenOption... options);
+
+    InputStream newInputStream(String path);
+
+    OutputStream newOutputStream(String path, OpenOption... options);
 }
@@ -0,0 +1,9 @@
+package com.thom.filesystem.api;
+
+// What FileSystem.tryResolve found at a path. MISSING covers every way a lookup can miss: no entry
+// by that name, or a file where the path needs a directory.
+public enum PathStatus {
+    MISSING,
+    FILE,
+    DIRECTORY
+}
@@ -0,0 +1,154 @@
+package com.thom.filesystem.cli;
+
+import com.thom.filesystem.api.FileSystem;
+import com.thom.filesystem.errors.FileSystemException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+
+// Runs a script of commands with no prompt. A reader thread reads and parses lines ahead of
+// execution in batches, so parsing overlaps with running the previous batch; parsing is pure, so
+// this cannot change what a command does. Output is buffered and only flushed at the end, or before
+// an error is reported so the two streams stay in order when they share a terminal. Like the REPL,
+// a failing command is reported and the script goes on; errors name the line they come from.
+public final class BatchRunner {
+    static final int BATCH_SIZE = 4096;
+    private static final int BATCHES_AHEAD = 4;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileSystem fs;
+    private final CommandParser parser;
+
+    public BatchRunner(FileSystem fs) {
+        this(fs, new CommandParser());
+    }
+
+    public BatchRunner(FileSystem fs, CommandParser parser) {
+        this.fs = Objects.requireNonNull(fs, "fs");
+        this.parser = Objects.requireNonNull(parser, "parser");
+    }
+
+    // A run of parsed commands with the line each came from. A batch that is not full is the last
+    // one; failure is set if reading stopped with an error.
+    private record Batch(Command[] commands, long[] lines, int size, IOException failure) {
+    }
+
+    private static final Batch END = new Batch(new Command[0], new long[0], 0, null);
+
+    // Runs every command in in until it ends or a line reads "quit" or "exit", and returns how many
+    // failed.
+    public long run(InputStream in, OutputStream out, PrintStream err) throws IOException {
+        Objects.requireNonNull(in, "in");
+        Objects.requireNonNull(err, "err");
+        var reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE);
+        var writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        Consumer<String> sink = line -> {
+            try {
+                writer.write(line);
+                writer.newLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+
+        var batches = new ArrayBlockingQueue<Batch>(BATCHES_AHEAD);
+        var parserThread = new Thread(() -> parseAhead(reader, batches), "imfs-batch-parser");
+        parserThread.setDaemon(true);
+        parserThread.start();
+        long failures = 0;
+        try {
+            while (true) {
+                var batch = take(batches);
+                for (int i = 0; i < batch.size; i++) {
+                    try {
+                        batch.commands[i].execute(fs, sink);
+                    } catch (FileSystemException e) {
+                        failures++;
+                        writer.flush();
+                        err.println("line " + batch.lines[i] + ": " + e.getMessage());
+                    }
+                }
+                if (batch.failure != null) {
+                    throw batch.failure;
+                }
+                if (batch.size < BATCH_SIZE) {
+                    return failures;
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            parserThread.interrupt();
+            writer.flush();
+        }
+    }
+
+    private void parseAhead(BufferedReader reader, BlockingQueue<Batch> batches) {
+        long lineNumber = 0;
+        try {
+            while (true) {
+                var commands = new Command[BATCH_SIZE];
+                var lines = new long[BATCH_SIZE];
+                int size = 0;
+                IOException failure = null;
+                boolean ended = false;
+                while (size < BATCH_SIZE && !ended) {
+                    String line;
+                    try {
+                        line = reader.readLine();
+                    } catch (IOException e) {
+                        failure = e;
+                        break;
+                    }
+                    lineNumber++;
+                    var trimmed = line == null ? null : line.trim();
+                    if (trimmed == null || "exit".equals(trimmed) || "quit".equals(trimmed)) {
+                        ended = true;
+                    } else if (!trimmed.isEmpty()) {
+                        commands[size] = parse(line);
+                        lines[size++] = lineNumber;
+                    }
+                }
+                batches.put(size == 0 && failure == null ? END : new Batch(commands, lines, size, failure));
+                if (size < BATCH_SIZE) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // A line that does not parse fails when its turn comes, so errors are reported in order.
+    private Command parse(String line) {
+        try {
+            return parser.parse(line);
+        } catch (RuntimeException e) {
+            return ignored -> {
+                throw e;
+            };
+        }
+    }
+
+    private static Batch take(BlockingQueue<Batch> batches) throws IOException {
+        try {
+            return batches.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while waiting for commands");
+        }
+    }
+}
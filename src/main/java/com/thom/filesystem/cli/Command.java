@@ -2,6 +2,14 @@ package com.thom.filesystem.cli;
 
 import com.thom.filesystem.api.FileSystem;
 
+import java.util.function.Consumer;
+
 public interface Command {
     CommandResult execute(FileSystem fs);
+
+    // Hands each output line to out as soon as it exists. Commands whose output can be large
+    // override this so nothing is collected first.
+    default void execute(FileSystem fs, Consumer<? super String> out) {
+        execute(fs).outputLines().forEach(out);
+    }
 }
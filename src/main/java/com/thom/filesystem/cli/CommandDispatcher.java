@@ -2,7 +2,9 @@ package com.thom.filesystem.cli;
 
 import com.thom.filesystem.api.FileSystem;
 
+import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 public final class CommandDispatcher {
     private final FileSystem fs;
@@ -20,4 +22,20 @@ public final class CommandDispatcher {
     public CommandResult dispatch(String line) {
         return parser.parse(line).execute(fs);
     }
+
+    public void dispatch(String line, Consumer<? super String> out) {
+        Objects.requireNonNull(out, "out");
+        parser.parse(line).execute(fs, out);
+    }
+
+    // One result per line, blank ones included. Every line is parsed before any runs, so a script
+    // with a malformed line changes nothing; after that a line that fails gets a result carrying
+    // its error and the rest still run.
+    public List<CommandResult> dispatchAll(Iterable<String> lines) {
+        return compile(lines).run(fs);
+    }
+
+    public Script compile(Iterable<String> lines) {
+        return Script.compile(lines, parser);
+    }
 }
@@ -3,79 +3,247 @@ package com.thom.filesystem.cli;
 import com.thom.filesystem.api.FileSystem;
 import com.thom.filesystem.errors.InvalidCommandException;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public final class CommandParser {
+    // What a line asks for. Parsing only picks one of these and its operands; running them is in
+    // execute, shared by the immutable Plan that parse returns and the ReusableCommand a caller
+    // refills line after line.
+    enum Op {
+        NONE(""),
+        MKDIR("mkdir"),
+        CD("cd"),
+        PWD("pwd"),
+        TOUCH("touch"),
+        LS("ls"),
+        CAT("cat"),
+        FIND("find"),
+        WRITE("write"),
+        RM("rm"),
+        MV("mv"),
+        CP("cp"),
+        STATS("stats");
 
+        private static final Op[] VALUES = values();
+
+        private final String word;
+
+        Op(String word) {
+            this.word = word;
+        }
+    }
+
+    private static final Command NO_OP = new Plan(Op.NONE, null, null, false, null);
+    private static final Consumer<String> DISCARD = line -> {
+    };
+
+    private record Plan(Op op, String first, String second, boolean recursive, Supplier<List<String>> stats)
+            implements Command {
+        @Override
+        public CommandResult execute(FileSystem fs) {
+            return CommandParser.execute(op, first, second, recursive, stats, fs);
+        }
+
+        @Override
+        public void execute(FileSystem fs, Consumer<? super String> out) {
+            CommandParser.execute(op, first, second, recursive, stats, fs, out);
+        }
+    }
+
+    // What the stats command prints, or null if metrics are not enabled.
+    private final Supplier<List<String>> stats;
+
+    public CommandParser() {
+        this(null);
+    }
+
+    public CommandParser(Supplier<List<String>> stats) {
+        this.stats = stats;
+    }
+
+    // An immutable command that can be run any number of times without parsing the line again.
     public Command parse(String line) {
         Objects.requireNonNull(line, "line");
-        var trimmed = line.trim();
-        if (trimmed.isEmpty()) {
-            return fs -> CommandResult.empty();
-        }
+        var parsed = parse(line, new ReusableCommand());
+        return parsed.op() == Op.NONE
+                ? NO_OP
+                : new Plan(parsed.op(), parsed.first(), parsed.second(), parsed.recursive(), parsed.stats());
+    }
 
-        int whitespaceIndex = indexOfWhitespace(trimmed);
-        String name = whitespaceIndex == -1 ? trimmed : trimmed.substring(0, whitespaceIndex);
-        String arg = whitespaceIndex == -1 ? "" : trimmed.substring(whitespaceIndex).trim();
+    // Parses line into into, replacing what it held, and returns it. Scanning works on the line in
+    // place, so the only allocations are the operand strings handed to the file system.
+    public ReusableCommand parse(CharSequence line, ReusableCommand into) {
+        Objects.requireNonNull(line, "line");
+        Objects.requireNonNull(into, "into");
+        into.stats(stats);
+        int end = line.length();
+        while (end > 0 && Character.isWhitespace(line.charAt(end - 1))) {
+            end--;
+        }
+        int start = skipWhitespace(line, 0, end);
+        if (start == end) {
+            return into.set(Op.NONE, null, null, false);
+        }
+        int nameEnd = nextWhitespace(line, start, end);
+        var op = lookup(line, start, nameEnd);
+        int argStart = skipWhitespace(line, nameEnd, end);
+        boolean hasArg = argStart < end;
+        if (!hasArg && op != Op.LS && op != Op.PWD && op != Op.STATS) {
+            throw new InvalidCommandException(op.word + " requires an argument");
+        }
+        return switch (op) {
+            case MKDIR -> {
+                // The path is the rest of the line, spaces and all, after an optional -p.
+                int flagEnd = nextWhitespace(line, argStart, end);
+                if (!regionEquals("-p", line, argStart, flagEnd)) {
+                    yield into.set(op, string(line, argStart, end), null, false);
+                }
+                int pathStart = skipWhitespace(line, flagEnd, end);
+                if (pathStart == end) {
+                    throw new InvalidCommandException("usage: mkdir [-p] <path>");
+                }
+                yield into.set(op, string(line, pathStart, end), null, true);
+            }
+            case CD, TOUCH, CAT, FIND -> into.set(op, string(line, argStart, end), null, false);
+            case LS -> into.set(op, hasArg ? string(line, argStart, end) : null, null, false);
+            case PWD, STATS -> {
+                if (hasArg) {
+                    throw new InvalidCommandException(op.word + " takes no arguments");
+                }
+                yield into.set(op, null, null, false);
+            }
+            case WRITE -> {
+                int pathEnd = nextWhitespace(line, argStart, end);
+                int textStart = skipWhitespace(line, pathEnd, end);
+                yield into.set(op, string(line, argStart, pathEnd), string(line, textStart, end), false);
+            }
+            case RM -> operands(op, line, argStart, end, 1, true, "rm [-r] <path>", into);
+            case MV -> operands(op, line, argStart, end, 2, false, "mv <source> <target>", into);
+            case CP -> operands(op, line, argStart, end, 2, true, "cp [-r] <source> <target>", into);
+            case NONE -> throw new IllegalStateException("blank lines are handled above");
+        };
+    }
 
-        return switch (name) {
-            case "mkdir" -> requireArg(name, arg, MkdirCommand::new);
-            case "cd" -> requireArg(name, arg, CdCommand::new);
-            case "touch" -> requireArg(name, arg, TouchCommand::new);
-            case "ls" -> arg.isBlank() ? new LsCommand(null) : new LsCommand(arg);
-            default -> throw new InvalidCommandException("unknown command: " + name);
+    static CommandResult execute(Op op, String first, String second, boolean recursive,
+                                 Supplier<List<String>> stats, FileSystem fs) {
+        return switch (op) {
+            case LS -> new CommandResult(first == null ? fs.ls() : fs.ls(first));
+            case FIND -> new CommandResult(fs.find(first));
+            case CAT -> new CommandResult(text(fs, first).lines().toList());
+            case PWD -> new CommandResult(List.of(fs.pwd()));
+            case STATS -> new CommandResult(stats(stats));
+            default -> {
+                execute(op, first, second, recursive, stats, fs, DISCARD);
+                yield CommandResult.empty();
+            }
         };
     }
 
-    private static int indexOfWhitespace(String s) {
-        for (int i = 0; i < s.length(); i++) {
-            if (Character.isWhitespace(s.charAt(i))) {
-                return i;
+    // Hands output lines to out as they are produced; ls and find stream straight from the tree.
+    static void execute(Op op, String first, String second, boolean recursive, Supplier<List<String>> stats,
+                        FileSystem fs, Consumer<? super String> out) {
+        switch (op) {
+            case NONE -> {
+            }
+            case MKDIR -> {
+                if (recursive) {
+                    fs.mkdirs(first);
+                } else {
+                    fs.mkdir(first);
+                }
             }
+            case CD -> fs.cd(first);
+            case PWD -> out.accept(fs.pwd());
+            case TOUCH -> fs.touch(first);
+            case LS -> fs.ls(first, out);
+            case CAT -> text(fs, first).lines().forEach(out);
+            case FIND -> fs.find(first, out);
+            case WRITE -> fs.write(first, second.isEmpty() ? new byte[0] : (second + "\n").getBytes(StandardCharsets.UTF_8));
+            case RM -> fs.rm(first, recursive);
+            case MV -> fs.mv(first, second);
+            case CP -> fs.cp(first, second, recursive);
+            case STATS -> stats(stats).forEach(out);
         }
-        return -1;
     }
 
-    private static Command requireArg(String commandName, String arg, ArgCommandFactory factory) {
-        if (arg == null || arg.isBlank()) {
-            throw new InvalidCommandException(commandName + " requires an argument");
+    private static String text(FileSystem fs, String path) {
+        return new String(fs.read(path, 0, Integer.MAX_VALUE), StandardCharsets.UTF_8);
+    }
+
+    private static List<String> stats(Supplier<List<String>> stats) {
+        if (stats == null) {
+            throw new InvalidCommandException("stats: metrics are not enabled");
         }
-        return factory.create(arg);
+        return stats.get();
     }
 
-    private interface ArgCommandFactory {
-        Command create(String arg);
+    private static Op lookup(CharSequence line, int start, int end) {
+        for (var op : Op.VALUES) {
+            if (op != Op.NONE && regionEquals(op.word, line, start, end)) {
+                return op;
+            }
+        }
+        throw new InvalidCommandException("unknown command: " + line.subSequence(start, end));
     }
 
-    private record MkdirCommand(String path) implements Command {
-        @Override
-        public CommandResult execute(FileSystem fs) {
-            fs.mkdir(path);
-            return CommandResult.empty();
+    // The whitespace-separated operands in [from, end), which must number exactly count; with
+    // flagged, a leading "-r" sets recursive instead.
+    private static ReusableCommand operands(Op op, CharSequence line, int from, int end, int count, boolean flagged,
+                                            String usage, ReusableCommand into) {
+        boolean recursive = false;
+        String first = null;
+        String second = null;
+        int found = 0;
+        for (int i = from; i < end; ) {
+            int tokenEnd = nextWhitespace(line, i, end);
+            if (i == from && flagged && regionEquals("-r", line, i, tokenEnd)) {
+                recursive = true;
+            } else if (found == count) {
+                throw new InvalidCommandException("usage: " + usage);
+            } else if (found++ == 0) {
+                first = string(line, i, tokenEnd);
+            } else {
+                second = string(line, i, tokenEnd);
+            }
+            i = skipWhitespace(line, tokenEnd, end);
+        }
+        if (found != count) {
+            throw new InvalidCommandException("usage: " + usage);
         }
+        return into.set(op, first, second, recursive);
     }
 
-    private record CdCommand(String path) implements Command {
-        @Override
-        public CommandResult execute(FileSystem fs) {
-            fs.cd(path);
-            return CommandResult.empty();
+    private static boolean regionEquals(String word, CharSequence line, int start, int end) {
+        if (end - start != word.length()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (line.charAt(start + i) != word.charAt(i)) {
+                return false;
+            }
         }
+        return true;
     }
 
-    private record TouchCommand(String filename) implements Command {
-        @Override
-        public CommandResult execute(FileSystem fs) {
-            fs.touch(filename);
-            return CommandResult.empty();
+    private static int skipWhitespace(CharSequence s, int from, int end) {
+        while (from < end && Character.isWhitespace(s.charAt(from))) {
+            from++;
         }
+        return from;
     }
 
-    private record LsCommand(String pathOrNull) implements Command {
-        @Override
-        public CommandResult execute(FileSystem fs) {
-            var lines = pathOrNull == null ? fs.ls() : fs.ls(pathOrNull);
-            return new CommandResult(lines);
+    private static int nextWhitespace(CharSequence s, int from, int end) {
+        while (from < end && !Character.isWhitespace(s.charAt(from))) {
+            from++;
         }
+        return from;
+    }
+
+    private static String string(CharSequence s, int start, int end) {
+        return s.subSequence(start, end).toString();
     }
 }
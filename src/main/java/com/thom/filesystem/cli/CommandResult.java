@@ -1,13 +1,31 @@
 package com.thom.filesystem.cli;
 
+import com.thom.filesystem.errors.FileSystemException;
+
 import java.util.List;
+import java.util.Objects;
+
+// error is set, and outputLines empty, for a command that failed.
+public record CommandResult(List<String> outputLines, FileSystemException error) {
+    private static final CommandResult EMPTY = new CommandResult(List.of());
 
-public record CommandResult(List<String> outputLines) {
     public CommandResult {
         outputLines = outputLines == null ? List.of() : List.copyOf(outputLines);
     }
 
+    public CommandResult(List<String> outputLines) {
+        this(outputLines, null);
+    }
+
     public static CommandResult empty() {
-        return new CommandResult(List.of());
+        return EMPTY;
+    }
+
+    public static CommandResult failed(FileSystemException error) {
+        return new CommandResult(List.of(), Objects.requireNonNull(error, "error"));
+    }
+
+    public boolean succeeded() {
+        return error == null;
     }
 }
@@ -0,0 +1,67 @@
+package com.thom.filesystem.cli;
+
+import com.thom.filesystem.api.FileSystem;
+import com.thom.filesystem.cli.CommandParser.Op;
+
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// A command that CommandParser.parse(line, into) refills in place, for callers that run one line
+// after another and would rather not allocate a command per line. It holds the last line parsed
+// into it until the next parse; pair it with execute(fs, out) to keep output out of lists too.
+// Not safe to share between threads.
+public final class ReusableCommand implements Command {
+    private Op op = Op.NONE;
+    private String first;
+    private String second;
+    private boolean recursive;
+    private Supplier<List<String>> stats;
+
+    ReusableCommand set(Op op, String first, String second, boolean recursive) {
+        this.op = op;
+        this.first = first;
+        this.second = second;
+        this.recursive = recursive;
+        return this;
+    }
+
+    void stats(Supplier<List<String>> stats) {
+        this.stats = stats;
+    }
+
+    Op op() {
+        return op;
+    }
+
+    String first() {
+        return first;
+    }
+
+    String second() {
+        return second;
+    }
+
+    boolean recursive() {
+        return recursive;
+    }
+
+    Supplier<List<String>> stats() {
+        return stats;
+    }
+
+    // Whether the last line parsed was blank.
+    public boolean isEmpty() {
+        return op == Op.NONE;
+    }
+
+    @Override
+    public CommandResult execute(FileSystem fs) {
+        return CommandParser.execute(op, first, second, recursive, stats, fs);
+    }
+
+    @Override
+    public void execute(FileSystem fs, Consumer<? super String> out) {
+        CommandParser.execute(op, first, second, recursive, stats, fs, out);
+    }
+}
@@ -0,0 +1,65 @@
+package com.thom.filesystem.cli;
+
+import com.thom.filesystem.api.FileSystem;
+import com.thom.filesystem.errors.FileSystemException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+// Lines parsed once into commands, for scripts that run more than once (against fresh file systems,
+// say). Every line is parsed before the script exists, so a malformed one is reported at compile
+// time and never runs anything. Commands carry no state of their own, so a script may be run by
+// several threads against different file systems.
+public final class Script {
+    private final Command[] commands;
+
+    private Script(Command[] commands) {
+        this.commands = commands;
+    }
+
+    public static Script compile(Iterable<String> lines) {
+        return compile(lines, new CommandParser());
+    }
+
+    public static Script compile(Iterable<String> lines, CommandParser parser) {
+        Objects.requireNonNull(lines, "lines");
+        Objects.requireNonNull(parser, "parser");
+        var commands = new ArrayList<Command>();
+        for (var line : lines) {
+            commands.add(parser.parse(line));
+        }
+        return new Script(commands.toArray(new Command[0]));
+    }
+
+    // Lines, blank ones included.
+    public int size() {
+        return commands.length;
+    }
+
+    // One result per line. As in the REPL and --batch, a command that fails does not stop the rest;
+    // its result carries the error.
+    public List<CommandResult> run(FileSystem fs) {
+        Objects.requireNonNull(fs, "fs");
+        var results = new ArrayList<CommandResult>(commands.length);
+        for (var command : commands) {
+            try {
+                results.add(command.execute(fs));
+            } catch (FileSystemException e) {
+                results.add(CommandResult.failed(e));
+            }
+        }
+        return results;
+    }
+
+    // Output streams as it is produced, so there is nowhere to keep an error: the first command to
+    // fail stops the rest and its exception is thrown.
+    public void run(FileSystem fs, Consumer<? super String> out) {
+        Objects.requireNonNull(fs, "fs");
+        Objects.requireNonNull(out, "out");
+        for (var command : commands) {
+            command.execute(fs, out);
+        }
+    }
+}
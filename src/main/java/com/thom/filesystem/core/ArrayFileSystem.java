@@ -0,0 +1,604 @@
+package com.thom.filesystem.core;
+
+import com.thom.filesystem.api.FileSystem;
+import com.thom.filesystem.api.PathStatus;
+import com.thom.filesystem.errors.AlreadyExistsException;
+import com.thom.filesystem.errors.InvalidPathException;
+import com.thom.filesystem.errors.IsADirectoryException;
+import com.thom.filesystem.errors.NotADirectoryException;
+import com.thom.filesystem.errors.NotFoundException;
+import com.thom.filesystem.io.FileContentChannel;
+import com.thom.filesystem.io.FileContentInputStream;
+import com.thom.filesystem.io.FileContentOutputStream;
+import com.thom.filesystem.models.FileContent;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// The FileSystem API over a NodeStore, with the same path rules and errors as FileTree.
+final class ArrayFileSystem implements FileSystem {
+    private final NodeStore store;
+    private int cwd = NodeStore.ROOT;
+    // Once the working directory is removed its id is freed, so cwd is NONE and these say where it
+    // was and which removed directory it was in; relative paths fail until the next cd.
+    private String removedPwd;
+    private String removedName;
+
+    // The children of the directory listed last, in name order, kept while the store is unchanged
+    // so that paging through a large directory sorts it once rather than once per page.
+    private int sortedDir = NodeStore.NONE;
+    private long sortedVersion;
+    private int[] sorted;
+
+    // Only the content options apply: the store is single-threaded and has no names to share or
+    // resolutions to cache.
+    ArrayFileSystem(FileTreeOptions options) {
+        Objects.requireNonNull(options, "options");
+        if (options.concurrent()) {
+            throw new IllegalArgumentException("the ARRAY backend cannot be concurrent");
+        }
+        if (options.compact()) {
+            throw new IllegalArgumentException("the ARRAY backend cannot be compact");
+        }
+        if (options.resolutionCacheSize() != 0) {
+            throw new IllegalArgumentException("the ARRAY backend has no resolution cache");
+        }
+        this.store = new NodeStore(options);
+    }
+
+    NodeStore store() {
+        return store;
+    }
+
+    @Override
+    public void mkdir(String path) {
+        if (path == null) {
+            throw new InvalidPathException("path cannot be blank");
+        }
+        int end = path.length();
+        while (end > 1 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        FileTree.requireNonBlank(path, end);
+        long leaf = PathCursor.leaf(path, end);
+        int parent = resolveParent(path, leaf);
+        store.addDirectory(parent, path, PathCursor.leafStart(leaf), PathCursor.leafEnd(leaf));
+    }
+
+    @Override
+    public void mkdirs(String path) {
+        mkdirs(path, new Trail());
+    }
+
+    // Sorted, and each path resumes after the segments it shares with the one before, as in FileTree.
+    @Override
+    public long mkdirs(Collection<String> paths) {
+        Objects.requireNonNull(paths, "paths");
+        var sorted = MkdirsTrail.sorted(paths);
+        var trail = new Trail();
+        for (var path : sorted) {
+            mkdirs(path, trail);
+        }
+        return trail.created;
+    }
+
+    private static final class Trail extends MkdirsTrail {
+        int[] dirs = new int[16];
+
+        void push(int end, int dir) {
+            int at = push(end);
+            dirs[at] = dir;
+        }
+
+        @Override
+        void grow(int capacity) {
+            dirs = Arrays.copyOf(dirs, capacity);
+        }
+    }
+
+    private void mkdirs(String path, Trail trail) {
+        if (path == null) {
+            throw new InvalidPathException("path cannot be blank");
+        }
+        int end = path.length();
+        while (end > 1 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        FileTree.requireNonBlank(path, end);
+
+        int depth = trail.resume(path, end);
+        int current = depth > 0 ? trail.dirs[depth] : start(path, false);
+
+        var cursor = new PathCursor(path, trail.ends[depth], end);
+        while (cursor.next()) {
+            if (cursor.isDotDot()) {
+                int parent = store.parent(current);
+                current = parent == NodeStore.NONE ? current : parent;
+            } else {
+                int child = store.child(current, cursor, 0, cursor.length());
+                if (child == NodeStore.NONE) {
+                    requireNonBlankLeaf(path, cursor.segmentStart(), cursor.segmentEnd());
+                    child = store.addDirectory(current, path, cursor.segmentStart(), cursor.segmentEnd());
+                    trail.created++;
+                } else if (!store.isDirectory(child)) {
+                    if (cursor.hasNext()) {
+                        throw new NotADirectoryException("not a directory: " + cursor, false);
+                    }
+                    throw new AlreadyExistsException("name already exists: " + cursor);
+                }
+                current = child;
+            }
+            trail.push(cursor.segmentEnd(), current);
+        }
+    }
+
+    @Override
+    public void cd(String path) {
+        cwd = resolveDir(path);
+        removedPwd = null;
+        removedName = null;
+    }
+
+    @Override
+    public List<String> ls() {
+        return ls(null);
+    }
+
+    @Override
+    public List<String> ls(String path) {
+        var displayNames = new ArrayList<String>();
+        ls(path, displayNames::add);
+        return Collections.unmodifiableList(displayNames);
+    }
+
+    // Children are not kept in name order, so a page is found by binary search in the sorted
+    // children, which later pages of the same directory reuse.
+    @Override
+    public List<String> ls(String path, String startAfter, int limit) {
+        var page = Page.of(startAfter, limit);
+        var after = page.after();
+        var children = sortedChildren(lsTarget(path));
+        int from = 0;
+        if (after != null) {
+            for (int to = children.length; from < to; ) {
+                int mid = (from + to) >>> 1;
+                if (store.compareName(children[mid], after) <= 0) {
+                    from = mid + 1;
+                } else {
+                    to = mid;
+                }
+            }
+        }
+        int end = (int) Math.min(children.length, (long) from + limit);
+        var displayNames = new ArrayList<String>(end - from);
+        for (int i = from; i < end; i++) {
+            displayNames.add(displayName(children[i]));
+        }
+        return Collections.unmodifiableList(displayNames);
+    }
+
+    @Override
+    public void ls(String path, Consumer<? super String> sink) {
+        Objects.requireNonNull(sink, "sink");
+        for (int child : sortedChildren(lsTarget(path))) {
+            sink.accept(displayName(child));
+        }
+    }
+
+    private int[] sortedChildren(int dir) {
+        if (dir != sortedDir || store.version() != sortedVersion) {
+            sorted = sortedChildren(dir, "");
+            sortedDir = dir;
+            sortedVersion = store.version();
+        }
+        return sorted;
+    }
+
+    // The children whose names start with prefix, in name order.
+    private int[] sortedChildren(int dir, String prefix) {
+        int count = 0;
+        for (int child = store.firstChild(dir); child != NodeStore.NONE; child = store.nextSibling(child)) {
+            if (store.nameStartsWith(child, prefix)) {
+                count++;
+            }
+        }
+        var children = new int[count];
+        int i = 0;
+        for (int child = store.firstChild(dir); child != NodeStore.NONE; child = store.nextSibling(child)) {
+            if (store.nameStartsWith(child, prefix)) {
+                children[i++] = child;
+            }
+        }
+        store.sortByName(children);
+        return children;
+    }
+
+    @Override
+    public List<String> find(String pattern) {
+        var found = new ArrayList<String>();
+        find(pattern, found::add);
+        return Collections.unmodifiableList(found);
+    }
+
+    // Same matches and order as FileTree. Children are not kept in name order, so a pattern segment
+    // sorts the children sharing its literal prefix; literal segments are lookups.
+    @Override
+    public void find(String pattern, Consumer<? super String> sink) {
+        Objects.requireNonNull(sink, "sink");
+        var glob = Glob.compile(pattern);
+        int start = glob.base().isEmpty() ? start("", false) : resolveDir(glob.base());
+        find(glob, start, glob.base(), 0, glob.distinct(sink));
+    }
+
+    private void find(Glob glob, int dir, String path, int index, Consumer<? super String> out) {
+        var segment = glob.segment(index);
+        boolean last = index == glob.length() - 1;
+        switch (segment.kind()) {
+            case LITERAL -> {
+                var name = segment.name();
+                int child = store.child(dir, name, 0, name.length());
+                if (child != NodeStore.NONE) {
+                    found(glob, child, Glob.child(path, name), index, out);
+                }
+            }
+            case PATTERN -> {
+                for (int child : sortedChildren(dir, segment.prefix())) {
+                    var name = store.name(child);
+                    if (segment.matches(name)) {
+                        found(glob, child, Glob.child(path, name), index, out);
+                    }
+                }
+            }
+            case ANY_DEPTH -> {
+                if (!last) {
+                    find(glob, dir, path, index + 1, out);
+                }
+                for (int child : sortedChildren(dir, "")) {
+                    var childPath = Glob.child(path, store.name(child));
+                    if (last) {
+                        emit(glob, child, childPath, out);
+                    }
+                    if (store.isDirectory(child)) {
+                        find(glob, child, childPath, index, out);
+                    }
+                }
+            }
+        }
+    }
+
+    private void found(Glob glob, int node, String path, int index, Consumer<? super String> out) {
+        if (index == glob.length() - 1) {
+            emit(glob, node, path, out);
+        } else if (store.isDirectory(node)) {
+            find(glob, node, path, index + 1, out);
+        }
+    }
+
+    private void emit(Glob glob, int node, String path, Consumer<? super String> out) {
+        if (store.isDirectory(node)) {
+            out.accept(path + "/");
+        } else if (!glob.directoriesOnly()) {
+            out.accept(path);
+        }
+    }
+
+    private int lsTarget(String path) {
+        return path == null || path.isBlank() ? start("", false) : resolveDir(path);
+    }
+
+    private String displayName(int node) {
+        var name = store.name(node);
+        return store.isDirectory(node) ? name + "/" : name;
+    }
+
+    @Override
+    public String pwd() {
+        return cwd == NodeStore.NONE ? removedPwd : store.pathOf(cwd);
+    }
+
+    @Override
+    public PathStatus tryResolve(String path) {
+        int node = resolve(path, true);
+        if (node == NodeStore.NONE) {
+            return PathStatus.MISSING;
+        }
+        return store.isDirectory(node) ? PathStatus.DIRECTORY : PathStatus.FILE;
+    }
+
+    @Override
+    public void touch(String filename) {
+        FileTree.requireFileName(filename);
+        store.addFile(start(filename, false), filename, 0, filename.length());
+    }
+
+    @Override
+    public void rm(String path, boolean recursive) {
+        int node = existing(path);
+        if (store.isDirectory(node) && !recursive) {
+            throw new IsADirectoryException("is a directory: " + store.name(node));
+        }
+        if (cwd != NodeStore.NONE && store.isWithin(cwd, node)) {
+            removedPwd = store.pathOf(cwd);
+            removedName = store.name(node);
+            cwd = NodeStore.NONE;
+        }
+        store.remove(node);
+    }
+
+    @Override
+    public void mv(String source, String target) {
+        int node = existing(source);
+        destination(target, node, (parent, name, start, end) -> {
+            requireOutsideOf(node, parent, "move");
+            store.move(node, parent, name, start, end);
+        });
+    }
+
+    @Override
+    public void cp(String source, String target, boolean recursive) {
+        int node = existing(source);
+        if (store.isDirectory(node) && !recursive) {
+            throw new IsADirectoryException("is a directory: " + store.name(node));
+        }
+        destination(target, node, (parent, name, start, end) -> {
+            requireOutsideOf(node, parent, "copy");
+            store.copy(node, parent, name, start, end);
+        });
+    }
+
+    private interface Destination {
+        void accept(int parent, CharSequence name, int start, int end);
+    }
+
+    // Same rules as FileTree: into an existing directory under the source's name, otherwise as the
+    // last segment of path, never over an existing file.
+    private void destination(String path, int source, Destination action) {
+        FileTree.requireNonBlank(path);
+        int existing;
+        try {
+            existing = resolve(path);
+        } catch (NotFoundException e) {
+            existing = NodeStore.NONE;
+        }
+        if (existing != NodeStore.NONE) {
+            if (!store.isDirectory(existing)) {
+                throw new AlreadyExistsException("name already exists: " + store.name(existing));
+            }
+            var name = store.name(source);
+            action.accept(existing, name, 0, name.length());
+            return;
+        }
+        int end = path.length();
+        while (end > 1 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        long leaf = PathCursor.leaf(path, end);
+        int parent = resolveParent(path, leaf);
+        action.accept(parent, path, PathCursor.leafStart(leaf), PathCursor.leafEnd(leaf));
+    }
+
+    private void requireOutsideOf(int node, int target, String operation) {
+        if (store.isWithin(target, node)) {
+            throw new InvalidPathException("cannot " + operation + " a directory into itself: " + store.name(node));
+        }
+    }
+
+    // The node a path names for rm, mv and cp: never the root, and a trailing '/' requires a directory.
+    private int existing(String path) {
+        if (path == null) {
+            throw new InvalidPathException("path cannot be blank");
+        }
+        int end = path.length();
+        while (end > 1 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        FileTree.requireNonBlank(path, end);
+        long leaf = PathCursor.leaf(path, end);
+        int parent = resolveParent(path, leaf);
+        int leafStart = PathCursor.leafStart(leaf);
+        int leafEnd = PathCursor.leafEnd(leaf);
+        int node = store.child(parent, path, leafStart, leafEnd);
+        if (node == NodeStore.NONE) {
+            throw new NotFoundException("not found: " + path.substring(leafStart, leafEnd));
+        }
+        if (end < path.length() && !store.isDirectory(node)) {
+            throw new NotADirectoryException("not a directory: " + store.name(node));
+        }
+        return node;
+    }
+
+    @Override
+    public void write(String path, byte[] data) {
+        Objects.requireNonNull(data, "data");
+        content(createFile(path, false)).replace(ByteBuffer.wrap(data));
+    }
+
+    @Override
+    public void append(String path, byte[] data) {
+        Objects.requireNonNull(data, "data");
+        content(createFile(path, false)).append(ByteBuffer.wrap(data));
+    }
+
+    @Override
+    public byte[] read(String path, long offset, int length) {
+        return FileTree.read(store.contentOrNull(resolveFile(path)), offset, length);
+    }
+
+    @Override
+    public SeekableByteChannel newByteChannel(String path, OpenOption... options) {
+        return newByteChannel(path, new HashSet<>(Arrays.asList(options)));
+    }
+
+    private FileContentChannel newByteChannel(String path, Set<? extends OpenOption> options) {
+        var mode = OpenMode.of(options);
+        int file;
+        if (mode.createNew()) {
+            file = createFile(path, true);
+        } else if (mode.create()) {
+            file = createFile(path, false);
+        } else {
+            file = resolveFile(path);
+        }
+        var content = content(file);
+        if (mode.truncate()) {
+            content.truncate(0);
+        }
+        return new FileContentChannel(content, mode.read(), mode.write(), mode.append());
+    }
+
+    @Override
+    public InputStream newInputStream(String path) {
+        return new FileContentInputStream(newByteChannel(path, Set.of(StandardOpenOption.READ)));
+    }
+
+    @Override
+    public OutputStream newOutputStream(String path, OpenOption... options) {
+        var requested = new HashSet<OpenOption>(Arrays.asList(options));
+        return new FileContentOutputStream(newByteChannel(path, OpenMode.forOutputStream(requested)));
+    }
+
+    private FileContent content(int file) {
+        return store.content(file);
+    }
+
+    private int resolve(String path) {
+        return resolve(path, false);
+    }
+
+    // Where path starts: the root, or the working directory unless it has been removed.
+    private int start(String path, boolean orNull) {
+        if (!path.isEmpty() && path.charAt(0) == '/') {
+            return NodeStore.ROOT;
+        }
+        if (cwd == NodeStore.NONE && !orNull) {
+            throw new NotFoundException("not found: " + removedName, false);
+        }
+        return cwd;
+    }
+
+    // With orNull, a miss returns NONE instead of throwing. Misses are routine, so the exceptions
+    // lookups throw carry no stack trace.
+    private int resolve(String path, boolean orNull) {
+        FileTree.requireNonBlank(path);
+        var hasTrailingSlash = path.length() > 1 && path.charAt(path.length() - 1) == '/';
+        var cursor = new PathCursor(path, path.length());
+
+        int current = start(path, orNull);
+        if (current == NodeStore.NONE) {
+            return NodeStore.NONE;
+        }
+        int result = current;
+        while (cursor.next()) {
+            if (cursor.isDotDot()) {
+                int parent = store.parent(current);
+                current = parent == NodeStore.NONE ? current : parent;
+                result = current;
+                continue;
+            }
+
+            int child = store.child(current, cursor, 0, cursor.length());
+            if (child == NodeStore.NONE) {
+                if (orNull) {
+                    return NodeStore.NONE;
+                }
+                throw new NotFoundException("not found: " + cursor, false);
+            }
+            result = child;
+            if (!store.isDirectory(child) && (cursor.hasNext() || hasTrailingSlash)) {
+                if (orNull) {
+                    return NodeStore.NONE;
+                }
+                throw new NotADirectoryException("not a directory: " + cursor, false);
+            }
+            current = child;
+        }
+        return result;
+    }
+
+    private int resolveDir(String path) {
+        int node = resolve(path);
+        if (!store.isDirectory(node)) {
+            throw new NotADirectoryException("not a directory: " + store.name(node), false);
+        }
+        return node;
+    }
+
+    private int resolveFile(String path) {
+        int node = resolve(path);
+        if (store.isDirectory(node)) {
+            throw new IsADirectoryException("is a directory: " + store.name(node));
+        }
+        return node;
+    }
+
+    // Walks everything before the leaf, which must all be directories.
+    private int resolveParent(String path, long leaf) {
+        int leafStart = PathCursor.leafStart(leaf);
+        var cursor = new PathCursor(path, leafStart);
+        int current = start(path, false);
+        while (cursor.next()) {
+            if (cursor.isDotDot()) {
+                int parent = store.parent(current);
+                current = parent == NodeStore.NONE ? current : parent;
+                continue;
+            }
+            int child = childOrThrow(current, cursor);
+            if (!store.isDirectory(child)) {
+                throw new NotADirectoryException("not a directory: " + cursor, false);
+            }
+            current = child;
+        }
+        requireNonBlankLeaf(path, leafStart, PathCursor.leafEnd(leaf));
+        return current;
+    }
+
+    private int createFile(String path, boolean exclusive) {
+        FileTree.requireNonBlank(path);
+        long leaf = PathCursor.leaf(path, path.length());
+        int parent = resolveParent(path, leaf);
+        int leafStart = PathCursor.leafStart(leaf);
+        int leafEnd = PathCursor.leafEnd(leaf);
+
+        int existing = store.child(parent, path, leafStart, leafEnd);
+        if (existing == NodeStore.NONE) {
+            return store.addFile(parent, path, leafStart, leafEnd);
+        }
+        if (exclusive) {
+            throw new AlreadyExistsException("name already exists: " + path.substring(leafStart, leafEnd));
+        }
+        if (store.isDirectory(existing)) {
+            throw new IsADirectoryException("is a directory: " + store.name(existing));
+        }
+        return existing;
+    }
+
+    private static void requireNonBlankLeaf(String path, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(path.charAt(i))) {
+                return;
+            }
+        }
+        throw new InvalidPathException("leaf name cannot be blank");
+    }
+
+    private int childOrThrow(int dir, PathCursor segment) {
+        int child = store.child(dir, segment, 0, segment.length());
+        if (child == NodeStore.NONE) {
+            throw new NotFoundException("not found: " + segment, false);
+        }
+        return child;
+    }
+}
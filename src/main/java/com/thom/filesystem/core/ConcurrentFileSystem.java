@@ -0,0 +1,29 @@
+package com.thom.filesystem.core;
+
+import com.thom.filesystem.models.DirectoryNode;
+
+public final class ConcurrentFileSystem extends TreeFileSystem {
+    private volatile DirectoryNode cwd;
+
+    public ConcurrentFileSystem() {
+        this(FileTree.concurrent());
+    }
+
+    public ConcurrentFileSystem(FileTree tree) {
+        super(tree);
+        if (!tree.isConcurrent()) {
+            throw new IllegalArgumentException("tree must be created with FileTree.concurrent()");
+        }
+        this.cwd = tree.root();
+    }
+
+    @Override
+    DirectoryNode cwd() {
+        return cwd;
+    }
+
+    @Override
+    void cwd(DirectoryNode cwd) {
+        this.cwd = cwd;
+    }
+}
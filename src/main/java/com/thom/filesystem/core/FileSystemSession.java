@@ -0,0 +1,29 @@
+package com.thom.filesystem.core;
+
+import com.thom.filesystem.models.DirectoryNode;
+
+// A client's view of a shared FileTree: just the tree and a working directory. Each session is
+// meant to be driven by one client at a time; open one per client from the same tree (created
+// with FileTree.concurrent() when clients run on different threads).
+public final class FileSystemSession extends TreeFileSystem {
+    private DirectoryNode cwd;
+
+    FileSystemSession(FileTree tree, DirectoryNode cwd) {
+        super(tree);
+        this.cwd = cwd;
+    }
+
+    public FileTree tree() {
+        return tree;
+    }
+
+    @Override
+    DirectoryNode cwd() {
+        return cwd;
+    }
+
+    @Override
+    void cwd(DirectoryNode cwd) {
+        this.cwd = cwd;
+    }
+}
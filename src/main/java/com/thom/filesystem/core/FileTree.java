@@ -1,63 +1,276 @@
 package com.thom.filesystem.core;
 
 import com.thom.filesystem.errors.AlreadyExistsException;
+import com.thom.filesystem.errors.DirectoryNotEmptyException;
 import com.thom.filesystem.errors.InvalidPathException;
+import com.thom.filesystem.errors.IsADirectoryException;
 import com.thom.filesystem.errors.NotADirectoryException;
 import com.thom.filesystem.errors.NotFoundException;
+import com.thom.filesystem.io.FileContentChannel;
+import com.thom.filesystem.io.FileContentInputStream;
+import com.thom.filesystem.io.FileContentOutputStream;
 import com.thom.filesystem.models.DirectoryNode;
+import com.thom.filesystem.models.FileContent;
 import com.thom.filesystem.models.FileNode;
 import com.thom.filesystem.models.Node;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 public final class FileTree {
+    private static final TreeListener[] NO_LISTENERS = new TreeListener[0];
+
+    private final FileTreeOptions options;
     private final DirectoryNode root;
+    private final ResolutionCache resolutionCache;
+    private final NameTable names;
+
+    // Copy-on-write: mutations read it with one volatile load.
+    private volatile TreeListener[] listeners = NO_LISTENERS;
+
+    // Write lock: removes and moves. Read lock: creates and writes, only while listeners are registered.
+    private final ReentrantReadWriteLock structure = new ReentrantReadWriteLock();
 
     public FileTree() {
-        this.root = new DirectoryNode("/", null);
+        this(FileTreeOptions.defaults());
+    }
+
+    public FileTree(FileTreeOptions options) {
+        this.options = Objects.requireNonNull(options, "options");
+        this.root = new DirectoryNode("/", null, options.concurrent(), options.compact());
+        this.resolutionCache = options.resolutionCacheSize() == 0
+                ? null
+                : new ResolutionCache(options.resolutionCacheSize());
+        this.names = options.compact() ? new NameTable() : null;
+    }
+
+    public static FileTree concurrent() {
+        return new FileTree(FileTreeOptions.defaults().withConcurrent(true));
+    }
+
+    public FileTreeOptions options() {
+        return options;
+    }
+
+    public boolean isConcurrent() {
+        return root.isConcurrent();
     }
 
     public DirectoryNode root() {
         return root;
     }
 
+    public Optional<ResolutionCache> resolutionCache() {
+        return Optional.ofNullable(resolutionCache);
+    }
+
+    // Interned when the tree is compact.
+    public String intern(String name) {
+        Objects.requireNonNull(name, "name");
+        return names == null ? name : names.intern(name);
+    }
+
+    public synchronized void addListener(TreeListener listener) {
+        Objects.requireNonNull(listener, "listener");
+        var updated = Arrays.copyOf(listeners, listeners.length + 1);
+        updated[listeners.length] = listener;
+        listeners = updated;
+    }
+
+    public synchronized boolean removeListener(TreeListener listener) {
+        var current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                var updated = new TreeListener[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                listeners = updated;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // O(nodes); concurrent changes may or may not be counted.
+    public TreeStats stats() {
+        var dirs = new ArrayDeque<DirectoryNode>();
+        var depths = new ArrayDeque<Integer>();
+        dirs.push(root);
+        depths.push(0);
+        long nodes = 1;
+        int maxDepth = 0;
+        int widest = 0;
+        while (!dirs.isEmpty()) {
+            var dir = dirs.pop();
+            int depth = depths.pop();
+            int width = 0;
+            for (var child : dir.children()) {
+                width++;
+                if (child instanceof DirectoryNode subdirectory) {
+                    dirs.push(subdirectory);
+                    depths.push(depth + 1);
+                }
+            }
+            nodes += width;
+            widest = Math.max(widest, width);
+            if (width > 0) {
+                maxDepth = Math.max(maxDepth, depth + 1);
+            }
+        }
+        return new TreeStats(nodes, maxDepth, widest);
+    }
+
+    public FileSystemSession openSession() {
+        return new FileSystemSession(this, root);
+    }
+
+    // Built back to front from the node upwards, in one buffer.
+    public static String pathOf(Node node) {
+        Objects.requireNonNull(node, "node");
+        var buffer = new char[64];
+        int start = buffer.length;
+        for (Node current = node, parent; (parent = current.parent()) != null; current = parent) {
+            var name = current.name();
+            if (start <= name.length()) {
+                var grown = growFront(buffer, start, name.length() + 1);
+                start += grown.length - buffer.length;
+                buffer = grown;
+            }
+            start -= name.length();
+            name.getChars(0, name.length(), buffer, start);
+            buffer[--start] = '/';
+        }
+        return start == buffer.length ? "/" : new String(buffer, start, buffer.length - start);
+    }
+
+    // A larger buffer with the chars after start moved to its end.
+    static char[] growFront(char[] buffer, int start, int needed) {
+        int filled = buffer.length - start;
+        var grown = new char[Math.max(buffer.length * 2, filled + needed)];
+        System.arraycopy(buffer, start, grown, grown.length - filled, filled);
+        return grown;
+    }
+
     public Node resolve(String path, DirectoryNode cwd) {
+        return resolve(path, cwd, false);
+    }
+
+    // null where resolve would throw NotFoundException or NotADirectoryException.
+    public Node tryResolve(String path, DirectoryNode cwd) {
+        return resolve(path, cwd, true);
+    }
+
+    public boolean exists(String path, DirectoryNode cwd) {
+        return tryResolve(path, cwd) != null;
+    }
+
+    private Node resolve(String path, DirectoryNode cwd, boolean orNull) {
         Objects.requireNonNull(cwd, "cwd");
-        var normalized = normalizePath(path);
+        requireNonBlank(path);
+        var start = start(path, cwd, orNull);
+        if (start == null) {
+            return null;
+        }
+        if (resolutionCache == null) {
+            return walk(path, start, orNull);
+        }
 
-        DirectoryNode current = normalized.isAbsolute ? root : cwd;
-        if (normalized.segments.isEmpty()) {
-            return current;
+        var cached = resolutionCache.get(path, start);
+        if (cached != null) {
+            return cached;
+        }
+        long epoch = resolutionCache.epoch();
+        var resolved = walk(path, start, orNull);
+        if (resolved != null) {
+            resolutionCache.put(path, start, resolved, epoch);
         }
+        return resolved;
+    }
 
-        Node result = current;
-        for (int i = 0; i < normalized.segments.size(); i++) {
-            var segment = normalized.segments.get(i);
-            var isLast = i == normalized.segments.size() - 1;
+    // Where path starts: the root, or cwd unless it has been removed.
+    private DirectoryNode start(String path, DirectoryNode cwd, boolean orNull) {
+        if (!path.isEmpty() && path.charAt(0) == '/') {
+            return root;
+        }
+        var removed = removedAncestor(cwd);
+        if (removed == null) {
+            return cwd;
+        }
+        if (orNull) {
+            return null;
+        }
+        throw notFound(removed.name());
+    }
 
-            if ("..".equals(segment)) {
+    // The removed directory that dir is, or is inside, if any.
+    private static DirectoryNode removedAncestor(DirectoryNode dir) {
+        for (var current = dir; current != null; current = current.parent()) {
+            if (current.isRemoved()) {
+                return current;
+            }
+        }
+        return null;
+    }
+
+    // Lookup failures are routine, so they carry no stack trace.
+    private Node walk(String path, DirectoryNode start, boolean orNull) {
+        var hasTrailingSlash = path.length() > 1 && path.charAt(path.length() - 1) == '/';
+        var cursor = new PathCursor(path, path.length());
+
+        DirectoryNode current = start;
+        Node result = current;
+        while (cursor.next()) {
+            if (cursor.isDotDot()) {
                 var parent = current.parent();
                 current = parent == null ? current : parent;
                 result = current;
                 continue;
             }
 
-            var child = resolveChildOrThrow(current, segment);
+            var child = current.getChild(cursor);
+            if (child == null) {
+                if (orNull) {
+                    return null;
+                }
+                throw notFound(cursor);
+            }
             result = child;
 
-            if (!isLast) {
+            if (cursor.hasNext()) {
                 if (child instanceof DirectoryNode childDir) {
                     current = childDir;
+                } else if (orNull) {
+                    return null;
                 } else {
-                    throw new NotADirectoryException("not a directory: " + child.name());
+                    throw notADirectory(child);
                 }
                 continue;
             }
 
-            if (normalized.hasTrailingSlash && !(child instanceof DirectoryNode)) {
-                throw new NotADirectoryException("not a directory: " + child.name());
+            if (hasTrailingSlash && !(child instanceof DirectoryNode)) {
+                if (orNull) {
+                    return null;
+                }
+                throw notADirectory(child);
             }
         }
 
@@ -69,104 +282,824 @@ public final class FileTree {
         if (node instanceof DirectoryNode dir) {
             return dir;
         }
-        throw new NotADirectoryException("not a directory: " + node.name());
+        throw notADirectory(node);
     }
 
     public ResolvedParent resolveParent(String path, DirectoryNode cwd) {
         Objects.requireNonNull(cwd, "cwd");
-        var normalized = normalizePath(path);
-        if (normalized.hasTrailingSlash) {
-            throw new InvalidPathException("path cannot have trailing '/'");
-        }
-        if (normalized.segments.isEmpty()) {
-            throw new InvalidPathException("path must include a leaf name");
-        }
-
-        var leafName = normalized.segments.getLast();
-        if ("..".equals(leafName)) {
-            throw new InvalidPathException("leaf name cannot be '..'");
-        }
+        requireNonBlank(path);
+        return resolveParent(path, path.length(), cwd);
+    }
 
-        DirectoryNode current = normalized.isAbsolute ? root : cwd;
-        for (int i = 0; i < normalized.segments.size() - 1; i++) {
-            var segment = normalized.segments.get(i);
+    private ResolvedParent resolveParent(String path, int end, DirectoryNode cwd) {
+        long leaf = PathCursor.leaf(path, end);
+        int leafStart = PathCursor.leafStart(leaf);
+        int leafEnd = PathCursor.leafEnd(leaf);
 
-            if ("..".equals(segment)) {
+        var cursor = new PathCursor(path, leafStart);
+        DirectoryNode current = start(path, cwd, false);
+        while (cursor.next()) {
+            if (cursor.isDotDot()) {
                 var parent = current.parent();
                 current = parent == null ? current : parent;
                 continue;
             }
 
-            var child = resolveChildOrThrow(current, segment);
+            var child = resolveChildOrThrow(current, cursor);
             if (child instanceof DirectoryNode childDir) {
                 current = childDir;
             } else {
-                throw new NotADirectoryException("not a directory: " + child.name());
+                throw notADirectory(child);
             }
         }
 
+        var leafName = names == null ? path.substring(leafStart, leafEnd) : names.intern(path, leafStart, leafEnd);
         return new ResolvedParent(current, leafName);
     }
 
     public DirectoryNode mkdir(String path, DirectoryNode cwd) {
         Objects.requireNonNull(cwd, "cwd");
-        var normalized = removeTrailingSlashes(path);
+        if (path == null) {
+            throw new InvalidPathException("path cannot be blank");
+        }
+        int end = path.length();
+        while (end > 1 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        requireNonBlank(path, end);
 
-        var resolvedParent = resolveParent(normalized, cwd);
+        var resolvedParent = resolveParent(path, end, cwd);
         var parent = resolvedParent.parent();
         var leafName = resolvedParent.leafName();
 
         var newDir = new DirectoryNode(leafName, parent);
-        parent.addChild(newDir);
+        var observed = observedLock();
+        try {
+            synchronized (parent) {
+                publish(parent, newDir);
+            }
+        } finally {
+            unlock(observed);
+        }
+        completed();
         return newDir;
     }
 
-    public FileNode touch(String fileName, DirectoryNode cwd) {
+    // mkdir -p.
+    public DirectoryNode mkdirs(String path, DirectoryNode cwd) {
         Objects.requireNonNull(cwd, "cwd");
-        if (fileName == null || fileName.isBlank()) {
-            throw new InvalidPathException("file name cannot be blank");
+        var trail = new Trail();
+        var dir = mkdirs(path, cwd, trail);
+        if (trail.created > 0) {
+            completed();
         }
-        if (fileName.contains("/")) {
-            throw new InvalidPathException("touch only accepts a filename in cwd");
+        return dir;
+    }
+
+    // Returns how many directories were created. A failing path stops the rest.
+    public long mkdirs(Collection<String> paths, DirectoryNode cwd) {
+        Objects.requireNonNull(paths, "paths");
+        Objects.requireNonNull(cwd, "cwd");
+        var sorted = MkdirsTrail.sorted(paths);
+        var trail = new Trail();
+        for (var path : sorted) {
+            long before = trail.created;
+            mkdirs(path, cwd, trail);
+            if (trail.created != before) {
+                completed();
+            }
         }
-        if (".".equals(fileName) || "..".equals(fileName)) {
-            throw new InvalidPathException("invalid file name: " + fileName);
+        return trail.created;
+    }
+
+    private static final class Trail extends MkdirsTrail {
+        DirectoryNode[] dirs = new DirectoryNode[16];
+
+        void push(int end, DirectoryNode dir) {
+            int at = push(end);
+            dirs[at] = dir;
         }
 
+        @Override
+        void grow(int capacity) {
+            dirs = Arrays.copyOf(dirs, capacity);
+        }
+    }
+
+    private DirectoryNode mkdirs(String path, DirectoryNode cwd, Trail trail) {
+        if (path == null) {
+            throw new InvalidPathException("path cannot be blank");
+        }
+        int end = path.length();
+        while (end > 1 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        requireNonBlank(path, end);
+
+        int depth = trail.resume(path, end);
+        DirectoryNode current = depth > 0 ? trail.dirs[depth] : start(path, cwd, false);
+
+        var cursor = new PathCursor(path, trail.ends[depth], end);
+        while (cursor.next()) {
+            if (cursor.isDotDot()) {
+                var parent = current.parent();
+                current = parent == null ? current : parent;
+            } else {
+                var child = current.getChild(cursor);
+                if (child == null) {
+                    child = createDirectory(current, path, cursor, trail);
+                }
+                if (!(child instanceof DirectoryNode dir)) {
+                    if (cursor.hasNext()) {
+                        throw notADirectory(child);
+                    }
+                    throw new AlreadyExistsException("name already exists: " + child.name());
+                }
+                current = dir;
+            }
+            trail.push(cursor.segmentEnd(), current);
+        }
+        return current;
+    }
+
+    private Node createDirectory(DirectoryNode parent, String path, PathCursor segment, Trail trail) {
+        int start = segment.segmentStart();
+        int stop = segment.segmentEnd();
+        var name = names == null ? path.substring(start, stop) : names.intern(path, start, stop);
+        if (name.isBlank()) {
+            throw new InvalidPathException("leaf name cannot be blank");
+        }
+        Node existing;
+        var observed = observedLock();
+        try {
+            synchronized (parent) {
+                existing = parent.getChild(name);
+                if (existing == null) {
+                    var dir = new DirectoryNode(name, parent);
+                    publish(parent, dir);
+                    trail.created++;
+                    return dir;
+                }
+            }
+        } finally {
+            unlock(observed);
+        }
+        return existing;
+    }
+
+    public FileNode touch(String fileName, DirectoryNode cwd) {
+        Objects.requireNonNull(cwd, "cwd");
+        requireFileName(fileName);
+        start(fileName, cwd, false);
+
         if (cwd.getChild(fileName) != null) {
             throw new AlreadyExistsException("name already exists: " + fileName);
         }
 
-        var file = new FileNode(fileName, cwd);
-        cwd.addChild(file);
+        var file = new FileNode(names == null ? fileName : names.intern(fileName), cwd);
+        var observed = observedLock();
+        try {
+            synchronized (cwd) {
+                publish(cwd, file);
+            }
+        } finally {
+            unlock(observed);
+        }
+        completed();
         return file;
     }
 
+    public FileNode resolveFile(String path, DirectoryNode cwd) {
+        var node = resolve(path, cwd);
+        if (node instanceof FileNode file) {
+            return file;
+        }
+        throw new IsADirectoryException("is a directory: " + node.name());
+    }
+
+    public FileNode write(String path, byte[] data, DirectoryNode cwd) {
+        Objects.requireNonNull(data, "data");
+        var file = createFile(path, cwd, false);
+        var content = content(file);
+        if (listeners.length == 0) {
+            content.replace(ByteBuffer.wrap(data));
+            return file;
+        }
+        synchronized (content) {
+            content.replace(ByteBuffer.wrap(data));
+            fireTruncated(file, 0);
+            fireWritten(file, 0, ByteBuffer.wrap(data));
+        }
+        completed();
+        return file;
+    }
+
+    public FileNode append(String path, byte[] data, DirectoryNode cwd) {
+        Objects.requireNonNull(data, "data");
+        var file = createFile(path, cwd, false);
+        var content = content(file);
+        if (listeners.length == 0) {
+            content.append(ByteBuffer.wrap(data));
+            return file;
+        }
+        synchronized (content) {
+            long position = content.size();
+            content.append(ByteBuffer.wrap(data));
+            fireWritten(file, position, ByteBuffer.wrap(data));
+        }
+        completed();
+        return file;
+    }
+
+    public byte[] read(String path, long offset, int length, DirectoryNode cwd) {
+        return read(resolveFile(path, cwd).content(), offset, length);
+    }
+
+    // A file without content has never been written and reads as empty.
+    static byte[] read(FileContent content, long offset, int length) {
+        if (content != null) {
+            return content.read(offset, length);
+        }
+        if (offset < 0 || length < 0) {
+            throw new IllegalArgumentException((offset < 0 ? "position" : "length") + " cannot be negative");
+        }
+        return new byte[0];
+    }
+
+    // Created on first use.
+    public FileContent content(FileNode file) {
+        return file.content(options.contentChunkSize(), options.directContent());
+    }
+
+    public FileContentChannel newByteChannel(String path, Set<? extends OpenOption> options, DirectoryNode cwd) {
+        var mode = OpenMode.of(options);
+        FileNode file;
+        if (mode.createNew()) {
+            file = createFile(path, cwd, true);
+        } else if (mode.create()) {
+            file = createFile(path, cwd, false);
+        } else {
+            file = resolveFile(path, cwd);
+        }
+        var observer = mode.write() && listeners.length != 0 ? new ChannelObserver(file) : null;
+        var content = content(file);
+        if (mode.truncate()) {
+            if (observer == null) {
+                content.truncate(0);
+            } else {
+                synchronized (content) {
+                    content.truncate(0);
+                    observer.truncated(0);
+                }
+                observer.completed();
+            }
+        }
+        return new FileContentChannel(content, mode.read(), mode.write(), mode.append(), observer);
+    }
+
+    // Channels capture the listeners present when they are opened.
+    private final class ChannelObserver implements FileContentChannel.Observer {
+        private final FileNode file;
+
+        ChannelObserver(FileNode file) {
+            this.file = file;
+        }
+
+        @Override
+        public void written(long position, ByteBuffer data) {
+            fireWritten(file, position, data);
+        }
+
+        @Override
+        public void truncated(long size) {
+            fireTruncated(file, size);
+        }
+
+        @Override
+        public void completed() {
+            FileTree.this.completed();
+        }
+    }
+
+    public InputStream newInputStream(String path, DirectoryNode cwd) {
+        return new FileContentInputStream(newByteChannel(path, Set.of(StandardOpenOption.READ), cwd));
+    }
+
+    public OutputStream newOutputStream(String path, Set<? extends OpenOption> options, DirectoryNode cwd) {
+        return new FileContentOutputStream(newByteChannel(path, OpenMode.forOutputStream(options), cwd));
+    }
+
+    private FileNode createFile(String path, DirectoryNode cwd, boolean exclusive) {
+        var resolvedParent = resolveParent(path, cwd);
+        var parent = resolvedParent.parent();
+        var leafName = resolvedParent.leafName();
+
+        var existing = parent.getChild(leafName);
+        if (existing == null) {
+            FileNode file = null;
+            var observed = observedLock();
+            try {
+                synchronized (parent) {
+                    existing = parent.getChild(leafName);
+                    if (existing == null) {
+                        file = new FileNode(leafName, parent);
+                        publish(parent, file);
+                    }
+                }
+            } finally {
+                unlock(observed);
+            }
+            if (file != null) {
+                completed();
+                return file;
+            }
+        }
+        if (exclusive) {
+            throw new AlreadyExistsException("name already exists: " + leafName);
+        }
+        if (existing instanceof FileNode file) {
+            return file;
+        }
+        throw new IsADirectoryException("is a directory: " + existing.name());
+    }
+
+    // Caller holds the parent's monitor, and the observed lock if there are listeners.
+    private void publish(DirectoryNode parent, Node node) {
+        if (removedAncestor(parent) != null) {
+            throw new NotFoundException("not found: " + parent.name());
+        }
+        var current = listeners;
+        if (current.length != 0) {
+            if (parent.getChild(node.name()) != null) {
+                throw new AlreadyExistsException("name already exists: " + node.name());
+            }
+            for (var listener : current) {
+                listener.created(node);
+            }
+        }
+        parent.addChild(node);
+    }
+
+    // Called under the content's monitor. Writes to removed files go unreported.
+    private void fireWritten(FileNode file, long position, ByteBuffer data) {
+        var observed = observedLock();
+        try {
+            if (isAttached(file)) {
+                for (var listener : listeners) {
+                    listener.written(file, position, data.duplicate());
+                }
+            }
+        } finally {
+            unlock(observed);
+        }
+    }
+
+    private void fireTruncated(FileNode file, long size) {
+        var observed = observedLock();
+        try {
+            if (isAttached(file)) {
+                for (var listener : listeners) {
+                    listener.truncated(file, size);
+                }
+            }
+        } finally {
+            unlock(observed);
+        }
+    }
+
+    private void completed() {
+        for (var listener : listeners) {
+            listener.completed();
+        }
+    }
+
+    private Lock observedLock() {
+        if (listeners.length == 0) {
+            return null;
+        }
+        var lock = structure.readLock();
+        lock.lock();
+        return lock;
+    }
+
+    private static void unlock(Lock lock) {
+        if (lock != null) {
+            lock.unlock();
+        }
+    }
+
+    // Stable only while structure is held.
+    private boolean isAttached(Node node) {
+        for (Node current = node; current != root; ) {
+            var parent = current.parent();
+            if (parent == null || parent.getChild(current.name()) != current) {
+                return false;
+            }
+            current = parent;
+        }
+        return true;
+    }
+
     public List<String> ls(String path, DirectoryNode cwd) {
+        return ls(path, null, Integer.MAX_VALUE, cwd);
+    }
+
+    public List<String> ls(String path, String startAfter, int limit, DirectoryNode cwd) {
+        var page = Page.of(startAfter, limit);
+        var dir = lsTarget(path, cwd);
+        var displayNames = new ArrayList<String>(Math.min(limit, dir.childCount()));
+        forEachDisplayName(dir, page.after(), limit, displayNames::add);
+        return Collections.unmodifiableList(displayNames);
+    }
+
+    public void ls(String path, Consumer<? super String> sink, DirectoryNode cwd) {
+        Objects.requireNonNull(sink, "sink");
+        forEachDisplayName(lsTarget(path, cwd), null, Integer.MAX_VALUE, sink);
+    }
+
+    private DirectoryNode lsTarget(String path, DirectoryNode cwd) {
         Objects.requireNonNull(cwd, "cwd");
-        if (path == null || path.isBlank()) {
-            return toLsDisplayNames(cwd);
+        return path == null || path.isBlank() ? start("", cwd, false) : resolveDir(path, cwd);
+    }
+
+    private static void forEachDisplayName(DirectoryNode dir, CharSequence startAfter, int limit,
+                                           Consumer<? super String> sink) {
+        int remaining = limit;
+        for (var child : dir.childrenAfter(startAfter)) {
+            if (remaining-- == 0) {
+                return;
+            }
+            sink.accept(child instanceof DirectoryNode ? child.name() + "/" : child.name());
         }
-        return toLsDisplayNames(resolveDir(path, cwd));
     }
 
-    private static List<String> toLsDisplayNames(DirectoryNode dir) {
-        var displayNames = new ArrayList<String>();
-        for (var name : dir.childNames()) {
-            var child = dir.getChild(name);
-            if (child instanceof DirectoryNode) {
-                displayNames.add(name + "/");
-            } else {
-                displayNames.add(name);
+    // Pre-order, children in name order. Each directory under "**" is searched by its own fork-join task.
+    public List<String> find(String pattern, DirectoryNode cwd) {
+        var glob = Glob.compile(pattern);
+        var found = ForkJoinPool.commonPool().invoke(new FindTask(glob, findBase(glob, cwd), glob.base(), 0));
+        return Collections.unmodifiableList(glob.mayRepeat() ? List.copyOf(new LinkedHashSet<>(found)) : found);
+    }
+
+    public void find(String pattern, Consumer<? super String> sink, DirectoryNode cwd) {
+        Objects.requireNonNull(sink, "sink");
+        var glob = Glob.compile(pattern);
+        var start = findBase(glob, cwd);
+        var out = glob.distinct(sink);
+        find(glob, start, glob.base(), 0, found -> out.accept((String) found), false);
+    }
+
+    private DirectoryNode findBase(Glob glob, DirectoryNode cwd) {
+        Objects.requireNonNull(cwd, "cwd");
+        return glob.base().isEmpty() ? start("", cwd, false) : resolveDir(glob.base(), cwd);
+    }
+
+    private static void find(Glob glob, DirectoryNode dir, String path, int index, Consumer<Object> out, boolean fork) {
+        var segment = glob.segment(index);
+        boolean last = index == glob.length() - 1;
+        switch (segment.kind()) {
+            case LITERAL -> {
+                var child = dir.getChild(segment.name());
+                if (child != null) {
+                    found(glob, child, Glob.child(path, child.name()), index, out, fork);
+                }
+            }
+            case PATTERN -> {
+                var prefix = segment.prefix();
+                for (var child : dir.childrenFrom(prefix)) {
+                    if (!child.name().startsWith(prefix)) {
+                        break;
+                    }
+                    if (segment.matches(child.name())) {
+                        found(glob, child, Glob.child(path, child.name()), index, out, fork);
+                    }
+                }
+            }
+            case ANY_DEPTH -> {
+                if (!last) {
+                    find(glob, dir, path, index + 1, out, fork);
+                }
+                for (var child : dir.children()) {
+                    var childPath = Glob.child(path, child.name());
+                    if (last) {
+                        emit(glob, child, childPath, out);
+                    }
+                    if (child instanceof DirectoryNode subdirectory) {
+                        if (fork) {
+                            var task = new FindTask(glob, subdirectory, childPath, index);
+                            task.fork();
+                            out.accept(task);
+                        } else {
+                            find(glob, subdirectory, childPath, index, out, false);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static void found(Glob glob, Node node, String path, int index, Consumer<Object> out, boolean fork) {
+        if (index == glob.length() - 1) {
+            emit(glob, node, path, out);
+        } else if (node instanceof DirectoryNode dir) {
+            find(glob, dir, path, index + 1, out, fork);
+        }
+    }
+
+    private static void emit(Glob glob, Node node, String path, Consumer<Object> out) {
+        if (node instanceof DirectoryNode) {
+            out.accept(path + "/");
+        } else if (!glob.directoriesOnly()) {
+            out.accept(path);
+        }
+    }
+
+    private static final class FindTask extends RecursiveTask<List<String>> {
+        private final Glob glob;
+        private final DirectoryNode dir;
+        private final String path;
+        private final int index;
+
+        FindTask(Glob glob, DirectoryNode dir, String path, int index) {
+            this.glob = glob;
+            this.dir = dir;
+            this.path = path;
+            this.index = index;
+        }
+
+        @Override
+        protected List<String> compute() {
+            var parts = new ArrayList<Object>();
+            find(glob, dir, path, index, parts::add, true);
+            var found = new ArrayList<String>(parts.size());
+            for (var part : parts) {
+                if (part instanceof FindTask task) {
+                    found.addAll(task.join());
+                } else {
+                    found.add((String) part);
+                }
             }
+            return found;
         }
-        return List.copyOf(displayNames);
     }
 
     public DirectoryNode cd(String path, DirectoryNode cwd) {
         return resolveDir(path, cwd);
     }
 
+    // O(1): the subtree is unlinked whole.
+    public void rm(String path, boolean recursive, DirectoryNode cwd) {
+        var node = existing(path, cwd);
+        if (node instanceof DirectoryNode && !recursive) {
+            throw new IsADirectoryException("is a directory: " + node.name());
+        }
+        remove(node, true);
+    }
+
+    // Onto an existing directory moves into it. Existing files are never replaced.
+    public Node mv(String source, String target, DirectoryNode cwd) {
+        var node = existing(source, cwd);
+        var destination = destination(target, node, cwd);
+        move(node, destination.parent(), destination.leafName());
+        return node;
+    }
+
+    public Node cp(String source, String target, boolean recursive, DirectoryNode cwd) {
+        var node = existing(source, cwd);
+        if (node instanceof DirectoryNode && !recursive) {
+            throw new IsADirectoryException("is a directory: " + node.name());
+        }
+        var destination = destination(target, node, cwd);
+        return copy(node, destination.parent(), destination.leafName());
+    }
+
+    public void remove(Node node, boolean recursive) {
+        Objects.requireNonNull(node, "node");
+        if (node == root) {
+            throw new InvalidPathException("cannot remove root");
+        }
+        var exclusive = structure.writeLock();
+        exclusive.lock();
+        beginChange();
+        try {
+            var parent = node.parent();
+            synchronized (parent) {
+                if (parent.getChild(node.name()) != node || !isAttached(parent)) {
+                    throw new NotFoundException("not found: " + node.name());
+                }
+                if (recursive) {
+                    unlink(parent, node);
+                } else {
+                    unlinkEmpty(parent, node);
+                }
+            }
+        } finally {
+            endChange();
+            exclusive.unlock();
+        }
+        completed();
+    }
+
+    private void unlinkEmpty(DirectoryNode parent, Node node) {
+        if (node instanceof DirectoryNode dir) {
+            synchronized (dir) {
+                if (dir.childCount() != 0) {
+                    throw new DirectoryNotEmptyException("directory not empty: " + dir.name());
+                }
+                unlink(parent, node);
+            }
+        } else {
+            unlink(parent, node);
+        }
+    }
+
+    private void unlink(DirectoryNode parent, Node node) {
+        for (var listener : listeners) {
+            listener.removed(node);
+        }
+        parent.removeChild(node);
+        if (node instanceof DirectoryNode dir) {
+            dir.markRemoved();
+        }
+    }
+
+    // An O(1) relink. Moves into the node's own subtree are rejected.
+    public void move(Node node, DirectoryNode target, String name) {
+        move(node, target, name, false);
+    }
+
+    // replace removes a file or empty directory at name under the same lock.
+    public void move(Node node, DirectoryNode target, String name, boolean replace) {
+        Objects.requireNonNull(node, "node");
+        Objects.requireNonNull(target, "target");
+        Objects.requireNonNull(name, "name");
+        if (node == root) {
+            throw new InvalidPathException("cannot move root");
+        }
+        var newName = names == null ? name : names.intern(name);
+        var exclusive = structure.writeLock();
+        exclusive.lock();
+        beginChange();
+        try {
+            requireOutsideOf(node, target, "move");
+            var parent = node.parent();
+            synchronized (parent) {
+                synchronized (target) {
+                    if (parent.getChild(node.name()) != node || !isAttached(parent)) {
+                        throw new NotFoundException("not found: " + node.name());
+                    }
+                    if (!isAttached(target)) {
+                        throw new NotFoundException("not found: " + target.name());
+                    }
+                    var existing = target.getChild(newName);
+                    if (existing == node) {
+                        return;
+                    }
+                    if (existing != null) {
+                        if (!replace) {
+                            throw new AlreadyExistsException("name already exists: " + newName);
+                        }
+                        unlinkEmpty(target, existing);
+                    }
+                    for (var listener : listeners) {
+                        listener.moved(node, target, newName);
+                    }
+                    parent.moveChild(node, target, newName);
+                }
+            }
+        } finally {
+            endChange();
+            exclusive.unlock();
+        }
+        completed();
+    }
+
+    // One fork-join task per directory, published in one step; not atomic, as with cp(1).
+    public Node copy(Node node, DirectoryNode target, String name) {
+        Objects.requireNonNull(node, "node");
+        Objects.requireNonNull(target, "target");
+        Objects.requireNonNull(name, "name");
+        requireOutsideOf(node, target, "copy");
+        var newName = names == null ? name : names.intern(name);
+        if (target.getChild(newName) != null) {
+            throw new AlreadyExistsException("name already exists: " + newName);
+        }
+
+        Node copy;
+        if (node instanceof DirectoryNode dir) {
+            var copyDir = new DirectoryNode(newName, target);
+            ForkJoinPool.commonPool().invoke(new CopyTask(dir, copyDir));
+            copy = copyDir;
+        } else {
+            copy = copyFile((FileNode) node, newName, target);
+        }
+
+        var observed = observedLock();
+        try {
+            synchronized (target) {
+                publish(target, copy);
+            }
+        } finally {
+            unlock(observed);
+        }
+        completed();
+        return copy;
+    }
+
+    private static final class CopyTask extends RecursiveAction {
+        private final DirectoryNode source;
+        private final DirectoryNode copy;
+
+        CopyTask(DirectoryNode source, DirectoryNode copy) {
+            this.source = source;
+            this.copy = copy;
+        }
+
+        @Override
+        protected void compute() {
+            var subdirectories = new ArrayList<CopyTask>();
+            for (var child : source.children()) {
+                switch (child) {
+                    case DirectoryNode dir -> {
+                        var copyDir = new DirectoryNode(dir.name(), copy);
+                        copy.addChild(copyDir);
+                        subdirectories.add(new CopyTask(dir, copyDir));
+                    }
+                    case FileNode file -> copy.addChild(copyFile(file, file.name(), copy));
+                }
+            }
+            invokeAll(subdirectories);
+        }
+    }
+
+    private static FileNode copyFile(FileNode file, String name, DirectoryNode parent) {
+        var content = file.content();
+        return content == null ? new FileNode(name, parent) : new FileNode(name, parent, content.copy());
+    }
+
+    private void requireOutsideOf(Node node, DirectoryNode target, String operation) {
+        for (Node current = target; current != null; current = current.parent()) {
+            if (current == node) {
+                throw new InvalidPathException("cannot " + operation + " a directory into itself: " + node.name());
+            }
+        }
+    }
+
+    private void beginChange() {
+        if (resolutionCache != null) {
+            resolutionCache.beginChange();
+        }
+    }
+
+    private void endChange() {
+        if (resolutionCache != null) {
+            resolutionCache.endChange();
+        }
+    }
+
+    // Never the root; a trailing '/' requires a directory.
+    private Node existing(String path, DirectoryNode cwd) {
+        Objects.requireNonNull(cwd, "cwd");
+        if (path == null) {
+            throw new InvalidPathException("path cannot be blank");
+        }
+        int end = path.length();
+        while (end > 1 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        requireNonBlank(path, end);
+
+        var resolvedParent = resolveParent(path, end, cwd);
+        var node = resolvedParent.parent().getChild(resolvedParent.leafName());
+        if (node == null) {
+            throw new NotFoundException("not found: " + resolvedParent.leafName());
+        }
+        if (end < path.length() && !(node instanceof DirectoryNode)) {
+            throw new NotADirectoryException("not a directory: " + node.name());
+        }
+        return node;
+    }
+
+    private ResolvedParent destination(String path, Node source, DirectoryNode cwd) {
+        requireNonBlank(path);
+        Node existing;
+        try {
+            existing = resolve(path, cwd);
+        } catch (NotFoundException e) {
+            existing = null;
+        }
+        if (existing instanceof DirectoryNode dir) {
+            return new ResolvedParent(dir, source.name());
+        }
+        if (existing != null) {
+            throw new AlreadyExistsException("name already exists: " + existing.name());
+        }
+        int end = path.length();
+        while (end > 1 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        return resolveParent(path, end, cwd);
+    }
+
     public record ResolvedParent(DirectoryNode parent, String leafName) {
         public ResolvedParent {
             Objects.requireNonNull(parent, "parent");
@@ -180,47 +1113,47 @@ public final class FileTree {
         }
     }
 
-    private static Node resolveChildOrThrow(DirectoryNode dir, String segment) {
+    private static Node resolveChildOrThrow(DirectoryNode dir, CharSequence segment) {
         var child = dir.getChild(segment);
         if (child == null) {
-            throw new NotFoundException("not found: " + segment);
+            throw notFound(segment);
         }
         return child;
     }
 
-    private static NormalizedPath normalizePath(String path) {
-        if (path == null || path.isBlank()) {
-            throw new InvalidPathException("path cannot be blank");
-        }
+    private static NotFoundException notFound(CharSequence segment) {
+        return new NotFoundException("not found: " + segment, false);
+    }
 
-        var isAbsolute = path.startsWith("/");
-        var hasTrailingSlash = path.length() > 1 && path.endsWith("/");
+    private static NotADirectoryException notADirectory(Node node) {
+        return new NotADirectoryException("not a directory: " + node.name(), false);
+    }
 
-        var segments = new ArrayList<String>();
-        for (String part : path.split("/")) {
-            if (part.isEmpty() || ".".equals(part)) {
-                continue;
+    // Path rules shared by every backend.
+    static void requireNonBlank(String path) {
+        requireNonBlank(path, path == null ? 0 : path.length());
+    }
+
+    static void requireNonBlank(String path, int end) {
+        if (path != null) {
+            for (int i = 0; i < end; i++) {
+                if (!Character.isWhitespace(path.charAt(i))) {
+                    return;
+                }
             }
-            segments.add(part);
         }
-
-        return new NormalizedPath(isAbsolute, hasTrailingSlash, List.copyOf(segments));
+        throw new InvalidPathException("path cannot be blank");
     }
 
-    private static String removeTrailingSlashes(String path) {
-        if (path == null) {
-            throw new InvalidPathException("path cannot be blank");
+    static void requireFileName(String fileName) {
+        if (fileName == null || fileName.isBlank()) {
+            throw new InvalidPathException("file name cannot be blank");
         }
-        var trimmed = path;
-        while (trimmed.length() > 1 && trimmed.endsWith("/")) {
-            trimmed = trimmed.substring(0, trimmed.length() - 1);
+        if (fileName.contains("/")) {
+            throw new InvalidPathException("touch only accepts a filename in cwd");
         }
-        if (trimmed.isBlank()) {
-            throw new InvalidPathException("path cannot be blank");
+        if (".".equals(fileName) || "..".equals(fileName)) {
+            throw new InvalidPathException("invalid file name: " + fileName);
         }
-        return trimmed;
-    }
-
-    private record NormalizedPath(boolean isAbsolute, boolean hasTrailingSlash, List<String> segments) {
     }
 }
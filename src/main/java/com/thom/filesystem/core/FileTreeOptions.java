@@ -0,0 +1,40 @@
+package com.thom.filesystem.core;
+
+import com.thom.filesystem.models.FileContent;
+
+// compact trees deduplicate names and keep small directories in sorted arrays; see DirectoryNode.
+public record FileTreeOptions(boolean concurrent, int resolutionCacheSize, int contentChunkSize, boolean directContent,
+                              boolean compact) {
+    public FileTreeOptions {
+        if (resolutionCacheSize < 0) {
+            throw new IllegalArgumentException("resolutionCacheSize cannot be negative");
+        }
+        if (contentChunkSize <= 0) {
+            throw new IllegalArgumentException("contentChunkSize must be positive");
+        }
+    }
+
+    public static FileTreeOptions defaults() {
+        return new FileTreeOptions(false, 0, FileContent.DEFAULT_CHUNK_SIZE, true, false);
+    }
+
+    public FileTreeOptions withConcurrent(boolean concurrent) {
+        return new FileTreeOptions(concurrent, resolutionCacheSize, contentChunkSize, directContent, compact);
+    }
+
+    public FileTreeOptions withResolutionCacheSize(int resolutionCacheSize) {
+        return new FileTreeOptions(concurrent, resolutionCacheSize, contentChunkSize, directContent, compact);
+    }
+
+    public FileTreeOptions withContentChunkSize(int contentChunkSize) {
+        return new FileTreeOptions(concurrent, resolutionCacheSize, contentChunkSize, directContent, compact);
+    }
+
+    public FileTreeOptions withDirectContent(boolean directContent) {
+        return new FileTreeOptions(concurrent, resolutionCacheSize, contentChunkSize, directContent, compact);
+    }
+
+    public FileTreeOptions withCompact(boolean compact) {
+        return new FileTreeOptions(concurrent, resolutionCacheSize, contentChunkSize, directContent, compact);
+    }
+}
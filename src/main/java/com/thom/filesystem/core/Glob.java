@@ -0,0 +1,411 @@
+package com.thom.filesystem.core;
+
+import com.thom.filesystem.errors.InvalidPathException;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+// A compiled find pattern. Segments are separated by '/'; within one, '*' matches any run of
+// characters, '?' any single character, [abc], [a-z] and [!a] (or [^a]) one character from a
+// class, and '\' escapes the next character. A segment that is exactly "**" matches any number of
+// directory levels, including none; as the last segment it matches everything below.
+//
+// The leading segments without wildcards form the base: the directory the walk starts from,
+// resolved like any other path (so it may use ".." and must exist). Results are spelled as the base
+// was written followed by the matched names, the way a shell expands a glob.
+//
+// The same segments back the glob: PathMatcher of the imfs file system (see matcher), which also
+// accepts {a,b} alternatives, so find and the NIO API agree on every pattern they both take.
+public final class Glob {
+    enum Kind {
+        LITERAL,
+        PATTERN,
+        ANY_DEPTH
+    }
+
+    private static final int ANY_ONE = -1;
+    private static final int ANY_MANY = -2;
+    // Ops below this index a character class: CLASS_BASE - op.
+    private static final int CLASS_BASE = -3;
+
+    // One segment after the base. For LITERAL, text is the name; for PATTERN it is the literal
+    // prefix every match starts with, which walks use to scan only that range of a directory.
+    static final class Segment {
+        private final Kind kind;
+        private final String text;
+        private final int[] ops;
+        private final char[][] classes;
+        private final boolean[] negated;
+
+        private Segment(Kind kind, String text, int[] ops, char[][] classes, boolean[] negated) {
+            this.kind = kind;
+            this.text = text;
+            this.ops = ops;
+            this.classes = classes;
+            this.negated = negated;
+        }
+
+        Kind kind() {
+            return kind;
+        }
+
+        String name() {
+            return text;
+        }
+
+        String prefix() {
+            return text;
+        }
+
+        // Star matching with backtracking to the last '*' only, which is linear for the common
+        // patterns and O(name * pattern) at worst.
+        boolean matches(CharSequence name) {
+            if (kind != Kind.PATTERN) {
+                return kind == Kind.ANY_DEPTH || text.contentEquals(name);
+            }
+            int p = 0;
+            int n = 0;
+            int star = -1;
+            int starN = 0;
+            while (n < name.length()) {
+                if (p < ops.length && ops[p] == ANY_MANY) {
+                    star = p++;
+                    starN = n;
+                } else if (p < ops.length && matchesOne(ops[p], name.charAt(n))) {
+                    p++;
+                    n++;
+                } else if (star >= 0) {
+                    p = star + 1;
+                    n = ++starN;
+                } else {
+                    return false;
+                }
+            }
+            while (p < ops.length && ops[p] == ANY_MANY) {
+                p++;
+            }
+            return p == ops.length;
+        }
+
+        private boolean matchesOne(int op, char c) {
+            if (op >= 0) {
+                return op == c;
+            }
+            if (op == ANY_ONE) {
+                return true;
+            }
+            int index = CLASS_BASE - op;
+            var ranges = classes[index];
+            boolean inClass = false;
+            for (int i = 0; i < ranges.length && !inClass; i += 2) {
+                inClass = c >= ranges[i] && c <= ranges[i + 1];
+            }
+            return inClass != negated[index];
+        }
+    }
+
+    private final String base;
+    private final Segment[] segments;
+    private final boolean directoriesOnly;
+    private final boolean mayRepeat;
+
+    private Glob(String base, Segment[] segments, boolean directoriesOnly) {
+        this.base = base;
+        this.segments = segments;
+        this.directoriesOnly = directoriesOnly;
+        int anyDepth = 0;
+        for (var segment : segments) {
+            if (segment.kind == Kind.ANY_DEPTH) {
+                anyDepth++;
+            }
+        }
+        this.mayRepeat = anyDepth > 1;
+    }
+
+    static Glob compile(String pattern) {
+        FileTree.requireNonBlank(pattern);
+        var baseNames = new ArrayList<String>();
+        var segments = new ArrayList<Segment>();
+        for (var raw : pattern.split("/")) {
+            if (raw.isEmpty() || raw.equals(".")) {
+                continue;
+            }
+            if (raw.equals("..")) {
+                if (!segments.isEmpty()) {
+                    throw new InvalidPathException("'..' cannot follow a wildcard: " + pattern);
+                }
+                baseNames.add(raw);
+                continue;
+            }
+            var segment = segment(raw);
+            if (segment.kind == Kind.LITERAL && segments.isEmpty()) {
+                baseNames.add(segment.name());
+            } else if (segment.kind != Kind.ANY_DEPTH || segments.isEmpty()
+                    || segments.get(segments.size() - 1).kind != Kind.ANY_DEPTH) {
+                segments.add(segment);
+            }
+        }
+        // Without wildcards, the last name is what is looked for rather than where to look.
+        if (segments.isEmpty()) {
+            if (baseNames.isEmpty() || baseNames.get(baseNames.size() - 1).equals("..")) {
+                throw new InvalidPathException("pattern must end with a name: " + pattern);
+            }
+            segments.add(literal(baseNames.remove(baseNames.size() - 1)));
+        }
+        var base = (pattern.charAt(0) == '/' ? "/" : "") + String.join("/", baseNames);
+        return new Glob(base, segments.toArray(new Segment[0]), pattern.endsWith("/"));
+    }
+
+    // Where the walk starts: "" for the working directory, otherwise a path to resolve.
+    String base() {
+        return base;
+    }
+
+    Segment segment(int index) {
+        return segments[index];
+    }
+
+    int length() {
+        return segments.length;
+    }
+
+    // A trailing '/' only matches directories.
+    boolean directoriesOnly() {
+        return directoriesOnly;
+    }
+
+    // With more than one "**", the same entry can be reached along different splits of its path,
+    // so results need de-duplicating.
+    boolean mayRepeat() {
+        return mayRepeat;
+    }
+
+    // sink, passing each result only the first time if they may repeat.
+    Consumer<? super String> distinct(Consumer<? super String> sink) {
+        if (!mayRepeat) {
+            return sink;
+        }
+        var seen = new HashSet<String>();
+        return found -> {
+            if (seen.add(found)) {
+                sink.accept(found);
+            }
+        };
+    }
+
+    // How a result below path is spelled.
+    static String child(String path, String name) {
+        if (path.isEmpty()) {
+            return name;
+        }
+        return path.endsWith("/") ? path + name : path + "/" + name;
+    }
+
+    // Whether a whole path matches pattern, for PathMatcher. Nothing is resolved: "." and ".." are
+    // names like any other, and absolute patterns only match absolute paths. {a,b,...} tries each
+    // alternative in turn, nested or spanning segments.
+    public static Predicate<String> matcher(String pattern) {
+        FileTree.requireNonBlank(pattern);
+        var alternatives = new ArrayList<Predicate<String>>();
+        for (var expanded : expandBraces(pattern)) {
+            boolean absolute = expanded.startsWith("/");
+            var segments = new ArrayList<Segment>();
+            for (var raw : expanded.split("/")) {
+                if (raw.isEmpty()) {
+                    continue;
+                }
+                var segment = segment(raw);
+                if (segment.kind != Kind.ANY_DEPTH || segments.isEmpty()
+                        || segments.get(segments.size() - 1).kind != Kind.ANY_DEPTH) {
+                    segments.add(segment);
+                }
+            }
+            var compiled = segments.toArray(new Segment[0]);
+            alternatives.add(path -> absolute == path.startsWith("/")
+                    && matches(compiled, 0, names(path), 0));
+        }
+        return path -> {
+            for (var alternative : alternatives) {
+                if (alternative.test(path)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    private static String[] names(String path) {
+        var names = new ArrayList<String>();
+        for (var name : path.split("/")) {
+            if (!name.isEmpty()) {
+                names.add(name);
+            }
+        }
+        return names.toArray(new String[0]);
+    }
+
+    private static boolean matches(Segment[] segments, int index, String[] names, int at) {
+        if (index == segments.length) {
+            return at == names.length;
+        }
+        var segment = segments[index];
+        if (segment.kind == Kind.ANY_DEPTH) {
+            for (int next = at; next <= names.length; next++) {
+                if (matches(segments, index + 1, names, next)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        return at < names.length && segment.matches(names[at]) && matches(segments, index + 1, names, at + 1);
+    }
+
+    // pattern once for each choice of every {a,b,...} in it. Escaped braces and those inside a
+    // character class are left to the segment parser.
+    private static List<String> expandBraces(String pattern) {
+        int open = -1;
+        int depth = 0;
+        var commas = new ArrayList<Integer>();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                i = classEnd(pattern, i);
+            } else if (c == '{') {
+                if (depth++ == 0) {
+                    open = i;
+                }
+            } else if (c == ',' && depth == 1) {
+                commas.add(i);
+            } else if (c == '}' && depth > 0 && --depth == 0) {
+                var expanded = new ArrayList<String>();
+                var prefix = pattern.substring(0, open);
+                var suffix = pattern.substring(i + 1);
+                int from = open + 1;
+                commas.add(i);
+                for (int comma : commas) {
+                    expanded.addAll(expandBraces(prefix + pattern.substring(from, comma) + suffix));
+                    from = comma + 1;
+                }
+                return expanded;
+            }
+        }
+        if (depth > 0) {
+            throw new InvalidPathException("unterminated '{' in pattern: " + pattern);
+        }
+        return List.of(pattern);
+    }
+
+    // The index of the ']' closing the class opened at pattern[open], or the end of pattern.
+    private static int classEnd(String pattern, int open) {
+        int i = open + 1;
+        if (i < pattern.length() && (pattern.charAt(i) == '!' || pattern.charAt(i) == '^')) {
+            i++;
+        }
+        if (i < pattern.length() && pattern.charAt(i) == ']') {
+            i++;
+        }
+        while (i < pattern.length() && pattern.charAt(i) != ']') {
+            if (pattern.charAt(i) == '\\') {
+                i++;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static Segment literal(String name) {
+        return new Segment(Kind.LITERAL, name, null, null, null);
+    }
+
+    private static Segment segment(String raw) {
+        if (raw.equals("**")) {
+            return new Segment(Kind.ANY_DEPTH, "", null, null, null);
+        }
+        var ops = new ArrayList<Integer>();
+        var classes = new ArrayList<char[]>();
+        var negated = new ArrayList<Boolean>();
+        boolean wildcard = false;
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            switch (c) {
+                case '\\' -> {
+                    if (i + 1 == raw.length()) {
+                        throw new InvalidPathException("pattern cannot end with '\\': " + raw);
+                    }
+                    ops.add((int) raw.charAt(++i));
+                }
+                case '?' -> {
+                    ops.add(ANY_ONE);
+                    wildcard = true;
+                }
+                case '*' -> {
+                    if (ops.isEmpty() || ops.get(ops.size() - 1) != ANY_MANY) {
+                        ops.add(ANY_MANY);
+                    }
+                    wildcard = true;
+                }
+                case '[' -> {
+                    i = characterClass(raw, i, classes, negated);
+                    ops.add(CLASS_BASE - (classes.size() - 1));
+                    wildcard = true;
+                }
+                default -> ops.add((int) c);
+            }
+        }
+        var prefix = new StringBuilder();
+        for (int op : ops) {
+            if (op < 0) {
+                break;
+            }
+            prefix.append((char) op);
+        }
+        if (!wildcard) {
+            return literal(prefix.toString());
+        }
+        var negatedArray = new boolean[negated.size()];
+        for (int i = 0; i < negatedArray.length; i++) {
+            negatedArray[i] = negated.get(i);
+        }
+        return new Segment(Kind.PATTERN, prefix.toString(), ops.stream().mapToInt(Integer::intValue).toArray(),
+                classes.toArray(new char[0][]), negatedArray);
+    }
+
+    // Parses the class opening at raw[open] into inclusive (low, high) pairs and returns the index
+    // of its closing ']'. A ']' right after the opening (or its negation) is a member.
+    private static int characterClass(String raw, int open, List<char[]> classes, List<Boolean> negated) {
+        int i = open + 1;
+        boolean negate = i < raw.length() && (raw.charAt(i) == '!' || raw.charAt(i) == '^');
+        if (negate) {
+            i++;
+        }
+        var ranges = new StringBuilder();
+        int first = i;
+        while (i < raw.length() && (raw.charAt(i) != ']' || i == first)) {
+            char low = raw.charAt(i);
+            if (low == '\\' && i + 1 < raw.length()) {
+                low = raw.charAt(++i);
+            }
+            char high = low;
+            if (i + 2 < raw.length() && raw.charAt(i + 1) == '-' && raw.charAt(i + 2) != ']') {
+                high = raw.charAt(i + 2);
+                i += 2;
+                if (high < low) {
+                    throw new InvalidPathException("invalid character range: " + low + "-" + high);
+                }
+            }
+            ranges.append(low).append(high);
+            i++;
+        }
+        if (i == raw.length()) {
+            throw new InvalidPathException("unterminated character class: " + raw);
+        }
+        classes.add(ranges.toString().toCharArray());
+        negated.add(negate);
+        return i;
+    }
+}
@@ -3,11 +3,20 @@ package com.thom.filesystem.core;
 import com.thom.filesystem.api.FileSystem;
 import com.thom.filesystem.models.DirectoryNode;
 
-import java.util.List;
 import java.util.Objects;
 
-public final class InMemoryFileSystem implements FileSystem {
-    private final FileTree tree;
+public final class InMemoryFileSystem extends TreeFileSystem {
+    // TREE keeps a graph of DirectoryNode/FileNode objects (FileTree). ARRAY keeps nodes in
+    // primitive arrays addressed by int ids, which the collector barely has to look at; it suits
+    // very large trees used from a single thread and is only reachable through the FileSystem API.
+    // PERSISTENT keeps immutable directories that each change copies along one path, which gives
+    // O(1) snapshots and forks (see PersistentFileSystem).
+    public enum Backend {
+        TREE,
+        ARRAY,
+        PERSISTENT
+    }
+
     private DirectoryNode cwd;
 
     public InMemoryFileSystem() {
@@ -15,32 +24,31 @@ public final class InMemoryFileSystem implements FileSystem {
     }
 
     public InMemoryFileSystem(FileTree tree) {
-        this.tree = Objects.requireNonNull(tree, "tree");
+        super(tree);
         this.cwd = tree.root();
     }
 
-    @Override
-    public void mkdir(String path) {
-        tree.mkdir(path, cwd);
+    public static FileSystem create(Backend backend) {
+        return create(backend, FileTreeOptions.defaults());
     }
 
-    @Override
-    public void cd(String path) {
-        cwd = tree.cd(path, cwd);
-    }
-
-    @Override
-    public List<String> ls() {
-        return tree.ls(null, cwd);
+    // Throws IllegalArgumentException for options the backend cannot honour.
+    public static FileSystem create(Backend backend, FileTreeOptions options) {
+        Objects.requireNonNull(backend, "backend");
+        return switch (backend) {
+            case TREE -> new InMemoryFileSystem(new FileTree(options));
+            case ARRAY -> new ArrayFileSystem(options);
+            case PERSISTENT -> new PersistentFileSystem(options);
+        };
     }
 
     @Override
-    public List<String> ls(String path) {
-        return tree.ls(path, cwd);
+    DirectoryNode cwd() {
+        return cwd;
     }
 
     @Override
-    public void touch(String filename) {
-        tree.touch(filename, cwd);
+    void cwd(DirectoryNode cwd) {
+        this.cwd = cwd;
     }
 }
@@ -0,0 +1,76 @@
+package com.thom.filesystem.core;
+
+import com.thom.filesystem.errors.InvalidPathException;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+// The segments of the last path mkdirs walked, by where each ends in the path, so that the next
+// path of a bulk mkdirs can resume after the ones it shares. Subclasses keep the directory each
+// segment led to, at the same depth. The same text from the same start always leads to the same
+// directory (mkdirs only adds), so resuming is safe.
+abstract class MkdirsTrail {
+    private String path;
+    int[] ends = new int[16];
+    int depth;
+    long created;
+
+    // The paths of a bulk operation in order. Manifests often come sorted already, and sorting a
+    // large one costs more than the walks it saves on a cheap backend, so that is checked first.
+    static String[] sorted(Collection<String> paths) {
+        var sorted = paths.toArray(new String[0]);
+        boolean inOrder = true;
+        for (int i = 0; i < sorted.length; i++) {
+            if (sorted[i] == null) {
+                throw new InvalidPathException("path cannot be blank");
+            }
+            if (i > 0 && inOrder && sorted[i - 1].compareTo(sorted[i]) > 0) {
+                inOrder = false;
+            }
+        }
+        if (!inOrder) {
+            Arrays.sort(sorted);
+        }
+        return sorted;
+    }
+
+    // Makes path[0, end) the trail's path and returns how many segments of the last one it can skip;
+    // the walk resumes from the directory at that depth, after ends[depth].
+    int resume(String path, int end) {
+        int resumed = 0;
+        if (this.path != null) {
+            int shared = commonPrefix(path, end, this.path);
+            for (int i = depth; i > 0; i--) {
+                int segmentEnd = ends[i];
+                if (segmentEnd <= shared && (segmentEnd == end || path.charAt(segmentEnd) == '/')) {
+                    resumed = i;
+                    break;
+                }
+            }
+        }
+        this.path = path;
+        depth = resumed;
+        return resumed;
+    }
+
+    // Adds the segment ending at end and returns the depth its directory goes at.
+    int push(int end) {
+        if (++depth == ends.length) {
+            ends = Arrays.copyOf(ends, depth * 2);
+            grow(depth * 2);
+        }
+        ends[depth] = end;
+        return depth;
+    }
+
+    abstract void grow(int capacity);
+
+    private static int commonPrefix(String a, int end, String b) {
+        int limit = Math.min(end, b.length());
+        int i = 0;
+        while (i < limit && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+}
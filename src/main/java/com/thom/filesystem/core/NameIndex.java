@@ -0,0 +1,216 @@
+package com.thom.filesystem.core;
+
+import com.thom.filesystem.models.DirectoryNode;
+import com.thom.filesystem.models.Node;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Every node of a FileTree by name, kept up to date through TreeListener events, so "all files
+// named X" is a lookup instead of a walk of the whole tree. Only nodes are stored: paths are built
+// from parent links when asked for, so moving a directory costs nothing here however much it holds
+// (only a renamed node itself is re-keyed). Removing or copying a subtree is O(subtree), since each
+// of its nodes enters or leaves the index.
+//
+// With suffixes, keys are the names reversed and kept sorted, which also answers "all names ending
+// in .log" with a range scan; without them, keys are the nodes' own name strings, so the index
+// costs one map entry per distinct name plus one slot per node. FootprintReport measures both.
+//
+// Attach to a tree that is not being changed: the existing nodes are indexed before events start
+// arriving.
+public final class NameIndex implements TreeListener, AutoCloseable {
+    private final FileTree tree;
+    private final boolean suffixes;
+
+    // Name (reversed, with suffixes) to either the one Node with that name or an identity Set of
+    // them. Guarded by this.
+    private final Map<String, Object> entries;
+    private long size;
+
+    private NameIndex(FileTree tree, boolean suffixes) {
+        this.tree = tree;
+        this.suffixes = suffixes;
+        this.entries = suffixes ? new TreeMap<>() : new HashMap<>();
+    }
+
+    public static NameIndex attach(FileTree tree, boolean suffixes) {
+        Objects.requireNonNull(tree, "tree");
+        var index = new NameIndex(tree, suffixes);
+        for (var child : tree.root().children()) {
+            index.addSubtree(child);
+        }
+        tree.addListener(index);
+        return index;
+    }
+
+    public boolean indexesSuffixes() {
+        return suffixes;
+    }
+
+    // Indexed nodes, which is every node but the root.
+    public synchronized long size() {
+        return size;
+    }
+
+    // Absolute paths of every node called name, sorted; directories end in '/' as in ls.
+    public List<String> pathsNamed(String name) {
+        Objects.requireNonNull(name, "name");
+        var found = new ArrayList<Node>();
+        synchronized (this) {
+            collect(entries.get(key(name)), found);
+        }
+        return paths(found);
+    }
+
+    // Absolute paths of every node whose name ends with suffix, sorted.
+    public List<String> pathsEndingWith(String suffix) {
+        Objects.requireNonNull(suffix, "suffix");
+        if (!suffixes) {
+            throw new UnsupportedOperationException("index was attached without suffixes");
+        }
+        var reversed = reverse(suffix);
+        var found = new ArrayList<Node>();
+        synchronized (this) {
+            for (var entry : ((TreeMap<String, Object>) entries).tailMap(reversed).entrySet()) {
+                if (!entry.getKey().startsWith(reversed)) {
+                    break;
+                }
+                collect(entry.getValue(), found);
+            }
+        }
+        return paths(found);
+    }
+
+    @Override
+    public void close() {
+        tree.removeListener(this);
+    }
+
+    @Override
+    public void created(Node node) {
+        addSubtree(node);
+    }
+
+    @Override
+    public void removed(Node node) {
+        var pending = new ArrayDeque<Node>();
+        pending.push(node);
+        synchronized (this) {
+            while (!pending.isEmpty()) {
+                var current = pending.pop();
+                remove(current.name(), current);
+                pushChildren(current, pending);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void moved(Node node, DirectoryNode target, String name) {
+        if (!node.name().equals(name)) {
+            remove(node.name(), node);
+            add(name, node);
+        }
+    }
+
+    private void addSubtree(Node node) {
+        var pending = new ArrayDeque<Node>();
+        pending.push(node);
+        synchronized (this) {
+            while (!pending.isEmpty()) {
+                var current = pending.pop();
+                add(current.name(), current);
+                pushChildren(current, pending);
+            }
+        }
+    }
+
+    private static void pushChildren(Node node, ArrayDeque<Node> pending) {
+        if (node instanceof DirectoryNode dir) {
+            for (var child : dir.children()) {
+                pending.push(child);
+            }
+        }
+    }
+
+    private void add(String name, Node node) {
+        var key = key(name);
+        var existing = entries.get(key);
+        if (existing == null) {
+            entries.put(key, node);
+        } else if (existing instanceof Node single) {
+            if (single == node) {
+                return;
+            }
+            var nodes = Collections.newSetFromMap(new IdentityHashMap<Node, Boolean>());
+            nodes.add(single);
+            nodes.add(node);
+            entries.put(key, nodes);
+        } else if (!nodeSet(existing).add(node)) {
+            return;
+        }
+        size++;
+    }
+
+    private void remove(String name, Node node) {
+        var key = key(name);
+        var existing = entries.get(key);
+        if (existing == node) {
+            entries.remove(key);
+        } else if (existing instanceof Set<?> && nodeSet(existing).remove(node)) {
+            var nodes = nodeSet(existing);
+            if (nodes.size() == 1) {
+                entries.put(key, nodes.iterator().next());
+            }
+        } else {
+            return;
+        }
+        size--;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Set<Node> nodeSet(Object value) {
+        return (Set<Node>) value;
+    }
+
+    private static void collect(Object value, List<Node> found) {
+        if (value instanceof Node node) {
+            found.add(node);
+        } else if (value != null) {
+            found.addAll(nodeSet(value));
+        }
+    }
+
+    private String key(String name) {
+        return suffixes ? reverse(name) : name;
+    }
+
+    private static String reverse(String s) {
+        return new StringBuilder(s).reverse().toString();
+    }
+
+    // Built outside the index's lock; a concurrent move may show a node at either end of it. Many
+    // matches tend to share directories, so each directory's path is built once per call.
+    private static List<String> paths(List<Node> nodes) {
+        var dirPaths = new IdentityHashMap<DirectoryNode, String>();
+        var paths = new ArrayList<String>(nodes.size());
+        for (var node : nodes) {
+            var path = dirPath(node.parent(), dirPaths) + node.name();
+            paths.add(node instanceof DirectoryNode ? path + "/" : path);
+        }
+        Collections.sort(paths);
+        return paths;
+    }
+
+    // The directory's path with a trailing '/'.
+    private static String dirPath(DirectoryNode dir, Map<DirectoryNode, String> dirPaths) {
+        return dir.parent() == null ? "/" : dirPaths.computeIfAbsent(dir, d -> FileTree.pathOf(d) + "/");
+    }
+}
@@ -0,0 +1,47 @@
+package com.thom.filesystem.core;
+
+// Deduplicates child names in compact trees. This is a fixed-size, lossy table indexed by hash:
+// a slot holds the last name that hashed to it, so names that repeat across the tree (src,
+// index.html, .gitkeep) almost always come back as one shared String, while names that occur once
+// cost nothing beyond the table itself. Slots are read and written without locking; a racing update
+// at worst loses a deduplication, never a name, because Strings are immutable.
+final class NameTable {
+    private static final int DEFAULT_SLOTS = 1 << 16;
+
+    private final String[] slots;
+    private final int mask;
+
+    NameTable() {
+        this(DEFAULT_SLOTS);
+    }
+
+    NameTable(int slots) {
+        if (Integer.bitCount(slots) != 1) {
+            throw new IllegalArgumentException("slots must be a power of two");
+        }
+        this.slots = new String[slots];
+        this.mask = slots - 1;
+    }
+
+    String intern(String name) {
+        return intern(name, 0, name.length());
+    }
+
+    // Returns the name held by source[start, end), allocating a String only when the table does not
+    // already hold an equal one.
+    String intern(String source, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + source.charAt(i);
+        }
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        var existing = slots[slot];
+        int length = end - start;
+        if (existing != null && existing.length() == length && existing.regionMatches(0, source, start, length)) {
+            return existing;
+        }
+        var name = start == 0 && end == source.length() ? source : source.substring(start, end);
+        slots[slot] = name;
+        return name;
+    }
+}
@@ -0,0 +1,530 @@
+package com.thom.filesystem.core;
+
+import com.thom.filesystem.errors.AlreadyExistsException;
+import com.thom.filesystem.models.FileContent;
+
+import java.util.Arrays;
+
+// A tree kept in parallel primitive arrays and addressed by int ids instead of a graph of node
+// objects. The collector sees a handful of large int/char arrays however many nodes there are, so
+// marking a tree of tens of millions of nodes costs next to nothing, and each node costs about
+// 29 bytes plus its share of the name arena.
+//
+//   parents, names, types     one entry per node; names holds a name id, types is 0 for a free id
+//   firstChild, nextSibling,  each directory's children as a doubly linked list, newest first.
+//   prevSibling               Files have no children, so their firstChild is their content slot.
+//                             Free ids are chained through nextSibling.
+//   childIndex                open addressing over (parent, name id) -> node id + 1. The key is
+//                             read back from parents/names, so slots hold only the id.
+//   nameChars, nameOffsets    every distinct name once; name i is chars [offsets[i], offsets[i+1])
+//   nameIndex                 open addressing over the name's chars -> name id + 1
+//
+// Lookups take a range of any CharSequence and allocate nothing. Removed ids and content slots are
+// reused; names stay in the arena. Like the default FileTree this is meant to be used by one thread
+// at a time, so subtree removal and copying walk the subtree on the calling thread.
+final class NodeStore {
+    static final int ROOT = 0;
+    static final int NONE = -1;
+
+    private static final byte DIRECTORY = 1;
+    private static final byte FILE = 2;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final FileTreeOptions options;
+
+    private int[] parents = new int[INITIAL_CAPACITY];
+    private int[] names = new int[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private int[] firstChild = new int[INITIAL_CAPACITY];
+    private int[] nextSibling = new int[INITIAL_CAPACITY];
+    private int[] prevSibling = new int[INITIAL_CAPACITY];
+    private int nodeCount;
+    private int liveNodes;
+    private int freeNodes = NONE;
+
+    private int[] childIndex = new int[INITIAL_CAPACITY * 2];
+
+    private char[] nameChars = new char[INITIAL_CAPACITY * 8];
+    private int[] nameOffsets = new int[INITIAL_CAPACITY + 1];
+    private int nameCount;
+    private int[] nameIndex = new int[INITIAL_CAPACITY * 2];
+
+    private FileContent[] contents = new FileContent[INITIAL_CAPACITY];
+    private int contentCount;
+    private int[] freeContents = new int[0];
+    private int freeContentCount;
+
+    // Bumped whenever a directory gains or loses a child.
+    private long version;
+
+    // Scratch stack for subtree walks.
+    private int[] stack = new int[INITIAL_CAPACITY];
+
+    NodeStore(FileTreeOptions options) {
+        this.options = options;
+        parents[ROOT] = NONE;
+        names[ROOT] = internName("/", 0, 1);
+        types[ROOT] = DIRECTORY;
+        firstChild[ROOT] = NONE;
+        nextSibling[ROOT] = NONE;
+        prevSibling[ROOT] = NONE;
+        nodeCount = 1;
+        liveNodes = 1;
+    }
+
+    int size() {
+        return liveNodes;
+    }
+
+    boolean isDirectory(int node) {
+        return types[node] == DIRECTORY;
+    }
+
+    int parent(int node) {
+        return parents[node];
+    }
+
+    String name(int node) {
+        int id = names[node];
+        return new String(nameChars, nameOffsets[id], nameOffsets[id + 1] - nameOffsets[id]);
+    }
+
+    // Written back to front from the name arena, like FileTree.pathOf.
+    String pathOf(int node) {
+        var buffer = new char[64];
+        int start = buffer.length;
+        for (int current = node; parents[current] != NONE; current = parents[current]) {
+            int offset = nameOffsets[names[current]];
+            int length = nameOffsets[names[current] + 1] - offset;
+            if (start <= length) {
+                var grown = FileTree.growFront(buffer, start, length + 1);
+                start += grown.length - buffer.length;
+                buffer = grown;
+            }
+            start -= length;
+            System.arraycopy(nameChars, offset, buffer, start, length);
+            buffer[--start] = '/';
+        }
+        return start == buffer.length ? "/" : new String(buffer, start, buffer.length - start);
+    }
+
+    int firstChild(int directory) {
+        return firstChild[directory];
+    }
+
+    int nextSibling(int node) {
+        return nextSibling[node];
+    }
+
+    int child(int directory, CharSequence source, int start, int end) {
+        int name = findName(source, start, end);
+        if (name == NONE) {
+            return NONE;
+        }
+        int mask = childIndex.length - 1;
+        for (int slot = childSlot(directory, name, mask); ; slot = (slot + 1) & mask) {
+            int entry = childIndex[slot];
+            if (entry == 0) {
+                return NONE;
+            }
+            int node = entry - 1;
+            if (parents[node] == directory && names[node] == name) {
+                return node;
+            }
+        }
+    }
+
+    int addDirectory(int parent, CharSequence source, int start, int end) {
+        return add(parent, source, start, end, DIRECTORY);
+    }
+
+    int addFile(int parent, CharSequence source, int start, int end) {
+        return add(parent, source, start, end, FILE);
+    }
+
+    private int add(int parent, CharSequence source, int start, int end, byte type) {
+        requireFree(parent, source, start, end);
+        return link(parent, internName(source, start, end), type);
+    }
+
+    private void requireFree(int parent, CharSequence source, int start, int end) {
+        if (child(parent, source, start, end) != NONE) {
+            throw new AlreadyExistsException("name already exists: " + source.subSequence(start, end));
+        }
+    }
+
+    private int link(int parent, int name, byte type) {
+        int node;
+        if (freeNodes != NONE) {
+            node = freeNodes;
+            freeNodes = nextSibling[node];
+        } else {
+            if (nodeCount == parents.length) {
+                growNodes();
+            }
+            node = nodeCount++;
+        }
+        liveNodes++;
+        parents[node] = parent;
+        names[node] = name;
+        types[node] = type;
+        firstChild[node] = NONE;
+        linkSibling(node);
+
+        if (liveNodes * 2 > childIndex.length) {
+            rebuildChildIndex(childIndex.length * 2);
+        } else {
+            insertChild(node);
+        }
+        return node;
+    }
+
+    long version() {
+        return version;
+    }
+
+    private void linkSibling(int node) {
+        version++;
+        int parent = parents[node];
+        int next = firstChild[parent];
+        prevSibling[node] = NONE;
+        nextSibling[node] = next;
+        if (next != NONE) {
+            prevSibling[next] = node;
+        }
+        firstChild[parent] = node;
+    }
+
+    private void unlinkSibling(int node) {
+        version++;
+        int prev = prevSibling[node];
+        int next = nextSibling[node];
+        if (prev == NONE) {
+            firstChild[parents[node]] = next;
+        } else {
+            nextSibling[prev] = next;
+        }
+        if (next != NONE) {
+            prevSibling[next] = prev;
+        }
+    }
+
+    // Whether node is ancestor or lies below it.
+    boolean isWithin(int node, int ancestor) {
+        for (int current = node; current != NONE; current = parents[current]) {
+            if (current == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Unlinks node and frees every id and content slot in its subtree.
+    void remove(int node) {
+        unlinkSibling(node);
+        int depth = 0;
+        stack[depth++] = node;
+        while (depth > 0) {
+            int current = stack[--depth];
+            if (types[current] == DIRECTORY) {
+                for (int child = firstChild[current]; child != NONE; child = nextSibling[child]) {
+                    if (depth == stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    stack[depth++] = child;
+                }
+            } else if (firstChild[current] != NONE) {
+                contents[firstChild[current]] = null;
+                if (freeContentCount == freeContents.length) {
+                    freeContents = Arrays.copyOf(freeContents, Math.max(INITIAL_CAPACITY, freeContentCount * 2));
+                }
+                freeContents[freeContentCount++] = firstChild[current];
+            }
+            removeChild(current);
+            types[current] = 0;
+            nextSibling[current] = freeNodes;
+            freeNodes = current;
+            liveNodes--;
+        }
+    }
+
+    // Relinks node under parent as source[start, end), which the caller has checked is free.
+    void move(int node, int parent, CharSequence source, int start, int end) {
+        requireFree(parent, source, start, end);
+        removeChild(node);
+        unlinkSibling(node);
+        parents[node] = parent;
+        names[node] = internName(source, start, end);
+        linkSibling(node);
+        insertChild(node);
+    }
+
+    // Copies node's subtree under parent as source[start, end) and returns the copy.
+    int copy(int node, int parent, CharSequence source, int start, int end) {
+        requireFree(parent, source, start, end);
+        int root = link(parent, internName(source, start, end), types[node]);
+        copyContent(node, root);
+        int depth = 0;
+        stack[depth++] = node;
+        stack[depth++] = root;
+        while (depth > 0) {
+            int copy = stack[--depth];
+            int original = stack[--depth];
+            if (types[original] != DIRECTORY) {
+                continue;
+            }
+            for (int child = firstChild[original]; child != NONE; child = nextSibling[child]) {
+                int childCopy = link(copy, names[child], types[child]);
+                copyContent(child, childCopy);
+                if (depth + 2 > stack.length) {
+                    stack = Arrays.copyOf(stack, stack.length * 2);
+                }
+                stack[depth++] = child;
+                stack[depth++] = childCopy;
+            }
+        }
+        return root;
+    }
+
+    private void copyContent(int original, int copy) {
+        if (types[original] == FILE && firstChild[original] != NONE) {
+            var duplicate = contents[firstChild[original]].copy();
+            firstChild[copy] = contentSlot(duplicate);
+        }
+    }
+
+    // null until the file is first written.
+    FileContent contentOrNull(int file) {
+        int slot = firstChild[file];
+        return slot == NONE ? null : contents[slot];
+    }
+
+    // Created on first use; most files in large trees are never written.
+    FileContent content(int file) {
+        int slot = firstChild[file];
+        if (slot != NONE) {
+            return contents[slot];
+        }
+        var content = new FileContent(options.contentChunkSize(), options.directContent());
+        firstChild[file] = contentSlot(content);
+        return content;
+    }
+
+    private int contentSlot(FileContent content) {
+        int slot;
+        if (freeContentCount > 0) {
+            slot = freeContents[--freeContentCount];
+        } else {
+            if (contentCount == contents.length) {
+                contents = Arrays.copyOf(contents, contents.length * 2);
+            }
+            slot = contentCount++;
+        }
+        contents[slot] = content;
+        return slot;
+    }
+
+    private void growNodes() {
+        int capacity = parents.length * 2;
+        parents = Arrays.copyOf(parents, capacity);
+        names = Arrays.copyOf(names, capacity);
+        types = Arrays.copyOf(types, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        nextSibling = Arrays.copyOf(nextSibling, capacity);
+        prevSibling = Arrays.copyOf(prevSibling, capacity);
+    }
+
+    private void rebuildChildIndex(int capacity) {
+        childIndex = new int[capacity];
+        for (int node = ROOT + 1; node < nodeCount; node++) {
+            if (types[node] != 0) {
+                insertChild(node);
+            }
+        }
+    }
+
+    private void insertChild(int node) {
+        int mask = childIndex.length - 1;
+        int slot = childSlot(parents[node], names[node], mask);
+        while (childIndex[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        childIndex[slot] = node + 1;
+    }
+
+    // Backward-shift deletion: later entries of the probe run move up into the hole unless that
+    // would put them before their home slot, so lookups never need tombstones.
+    private void removeChild(int node) {
+        int mask = childIndex.length - 1;
+        int hole = childSlot(parents[node], names[node], mask);
+        while (childIndex[hole] != node + 1) {
+            hole = (hole + 1) & mask;
+        }
+        for (int slot = (hole + 1) & mask; childIndex[slot] != 0; slot = (slot + 1) & mask) {
+            int entry = childIndex[slot] - 1;
+            int home = childSlot(parents[entry], names[entry], mask);
+            if (((slot - home) & mask) >= ((slot - hole) & mask)) {
+                childIndex[hole] = childIndex[slot];
+                hole = slot;
+            }
+        }
+        childIndex[hole] = 0;
+    }
+
+    private static int childSlot(int parent, int name, int mask) {
+        return mix(parent * 0x9E3779B9 + name) & mask;
+    }
+
+    private int findName(CharSequence source, int start, int end) {
+        int mask = nameIndex.length - 1;
+        for (int slot = mix(hash(source, start, end)) & mask; ; slot = (slot + 1) & mask) {
+            int entry = nameIndex[slot];
+            if (entry == 0) {
+                return NONE;
+            }
+            if (nameEquals(entry - 1, source, start, end)) {
+                return entry - 1;
+            }
+        }
+    }
+
+    private int internName(CharSequence source, int start, int end) {
+        int existing = findName(source, start, end);
+        if (existing != NONE) {
+            return existing;
+        }
+        int length = end - start;
+        int offset = nameOffsets[nameCount];
+        if (offset + length > nameChars.length) {
+            nameChars = Arrays.copyOf(nameChars, Math.max(nameChars.length * 2, offset + length));
+        }
+        for (int i = 0; i < length; i++) {
+            nameChars[offset + i] = source.charAt(start + i);
+        }
+        if (nameCount + 1 == nameOffsets.length) {
+            nameOffsets = Arrays.copyOf(nameOffsets, nameOffsets.length * 2);
+        }
+        int id = nameCount++;
+        nameOffsets[nameCount] = offset + length;
+
+        if (nameCount * 2 > nameIndex.length) {
+            nameIndex = new int[nameIndex.length * 2];
+            for (int name = 0; name < nameCount; name++) {
+                insertName(name);
+            }
+        } else {
+            insertName(id);
+        }
+        return id;
+    }
+
+    private void insertName(int name) {
+        int mask = nameIndex.length - 1;
+        int offset = nameOffsets[name];
+        int slot = mix(hash(nameChars, offset, nameOffsets[name + 1])) & mask;
+        while (nameIndex[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        nameIndex[slot] = name + 1;
+    }
+
+    private boolean nameEquals(int name, CharSequence source, int start, int end) {
+        int offset = nameOffsets[name];
+        int length = end - start;
+        if (nameOffsets[name + 1] - offset != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (nameChars[offset + i] != source.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    boolean nameStartsWith(int node, String prefix) {
+        int offset = nameOffsets[names[node]];
+        if (nameOffsets[names[node] + 1] - offset < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (nameChars[offset + i] != prefix.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Compares a node's name with other in String.compareTo order.
+    int compareName(int node, CharSequence other) {
+        int offset = nameOffsets[names[node]];
+        int length = nameOffsets[names[node] + 1] - offset;
+        int shared = Math.min(length, other.length());
+        for (int i = 0; i < shared; i++) {
+            int cmp = Character.compare(nameChars[offset + i], other.charAt(i));
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - other.length();
+    }
+
+    // Compares the names of two nodes in String.compareTo order.
+    int compareNames(int a, int b) {
+        int aOffset = nameOffsets[names[a]];
+        int aLength = nameOffsets[names[a] + 1] - aOffset;
+        int bOffset = nameOffsets[names[b]];
+        int bLength = nameOffsets[names[b] + 1] - bOffset;
+        return Arrays.compare(nameChars, aOffset, aOffset + aLength, nameChars, bOffset, bOffset + bLength);
+    }
+
+    // Sorts nodes by name in String.compareTo order: a merge sort over the ids themselves, so
+    // nothing is boxed.
+    void sortByName(int[] nodes) {
+        if (nodes.length > 1) {
+            mergeSort(nodes.clone(), nodes, 0, nodes.length);
+        }
+    }
+
+    // Sorts [from, to) of src into dst; both hold the same ids in that range on entry.
+    private void mergeSort(int[] src, int[] dst, int from, int to) {
+        if (to - from <= 16) {
+            for (int i = from + 1; i < to; i++) {
+                int node = dst[i];
+                int j = i;
+                for (; j > from && compareNames(dst[j - 1], node) > 0; j--) {
+                    dst[j] = dst[j - 1];
+                }
+                dst[j] = node;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(dst, src, from, mid);
+        mergeSort(dst, src, mid, to);
+        for (int i = from, p = from, q = mid; i < to; i++) {
+            dst[i] = q >= to || p < mid && compareNames(src[p], src[q]) <= 0 ? src[p++] : src[q++];
+        }
+    }
+
+    private static int hash(CharSequence source, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + source.charAt(i);
+        }
+        return hash;
+    }
+
+    private static int hash(char[] chars, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        return hash;
+    }
+
+    private static int mix(int hash) {
+        hash *= 0x85EBCA6B;
+        return hash ^ (hash >>> 16);
+    }
+}
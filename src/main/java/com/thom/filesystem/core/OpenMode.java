@@ -0,0 +1,46 @@
+package com.thom.filesystem.core;
+
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+
+// StandardOpenOption semantics shared by every backend: which access a channel gets, and whether the
+// file may or must be created and truncated first.
+record OpenMode(boolean read, boolean write, boolean append, boolean create, boolean createNew, boolean truncate) {
+    static OpenMode of(Set<? extends OpenOption> options) {
+        Objects.requireNonNull(options, "options");
+        var append = options.contains(StandardOpenOption.APPEND);
+        var write = append || options.contains(StandardOpenOption.WRITE);
+        var read = options.contains(StandardOpenOption.READ) || !write;
+        if (read && append) {
+            throw new IllegalArgumentException("READ + APPEND not allowed");
+        }
+        if (append && options.contains(StandardOpenOption.TRUNCATE_EXISTING)) {
+            throw new IllegalArgumentException("APPEND + TRUNCATE_EXISTING not allowed");
+        }
+        if (options.contains(StandardOpenOption.DELETE_ON_CLOSE)) {
+            throw new UnsupportedOperationException("DELETE_ON_CLOSE is not supported");
+        }
+        return new OpenMode(read, write, append,
+                write && options.contains(StandardOpenOption.CREATE),
+                write && options.contains(StandardOpenOption.CREATE_NEW),
+                write && options.contains(StandardOpenOption.TRUNCATE_EXISTING));
+    }
+
+    // Output streams default to CREATE + TRUNCATE_EXISTING and always write.
+    static Set<OpenOption> forOutputStream(Set<? extends OpenOption> options) {
+        Objects.requireNonNull(options, "options");
+        if (options.contains(StandardOpenOption.READ)) {
+            throw new IllegalArgumentException("READ not allowed");
+        }
+        var writeOptions = new HashSet<OpenOption>(options);
+        if (writeOptions.isEmpty()) {
+            writeOptions.add(StandardOpenOption.CREATE);
+            writeOptions.add(StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        writeOptions.add(StandardOpenOption.WRITE);
+        return writeOptions;
+    }
+}
@@ -0,0 +1,20 @@
+package com.thom.filesystem.core;
+
+// Paged ls semantics shared by every backend: up to limit entries whose names sort after after.
+// Names never contain '/', so the trailing '/' of a directory's display name is dropped from the
+// cursor and the last entry of one page can be passed as the cursor for the next.
+record Page(String after, int limit) {
+    static Page of(String startAfter, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        if (startAfter == null) {
+            return new Page(null, limit);
+        }
+        int end = startAfter.length();
+        while (end > 0 && startAfter.charAt(end - 1) == '/') {
+            end--;
+        }
+        return new Page(startAfter.substring(0, end), limit);
+    }
+}
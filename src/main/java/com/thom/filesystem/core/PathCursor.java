@@ -0,0 +1,134 @@
+package com.thom.filesystem.core;
+
+import com.thom.filesystem.errors.InvalidPathException;
+
+final class PathCursor implements CharSequence {
+    private final String path;
+    private final int end;
+
+    private int start;
+    private int stop;
+    private int nextStart;
+    private int nextStop;
+
+    PathCursor(String path, int end) {
+        this(path, 0, end);
+    }
+
+    // Segments of path[from, end); from should be 0 or the end of a segment.
+    PathCursor(String path, int from, int end) {
+        this.path = path;
+        this.end = end;
+        this.nextStart = -1;
+        scanFrom(from);
+    }
+
+    boolean next() {
+        if (nextStart < 0) {
+            return false;
+        }
+        start = nextStart;
+        stop = nextStop;
+        scanFrom(stop);
+        return true;
+    }
+
+    boolean hasNext() {
+        return nextStart >= 0;
+    }
+
+    // Bounds of the current segment in the path.
+    int segmentStart() {
+        return start;
+    }
+
+    int segmentEnd() {
+        return stop;
+    }
+
+    // Bounds of the last real segment of path[0, end), skipping trailing "." segments, packed as
+    // (start << 32) | end. Everything before start is the parent path.
+    static long leaf(String path, int end) {
+        if (end > 1 && path.charAt(end - 1) == '/') {
+            throw new InvalidPathException("path cannot have trailing '/'");
+        }
+
+        int leafEnd = end;
+        int leafStart;
+        while (true) {
+            while (leafEnd > 0 && path.charAt(leafEnd - 1) == '/') {
+                leafEnd--;
+            }
+            if (leafEnd == 0) {
+                throw new InvalidPathException("path must include a leaf name");
+            }
+            leafStart = leafEnd - 1;
+            while (leafStart > 0 && path.charAt(leafStart - 1) != '/') {
+                leafStart--;
+            }
+            if (leafEnd - leafStart == 1 && path.charAt(leafStart) == '.') {
+                leafEnd = leafStart;
+                continue;
+            }
+            break;
+        }
+        if (leafEnd - leafStart == 2 && path.charAt(leafStart) == '.' && path.charAt(leafStart + 1) == '.') {
+            throw new InvalidPathException("leaf name cannot be '..'");
+        }
+        return ((long) leafStart << 32) | leafEnd;
+    }
+
+    static int leafStart(long leaf) {
+        return (int) (leaf >>> 32);
+    }
+
+    static int leafEnd(long leaf) {
+        return (int) leaf;
+    }
+
+    boolean isDotDot() {
+        return stop - start == 2 && path.charAt(start) == '.' && path.charAt(start + 1) == '.';
+    }
+
+    private void scanFrom(int from) {
+        int i = from;
+        while (i < end) {
+            if (path.charAt(i) == '/') {
+                i++;
+                continue;
+            }
+            int segmentEnd = i + 1;
+            while (segmentEnd < end && path.charAt(segmentEnd) != '/') {
+                segmentEnd++;
+            }
+            if (segmentEnd - i == 1 && path.charAt(i) == '.') {
+                i = segmentEnd;
+                continue;
+            }
+            nextStart = i;
+            nextStop = segmentEnd;
+            return;
+        }
+        nextStart = -1;
+    }
+
+    @Override
+    public int length() {
+        return stop - start;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return path.charAt(start + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        return path.substring(start + from, start + to);
+    }
+
+    @Override
+    public String toString() {
+        return path.substring(start, stop);
+    }
+}
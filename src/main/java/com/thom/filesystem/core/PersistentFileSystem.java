@@ -0,0 +1,861 @@
+package com.thom.filesystem.core;
+
+import com.thom.filesystem.api.FileSystem;
+import com.thom.filesystem.api.PathStatus;
+import com.thom.filesystem.errors.AlreadyExistsException;
+import com.thom.filesystem.errors.InvalidPathException;
+import com.thom.filesystem.errors.IsADirectoryException;
+import com.thom.filesystem.errors.NotADirectoryException;
+import com.thom.filesystem.errors.NotFoundException;
+import com.thom.filesystem.io.FileContentChannel;
+import com.thom.filesystem.io.FileContentInputStream;
+import com.thom.filesystem.io.FileContentOutputStream;
+import com.thom.filesystem.models.FileContent;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// The FileSystem API over immutable directories, with the same path rules and errors as FileTree.
+// Every change builds new directories along the path from the root to the changed entry and shares
+// the rest with the previous version, then publishes the new root. That makes a point-in-time
+// snapshot or an independent writable fork O(1): both just keep the current root. Readers never
+// lock and never see changes published after they read the root; writers to one instance take
+// turns. File contents are shared the same way, chunk by chunk (see FileContent.copy).
+public final class PersistentFileSystem implements FileSystem {
+    private static final String[] NO_NAMES = new String[0];
+
+    private sealed interface Entry permits Dir, File {
+    }
+
+    private record Dir(PersistentNameMap<Entry> children) implements Entry {
+        static final Dir EMPTY = new Dir(PersistentNameMap.empty());
+
+        Dir with(String name, Entry entry) {
+            return new Dir(children.put(name, entry));
+        }
+
+        Dir without(String name) {
+            return new Dir(children.remove(name));
+        }
+    }
+
+    // Published contents are never written again; changes go to a copy. content is null until the
+    // file is first written. Channels tell files apart by identity, so each one is a new record.
+    private record File(FileContent content) implements Entry {
+    }
+
+    private final FileTreeOptions options;
+    private final boolean writable;
+    private final Object writeLock = new Object();
+    private volatile Dir root;
+
+    // The working directory by name from the root. Moves through this instance rewrite it, so it
+    // follows the directory as it does on the other backends.
+    private String[] cwd;
+    // The name of the removed directory the working directory was in, or null. Relative paths fail
+    // while it is set, even if something new is created at the old path.
+    private String removed;
+
+    public PersistentFileSystem() {
+        this(FileTreeOptions.defaults());
+    }
+
+    // Only the content options apply. Every instance is safe for concurrent use, so concurrent is
+    // accepted either way.
+    public PersistentFileSystem(FileTreeOptions options) {
+        this(requireSupported(options), Dir.EMPTY, NO_NAMES, null, true);
+    }
+
+    private static FileTreeOptions requireSupported(FileTreeOptions options) {
+        Objects.requireNonNull(options, "options");
+        if (options.compact()) {
+            throw new IllegalArgumentException("the PERSISTENT backend cannot be compact");
+        }
+        if (options.resolutionCacheSize() != 0) {
+            throw new IllegalArgumentException("the PERSISTENT backend has no resolution cache");
+        }
+        return options;
+    }
+
+    private PersistentFileSystem(FileTreeOptions options, Dir root, String[] cwd, String removed, boolean writable) {
+        this.options = options;
+        this.root = root;
+        this.cwd = cwd;
+        this.removed = removed;
+        this.writable = writable;
+    }
+
+    // A read-only view of the current version, with the same working directory. Later changes to
+    // this file system are not visible through it.
+    public PersistentFileSystem snapshot() {
+        return new PersistentFileSystem(options, root, cwd, removed, false);
+    }
+
+    // A writable copy of the current version. Neither side sees the other's later changes.
+    public PersistentFileSystem fork() {
+        return new PersistentFileSystem(options, root, cwd, removed, true);
+    }
+
+    public boolean isReadOnly() {
+        return !writable;
+    }
+
+    @Override
+    public void mkdir(String path) {
+        requireWritable();
+        if (path == null) {
+            throw new InvalidPathException("path cannot be blank");
+        }
+        int end = path.length();
+        while (end > 1 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        FileTree.requireNonBlank(path, end);
+        long leaf = PathCursor.leaf(path, end);
+        synchronized (writeLock) {
+            var trail = start(root, path);
+            resolveParent(trail, path, leaf);
+            var name = path.substring(PathCursor.leafStart(leaf), PathCursor.leafEnd(leaf));
+            requireAbsent(trail.top(), name);
+            root = trail.rebuild(trail.top().with(name, Dir.EMPTY));
+        }
+    }
+
+    @Override
+    public void mkdirs(String path) {
+        requireWritable();
+        synchronized (writeLock) {
+            mkdirsLocked(path);
+        }
+    }
+
+    // Directories here are copied on write, so there is no walk to share between paths: each one
+    // starts from the root the one before produced. Paths are still sorted so that the same one
+    // fails first as on the other backends.
+    @Override
+    public long mkdirs(Collection<String> paths) {
+        requireWritable();
+        Objects.requireNonNull(paths, "paths");
+        var sorted = MkdirsTrail.sorted(paths);
+        long created = 0;
+        synchronized (writeLock) {
+            for (var path : sorted) {
+                created += mkdirsLocked(path);
+            }
+        }
+        return created;
+    }
+
+    // Creates each missing directory in the trail's copy of it, folding a changed directory into
+    // its parent when ".." leaves it, and publishes a new root once at the end. Returns how many
+    // directories were created.
+    private int mkdirsLocked(String path) {
+        if (path == null) {
+            throw new InvalidPathException("path cannot be blank");
+        }
+        int end = path.length();
+        while (end > 1 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        FileTree.requireNonBlank(path, end);
+        var trail = start(root, path);
+        var cursor = new PathCursor(path, end);
+        int created = 0;
+        while (cursor.next()) {
+            if (cursor.isDotDot()) {
+                if (created > 0) {
+                    trail.popFolding();
+                } else {
+                    trail.pop();
+                }
+                continue;
+            }
+            var child = trail.top().children().get(cursor);
+            var name = cursor.toString();
+            if (child == null) {
+                requireNonBlankLeaf(path, cursor.segmentStart(), cursor.segmentEnd());
+                trail.replaceTop(trail.top().with(name, Dir.EMPTY));
+                child = Dir.EMPTY;
+                created++;
+            } else if (!(child instanceof Dir)) {
+                if (cursor.hasNext()) {
+                    throw new NotADirectoryException("not a directory: " + name, false);
+                }
+                throw new AlreadyExistsException("name already exists: " + name);
+            }
+            trail.push(name, (Dir) child);
+        }
+        if (created > 0) {
+            root = trail.rebuild(trail.top());
+        }
+        return created;
+    }
+
+    @Override
+    public void cd(String path) {
+        FileTree.requireNonBlank(path);
+        var trail = start(root, path);
+        if (!(resolve(trail, path) instanceof Dir)) {
+            throw new NotADirectoryException("not a directory: " + trail.resultName);
+        }
+        cwd = trail.names();
+        removed = null;
+    }
+
+    @Override
+    public List<String> ls() {
+        return ls(null);
+    }
+
+    @Override
+    public List<String> ls(String path) {
+        return ls(path, null, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public List<String> ls(String path, String startAfter, int limit) {
+        var page = Page.of(startAfter, limit);
+        var dir = lsTarget(path);
+        var displayNames = new ArrayList<String>(Math.min(limit, dir.children().size()));
+        dir.children().forEach(page.after(), limit,
+                (name, entry) -> displayNames.add(displayName(name, entry)));
+        return Collections.unmodifiableList(displayNames);
+    }
+
+    // The directory is one immutable version, so the sink sees it whole however long it takes.
+    @Override
+    public void ls(String path, Consumer<? super String> sink) {
+        Objects.requireNonNull(sink, "sink");
+        lsTarget(path).children().forEach((name, entry) -> sink.accept(displayName(name, entry)));
+    }
+
+    @Override
+    public List<String> find(String pattern) {
+        var found = new ArrayList<String>();
+        find(pattern, found::add);
+        return Collections.unmodifiableList(found);
+    }
+
+    // Same matches and order as FileTree, over one version of the tree. A pattern segment scans
+    // only the children from its literal prefix on.
+    @Override
+    public void find(String pattern, Consumer<? super String> sink) {
+        Objects.requireNonNull(sink, "sink");
+        var glob = Glob.compile(pattern);
+        find(glob, lsTarget(glob.base()), glob.base(), 0, glob.distinct(sink));
+    }
+
+    private static void find(Glob glob, Dir dir, String path, int index, Consumer<? super String> out) {
+        var segment = glob.segment(index);
+        boolean last = index == glob.length() - 1;
+        switch (segment.kind()) {
+            case LITERAL -> {
+                var entry = dir.children().get(segment.name());
+                if (entry != null) {
+                    found(glob, entry, Glob.child(path, segment.name()), index, out);
+                }
+            }
+            case PATTERN -> {
+                var prefix = segment.prefix();
+                dir.children().forEachFrom(prefix, true, (name, entry) -> {
+                    if (!name.startsWith(prefix)) {
+                        return false;
+                    }
+                    if (segment.matches(name)) {
+                        found(glob, entry, Glob.child(path, name), index, out);
+                    }
+                    return true;
+                });
+            }
+            case ANY_DEPTH -> {
+                if (!last) {
+                    find(glob, dir, path, index + 1, out);
+                }
+                dir.children().forEach((name, entry) -> {
+                    var childPath = Glob.child(path, name);
+                    if (last) {
+                        emit(glob, entry, childPath, out);
+                    }
+                    if (entry instanceof Dir subdirectory) {
+                        find(glob, subdirectory, childPath, index, out);
+                    }
+                });
+            }
+        }
+    }
+
+    private static void found(Glob glob, Entry entry, String path, int index, Consumer<? super String> out) {
+        if (index == glob.length() - 1) {
+            emit(glob, entry, path, out);
+        } else if (entry instanceof Dir dir) {
+            find(glob, dir, path, index + 1, out);
+        }
+    }
+
+    private static void emit(Glob glob, Entry entry, String path, Consumer<? super String> out) {
+        if (entry instanceof Dir) {
+            out.accept(path + "/");
+        } else if (!glob.directoriesOnly()) {
+            out.accept(path);
+        }
+    }
+
+    // Where the working directory is, or was when it was removed.
+    @Override
+    public String pwd() {
+        return "/" + String.join("/", cwd);
+    }
+
+    @Override
+    public PathStatus tryResolve(String path) {
+        FileTree.requireNonBlank(path);
+        var trail = start(root, path, true);
+        var entry = trail == null ? null : resolve(trail, path, true);
+        if (entry == null) {
+            return PathStatus.MISSING;
+        }
+        return entry instanceof Dir ? PathStatus.DIRECTORY : PathStatus.FILE;
+    }
+
+    private Dir lsTarget(String path) {
+        var trail = start(root, path);
+        if (path == null || path.isBlank()) {
+            return trail.top();
+        }
+        if (resolve(trail, path) instanceof Dir dir) {
+            return dir;
+        }
+        throw new NotADirectoryException("not a directory: " + trail.resultName);
+    }
+
+    private static String displayName(String name, Entry entry) {
+        return entry instanceof Dir ? name + "/" : name;
+    }
+
+    @Override
+    public void touch(String filename) {
+        requireWritable();
+        FileTree.requireFileName(filename);
+        synchronized (writeLock) {
+            var trail = start(root, filename);
+            requireAbsent(trail.top(), filename);
+            root = trail.rebuild(trail.top().with(filename, new File(null)));
+        }
+    }
+
+    @Override
+    public void rm(String path, boolean recursive) {
+        requireWritable();
+        synchronized (writeLock) {
+            var slot = existing(path);
+            if (slot.entry() instanceof Dir && !recursive) {
+                throw new IsADirectoryException("is a directory: " + slot.name());
+            }
+            root = slot.trail().rebuild(slot.trail().top().without(slot.name()));
+            if (removed == null && isWithin(cwd, slot)) {
+                removed = slot.name();
+            }
+        }
+    }
+
+    @Override
+    public void mv(String source, String target) {
+        requireWritable();
+        synchronized (writeLock) {
+            var from = existing(source);
+            var to = destination(target, from, "move");
+            var trail = walk(from.trail().rebuild(from.trail().top().without(from.name())), to.trail());
+            root = trail.rebuild(trail.top().with(to.name(), from.entry()));
+            cwd = moved(cwd, from, to);
+        }
+    }
+
+    // Whether names lead to the entry in slot or into it.
+    private static boolean isWithin(String[] names, Slot slot) {
+        var parent = slot.trail().names();
+        return names.length > parent.length && names[parent.length].equals(slot.name())
+                && Arrays.equals(names, 0, parent.length, parent, 0, parent.length);
+    }
+
+    // names as they read once the entry at from has moved to to.
+    private static String[] moved(String[] names, Slot from, Slot to) {
+        if (!isWithin(names, from)) {
+            return names;
+        }
+        var parent = from.trail().names();
+        var target = to.trail().names();
+        var renamed = Arrays.copyOf(target, target.length + names.length - parent.length);
+        renamed[target.length] = to.name();
+        System.arraycopy(names, parent.length + 1, renamed, target.length + 1, names.length - parent.length - 1);
+        return renamed;
+    }
+
+    // Copies share the source's entries outright, so copying a subtree of any size is as cheap as
+    // copying one file.
+    @Override
+    public void cp(String source, String target, boolean recursive) {
+        requireWritable();
+        synchronized (writeLock) {
+            var from = existing(source);
+            if (from.entry() instanceof Dir && !recursive) {
+                throw new IsADirectoryException("is a directory: " + from.name());
+            }
+            var to = destination(target, from, "copy");
+            root = to.trail().rebuild(to.trail().top().with(to.name(), from.entry()));
+        }
+    }
+
+    // A name in a directory reached by trail; entry is what is there, if anything.
+    private record Slot(Trail trail, String name, Entry entry) {
+    }
+
+    // The entry a path names for rm, mv and cp: never the root, and a trailing '/' requires a
+    // directory.
+    private Slot existing(String path) {
+        if (path == null) {
+            throw new InvalidPathException("path cannot be blank");
+        }
+        int end = path.length();
+        while (end > 1 && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        FileTree.requireNonBlank(path, end);
+        long leaf = PathCursor.leaf(path, end);
+        var trail = start(root, path);
+        resolveParent(trail, path, leaf);
+        var name = path.substring(PathCursor.leafStart(leaf), PathCursor.leafEnd(leaf));
+        var entry = trail.top().children().get(name);
+        if (entry == null) {
+            throw new NotFoundException("not found: " + name);
+        }
+        if (end < path.length() && !(entry instanceof Dir)) {
+            throw new NotADirectoryException("not a directory: " + name);
+        }
+        return new Slot(trail, name, entry);
+    }
+
+    // Same rules as FileTree: into an existing directory under the source's name, otherwise as the
+    // last segment of path, never over an existing entry and never inside the source itself.
+    private Slot destination(String path, Slot source, String operation) {
+        FileTree.requireNonBlank(path);
+        var slot = existingDestination(path, source);
+        if (slot == null) {
+            int end = path.length();
+            while (end > 1 && path.charAt(end - 1) == '/') {
+                end--;
+            }
+            long leaf = PathCursor.leaf(path, end);
+            var trail = start(root, path);
+            resolveParent(trail, path, leaf);
+            slot = new Slot(trail, path.substring(PathCursor.leafStart(leaf), PathCursor.leafEnd(leaf)), null);
+        }
+        if (slot.trail().isWithin(source.trail(), source.name())) {
+            throw new InvalidPathException("cannot " + operation + " a directory into itself: " + source.name());
+        }
+        requireAbsent(slot.trail().top(), slot.name());
+        return slot;
+    }
+
+    private Slot existingDestination(String path, Slot source) {
+        Trail trail;
+        Entry existing;
+        try {
+            trail = start(root, path);
+            existing = resolve(trail, path);
+        } catch (NotFoundException e) {
+            return null;
+        }
+        if (!(existing instanceof Dir)) {
+            throw new AlreadyExistsException("name already exists: " + trail.resultName);
+        }
+        return new Slot(trail, source.name(), null);
+    }
+
+    @Override
+    public void write(String path, byte[] data) {
+        requireWritable();
+        Objects.requireNonNull(data, "data");
+        synchronized (writeLock) {
+            var slot = createFile(path, false);
+            var content = newContent();
+            content.write(0, ByteBuffer.wrap(data));
+            root = slot.trail().rebuild(slot.trail().top().with(slot.name(), new File(content)));
+        }
+    }
+
+    @Override
+    public void append(String path, byte[] data) {
+        requireWritable();
+        Objects.requireNonNull(data, "data");
+        synchronized (writeLock) {
+            var slot = createFile(path, false);
+            var content = copyOf(slot.entry());
+            content.append(ByteBuffer.wrap(data));
+            root = slot.trail().rebuild(slot.trail().top().with(slot.name(), new File(content)));
+        }
+    }
+
+    @Override
+    public byte[] read(String path, long offset, int length) {
+        FileTree.requireNonBlank(path);
+        return FileTree.read(resolveFile(start(root, path), path).content(), offset, length);
+    }
+
+    @Override
+    public SeekableByteChannel newByteChannel(String path, OpenOption... options) {
+        return newByteChannel(path, new HashSet<>(Arrays.asList(options)));
+    }
+
+    // Read-only channels read the version that was current when they were opened. Writable ones
+    // work on a private copy and publish it after every change, for as long as the file they
+    // opened is still the one at its path.
+    private FileContentChannel newByteChannel(String path, Set<? extends OpenOption> options) {
+        var mode = OpenMode.of(options);
+        FileTree.requireNonBlank(path);
+        if (!mode.write()) {
+            var content = resolveFile(start(root, path), path).content();
+            return new FileContentChannel(content == null ? newContent() : content, true, false, false);
+        }
+        requireWritable();
+        synchronized (writeLock) {
+            Slot slot;
+            if (mode.createNew()) {
+                slot = createFile(path, true);
+            } else if (mode.create()) {
+                slot = createFile(path, false);
+            } else {
+                var trail = start(root, path);
+                var file = resolveFile(trail, path);
+                slot = new Slot(trail, trail.resultName, file);
+            }
+            var working = copyOf(slot.entry());
+            var publisher = new Publisher(slot, working);
+            if (slot.entry() == null || mode.truncate()) {
+                working.truncate(0);
+                publisher.publish(slot.trail());
+            }
+            return new FileContentChannel(working, mode.read(), mode.write(), mode.append(), publisher);
+        }
+    }
+
+    private final class Publisher implements FileContentChannel.Observer {
+        private final String[] parentNames;
+        private final String name;
+        private final FileContent working;
+        private Entry published;
+
+        Publisher(Slot slot, FileContent working) {
+            this.parentNames = slot.trail().names();
+            this.name = slot.name();
+            this.working = working;
+            this.published = slot.entry();
+        }
+
+        @Override
+        public void written(long position, ByteBuffer data) {
+        }
+
+        @Override
+        public void truncated(long size) {
+        }
+
+        @Override
+        public void completed() {
+            synchronized (writeLock) {
+                if (published == null) {
+                    return;
+                }
+                var trail = walk(root, parentNames);
+                if (trail == null || trail.top().children().get(name) != published) {
+                    // Removed, moved or replaced since: later changes have nowhere to go.
+                    published = null;
+                    return;
+                }
+                publish(trail);
+            }
+        }
+
+        // Caller holds writeLock.
+        void publish(Trail trail) {
+            published = new File(working.copy());
+            root = trail.rebuild(trail.top().with(name, published));
+        }
+    }
+
+    @Override
+    public InputStream newInputStream(String path) {
+        return new FileContentInputStream(newByteChannel(path, Set.of(StandardOpenOption.READ)));
+    }
+
+    @Override
+    public OutputStream newOutputStream(String path, OpenOption... options) {
+        var requested = new HashSet<OpenOption>(Arrays.asList(options));
+        return new FileContentOutputStream(newByteChannel(path, OpenMode.forOutputStream(requested)));
+    }
+
+    private FileContent newContent() {
+        return new FileContent(options.contentChunkSize(), options.directContent());
+    }
+
+    // A private copy of a file's content to change, empty for a new or never written file.
+    private FileContent copyOf(Entry file) {
+        var content = file == null ? null : ((File) file).content();
+        return content == null ? newContent() : content.copy();
+    }
+
+    private void requireWritable() {
+        if (!writable) {
+            throw new UnsupportedOperationException("snapshots are read-only");
+        }
+    }
+
+    private static void requireAbsent(Dir dir, String name) {
+        if (dir.children().get(name) != null) {
+            throw new AlreadyExistsException("name already exists: " + name);
+        }
+    }
+
+    // The directories from the root down to the one a walk has reached, so that ".." can step back
+    // up and a change can rebuild every directory above it.
+    private static final class Trail {
+        private Dir[] dirs;
+        // names[i] is the name of dirs[i] in dirs[i - 1].
+        private String[] names;
+        private int depth;
+        // The name of what the last resolve ended at, for error messages.
+        private String resultName;
+
+        Trail(Dir root, int expectedDepth) {
+            dirs = new Dir[Math.max(8, expectedDepth + 4)];
+            names = new String[dirs.length];
+            dirs[0] = root;
+        }
+
+        Dir top() {
+            return dirs[depth];
+        }
+
+        String topName() {
+            return depth == 0 ? "/" : names[depth];
+        }
+
+        void push(String name, Dir dir) {
+            if (++depth == dirs.length) {
+                dirs = Arrays.copyOf(dirs, depth * 2);
+                names = Arrays.copyOf(names, depth * 2);
+            }
+            dirs[depth] = dir;
+            names[depth] = name;
+        }
+
+        void pop() {
+            if (depth > 0) {
+                depth--;
+            }
+        }
+
+        void replaceTop(Dir dir) {
+            dirs[depth] = dir;
+        }
+
+        // pop, keeping any change to top by putting it into its parent.
+        void popFolding() {
+            if (depth > 0) {
+                dirs[depth - 1] = dirs[depth - 1].with(names[depth], dirs[depth]);
+                depth--;
+            }
+        }
+
+        String[] names() {
+            return depth == 0 ? NO_NAMES : Arrays.copyOfRange(names, 1, depth + 1);
+        }
+
+        // Whether this trail passes through the entry called name at the end of ancestor.
+        boolean isWithin(Trail ancestor, String name) {
+            if (depth <= ancestor.depth) {
+                return false;
+            }
+            for (int i = 1; i <= ancestor.depth; i++) {
+                if (!names[i].equals(ancestor.names[i])) {
+                    return false;
+                }
+            }
+            return names[ancestor.depth + 1].equals(name);
+        }
+
+        // The root of a version in which top is replaced by updated.
+        Dir rebuild(Dir updated) {
+            var dir = updated;
+            for (int i = depth; i > 0; i--) {
+                dir = dirs[i - 1].with(names[i], dir);
+            }
+            return dir;
+        }
+    }
+
+    // Where paths start: the root for absolute ones, the working directory otherwise.
+    private Trail start(Dir root, String path) {
+        return start(root, path, false);
+    }
+
+    // With orNull, null if the working directory has been removed and path is relative.
+    private Trail start(Dir root, String path, boolean orNull) {
+        var names = cwd;
+        var trail = new Trail(root, names.length);
+        if (path != null && !path.isEmpty() && path.charAt(0) == '/') {
+            return trail;
+        }
+        var lost = removed;
+        if (lost != null) {
+            if (orNull) {
+                return null;
+            }
+            throw new NotFoundException("not found: " + lost, false);
+        }
+        for (var name : names) {
+            if (!(trail.top().children().get(name) instanceof Dir dir)) {
+                if (orNull) {
+                    return null;
+                }
+                throw new NotFoundException("not found: " + name, false);
+            }
+            trail.push(name, dir);
+        }
+        return trail;
+    }
+
+    // The same directories by name in another version, or null if they are not all there.
+    private static Trail walk(Dir root, String[] names) {
+        var trail = new Trail(root, names.length);
+        for (var name : names) {
+            if (!(trail.top().children().get(name) instanceof Dir dir)) {
+                return null;
+            }
+            trail.push(name, dir);
+        }
+        return trail;
+    }
+
+    private static Trail walk(Dir root, Trail like) {
+        return walk(root, like.names());
+    }
+
+    // Walks path on from trail. Directories along the way, including a directory result, are
+    // pushed; a file result is returned with trail left at its parent.
+    private static Entry resolve(Trail trail, String path) {
+        return resolve(trail, path, false);
+    }
+
+    // With orNull, a miss returns null instead of throwing. Misses are routine, so the exceptions
+    // lookups throw carry no stack trace.
+    private static Entry resolve(Trail trail, String path, boolean orNull) {
+        FileTree.requireNonBlank(path);
+        var hasTrailingSlash = path.length() > 1 && path.charAt(path.length() - 1) == '/';
+        var cursor = new PathCursor(path, path.length());
+
+        Entry result = trail.top();
+        trail.resultName = trail.topName();
+        while (cursor.next()) {
+            if (cursor.isDotDot()) {
+                trail.pop();
+                result = trail.top();
+                trail.resultName = trail.topName();
+                continue;
+            }
+
+            var child = trail.top().children().get(cursor);
+            if (child == null) {
+                if (orNull) {
+                    return null;
+                }
+                throw new NotFoundException("not found: " + cursor, false);
+            }
+            var name = cursor.toString();
+            result = child;
+            trail.resultName = name;
+            if (child instanceof Dir dir) {
+                trail.push(name, dir);
+            } else if (cursor.hasNext() || hasTrailingSlash) {
+                if (orNull) {
+                    return null;
+                }
+                throw new NotADirectoryException("not a directory: " + name, false);
+            }
+        }
+        return result;
+    }
+
+    private static File resolveFile(Trail trail, String path) {
+        if (resolve(trail, path) instanceof File file) {
+            return file;
+        }
+        throw new IsADirectoryException("is a directory: " + trail.resultName);
+    }
+
+    // Walks everything before the leaf, which must all be directories.
+    private static void resolveParent(Trail trail, String path, long leaf) {
+        int leafStart = PathCursor.leafStart(leaf);
+        var cursor = new PathCursor(path, leafStart);
+        while (cursor.next()) {
+            if (cursor.isDotDot()) {
+                trail.pop();
+                continue;
+            }
+            if (!(childOrThrow(trail.top(), cursor) instanceof Dir dir)) {
+                throw new NotADirectoryException("not a directory: " + cursor, false);
+            }
+            trail.push(cursor.toString(), dir);
+        }
+        requireNonBlankLeaf(path, leafStart, PathCursor.leafEnd(leaf));
+    }
+
+    private Slot createFile(String path, boolean exclusive) {
+        FileTree.requireNonBlank(path);
+        long leaf = PathCursor.leaf(path, path.length());
+        var trail = start(root, path);
+        resolveParent(trail, path, leaf);
+        var name = path.substring(PathCursor.leafStart(leaf), PathCursor.leafEnd(leaf));
+
+        var existing = trail.top().children().get(name);
+        if (existing == null) {
+            return new Slot(trail, name, null);
+        }
+        if (exclusive) {
+            throw new AlreadyExistsException("name already exists: " + name);
+        }
+        if (existing instanceof Dir) {
+            throw new IsADirectoryException("is a directory: " + name);
+        }
+        return new Slot(trail, name, existing);
+    }
+
+    private static void requireNonBlankLeaf(String path, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (!Character.isWhitespace(path.charAt(i))) {
+                return;
+            }
+        }
+        throw new InvalidPathException("leaf name cannot be blank");
+    }
+
+    private static Entry childOrThrow(Dir dir, CharSequence segment) {
+        var child = dir.children().get(segment);
+        if (child == null) {
+            throw new NotFoundException("not found: " + segment, false);
+        }
+        return child;
+    }
+}
@@ -0,0 +1,274 @@
+package com.thom.filesystem.core;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+
+// An immutable map from names to values, sorted by name: a B+-tree whose updates copy only the
+// nodes on the path to the changed key and share everything else with the map they came from.
+// Lookups take any CharSequence, compared the same way as DirectoryNode orders its children.
+final class PersistentNameMap<V> {
+    // Node capacity. Large enough that a million entries are four levels deep, small enough that
+    // copying a node on every update stays cheap.
+    static final int MAX_ENTRIES = 32;
+
+    private static final PersistentNameMap<?> EMPTY =
+            new PersistentNameMap<>(new Leaf(new String[0], new Object[0]), 0);
+
+    private sealed interface Node permits Leaf, Branch {
+        int width();
+    }
+
+    private record Leaf(String[] keys, Object[] values) implements Node {
+        @Override
+        public int width() {
+            return keys.length;
+        }
+    }
+
+    // children[i] holds the keys in [separators[i - 1], separators[i]).
+    private record Branch(String[] separators, Node[] children) implements Node {
+        @Override
+        public int width() {
+            return children.length;
+        }
+    }
+
+    private final Node root;
+    private final int size;
+
+    private PersistentNameMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <V> PersistentNameMap<V> empty() {
+        return (PersistentNameMap<V>) EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(CharSequence key) {
+        Objects.requireNonNull(key, "key");
+        var node = root;
+        while (node instanceof Branch branch) {
+            node = branch.children[childIndex(branch.separators, key)];
+        }
+        var leaf = (Leaf) node;
+        int index = indexOf(leaf.keys, key);
+        return index >= 0 ? (V) leaf.values[index] : null;
+    }
+
+    // Adds key or replaces its value.
+    PersistentNameMap<V> put(String key, V value) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        int grown = get(key) == null ? 1 : 0;
+        var updated = insert(root, key, value);
+        if (updated.width() > MAX_ENTRIES) {
+            var halves = split(updated);
+            updated = new Branch(new String[]{firstKey(halves[1])}, halves);
+        }
+        return new PersistentNameMap<>(updated, size + grown);
+    }
+
+    PersistentNameMap<V> remove(CharSequence key) {
+        Objects.requireNonNull(key, "key");
+        if (get(key) == null) {
+            return this;
+        }
+        var updated = delete(root, key);
+        return updated == null ? empty() : new PersistentNameMap<>(updated, size - 1);
+    }
+
+    // Visits every entry in name order.
+    void forEach(BiConsumer<String, V> action) {
+        forEach(null, Integer.MAX_VALUE, action);
+    }
+
+    // Visits up to limit entries in name order, starting after the key after (from the first if
+    // null).
+    void forEach(CharSequence after, int limit, BiConsumer<String, V> action) {
+        Objects.requireNonNull(action, "action");
+        var remaining = new int[]{limit};
+        forEachFrom(after, false, (key, value) -> {
+            if (remaining[0]-- <= 0) {
+                return false;
+            }
+            action.accept(key, value);
+            return true;
+        });
+    }
+
+    // Visits entries in name order, starting at from (or just after it, or at the first entry if
+    // from is null), until action returns false. Only the path to the starting key is searched; the
+    // rest is a plain in-order walk.
+    @SuppressWarnings("unchecked")
+    void forEachFrom(CharSequence from, boolean inclusive, BiPredicate<String, V> action) {
+        Objects.requireNonNull(action, "action");
+        forEachFrom(root, from, inclusive, (BiPredicate<String, Object>) action);
+    }
+
+    // Returns false once action has asked to stop.
+    private static boolean forEachFrom(Node node, CharSequence from, boolean inclusive,
+                                       BiPredicate<String, Object> action) {
+        switch (node) {
+            case Leaf leaf -> {
+                int start = 0;
+                if (from != null) {
+                    int index = indexOf(leaf.keys, from);
+                    start = index >= 0 ? (inclusive ? index : index + 1) : -index - 1;
+                }
+                for (int i = start; i < leaf.keys.length; i++) {
+                    if (!action.test(leaf.keys[i], leaf.values[i])) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            case Branch branch -> {
+                int start = from == null ? 0 : childIndex(branch.separators, from);
+                for (int i = start; i < branch.children.length; i++) {
+                    if (!forEachFrom(branch.children[i], i == start ? from : null, inclusive, action)) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+        }
+    }
+
+    // Returns the updated copy of node, which may hold one entry more than MAX_ENTRIES; the caller
+    // splits it.
+    private static Node insert(Node node, String key, Object value) {
+        return switch (node) {
+            case Leaf leaf -> {
+                int index = indexOf(leaf.keys, key);
+                if (index >= 0) {
+                    var values = leaf.values.clone();
+                    values[index] = value;
+                    yield new Leaf(leaf.keys, values);
+                }
+                int at = -index - 1;
+                yield new Leaf(inserted(leaf.keys, at, key), inserted(leaf.values, at, value));
+            }
+            case Branch branch -> {
+                int index = childIndex(branch.separators, key);
+                var child = insert(branch.children[index], key, value);
+                if (child.width() <= MAX_ENTRIES) {
+                    var children = branch.children.clone();
+                    children[index] = child;
+                    yield new Branch(branch.separators, children);
+                }
+                var halves = split(child);
+                var children = inserted(branch.children, index + 1, halves[1]);
+                children[index] = halves[0];
+                yield new Branch(inserted(branch.separators, index, firstKey(halves[1])), children);
+            }
+        };
+    }
+
+    private static Node[] split(Node node) {
+        int half = node.width() / 2;
+        return switch (node) {
+            case Leaf leaf -> new Node[]{
+                    new Leaf(Arrays.copyOfRange(leaf.keys, 0, half), Arrays.copyOfRange(leaf.values, 0, half)),
+                    new Leaf(Arrays.copyOfRange(leaf.keys, half, leaf.keys.length),
+                            Arrays.copyOfRange(leaf.values, half, leaf.values.length))};
+            // The separator between the halves is dropped; the caller recovers it as the right
+            // half's first key.
+            case Branch branch -> new Node[]{
+                    new Branch(Arrays.copyOfRange(branch.separators, 0, half - 1),
+                            Arrays.copyOfRange(branch.children, 0, half)),
+                    new Branch(Arrays.copyOfRange(branch.separators, half, branch.separators.length),
+                            Arrays.copyOfRange(branch.children, half, branch.children.length))};
+        };
+    }
+
+    private static String firstKey(Node node) {
+        while (node instanceof Branch branch) {
+            node = branch.children[0];
+        }
+        return ((Leaf) node).keys[0];
+    }
+
+    // Returns the updated copy of node, or null once it is empty. Underfull nodes are not merged:
+    // lookups stay correct and the tree only gets sparser, never deeper, as entries go.
+    private static Node delete(Node node, CharSequence key) {
+        return switch (node) {
+            case Leaf leaf -> {
+                int index = indexOf(leaf.keys, key);
+                yield leaf.keys.length == 1 ? null : new Leaf(removed(leaf.keys, index), removed(leaf.values, index));
+            }
+            case Branch branch -> {
+                int index = childIndex(branch.separators, key);
+                var child = delete(branch.children[index], key);
+                if (child != null) {
+                    var children = branch.children.clone();
+                    children[index] = child;
+                    yield new Branch(branch.separators, children);
+                }
+                if (branch.children.length == 2) {
+                    // What is left covers the whole range on its own.
+                    yield branch.children[1 - index];
+                }
+                // Dropping a child also drops the separator on its left, or the first one.
+                yield new Branch(removed(branch.separators, Math.max(0, index - 1)), removed(branch.children, index));
+            }
+        };
+    }
+
+    // The number of separators <= key, which is the child that may hold it.
+    private static int childIndex(String[] separators, CharSequence key) {
+        int low = 0;
+        int high = separators.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (CharSequence.compare(separators[mid], key) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int indexOf(String[] keys, CharSequence key) {
+        int low = 0;
+        int high = keys.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = CharSequence.compare(keys[mid], key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static <T> T[] inserted(T[] array, int at, T element) {
+        var grown = Arrays.copyOf(array, array.length + 1);
+        System.arraycopy(array, at, grown, at + 1, array.length - at);
+        grown[at] = element;
+        return grown;
+    }
+
+    private static <T> T[] removed(T[] array, int at) {
+        var shrunk = Arrays.copyOf(array, array.length - 1);
+        System.arraycopy(array, at + 1, shrunk, at, array.length - at - 1);
+        return shrunk;
+    }
+}
@@ -0,0 +1,118 @@
+package com.thom.filesystem.core;
+
+import com.thom.filesystem.models.DirectoryNode;
+import com.thom.filesystem.models.Node;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Two-way set-associative cache of successful resolutions keyed by (cwd, path). Entries are
+// immutable and slots are written racily: a lost update only costs a miss. Only positive results
+// are cached, and adding nodes can never change one, so mkdir/touch leave the cache alone. An
+// operation that removes or relinks nodes brackets the change with beginChange and endChange,
+// which works like a seqlock: the epoch is odd while the change is under way, so every entry is
+// retired before the change is visible and nothing looked up during it is cached.
+public final class ResolutionCache {
+    private final Entry[] slots;
+    private final int setMask;
+    private final AtomicLong epoch = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    ResolutionCache(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity must be at least 2");
+        }
+        int sets = Integer.highestOneBit(capacity - 1);
+        this.slots = new Entry[sets * 2];
+        this.setMask = sets - 1;
+    }
+
+    public int capacity() {
+        return slots.length;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public void resetStats() {
+        hits.reset();
+        misses.reset();
+    }
+
+    public void invalidateAll() {
+        epoch.addAndGet(2);
+    }
+
+    void beginChange() {
+        epoch.incrementAndGet();
+    }
+
+    void endChange() {
+        epoch.incrementAndGet();
+    }
+
+    long epoch() {
+        return epoch.get();
+    }
+
+    Node get(String path, DirectoryNode cwd) {
+        long current = epoch.get();
+        int first = indexOf(path, cwd);
+
+        var entry = slots[first];
+        if (entry != null && entry.matches(path, cwd, current)) {
+            hits.increment();
+            return entry.node;
+        }
+        var second = slots[first + 1];
+        if (second != null && second.matches(path, cwd, current)) {
+            slots[first + 1] = entry;
+            slots[first] = second;
+            hits.increment();
+            return second.node;
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    void put(String path, DirectoryNode cwd, Node node, long epochAtLookup) {
+        if ((epochAtLookup & 1) != 0) {
+            return;
+        }
+        int first = indexOf(path, cwd);
+        slots[first + 1] = slots[first];
+        slots[first] = new Entry(path, cwd, node, epochAtLookup);
+    }
+
+    private int indexOf(String path, DirectoryNode cwd) {
+        int h = path.hashCode() * 31 + System.identityHashCode(cwd);
+        h ^= h >>> 16;
+        return (h & setMask) << 1;
+    }
+
+    private static final class Entry {
+        final String path;
+        final DirectoryNode cwd;
+        final Node node;
+        final long epoch;
+
+        Entry(String path, DirectoryNode cwd, Node node, long epoch) {
+            this.path = path;
+            this.cwd = cwd;
+            this.node = node;
+            this.epoch = epoch;
+        }
+
+        boolean matches(String path, DirectoryNode cwd, long epoch) {
+            return this.epoch == epoch && this.cwd == cwd && this.path.equals(path);
+        }
+    }
+}
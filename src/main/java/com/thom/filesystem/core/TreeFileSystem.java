@@ -0,0 +1,143 @@
+package com.thom.filesystem.core;
+
+import com.thom.filesystem.api.FileSystem;
+import com.thom.filesystem.api.PathStatus;
+import com.thom.filesystem.models.DirectoryNode;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.OpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+abstract sealed class TreeFileSystem implements FileSystem
+        permits InMemoryFileSystem, ConcurrentFileSystem, FileSystemSession {
+    final FileTree tree;
+
+    TreeFileSystem(FileTree tree) {
+        this.tree = Objects.requireNonNull(tree, "tree");
+    }
+
+    abstract DirectoryNode cwd();
+
+    abstract void cwd(DirectoryNode cwd);
+
+    @Override
+    public void mkdir(String path) {
+        tree.mkdir(path, cwd());
+    }
+
+    @Override
+    public void mkdirs(String path) {
+        tree.mkdirs(path, cwd());
+    }
+
+    @Override
+    public long mkdirs(Collection<String> paths) {
+        return tree.mkdirs(paths, cwd());
+    }
+
+    @Override
+    public void cd(String path) {
+        cwd(tree.cd(path, cwd()));
+    }
+
+    @Override
+    public String pwd() {
+        return FileTree.pathOf(cwd());
+    }
+
+    @Override
+    public PathStatus tryResolve(String path) {
+        var node = tree.tryResolve(path, cwd());
+        if (node == null) {
+            return PathStatus.MISSING;
+        }
+        return node instanceof DirectoryNode ? PathStatus.DIRECTORY : PathStatus.FILE;
+    }
+
+    @Override
+    public List<String> ls() {
+        return tree.ls(null, cwd());
+    }
+
+    @Override
+    public List<String> ls(String path) {
+        return tree.ls(path, cwd());
+    }
+
+    @Override
+    public List<String> ls(String path, String startAfter, int limit) {
+        return tree.ls(path, startAfter, limit, cwd());
+    }
+
+    @Override
+    public void ls(String path, Consumer<? super String> sink) {
+        tree.ls(path, sink, cwd());
+    }
+
+    @Override
+    public List<String> find(String pattern) {
+        return tree.find(pattern, cwd());
+    }
+
+    @Override
+    public void find(String pattern, Consumer<? super String> sink) {
+        tree.find(pattern, sink, cwd());
+    }
+
+    @Override
+    public void touch(String filename) {
+        tree.touch(filename, cwd());
+    }
+
+    @Override
+    public void rm(String path, boolean recursive) {
+        tree.rm(path, recursive, cwd());
+    }
+
+    @Override
+    public void mv(String source, String target) {
+        tree.mv(source, target, cwd());
+    }
+
+    @Override
+    public void cp(String source, String target, boolean recursive) {
+        tree.cp(source, target, recursive, cwd());
+    }
+
+    @Override
+    public void write(String path, byte[] data) {
+        tree.write(path, data, cwd());
+    }
+
+    @Override
+    public void append(String path, byte[] data) {
+        tree.append(path, data, cwd());
+    }
+
+    @Override
+    public byte[] read(String path, long offset, int length) {
+        return tree.read(path, offset, length, cwd());
+    }
+
+    @Override
+    public SeekableByteChannel newByteChannel(String path, OpenOption... options) {
+        return tree.newByteChannel(path, new HashSet<>(Arrays.asList(options)), cwd());
+    }
+
+    @Override
+    public InputStream newInputStream(String path) {
+        return tree.newInputStream(path, cwd());
+    }
+
+    @Override
+    public OutputStream newOutputStream(String path, OpenOption... options) {
+        return tree.newOutputStream(path, new HashSet<>(Arrays.asList(options)), cwd());
+    }
+}
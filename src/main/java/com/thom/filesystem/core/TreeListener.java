@@ -0,0 +1,36 @@
+package com.thom.filesystem.core;
+
+import com.thom.filesystem.models.DirectoryNode;
+import com.thom.filesystem.models.FileNode;
+import com.thom.filesystem.models.Node;
+
+import java.nio.ByteBuffer;
+
+// Observes mutations of a FileTree. Events fire on the mutating thread while it still holds the
+// lock that orders the change (the parent directory for structural changes, the file content for
+// writes), so listeners see changes in the order they become visible and must be quick. created,
+// removed and moved fire just before the change is made; throwing from them cancels it, but
+// listeners registered before the one that threw have already seen the event. completed fires once
+// per operation after every lock is released, which is where a listener may block.
+public interface TreeListener {
+    // A created directory may already have children: a copy is published as a whole subtree.
+    default void created(Node node) {
+    }
+
+    // Removing a directory takes its whole subtree with it.
+    default void removed(Node node) {
+    }
+
+    default void moved(Node node, DirectoryNode target, String name) {
+    }
+
+    // data holds exactly the bytes written at position; it is only valid for the duration of the call.
+    default void written(FileNode file, long position, ByteBuffer data) {
+    }
+
+    default void truncated(FileNode file, long size) {
+    }
+
+    default void completed() {
+    }
+}
@@ -0,0 +1,6 @@
+package com.thom.filesystem.core;
+
+// Shape of a tree at one moment: how many nodes it holds (the root included), how many names deep
+// its deepest node is, and how many children its widest directory has.
+public record TreeStats(long nodes, int maxDepth, int widestDirectory) {
+}
@@ -4,4 +4,8 @@ public final class AlreadyExistsException extends FileSystemException {
     public AlreadyExistsException(String message) {
         super(message);
     }
+
+    public AlreadyExistsException(String message, boolean writableStackTrace) {
+        super(message, writableStackTrace);
+    }
 }
@@ -0,0 +1,11 @@
+package com.thom.filesystem.errors;
+
+public final class DirectoryNotEmptyException extends FileSystemException {
+    public DirectoryNotEmptyException(String message) {
+        super(message);
+    }
+
+    public DirectoryNotEmptyException(String message, boolean writableStackTrace) {
+        super(message, writableStackTrace);
+    }
+}
@@ -1,7 +1,14 @@
 package com.thom.filesystem.errors;
 
+// User errors: bad paths, missing entries, names in use. They say everything in their message, so
+// code that throws them at high rates (lookups that miss are routine) can leave writableStackTrace
+// off and skip filling in a stack trace, which is most of what constructing one costs.
 public class FileSystemException extends RuntimeException {
     public FileSystemException(String message) {
         super(message);
     }
+
+    public FileSystemException(String message, boolean writableStackTrace) {
+        super(message, null, true, writableStackTrace);
+    }
 }
@@ -4,4 +4,8 @@ public final class InvalidCommandException extends FileSystemException {
     public InvalidCommandException(String message) {
         super(message);
     }
+
+    public InvalidCommandException(String message, boolean writableStackTrace) {
+        super(message, writableStackTrace);
+    }
 }
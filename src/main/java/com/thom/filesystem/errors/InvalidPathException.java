@@ -4,4 +4,8 @@ public final class InvalidPathException extends FileSystemException {
     public InvalidPathException(String message) {
         super(message);
     }
+
+    public InvalidPathException(String message, boolean writableStackTrace) {
+        super(message, writableStackTrace);
+    }
 }
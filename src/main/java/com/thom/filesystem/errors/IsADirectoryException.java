@@ -0,0 +1,11 @@
+package com.thom.filesystem.errors;
+
+public final class IsADirectoryException extends FileSystemException {
+    public IsADirectoryException(String message) {
+        super(message);
+    }
+
+    public IsADirectoryException(String message, boolean writableStackTrace) {
+        super(message, writableStackTrace);
+    }
+}
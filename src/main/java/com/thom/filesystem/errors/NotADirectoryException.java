@@ -4,4 +4,8 @@ public final class NotADirectoryException extends FileSystemException {
     public NotADirectoryException(String message) {
         super(message);
     }
+
+    public NotADirectoryException(String message, boolean writableStackTrace) {
+        super(message, writableStackTrace);
+    }
 }
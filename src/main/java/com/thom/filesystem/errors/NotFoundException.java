@@ -4,4 +4,8 @@ public final class NotFoundException extends FileSystemException {
     public NotFoundException(String message) {
         super(message);
     }
+
+    public NotFoundException(String message, boolean writableStackTrace) {
+        super(message, writableStackTrace);
+    }
 }
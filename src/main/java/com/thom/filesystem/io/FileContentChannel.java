@@ -0,0 +1,211 @@
+package com.thom.filesystem.io;
+
+import com.thom.filesystem.models.FileContent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.NonReadableChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+
+public final class FileContentChannel implements SeekableByteChannel {
+    private static final int OBSERVED_TRANSFER_BUFFER_SIZE = 64 * 1024;
+
+    // Sees every change made through the channel, in content order: written and truncated run while
+    // the content's monitor is held, completed after it is released.
+    public interface Observer {
+        void written(long position, ByteBuffer data);
+
+        void truncated(long size);
+
+        void completed();
+    }
+
+    private final FileContent content;
+    private final boolean readable;
+    private final boolean writable;
+    private final boolean append;
+    private final Observer observer;
+
+    private long position;
+    private volatile boolean open = true;
+
+    public FileContentChannel(FileContent content, boolean readable, boolean writable, boolean append) {
+        this(content, readable, writable, append, null);
+    }
+
+    public FileContentChannel(FileContent content, boolean readable, boolean writable, boolean append,
+                              Observer observer) {
+        this.content = Objects.requireNonNull(content, "content");
+        this.readable = readable;
+        this.writable = writable || append;
+        this.append = append;
+        this.observer = observer;
+    }
+
+    public FileContent content() {
+        return content;
+    }
+
+    @Override
+    public synchronized int read(ByteBuffer dst) throws IOException {
+        ensureOpen();
+        if (!readable) {
+            throw new NonReadableChannelException();
+        }
+        int read = content.read(position, dst);
+        if (read > 0) {
+            position += read;
+        }
+        return read;
+    }
+
+    @Override
+    public synchronized int write(ByteBuffer src) throws IOException {
+        ensureOpen();
+        if (!writable) {
+            throw new NonWritableChannelException();
+        }
+        if (observer != null) {
+            return writeObserved(src);
+        }
+        int written;
+        if (append) {
+            synchronized (content) {
+                position = content.size();
+                written = content.write(position, src);
+            }
+        } else {
+            written = content.write(position, src);
+        }
+        position += written;
+        return written;
+    }
+
+    private int writeObserved(ByteBuffer src) {
+        int written;
+        synchronized (content) {
+            if (append) {
+                position = content.size();
+            }
+            written = writeObserved(position, src);
+        }
+        observer.completed();
+        position += written;
+        return written;
+    }
+
+    // Caller holds the content's monitor.
+    private int writeObserved(long at, ByteBuffer src) {
+        var data = src.duplicate();
+        int written = content.write(at, src);
+        observer.written(at, data.limit(data.position() + written));
+        return written;
+    }
+
+    @Override
+    public synchronized long position() throws IOException {
+        ensureOpen();
+        return position;
+    }
+
+    @Override
+    public synchronized FileContentChannel position(long newPosition) throws IOException {
+        ensureOpen();
+        if (newPosition < 0) {
+            throw new IllegalArgumentException("position cannot be negative");
+        }
+        position = newPosition;
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return content.size();
+    }
+
+    @Override
+    public synchronized FileContentChannel truncate(long size) throws IOException {
+        ensureOpen();
+        if (!writable) {
+            throw new NonWritableChannelException();
+        }
+        if (observer == null) {
+            content.truncate(size);
+        } else {
+            synchronized (content) {
+                content.truncate(size);
+                observer.truncated(size);
+            }
+            observer.completed();
+        }
+        if (position > size) {
+            position = size;
+        }
+        return this;
+    }
+
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        ensureOpen();
+        if (!readable) {
+            throw new NonReadableChannelException();
+        }
+        return content.transferTo(position, count, target);
+    }
+
+    public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+        ensureOpen();
+        if (!writable) {
+            throw new NonWritableChannelException();
+        }
+        if (observer == null) {
+            return content.transferFrom(src, position, count);
+        }
+        return transferFromObserved(src, position, count);
+    }
+
+    // Observers need the bytes, so observed transfers copy through a buffer rather than letting the
+    // source fill chunks directly.
+    private long transferFromObserved(ReadableByteChannel src, long position, long count) throws IOException {
+        var buffer = ByteBuffer.allocate((int) Math.min(OBSERVED_TRANSFER_BUFFER_SIZE, Math.max(count, 1)));
+        long total = 0;
+        try {
+            while (total < count && position + total <= content.size()) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), count - total));
+                int read = src.read(buffer);
+                if (read <= 0) {
+                    break;
+                }
+                buffer.flip();
+                synchronized (content) {
+                    writeObserved(position + total, buffer);
+                }
+                total += read;
+            }
+        } finally {
+            observer.completed();
+        }
+        return total;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public void close() {
+        open = false;
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (!open) {
+            throw new ClosedChannelException();
+        }
+    }
+}
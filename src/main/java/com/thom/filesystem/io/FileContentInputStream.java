@@ -0,0 +1,81 @@
+package com.thom.filesystem.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+public final class FileContentInputStream extends InputStream {
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final FileContentChannel channel;
+
+    public FileContentInputStream(FileContentChannel channel) {
+        this.channel = Objects.requireNonNull(channel, "channel");
+    }
+
+    @Override
+    public int read() throws IOException {
+        var one = new byte[1];
+        return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        if (len == 0) {
+            return 0;
+        }
+        return channel.read(ByteBuffer.wrap(b, off, len));
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        synchronized (channel) {
+            long position = channel.position();
+            long skipped = Math.max(0, Math.min(n, channel.size() - position));
+            channel.position(position + skipped);
+            return skipped;
+        }
+    }
+
+    @Override
+    public int available() throws IOException {
+        synchronized (channel) {
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(0, channel.size() - channel.position()));
+        }
+    }
+
+    // In-memory targets receive chunk views directly. Any other stream needs a byte[] because that
+    // is all OutputStream accepts, so data is staged through one reusable buffer.
+    @Override
+    public long transferTo(OutputStream out) throws IOException {
+        Objects.requireNonNull(out, "out");
+        if (out instanceof FileContentOutputStream target) {
+            synchronized (channel) {
+                long position = channel.position();
+                long transferred = channel.transferTo(position, Long.MAX_VALUE, target.channel());
+                channel.position(position + transferred);
+                return transferred;
+            }
+        }
+
+        var buffer = new byte[COPY_BUFFER_SIZE];
+        long total = 0;
+        int read;
+        while ((read = read(buffer, 0, buffer.length)) >= 0) {
+            out.write(buffer, 0, read);
+            total += read;
+        }
+        return total;
+    }
+
+    @Override
+    public void close() {
+        channel.close();
+    }
+}
@@ -0,0 +1,37 @@
+package com.thom.filesystem.io;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+public final class FileContentOutputStream extends OutputStream {
+    private final FileContentChannel channel;
+
+    public FileContentOutputStream(FileContentChannel channel) {
+        this.channel = Objects.requireNonNull(channel, "channel");
+    }
+
+    FileContentChannel channel() {
+        return channel;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        Objects.checkFromIndexSize(off, len, b.length);
+        var src = ByteBuffer.wrap(b, off, len);
+        while (src.hasRemaining()) {
+            channel.write(src);
+        }
+    }
+
+    @Override
+    public void close() {
+        channel.close();
+    }
+}
@@ -0,0 +1,35 @@
+package com.thom.filesystem.io;
+
+import java.time.Duration;
+import java.util.Objects;
+
+// EVERY_OP: a mutation returns only once its record is on disk; concurrent mutations share a force.
+// GROUP_COMMIT: records are buffered and a background flusher writes and forces them every interval.
+// NONE: records are buffered and written when the buffer fills or on sync/close, never forced.
+public record FsyncPolicy(Mode mode, Duration interval) {
+    public enum Mode {
+        EVERY_OP,
+        GROUP_COMMIT,
+        NONE
+    }
+
+    public FsyncPolicy {
+        Objects.requireNonNull(mode, "mode");
+        Objects.requireNonNull(interval, "interval");
+        if (mode == Mode.GROUP_COMMIT && (interval.isNegative() || interval.isZero())) {
+            throw new IllegalArgumentException("group commit interval must be positive");
+        }
+    }
+
+    public static FsyncPolicy everyOp() {
+        return new FsyncPolicy(Mode.EVERY_OP, Duration.ZERO);
+    }
+
+    public static FsyncPolicy groupCommit(Duration interval) {
+        return new FsyncPolicy(Mode.GROUP_COMMIT, interval);
+    }
+
+    public static FsyncPolicy none() {
+        return new FsyncPolicy(Mode.NONE, Duration.ZERO);
+    }
+}
@@ -0,0 +1,515 @@
+package com.thom.filesystem.io;
+
+import com.thom.filesystem.core.FileTree;
+import com.thom.filesystem.core.TreeListener;
+import com.thom.filesystem.errors.AlreadyExistsException;
+import com.thom.filesystem.errors.FileSystemException;
+import com.thom.filesystem.errors.NotFoundException;
+import com.thom.filesystem.models.DirectoryNode;
+import com.thom.filesystem.models.FileNode;
+import com.thom.filesystem.models.Node;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+// Append-only log of tree mutations, replayed on top of the latest TreeSnapshot at startup.
+//
+//   header  "IMFJ" version:u8
+//   record  length:i32 crc32c:i32 body, where length and checksum are those of body
+//   body    op:u8 path ...; MKDIR, CREATE and REMOVE carry only the path, WRITE adds
+//           position:varint and the data (the rest of the body), TRUNCATE adds size:varint and MOVE
+//           adds the target path
+//
+// A copied subtree is published in one step but recorded as the MKDIR, CREATE and WRITE records
+// that would have built it, so replay never depends on the state of the copy's source.
+// Paths are absolute. Replay stops at the first torn or corrupt record, which is what a crash in
+// the middle of an append leaves behind, and open cuts the file back to the last good record.
+//
+// Records are encoded into an in-memory buffer by the listener callbacks, which run under the
+// tree's locks and never touch the disk. All I/O happens in completed, on the flusher thread, or
+// in sync/close, always under flushLock: whoever takes it swaps the buffer out, writes it and, if
+// asked to, forces the channel once for every record in it. Under EVERY_OP that makes concurrent
+// writers queue behind one leader and then find their records already durable.
+public final class Journal implements TreeListener, Closeable {
+    private static final byte[] MAGIC = {'I', 'M', 'F', 'J'};
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = MAGIC.length + 1;
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private static final byte MKDIR = 1;
+    private static final byte CREATE = 2;
+    private static final byte WRITE = 3;
+    private static final byte TRUNCATE = 4;
+    private static final byte REMOVE = 5;
+    private static final byte MOVE = 6;
+
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final int FLUSH_THRESHOLD = 1024 * 1024;
+    private static final byte[] EMPTY = new byte[0];
+
+    private final FileChannel channel;
+    private final FileTree tree;
+    private final FsyncPolicy policy;
+    private final ScheduledExecutorService flusher;
+    private final Object flushLock = new Object();
+    private final CRC32C crc = new CRC32C();
+
+    // Guarded by this.
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+    private long appendedSeq;
+    private boolean closed;
+
+    // Guarded by flushLock.
+    private ByteBuffer spare = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+
+    private volatile long durableSeq;
+    private volatile boolean full;
+    private volatile IOException failure;
+
+    private Journal(FileChannel channel, FileTree tree, FsyncPolicy policy) {
+        this.channel = channel;
+        this.tree = tree;
+        this.policy = policy;
+        if (policy.mode() == FsyncPolicy.Mode.GROUP_COMMIT) {
+            long intervalNanos = policy.interval().toNanos();
+            flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+                var thread = new Thread(task, "imfs-journal-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::backgroundFlush, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    // Replays the journal at file onto tree and then records every further mutation of tree.
+    public static Journal open(Path file, FileTree tree, FsyncPolicy policy) throws IOException {
+        Objects.requireNonNull(tree, "tree");
+        Objects.requireNonNull(policy, "policy");
+        var channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long end = channel.size() == 0 ? writeHeader(channel) : new Replayer(channel, tree).replay();
+            channel.truncate(end);
+            channel.position(end);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        var journal = new Journal(channel, tree, policy);
+        tree.addListener(journal);
+        return journal;
+    }
+
+    // Applies every intact record in file to tree and returns how many were applied. tree should not
+    // have a journal attached, or the replayed mutations are journaled again.
+    public static long replay(Path file, FileTree tree) throws IOException {
+        Objects.requireNonNull(tree, "tree");
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            var replayer = new Replayer(channel, tree);
+            replayer.replay();
+            return replayer.applied;
+        }
+    }
+
+    public FsyncPolicy policy() {
+        return policy;
+    }
+
+    // Writes and forces everything recorded so far, whatever the policy.
+    public void sync() throws IOException {
+        flush(true);
+    }
+
+    // Drops every record, typically right after a snapshot has been written. Mutations that race
+    // with the snapshot and the reset are lost, so callers should quiesce writers around both.
+    public void reset() throws IOException {
+        synchronized (flushLock) {
+            long seq;
+            synchronized (this) {
+                ensureUsable();
+                pending.clear();
+                full = false;
+                seq = appendedSeq;
+            }
+            channel.truncate(HEADER_SIZE);
+            channel.position(HEADER_SIZE);
+            channel.force(false);
+            durableSeq = seq;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        tree.removeListener(this);
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            flush(policy.mode() != FsyncPolicy.Mode.NONE);
+        } finally {
+            channel.close();
+        }
+    }
+
+    @Override
+    public void created(Node node) {
+        if (node instanceof FileNode file) {
+            appendFile(file);
+            return;
+        }
+        append(MKDIR, node, -1, null);
+        var dir = (DirectoryNode) node;
+        if (dir.childCount() == 0) {
+            return;
+        }
+        var queue = new ArrayDeque<Node>(dir.children());
+        while (!queue.isEmpty()) {
+            var next = queue.pop();
+            if (next instanceof DirectoryNode subdirectory) {
+                append(MKDIR, subdirectory, -1, null);
+                queue.addAll(subdirectory.children());
+            } else {
+                appendFile((FileNode) next);
+            }
+        }
+    }
+
+    private void appendFile(FileNode file) {
+        append(CREATE, file, -1, null);
+        var content = file.content();
+        long size = content == null ? 0 : content.size();
+        if (size == 0) {
+            return;
+        }
+        var chunk = ByteBuffer.allocate((int) Math.min(size, INITIAL_BUFFER_SIZE));
+        for (long position = 0; position < size; position += chunk.limit()) {
+            chunk.clear();
+            if (content.read(position, chunk) <= 0) {
+                break;
+            }
+            chunk.flip();
+            append(WRITE, file, position, chunk);
+        }
+    }
+
+    @Override
+    public void removed(Node node) {
+        append(REMOVE, node, -1, null);
+    }
+
+    @Override
+    public void moved(Node node, DirectoryNode target, String name) {
+        var targetPath = (target.parent() == null ? "/" + name : FileTree.pathOf(target) + "/" + name)
+                .getBytes(StandardCharsets.UTF_8);
+        // Encoded like the path itself: its length, then its bytes.
+        append(MOVE, node, targetPath.length, ByteBuffer.wrap(targetPath));
+    }
+
+    @Override
+    public void written(FileNode file, long position, ByteBuffer data) {
+        append(WRITE, file, position, data);
+    }
+
+    @Override
+    public void truncated(FileNode file, long size) {
+        append(TRUNCATE, file, size, null);
+    }
+
+    @Override
+    public void completed() {
+        try {
+            if (policy.mode() == FsyncPolicy.Mode.EVERY_OP) {
+                long seq;
+                synchronized (this) {
+                    seq = appendedSeq;
+                }
+                awaitDurable(seq);
+            } else if (full) {
+                flush(false);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("journal write failed", e);
+        }
+    }
+
+    private synchronized void append(byte op, Node node, long number, ByteBuffer data) {
+        ensureUsable();
+        var path = FileTree.pathOf(node).getBytes(StandardCharsets.UTF_8);
+        int dataLength = data == null ? 0 : data.remaining();
+        ensureCapacity(RECORD_HEADER_SIZE + 1 + 5 + path.length + 10 + dataLength);
+
+        int start = pending.position();
+        pending.position(start + RECORD_HEADER_SIZE);
+        pending.put(op);
+        putVarLong(pending, path.length);
+        pending.put(path);
+        if (number >= 0) {
+            putVarLong(pending, number);
+        }
+        if (data != null) {
+            pending.put(data);
+        }
+
+        int bodyLength = pending.position() - start - RECORD_HEADER_SIZE;
+        crc.reset();
+        crc.update(pending.slice(start + RECORD_HEADER_SIZE, bodyLength));
+        pending.putInt(start, bodyLength);
+        pending.putInt(start + 4, (int) crc.getValue());
+
+        appendedSeq++;
+        if (pending.position() >= FLUSH_THRESHOLD) {
+            full = true;
+        }
+    }
+
+    private void ensureUsable() {
+        if (closed) {
+            throw new IllegalStateException("journal is closed");
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("journal write failed", failure);
+        }
+    }
+
+    private void ensureCapacity(int needed) {
+        if (pending.remaining() >= needed) {
+            return;
+        }
+        long capacity = Math.max((long) pending.capacity() * 2, (long) pending.position() + needed);
+        var grown = ByteBuffer.allocate(Math.toIntExact(capacity));
+        pending.flip();
+        grown.put(pending);
+        pending = grown;
+    }
+
+    private void awaitDurable(long seq) throws IOException {
+        if (durableSeq >= seq) {
+            return;
+        }
+        synchronized (flushLock) {
+            if (durableSeq < seq) {
+                flush(true);
+            }
+        }
+    }
+
+    private void flush(boolean force) throws IOException {
+        synchronized (flushLock) {
+            ByteBuffer batch;
+            long seq;
+            synchronized (this) {
+                if (failure != null) {
+                    throw failure;
+                }
+                batch = pending;
+                seq = appendedSeq;
+                pending = spare.clear();
+                spare = batch;
+                full = false;
+            }
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                if (force && seq > durableSeq) {
+                    channel.force(false);
+                    durableSeq = seq;
+                }
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+        }
+    }
+
+    private void backgroundFlush() {
+        try {
+            flush(true);
+        } catch (IOException e) {
+            // Recorded in failure; the next mutation reports it.
+        }
+    }
+
+    private static long writeHeader(FileChannel channel) throws IOException {
+        var header = ByteBuffer.allocate(HEADER_SIZE).put(MAGIC).put(VERSION).flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.force(false);
+        return HEADER_SIZE;
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (!buffer.hasRemaining()) {
+                throw new EOFException("truncated varint");
+            }
+            int b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("varint too long");
+    }
+
+    private static final class Replayer {
+        private final FileChannel channel;
+        private final FileTree tree;
+        private final CRC32C crc = new CRC32C();
+        private final ByteBuffer recordHeader = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        private ByteBuffer body = ByteBuffer.allocate(INITIAL_BUFFER_SIZE);
+        private long applied;
+
+        Replayer(FileChannel channel, FileTree tree) {
+            this.channel = channel;
+            this.tree = tree;
+        }
+
+        // Returns the offset just past the last intact record.
+        long replay() throws IOException {
+            var header = ByteBuffer.allocate(HEADER_SIZE);
+            if (!readFully(header, 0)) {
+                throw new IOException("not a journal: truncated header");
+            }
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (header.get(i) != MAGIC[i]) {
+                    throw new IOException("not a journal: bad magic");
+                }
+            }
+            if (header.get(MAGIC.length) != VERSION) {
+                throw new IOException("unsupported journal version: " + header.get(MAGIC.length));
+            }
+
+            long offset = HEADER_SIZE;
+            long size = channel.size();
+            while (offset + RECORD_HEADER_SIZE <= size) {
+                recordHeader.clear();
+                if (!readFully(recordHeader, offset)) {
+                    break;
+                }
+                int length = recordHeader.getInt(0);
+                if (length <= 0 || offset + RECORD_HEADER_SIZE + length > size) {
+                    break;
+                }
+                if (body.capacity() < length) {
+                    body = ByteBuffer.allocate(Math.max(length, body.capacity() * 2));
+                }
+                body.clear().limit(length);
+                if (!readFully(body, offset + RECORD_HEADER_SIZE)) {
+                    break;
+                }
+                crc.reset();
+                crc.update(body.duplicate());
+                if ((int) crc.getValue() != recordHeader.getInt(4)) {
+                    break;
+                }
+                apply(body);
+                applied++;
+                offset += RECORD_HEADER_SIZE + length;
+            }
+            return offset;
+        }
+
+        private void apply(ByteBuffer record) throws IOException {
+            var root = tree.root();
+            byte op = record.get();
+            var path = readPath(record);
+            try {
+                switch (op) {
+                    case MKDIR -> {
+                        try {
+                            tree.mkdir(path, root);
+                        } catch (AlreadyExistsException e) {
+                            // Already in the snapshot the journal is replayed onto.
+                            tree.resolveDir(path, root);
+                        }
+                    }
+                    case CREATE -> tree.append(path, EMPTY, root);
+                    case WRITE -> {
+                        long position = getVarLong(record);
+                        tree.content(tree.resolveFile(path, root)).write(position, record);
+                    }
+                    case TRUNCATE -> tree.content(tree.resolveFile(path, root)).truncate(getVarLong(record));
+                    case REMOVE -> {
+                        try {
+                            tree.rm(path, true, root);
+                        } catch (NotFoundException e) {
+                            // Already gone in the snapshot.
+                        }
+                    }
+                    case MOVE -> {
+                        var target = readPath(record);
+                        Node node;
+                        try {
+                            node = tree.resolve(path, root);
+                        } catch (NotFoundException e) {
+                            // Already moved in the snapshot.
+                            tree.resolve(target, root);
+                            return;
+                        }
+                        var destination = tree.resolveParent(target, root);
+                        tree.move(node, destination.parent(), destination.leafName());
+                    }
+                    default -> throw new IOException("corrupt journal: unknown op " + op);
+                }
+            } catch (FileSystemException | IllegalArgumentException e) {
+                throw new IOException("corrupt journal: cannot apply " + path + ": " + e.getMessage(), e);
+            }
+        }
+
+        private static String readPath(ByteBuffer record) throws IOException {
+            var bytes = new byte[Math.toIntExact(getVarLong(record))];
+            record.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private boolean readFully(ByteBuffer buffer, long position) throws IOException {
+            while (buffer.hasRemaining()) {
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    return false;
+                }
+                position += read;
+            }
+            buffer.flip();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.thom.filesystem.io;
+
+import com.thom.filesystem.core.FileTree;
+import com.thom.filesystem.models.DirectoryNode;
+import com.thom.filesystem.models.FileNode;
+import com.thom.filesystem.models.Node;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+// Writes a FileTree out to a directory on disk, the reverse of TreeImporter. Each directory is a
+// task on a fork-join pool of the exporter's own (the work blocks on I/O): it creates the directory,
+// then forks a task per subdirectory and per batch of files, so subtrees and large directories are
+// written in parallel. Contents go straight from the file's chunks to a FileChannel through
+// FileContent.transferTo. Nodes that already exist on disk are overwritten; anything on disk that
+// the tree does not have is left alone (see TreeMirror for keeping a directory in step).
+//
+// Export a tree that is not being changed, as for TreeSnapshot.write: the walk takes no locks, so a
+// concurrent change may or may not make it to disk.
+public final class TreeExporter {
+    // Files written by one task; a directory with more is split across several.
+    static final int FILES_PER_TASK = 64;
+
+    private TreeExporter() {
+    }
+
+    public record Result(long directories, long files, long bytes, long nanos) {
+        public long entries() {
+            return directories + files;
+        }
+
+        public double entriesPerSecond() {
+            return nanos == 0 ? 0 : entries() * 1e9 / nanos;
+        }
+
+        public String summary() {
+            return String.format(Locale.ROOT, "exported %d directories and %d files (%d bytes) in %.1f ms, %.0f entries/s",
+                    directories, files, bytes, nanos / 1e6, entriesPerSecond());
+        }
+    }
+
+    public static Result export(FileTree tree, Path target) throws IOException {
+        return export(tree, target, Runtime.getRuntime().availableProcessors());
+    }
+
+    // Writes everything below the root of tree into target, which is created if it is missing.
+    public static Result export(FileTree tree, Path target, int parallelism) throws IOException {
+        Objects.requireNonNull(tree, "tree");
+        Objects.requireNonNull(target, "target");
+        long start = System.nanoTime();
+        var counts = new Counts();
+        var pool = new ForkJoinPool(parallelism);
+        try {
+            // The root is not counted, as in TreeImporter.
+            Files.createDirectories(target);
+            run(pool, List.of(new DirectoryTask(tree.root(), target, counts)));
+        } finally {
+            pool.shutdownNow();
+        }
+        return counts.result(System.nanoTime() - start);
+    }
+
+    static final class Counts {
+        final LongAdder directories = new LongAdder();
+        final LongAdder files = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+
+        Result result(long nanos) {
+            return new Result(directories.sum(), files.sum(), bytes.sum(), nanos);
+        }
+    }
+
+    // A task that writes node, and everything below it if it is a directory, to path.
+    static ForkJoinTask<?> task(Node node, Path path, Counts counts) {
+        return switch (node) {
+            case DirectoryNode dir -> new DirectoryTask(dir, path, counts);
+            case FileNode file -> new FileTask(List.of(file), path.getParent(), counts);
+        };
+    }
+
+    // Runs tasks on pool and waits for all of them, rethrowing the first I/O error.
+    static void run(ForkJoinPool pool, Collection<? extends ForkJoinTask<?>> tasks) throws IOException {
+        try {
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(tasks)));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static final class DirectoryTask extends RecursiveAction {
+        private final DirectoryNode dir;
+        private final Path path;
+        private final Counts counts;
+
+        DirectoryTask(DirectoryNode dir, Path path, Counts counts) {
+            this.dir = dir;
+            this.path = path;
+            this.counts = counts;
+        }
+
+        @Override
+        protected void compute() {
+            if (dir.parent() != null) {
+                createDirectory(path);
+                counts.directories.increment();
+            }
+            var tasks = new ArrayList<ForkJoinTask<?>>();
+            var files = new ArrayList<FileNode>(Math.min(dir.childCount(), FILES_PER_TASK));
+            for (var child : dir.children()) {
+                switch (child) {
+                    case DirectoryNode subdirectory ->
+                            tasks.add(new DirectoryTask(subdirectory, path.resolve(subdirectory.name()), counts));
+                    case FileNode file -> {
+                        files.add(file);
+                        if (files.size() == FILES_PER_TASK) {
+                            tasks.add(new FileTask(files, path, counts));
+                            files = new ArrayList<>(FILES_PER_TASK);
+                        }
+                    }
+                }
+            }
+            if (!files.isEmpty()) {
+                tasks.add(new FileTask(files, path, counts));
+            }
+            invokeAll(tasks);
+        }
+    }
+
+    private static final class FileTask extends RecursiveAction {
+        private final List<FileNode> files;
+        private final Path directory;
+        private final Counts counts;
+
+        FileTask(List<FileNode> files, Path directory, Counts counts) {
+            this.files = files;
+            this.directory = directory;
+            this.counts = counts;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                for (var file : files) {
+                    counts.bytes.add(write(file, directory.resolve(file.name())));
+                    counts.files.increment();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private static long write(FileNode file, Path path) throws IOException {
+        var content = file.content();
+        try (var channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = content == null ? 0 : content.size();
+            long written = 0;
+            while (written < size) {
+                long n = content.transferTo(written, size - written, channel);
+                if (n <= 0) {
+                    break;
+                }
+                written += n;
+            }
+            return written;
+        }
+    }
+
+    private static void createDirectory(Path path) {
+        try {
+            Files.createDirectory(path);
+        } catch (FileAlreadyExistsException e) {
+            if (!Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                throw new UncheckedIOException(e);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
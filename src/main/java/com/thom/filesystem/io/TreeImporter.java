@@ -0,0 +1,519 @@
+package com.thom.filesystem.io;
+
+import com.thom.filesystem.core.FileTree;
+import com.thom.filesystem.core.FileTreeOptions;
+import com.thom.filesystem.errors.AlreadyExistsException;
+import com.thom.filesystem.errors.FileSystemException;
+import com.thom.filesystem.errors.InvalidPathException;
+import com.thom.filesystem.errors.NotADirectoryException;
+import com.thom.filesystem.models.DirectoryNode;
+import com.thom.filesystem.models.FileNode;
+import com.thom.filesystem.models.Node;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+// Builds a new FileTree from a directory on disk or from a manifest of paths, creating nodes
+// directly instead of resolving a path per entry. Work is split by subtree across a fork-join pool
+// of its own (directory walks block on I/O, which the common pool is not for): a task creates the
+// directories of its subtree and hands each large child subtree to a task of its own, so every
+// directory is only ever changed by one thread and nothing is locked. The tree is not reachable
+// until the import returns.
+//
+// A manifest is UTF-8 text with one path per line, read through memory-mapped windows and split
+// into chunks that are decoded in parallel. A line ending in '/' names a directory and any other
+// line an empty file; parents are created as needed, and a path listed twice is created once.
+// Symbolic links and other special files in a directory import are skipped.
+public final class TreeImporter {
+    // Manifest entries below which a subtree is built by a single task.
+    static final int SPLIT_THRESHOLD = 4096;
+    // How many levels of a directory are listed up front, looking for enough subtrees to go round.
+    private static final int MAX_SPLIT_DEPTH = 3;
+    private static final int SUBTREES_PER_THREAD = 4;
+    private static final int MIN_CHUNK = 64 * 1024;
+    private static final long MAP_WINDOW = 1L << 30;
+
+    private TreeImporter() {
+    }
+
+    public record Result(FileTree tree, long directories, long files, long bytes, long nanos) {
+        // Directories and files imported; the root is not counted.
+        public long entries() {
+            return directories + files;
+        }
+
+        public double entriesPerSecond() {
+            return nanos == 0 ? 0 : entries() * 1e9 / nanos;
+        }
+
+        public String summary() {
+            return String.format(Locale.ROOT, "imported %d directories and %d files (%d bytes) in %.1f ms, %.0f entries/s",
+                    directories, files, bytes, nanos / 1e6, entriesPerSecond());
+        }
+    }
+
+    public static Result fromDirectory(Path source) throws IOException {
+        return fromDirectory(source, FileTreeOptions.defaults(), Runtime.getRuntime().availableProcessors());
+    }
+
+    public static Result fromDirectory(Path source, FileTreeOptions options, int parallelism) throws IOException {
+        Objects.requireNonNull(source, "source");
+        Objects.requireNonNull(options, "options");
+        if (!Files.isDirectory(source)) {
+            throw new NotDirectoryException(source.toString());
+        }
+        long start = System.nanoTime();
+        var tree = new FileTree(options);
+        var counts = new Counts();
+        var pool = new ForkJoinPool(parallelism);
+        try {
+            // Directories listed but not yet filled. List level by level until there are enough of
+            // them to keep every thread busy, then walk each one on its own.
+            var frontier = List.of(new Subtree(source, tree.root()));
+            for (int depth = 0; depth < MAX_SPLIT_DEPTH && !frontier.isEmpty()
+                    && frontier.size() < parallelism * SUBTREES_PER_THREAD; depth++) {
+                var next = new ArrayList<Subtree>();
+                for (var subtree : frontier) {
+                    list(subtree, options, counts, next);
+                }
+                frontier = next;
+            }
+            var walks = new ArrayList<ForkJoinTask<Void>>(frontier.size());
+            for (var subtree : frontier) {
+                walks.add(pool.submit(() -> {
+                    walk(subtree, options, counts);
+                    return null;
+                }));
+            }
+            for (var walk : walks) {
+                join(walk);
+            }
+        } catch (FileSystemException e) {
+            throw new IOException("cannot import " + source + ": " + e.getMessage(), e);
+        } finally {
+            pool.shutdownNow();
+        }
+        return counts.result(tree, System.nanoTime() - start);
+    }
+
+    public static Result fromManifest(Path manifest) throws IOException {
+        return fromManifest(manifest, FileTreeOptions.defaults(), Runtime.getRuntime().availableProcessors());
+    }
+
+    public static Result fromManifest(Path manifest, FileTreeOptions options, int parallelism) throws IOException {
+        Objects.requireNonNull(manifest, "manifest");
+        Objects.requireNonNull(options, "options");
+        long start = System.nanoTime();
+        var tree = new FileTree(options);
+        var counts = new Counts();
+        var pool = new ForkJoinPool(parallelism);
+        try (var channel = FileChannel.open(manifest, StandardOpenOption.READ)) {
+            var lines = readLines(channel, pool);
+            pool.invoke(new BuildTask(tree.root(), lines, new int[lines.length], lines.length, counts));
+        } catch (FileSystemException e) {
+            throw new IOException("invalid manifest " + manifest + ": " + e.getMessage(), e);
+        } finally {
+            pool.shutdownNow();
+        }
+        return counts.result(tree, System.nanoTime() - start);
+    }
+
+    private record Subtree(Path path, DirectoryNode node) {
+    }
+
+    private static final class Counts {
+        final LongAdder directories = new LongAdder();
+        final LongAdder files = new LongAdder();
+        final LongAdder bytes = new LongAdder();
+
+        Result result(FileTree tree, long nanos) {
+            return new Result(tree, directories.sum(), files.sum(), bytes.sum(), nanos);
+        }
+    }
+
+    private static void list(Subtree subtree, FileTreeOptions options, Counts counts, List<Subtree> directories)
+            throws IOException {
+        try (var entries = Files.newDirectoryStream(subtree.path())) {
+            for (var entry : entries) {
+                var attrs = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                var dir = add(subtree.node(), entry, attrs, options, counts);
+                if (dir != null) {
+                    directories.add(new Subtree(entry, dir));
+                }
+            }
+        }
+    }
+
+    private static void walk(Subtree subtree, FileTreeOptions options, Counts counts) throws IOException {
+        var dirs = new ArrayDeque<DirectoryNode>();
+        Files.walkFileTree(subtree.path(), new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                dirs.push(dirs.isEmpty() ? subtree.node() : add(dirs.peek(), dir, attrs, options, counts));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                add(dirs.peek(), file, attrs, options, counts);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                if (e != null) {
+                    throw e;
+                }
+                dirs.pop();
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    // Adds the node for a file or directory on disk to parent; returns it if it is a directory.
+    private static DirectoryNode add(DirectoryNode parent, Path path, BasicFileAttributes attrs, FileTreeOptions options,
+                                     Counts counts) throws IOException {
+        var name = path.getFileName().toString();
+        if (attrs.isDirectory()) {
+            var dir = new DirectoryNode(name, parent);
+            parent.addChild(dir);
+            counts.directories.increment();
+            return dir;
+        }
+        if (attrs.isRegularFile()) {
+            var file = new FileNode(name, parent);
+            if (attrs.size() > 0) {
+                var content = file.content(options.contentChunkSize(), options.directContent());
+                try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    for (long read = 0, n; read < attrs.size(); read += n) {
+                        if ((n = content.transferFrom(channel, read, attrs.size() - read)) <= 0) {
+                            break;
+                        }
+                    }
+                }
+                counts.bytes.add(content.size());
+            }
+            parent.addChild(file);
+            counts.files.increment();
+        }
+        return null;
+    }
+
+    // Every non-blank line, decoded in chunks on the pool. A window is only ever cut after a
+    // newline, so no line spans two.
+    private static String[] readLines(FileChannel channel, ForkJoinPool pool) throws IOException {
+        long size = channel.size();
+        var chunks = new ArrayList<ForkJoinTask<List<String>>>();
+        for (long position = 0; position < size; ) {
+            long length = Math.min(MAP_WINDOW, size - position);
+            var window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            int end = (int) length;
+            if (position + length < size) {
+                while (end > 0 && window.get(end - 1) != '\n') {
+                    end--;
+                }
+                if (end == 0) {
+                    throw new IOException("manifest line longer than " + MAP_WINDOW + " bytes");
+                }
+            }
+            int chunkSize = Math.max(MIN_CHUNK, end / (pool.getParallelism() * SUBTREES_PER_THREAD));
+            for (int from = 0; from < end; ) {
+                int to = Math.min(end, from + chunkSize);
+                while (to < end && window.get(to - 1) != '\n') {
+                    to++;
+                }
+                var chunk = window.slice(from, to - from);
+                chunks.add(pool.submit(() -> decodeLines(chunk)));
+                from = to;
+            }
+            position += end;
+        }
+
+        var decoded = new ArrayList<List<String>>(chunks.size());
+        int total = 0;
+        for (var chunk : chunks) {
+            var lines = join(chunk);
+            decoded.add(lines);
+            total += lines.size();
+        }
+        var lines = new String[total];
+        int at = 0;
+        for (var chunk : decoded) {
+            for (var line : chunk) {
+                lines[at++] = line;
+            }
+        }
+        return lines;
+    }
+
+    private static List<String> decodeLines(ByteBuffer chunk) {
+        var lines = new ArrayList<String>();
+        var bytes = new byte[256];
+        int limit = chunk.limit();
+        for (int start = 0; start < limit; ) {
+            int end = start;
+            while (end < limit && chunk.get(end) != '\n') {
+                end++;
+            }
+            int next = end + 1;
+            if (end > start && chunk.get(end - 1) == '\r') {
+                end--;
+            }
+            int length = end - start;
+            if (length > bytes.length) {
+                bytes = new byte[Math.max(length, bytes.length * 2)];
+            }
+            chunk.get(start, bytes, 0, length);
+            var line = new String(bytes, 0, length, StandardCharsets.UTF_8);
+            if (!line.isBlank()) {
+                lines.add(line);
+            }
+            start = next;
+        }
+        return lines;
+    }
+
+    // Creates lines[i].substring(offsets[i]) under dir for every i below count. Large inputs are
+    // split by the first segment of what is left of each line: this task creates those children of
+    // dir and forks a task per child for the lines that go on below it.
+    private static final class BuildTask extends RecursiveAction {
+        private final DirectoryNode dir;
+        private final String[] lines;
+        private final int[] offsets;
+        private final int count;
+        private final Counts counts;
+        private final Segment segment = new Segment();
+
+        BuildTask(DirectoryNode dir, String[] lines, int[] offsets, int count, Counts counts) {
+            this.dir = dir;
+            this.lines = lines;
+            this.offsets = offsets;
+            this.count = count;
+            this.counts = counts;
+        }
+
+        @Override
+        protected void compute() {
+            if (count <= SPLIT_THRESHOLD) {
+                build();
+                return;
+            }
+            var below = new IdentityHashMap<DirectoryNode, Lines>();
+            for (int i = 0; i < count; i++) {
+                var line = lines[i];
+                int start = skipSlashes(line, offsets[i]);
+                if (start == line.length()) {
+                    continue;
+                }
+                int end = segmentEnd(line, start);
+                int rest = skipSlashes(line, end);
+                var child = child(dir, line, start, end, end == line.length());
+                if (rest < line.length()) {
+                    below.computeIfAbsent(child, d -> new Lines()).add(line, rest);
+                }
+            }
+            var tasks = new ArrayList<BuildTask>(below.size());
+            below.forEach((child, subtree) -> tasks.add(
+                    new BuildTask(child, subtree.lines, subtree.offsets, subtree.count, counts)));
+            invokeAll(tasks);
+        }
+
+        // Manifests are often sorted (find output, say), so a line usually shares leading directories
+        // with the one before it. Those are kept on a trail with where each ends in the line, and
+        // only the segments past them are looked up, as in FileTree's bulk mkdirs. Sorting first
+        // would cost more than it saves.
+        private void build() {
+            var trail = new DirectoryNode[8];
+            var ends = new int[8];
+            int depth = 0;
+            String previous = "";
+            int previousFrom = 0;
+            for (int i = 0; i < count; i++) {
+                var line = lines[i];
+                int from = skipSlashes(line, offsets[i]);
+                int shared = sharedPrefix(previous, previousFrom, line, from);
+                while (depth > 0 && ends[depth - 1] >= shared) {
+                    depth--;
+                }
+                previous = line;
+                previousFrom = from;
+                var current = depth == 0 ? dir : trail[depth - 1];
+                int start = depth == 0 ? from : skipSlashes(line, from + ends[depth - 1]);
+                while (start < line.length()) {
+                    int end = segmentEnd(line, start);
+                    var child = child(current, line, start, end, end == line.length());
+                    int rest = skipSlashes(line, end);
+                    if (rest == line.length()) {
+                        break;
+                    }
+                    current = child;
+                    if (depth == trail.length) {
+                        trail = Arrays.copyOf(trail, depth * 2);
+                        ends = Arrays.copyOf(ends, depth * 2);
+                    }
+                    trail[depth] = current;
+                    ends[depth++] = end - from;
+                    start = rest;
+                }
+            }
+        }
+
+        // Creates the child of parent named line[start, end) if it is missing: a file if file is set,
+        // and otherwise a directory, which is returned. Files are nearly always new, so they are added
+        // without a lookup first and a duplicate is caught instead.
+        private DirectoryNode child(DirectoryNode parent, String line, int start, int end, boolean file) {
+            segment.set(line, start, end);
+            if (segment.isDotOrDotDot()) {
+                throw new InvalidPathException("manifest paths cannot contain '.' or '..': " + line);
+            }
+            if (file) {
+                var name = line.substring(start, end);
+                try {
+                    parent.addChild(new FileNode(name, parent));
+                    counts.files.increment();
+                } catch (AlreadyExistsException e) {
+                    if (!(parent.getChild(name) instanceof FileNode)) {
+                        throw new NotADirectoryException("file and directory at the same path: " + line, false);
+                    }
+                }
+                return null;
+            }
+            var existing = parent.getChild(segment);
+            if (existing == null) {
+                var dir = new DirectoryNode(line.substring(start, end), parent);
+                parent.addChild(dir);
+                counts.directories.increment();
+                return dir;
+            }
+            return requireDirectory(existing, line);
+        }
+
+        private static DirectoryNode requireDirectory(Node node, String line) {
+            if (node instanceof DirectoryNode dir) {
+                return dir;
+            }
+            throw new NotADirectoryException("file and directory at the same path: " + line, false);
+        }
+
+        // How many characters a, from aFrom on, and b, from bFrom on, have in common.
+        private static int sharedPrefix(String a, int aFrom, String b, int bFrom) {
+            int limit = Math.min(a.length() - aFrom, b.length() - bFrom);
+            int i = 0;
+            while (i < limit && a.charAt(aFrom + i) == b.charAt(bFrom + i)) {
+                i++;
+            }
+            return i;
+        }
+
+        private static int skipSlashes(String line, int from) {
+            while (from < line.length() && line.charAt(from) == '/') {
+                from++;
+            }
+            return from;
+        }
+
+        private static int segmentEnd(String line, int from) {
+            int slash = line.indexOf('/', from);
+            return slash < 0 ? line.length() : slash;
+        }
+    }
+
+    // The lines bound for one child subtree, with where each one's remainder starts.
+    private static final class Lines {
+        String[] lines = new String[16];
+        int[] offsets = new int[16];
+        int count;
+
+        void add(String line, int offset) {
+            if (count == lines.length) {
+                lines = Arrays.copyOf(lines, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            lines[count] = line;
+            offsets[count++] = offset;
+        }
+    }
+
+    // A segment of a line, for looking up children without a substring per lookup.
+    private static final class Segment implements CharSequence {
+        private String line;
+        private int start;
+        private int end;
+
+        void set(String line, int start, int end) {
+            this.line = line;
+            this.start = start;
+            this.end = end;
+        }
+
+        boolean isDotOrDotDot() {
+            int length = end - start;
+            return (length == 1 || length == 2) && line.charAt(start) == '.' && line.charAt(end - 1) == '.';
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return line.charAt(start + index);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return line.substring(start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            return line.substring(start, end);
+        }
+    }
+
+    private static <T> T join(ForkJoinTask<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted during import");
+        } catch (ExecutionException e) {
+            var cause = e.getCause();
+            if (cause instanceof IOException io) {
+                throw io;
+            }
+            if (cause instanceof UncheckedIOException unchecked) {
+                throw unchecked.getCause();
+            }
+            if (cause instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IOException(cause);
+        }
+    }
+}
@@ -0,0 +1,226 @@
+package com.thom.filesystem.io;
+
+import com.thom.filesystem.core.FileTree;
+import com.thom.filesystem.core.TreeListener;
+import com.thom.filesystem.models.DirectoryNode;
+import com.thom.filesystem.models.FileNode;
+import com.thom.filesystem.models.Node;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// A directory on disk kept in step with a FileTree. Opening one exports the whole tree; after that,
+// TreeListener events record what changed, and sync writes only that. Created nodes and written or
+// truncated files are kept as a set of nodes, so a file written a thousand times is written out
+// once, at wherever it is by then. Removals and moves depend on order and are kept as a log of
+// paths, replayed on disk before anything is written: a move renames on disk rather than writing
+// the subtree again. Entries replay harmlessly if they have already been applied, so a sync that
+// fails puts everything back for the next one to retry.
+//
+// Like TreeExporter, sync writes in parallel by subtree and expects writers to be paused while it
+// runs; a change made during a sync is recorded and written out by the next one.
+public final class TreeMirror implements TreeListener, Closeable {
+    private final FileTree tree;
+    private final Path target;
+    private final ForkJoinPool pool;
+
+    // Guarded by this.
+    private List<Change> changes = new ArrayList<>();
+    private Set<Node> dirty = newNodeSet();
+    private boolean closed;
+
+    // A node removed from (to is null) or moved away from a path, in the tree's path syntax.
+    private record Change(String from, String to) {
+    }
+
+    private TreeMirror(FileTree tree, Path target, int parallelism) {
+        this.tree = tree;
+        this.target = target;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public static TreeMirror open(FileTree tree, Path target) throws IOException {
+        return open(tree, target, Runtime.getRuntime().availableProcessors());
+    }
+
+    // Exports tree into target and starts recording changes to it. The listener is attached first,
+    // so a change that races with the export is written again by the first sync.
+    public static TreeMirror open(FileTree tree, Path target, int parallelism) throws IOException {
+        Objects.requireNonNull(tree, "tree");
+        Objects.requireNonNull(target, "target");
+        var mirror = new TreeMirror(tree, target, parallelism);
+        tree.addListener(mirror);
+        try {
+            Files.createDirectories(target);
+            TreeExporter.run(mirror.pool, List.of(TreeExporter.task(tree.root(), target, new TreeExporter.Counts())));
+        } catch (IOException | RuntimeException e) {
+            mirror.close();
+            throw e;
+        }
+        return mirror;
+    }
+
+    public Path target() {
+        return target;
+    }
+
+    // Whether anything has changed since the last sync.
+    public synchronized boolean isDirty() {
+        return !changes.isEmpty() || !dirty.isEmpty();
+    }
+
+    // Brings target up to date with the tree, and returns what was written.
+    public TreeExporter.Result sync() throws IOException {
+        long start = System.nanoTime();
+        List<Change> log;
+        Set<Node> nodes;
+        synchronized (this) {
+            if (closed) {
+                throw new IllegalStateException("mirror is closed");
+            }
+            log = changes;
+            nodes = dirty;
+            changes = new ArrayList<>();
+            dirty = newNodeSet();
+        }
+        var counts = new TreeExporter.Counts();
+        try {
+            for (var change : log) {
+                apply(change);
+            }
+            var tasks = new ArrayList<ForkJoinTask<?>>();
+            for (var node : nodes) {
+                // A node inside a created directory is written with it, and one no longer in the
+                // tree has nowhere to go.
+                if (attached(node) && !insideAny(node, nodes)) {
+                    tasks.add(TreeExporter.task(node, disk(FileTree.pathOf(node)), counts));
+                }
+            }
+            TreeExporter.run(pool, tasks);
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                log.addAll(changes);
+                changes = log;
+                dirty.addAll(nodes);
+            }
+            throw e;
+        }
+        return counts.result(System.nanoTime() - start);
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            closed = true;
+        }
+        tree.removeListener(this);
+        pool.shutdown();
+    }
+
+    @Override
+    public synchronized void created(Node node) {
+        dirty.add(node);
+    }
+
+    @Override
+    public synchronized void removed(Node node) {
+        changes.add(new Change(FileTree.pathOf(node), null));
+    }
+
+    @Override
+    public synchronized void moved(Node node, DirectoryNode target, String name) {
+        var to = target.parent() == null ? "/" + name : FileTree.pathOf(target) + "/" + name;
+        changes.add(new Change(FileTree.pathOf(node), to));
+    }
+
+    @Override
+    public synchronized void written(FileNode file, long position, ByteBuffer data) {
+        dirty.add(file);
+    }
+
+    @Override
+    public synchronized void truncated(FileNode file, long size) {
+        dirty.add(file);
+    }
+
+    private void apply(Change change) throws IOException {
+        var from = disk(change.from());
+        if (!Files.exists(from, LinkOption.NOFOLLOW_LINKS)) {
+            // Created and then moved or removed before a sync ever wrote it.
+            return;
+        }
+        if (change.to() == null) {
+            delete(from);
+            return;
+        }
+        var to = disk(change.to());
+        if (Files.exists(to, LinkOption.NOFOLLOW_LINKS)) {
+            delete(to);
+        }
+        // The target directory may be new since the last sync; the export that follows writes it.
+        Files.createDirectories(to.getParent());
+        Files.move(from, to);
+    }
+
+    private Path disk(String path) {
+        return path.length() == 1 ? target : target.resolve(path.substring(1));
+    }
+
+    // Whether node is still linked into the tree all the way up to its root.
+    private boolean attached(Node node) {
+        Node current = node;
+        for (var parent = current.parent(); parent != null; current = parent, parent = parent.parent()) {
+            if (parent.getChild(current.name()) != current) {
+                return false;
+            }
+        }
+        return current == tree.root();
+    }
+
+    private static boolean insideAny(Node node, Set<Node> nodes) {
+        for (var parent = node.parent(); parent != null; parent = parent.parent()) {
+            if (nodes.contains(parent)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void delete(Path path) throws IOException {
+        Files.walkFileTree(path, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                if (e != null) {
+                    throw e;
+                }
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    private static Set<Node> newNodeSet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+}
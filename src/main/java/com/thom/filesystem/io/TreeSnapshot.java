@@ -0,0 +1,349 @@
+package com.thom.filesystem.io;
+
+import com.thom.filesystem.core.FileTree;
+import com.thom.filesystem.core.FileTreeOptions;
+import com.thom.filesystem.errors.FileSystemException;
+import com.thom.filesystem.models.DirectoryNode;
+import com.thom.filesystem.models.FileContent;
+import com.thom.filesystem.models.FileNode;
+import com.thom.filesystem.models.Node;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+// Binary image of a whole tree.
+//
+//   header   "IMFS" version:u8
+//   node     tag:u8 (DIR | FILE) name body        (the root is written without a name)
+//   name     ref:varint; 0 = new name, followed by length:varint and UTF-8 bytes, and assigned
+//            the next id; n > 0 = the name with id n - 1
+//   DIR      childCount:varint, then that many nodes
+//   FILE     length:varint, then length bytes of content
+//   trailer  END:u8
+//
+// Nodes are written depth first without recursion so arbitrarily deep trees are fine. Writing
+// streams through a direct buffer and hands large file contents to the channel chunk by chunk;
+// reading walks a memory-mapped window over the file.
+public final class TreeSnapshot {
+    private static final byte[] MAGIC = {'I', 'M', 'F', 'S'};
+    private static final byte VERSION = 1;
+    private static final byte DIR = 1;
+    private static final byte FILE = 2;
+    private static final byte END = 0;
+
+    private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+    private static final long MAP_WINDOW = 1L << 30;
+
+    private TreeSnapshot() {
+    }
+
+    public static void write(FileTree tree, Path file) throws IOException {
+        var tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            write(tree, channel);
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public static void write(FileTree tree, WritableByteChannel channel) throws IOException {
+        new Writer(channel).write(tree.root());
+    }
+
+    public static FileTree read(Path file) throws IOException {
+        return read(file, FileTreeOptions.defaults());
+    }
+
+    public static FileTree read(Path file, FileTreeOptions options) throws IOException {
+        var tree = new FileTree(options);
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            new Reader(channel, tree).read();
+        } catch (FileSystemException | IllegalArgumentException e) {
+            throw new IOException("corrupt snapshot: " + e.getMessage(), e);
+        }
+        return tree;
+    }
+
+    private static final class Writer {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE);
+        private final Map<String, Integer> nameIds = new HashMap<>();
+
+        Writer(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void write(DirectoryNode root) throws IOException {
+            buffer.put(MAGIC).put(VERSION);
+
+            var stack = new ArrayDeque<Iterator<Node>>();
+            buffer.put(DIR);
+            stack.push(writeChildCount(root));
+            while (!stack.isEmpty()) {
+                var children = stack.peek();
+                if (!children.hasNext()) {
+                    stack.pop();
+                    continue;
+                }
+                var child = children.next();
+                if (child instanceof DirectoryNode dir) {
+                    ensure(1);
+                    buffer.put(DIR);
+                    writeName(dir.name());
+                    stack.push(writeChildCount(dir));
+                } else if (child instanceof FileNode file) {
+                    ensure(1);
+                    buffer.put(FILE);
+                    writeName(file.name());
+                    writeContent(file.content());
+                }
+            }
+
+            ensure(1);
+            buffer.put(END);
+            flush();
+        }
+
+        // Concurrent directories may change while we write, so the count and the children written
+        // must come from the same copy.
+        private Iterator<Node> writeChildCount(DirectoryNode dir) throws IOException {
+            var children = dir.isConcurrent() ? List.copyOf(dir.children()) : dir.children();
+            writeVarLong(children.size());
+            return children.iterator();
+        }
+
+        private void writeName(String name) throws IOException {
+            var id = nameIds.get(name);
+            if (id != null) {
+                writeVarLong(id + 1L);
+                return;
+            }
+            nameIds.put(name, nameIds.size());
+            var bytes = name.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(0);
+            writeVarLong(bytes.length);
+            writeBytes(ByteBuffer.wrap(bytes));
+        }
+
+        private void writeContent(FileContent content) throws IOException {
+            long length = content == null ? 0 : content.size();
+            writeVarLong(length);
+            if (length == 0) {
+                return;
+            }
+            long written;
+            if (length <= buffer.remaining()) {
+                var slice = buffer.slice(buffer.position(), (int) length);
+                written = Math.max(0, content.read(0, slice));
+                buffer.position(buffer.position() + (int) written);
+            } else {
+                flush();
+                written = content.transferTo(0, length, channel);
+            }
+            // A concurrent truncate can shrink the file mid-write; pad so the length stays true.
+            for (long i = written; i < length; i++) {
+                ensure(1);
+                buffer.put((byte) 0);
+            }
+        }
+
+        private void writeVarLong(long value) throws IOException {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        private void writeBytes(ByteBuffer src) throws IOException {
+            while (src.hasRemaining()) {
+                ensure(1);
+                int n = Math.min(src.remaining(), buffer.remaining());
+                buffer.put(buffer.position(), src, src.position(), n);
+                buffer.position(buffer.position() + n);
+                src.position(src.position() + n);
+            }
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    private static final class Reader {
+        private final FileChannel channel;
+        private final long fileSize;
+        private final FileTree tree;
+        private final List<String> names = new ArrayList<>();
+
+        private MappedByteBuffer window;
+        private long windowStart;
+        private long position;
+
+        Reader(FileChannel channel, FileTree tree) throws IOException {
+            this.channel = channel;
+            this.fileSize = channel.size();
+            this.tree = tree;
+        }
+
+        void read() throws IOException {
+            for (byte b : MAGIC) {
+                if (readByte() != b) {
+                    throw new IOException("not a snapshot: bad magic");
+                }
+            }
+            int version = readByte();
+            if (version != VERSION) {
+                throw new IOException("unsupported snapshot version: " + version);
+            }
+            if (readByte() != DIR) {
+                throw new IOException("corrupt snapshot: root is not a directory");
+            }
+
+            var dirs = new ArrayDeque<DirectoryNode>();
+            var remaining = new ArrayDeque<long[]>();
+            dirs.push(tree.root());
+            remaining.push(new long[]{readVarLong()});
+
+            while (!dirs.isEmpty()) {
+                var pending = remaining.peek();
+                if (pending[0] == 0) {
+                    dirs.pop();
+                    remaining.pop();
+                    continue;
+                }
+                pending[0]--;
+
+                var parent = dirs.peek();
+                int tag = readByte();
+                var name = readName();
+                if (tag == DIR) {
+                    var dir = new DirectoryNode(name, parent);
+                    parent.addChild(dir);
+                    dirs.push(dir);
+                    remaining.push(new long[]{readVarLong()});
+                } else if (tag == FILE) {
+                    var file = new FileNode(name, parent);
+                    long length = readVarLong();
+                    if (length > 0) {
+                        readContent(tree.content(file), length);
+                    }
+                    parent.addChild(file);
+                } else {
+                    throw new IOException("corrupt snapshot: unknown tag " + tag);
+                }
+            }
+
+            if (readByte() != END) {
+                throw new IOException("corrupt snapshot: missing end marker");
+            }
+        }
+
+        private String readName() throws IOException {
+            long ref = readVarLong();
+            if (ref > 0) {
+                if (ref > names.size()) {
+                    throw new IOException("corrupt snapshot: unknown name id " + (ref - 1));
+                }
+                return names.get((int) (ref - 1));
+            }
+            long length = readVarLong();
+            if (length < 0 || length > fileSize - position || length > Integer.MAX_VALUE - 8) {
+                throw new IOException("corrupt snapshot: name of " + Long.toUnsignedString(length)
+                        + " bytes at offset " + position + " runs past the end of the file (" + fileSize + " bytes)");
+            }
+            var bytes = new byte[(int) length];
+            int read = 0;
+            while (read < bytes.length) {
+                var src = view(bytes.length - read);
+                int n = src.remaining();
+                src.get(bytes, read, n);
+                advance(n);
+                read += n;
+            }
+            var name = tree.intern(new String(bytes, StandardCharsets.UTF_8));
+            names.add(name);
+            return name;
+        }
+
+        private void readContent(FileContent content, long length) throws IOException {
+            long copied = 0;
+            while (copied < length) {
+                var src = view(length - copied);
+                int n = src.remaining();
+                content.write(copied, src);
+                advance(n);
+                copied += n;
+            }
+        }
+
+        private int readByte() throws IOException {
+            mapWindow();
+            byte b = window.get((int) (position - windowStart));
+            position++;
+            return b;
+        }
+
+        private long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("corrupt snapshot: varint too long");
+        }
+
+        // Returns a view of up to max bytes at the current position. Views never span windows, so
+        // callers loop until they have consumed what they need.
+        private ByteBuffer view(long max) throws IOException {
+            mapWindow();
+            int offset = (int) (position - windowStart);
+            int n = (int) Math.min(max, window.capacity() - offset);
+            return window.slice(offset, n);
+        }
+
+        private void mapWindow() throws IOException {
+            if (position >= fileSize) {
+                throw new EOFException("truncated snapshot");
+            }
+            if (window == null || position >= windowStart + window.capacity()) {
+                windowStart = position;
+                window = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_WINDOW, fileSize - position));
+            }
+        }
+
+        private void advance(int n) {
+            position += n;
+        }
+    }
+}
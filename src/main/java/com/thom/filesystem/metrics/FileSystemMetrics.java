@@ -0,0 +1,222 @@
+package com.thom.filesystem.metrics;
+
+import com.thom.filesystem.core.FileTree;
+import com.thom.filesystem.core.TreeStats;
+import com.thom.filesystem.errors.AlreadyExistsException;
+import com.thom.filesystem.errors.DirectoryNotEmptyException;
+import com.thom.filesystem.errors.FileSystemException;
+import com.thom.filesystem.errors.InvalidCommandException;
+import com.thom.filesystem.errors.InvalidPathException;
+import com.thom.filesystem.errors.IsADirectoryException;
+import com.thom.filesystem.errors.NotADirectoryException;
+import com.thom.filesystem.errors.NotFoundException;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+// Per-operation latency histograms and error counts, recorded by MeteredFileSystem, plus gauges of
+// a tree's shape. Recording never locks or allocates: a histogram increment and, for failures, one
+// more increment in a fixed table of exception types, matched by exact class. Gauges walk the
+// tree, so they are cached and refreshed at most once per GAUGE_REFRESH_NANOS however often they
+// are read.
+public final class FileSystemMetrics implements FileSystemMetricsMXBean {
+    static final long GAUGE_REFRESH_NANOS = 1_000_000_000L;
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_LABELS = {"p50", "p90", "p99", "p99.9"};
+
+    // Exceptions the file systems throw; anything else is counted as the last, "other".
+    private static final List<Class<? extends RuntimeException>> ERROR_TYPES = List.of(
+            NotFoundException.class,
+            AlreadyExistsException.class,
+            NotADirectoryException.class,
+            IsADirectoryException.class,
+            DirectoryNotEmptyException.class,
+            InvalidPathException.class,
+            InvalidCommandException.class,
+            FileSystemException.class,
+            IllegalArgumentException.class,
+            UnsupportedOperationException.class);
+    private static final int OTHER = ERROR_TYPES.size();
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+    private final AtomicLongArray errors = new AtomicLongArray(OPERATIONS.length * (OTHER + 1));
+    private final Supplier<TreeStats> gauges;
+
+    private volatile TreeStats cachedStats;
+    private volatile long cachedAt;
+
+    private FileSystemMetrics(Supplier<TreeStats> gauges) {
+        this.gauges = gauges;
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    // Operation metrics only; the tree gauges read -1.
+    public static FileSystemMetrics create() {
+        return new FileSystemMetrics(null);
+    }
+
+    public static FileSystemMetrics forTree(FileTree tree) {
+        Objects.requireNonNull(tree, "tree");
+        return new FileSystemMetrics(tree::stats);
+    }
+
+    void record(Operation operation, long nanos) {
+        latencies[operation.ordinal()].record(nanos);
+    }
+
+    void failed(Operation operation, RuntimeException e) {
+        errors.incrementAndGet(operation.ordinal() * (OTHER + 1) + errorType(e));
+    }
+
+    private static int errorType(RuntimeException e) {
+        var type = e.getClass();
+        for (int i = 0; i < OTHER; i++) {
+            if (ERROR_TYPES.get(i) == type) {
+                return i;
+            }
+        }
+        return OTHER;
+    }
+
+    public LatencyHistogram latency(Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    // Failures of operation by exception type name, leaving out types that never occurred.
+    public Map<String, Long> errors(Operation operation) {
+        var counts = new LinkedHashMap<String, Long>();
+        for (int type = 0; type <= OTHER; type++) {
+            long count = errors.get(operation.ordinal() * (OTHER + 1) + type);
+            if (count > 0) {
+                counts.put(type == OTHER ? "other" : ERROR_TYPES.get(type).getSimpleName(), count);
+            }
+        }
+        return counts;
+    }
+
+    // The cached gauges, or null without a tree.
+    public TreeStats treeStats() {
+        if (gauges == null) {
+            return null;
+        }
+        var stats = cachedStats;
+        long now = System.nanoTime();
+        if (stats == null || now - cachedAt > GAUGE_REFRESH_NANOS) {
+            stats = gauges.get();
+            cachedStats = stats;
+            cachedAt = now;
+        }
+        return stats;
+    }
+
+    // One line per operation that has run, one per operation with failures, then the tree gauges.
+    public List<String> report() {
+        var lines = new ArrayList<String>();
+        for (var operation : OPERATIONS) {
+            var latency = latency(operation);
+            long count = latency.count();
+            if (count == 0) {
+                continue;
+            }
+            var errorCounts = errors(operation);
+            long failures = errorCounts.values().stream().mapToLong(Long::longValue).sum();
+            var line = new StringBuilder(operation.label())
+                    .append(" count=").append(count)
+                    .append(" errors=").append(failures);
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                line.append(' ').append(PERCENTILE_LABELS[i]).append('=')
+                        .append(duration(latency.valueAtPercentile(PERCENTILES[i])));
+            }
+            lines.add(line.append(" max=").append(duration(latency.max())).toString());
+            if (failures > 0) {
+                var detail = new StringBuilder(operation.label()).append(" errors:");
+                errorCounts.forEach((type, n) -> detail.append(' ').append(type).append('=').append(n));
+                lines.add(detail.toString());
+            }
+        }
+        var stats = treeStats();
+        if (stats != null) {
+            lines.add("tree nodes=" + stats.nodes() + " maxDepth=" + stats.maxDepth()
+                    + " widestDirectory=" + stats.widestDirectory());
+        }
+        return lines;
+    }
+
+    private static String duration(long nanos) {
+        if (nanos < 1_000) {
+            return nanos + "ns";
+        }
+        if (nanos < 1_000_000) {
+            return String.format("%.1fus", nanos / 1e3);
+        }
+        if (nanos < 1_000_000_000) {
+            return String.format("%.1fms", nanos / 1e6);
+        }
+        return String.format("%.1fs", nanos / 1e9);
+    }
+
+    // Registers these metrics with server (usually ManagementFactory.getPlatformMBeanServer()).
+    public void register(MBeanServer server, ObjectName name) throws JMException {
+        server.registerMBean(this, name);
+    }
+
+    @Override
+    public Map<String, Long> getOperationCounts() {
+        var counts = new LinkedHashMap<String, Long>();
+        for (var operation : OPERATIONS) {
+            counts.put(operation.label(), latency(operation).count());
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        var counts = new LinkedHashMap<String, Long>();
+        for (var operation : OPERATIONS) {
+            errors(operation).forEach((type, count) -> counts.put(operation.label() + " " + type, count));
+        }
+        return counts;
+    }
+
+    @Override
+    public Map<String, Long> getLatencyPercentilesNanos() {
+        var values = new LinkedHashMap<String, Long>();
+        for (var operation : OPERATIONS) {
+            var latency = latency(operation);
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                values.put(operation.label() + " " + PERCENTILE_LABELS[i], latency.valueAtPercentile(PERCENTILES[i]));
+            }
+            values.put(operation.label() + " max", latency.max());
+        }
+        return values;
+    }
+
+    @Override
+    public long getNodeCount() {
+        var stats = treeStats();
+        return stats == null ? -1 : stats.nodes();
+    }
+
+    @Override
+    public int getMaxDepth() {
+        var stats = treeStats();
+        return stats == null ? -1 : stats.maxDepth();
+    }
+
+    @Override
+    public int getWidestDirectory() {
+        var stats = treeStats();
+        return stats == null ? -1 : stats.widestDirectory();
+    }
+}
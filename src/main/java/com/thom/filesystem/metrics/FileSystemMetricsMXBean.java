@@ -0,0 +1,20 @@
+package com.thom.filesystem.metrics;
+
+import java.util.Map;
+
+// What FileSystemMetrics shows over JMX. Maps are keyed by operation label ("mkdir"), by label and
+// exception type ("mkdir NotFoundException"), or by label and percentile ("mkdir p99"). The tree
+// gauges are -1 when the metrics were not given a tree to measure.
+public interface FileSystemMetricsMXBean {
+    Map<String, Long> getOperationCounts();
+
+    Map<String, Long> getErrorCounts();
+
+    Map<String, Long> getLatencyPercentilesNanos();
+
+    long getNodeCount();
+
+    int getMaxDepth();
+
+    int getWidestDirectory();
+}
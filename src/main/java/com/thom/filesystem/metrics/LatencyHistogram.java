@@ -0,0 +1,81 @@
+package com.thom.filesystem.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Counts of durations in log-linear buckets, the layout HdrHistogram uses: values below 32 get a
+// bucket each, and every power of two above that is split into 16 equal buckets, so any recorded
+// value is known to within about 6% across the whole range of a long in under a thousand slots.
+// Recording is one atomic increment (plus a compare-and-set while the maximum still grows), so it
+// never locks or allocates; reads add up the buckets and are only as consistent as the increments
+// they race with.
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int HALF = 1 << (SUB_BUCKET_BITS - 1);
+    static final int BUCKETS = index(Long.MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(index(value));
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    public long max() {
+        return max.get();
+    }
+
+    // The smallest recorded value that percentile percent of recordings are at or below, rounded up
+    // to the top of its bucket (and never above the maximum); 0 if nothing was recorded.
+    public long valueAtPercentile(double percent) {
+        if (percent < 0 || percent > 100) {
+            throw new IllegalArgumentException("percent must be in [0, 100]: " + percent);
+        }
+        var snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percent / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return Math.min(highestInBucket(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    static int index(long value) {
+        int magnitude = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+        return (magnitude << (SUB_BUCKET_BITS - 1)) + (int) (value >>> magnitude);
+    }
+
+    static long highestInBucket(int index) {
+        if (index < 2 * HALF) {
+            return index;
+        }
+        int magnitude = (index >> (SUB_BUCKET_BITS - 1)) - 1;
+        long sub = index - ((long) magnitude << (SUB_BUCKET_BITS - 1));
+        long highest = ((sub + 1) << magnitude) - 1;
+        return highest < 0 ? Long.MAX_VALUE : highest;
+    }
+}
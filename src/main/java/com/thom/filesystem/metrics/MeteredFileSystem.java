@@ -0,0 +1,318 @@
+package com.thom.filesystem.metrics;
+
+import com.thom.filesystem.api.FileSystem;
+import com.thom.filesystem.api.PathStatus;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.OpenOption;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+// Times every call into another FileSystem and records it, failures included, in a
+// FileSystemMetrics. The cost is two System.nanoTime() reads and an atomic increment or two per
+// call. Streaming variants are timed until the sink has seen the last entry, so a slow sink shows
+// up as a slow ls; the streams and channels from newInputStream and friends are timed only while
+// being opened (as "open"), not while they are read or written.
+public final class MeteredFileSystem implements FileSystem {
+    private final FileSystem delegate;
+    private final FileSystemMetrics metrics;
+
+    public MeteredFileSystem(FileSystem delegate, FileSystemMetrics metrics) {
+        this.delegate = Objects.requireNonNull(delegate, "delegate");
+        this.metrics = Objects.requireNonNull(metrics, "metrics");
+    }
+
+    public FileSystemMetrics metrics() {
+        return metrics;
+    }
+
+    @Override
+    public void mkdir(String path) {
+        long start = System.nanoTime();
+        try {
+            delegate.mkdir(path);
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.MKDIR, e);
+            throw e;
+        } finally {
+            metrics.record(Operation.MKDIR, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void mkdirs(String path) {
+        long start = System.nanoTime();
+        try {
+            delegate.mkdirs(path);
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.MKDIRS, e);
+            throw e;
+        } finally {
+            metrics.record(Operation.MKDIRS, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public long mkdirs(Collection<String> paths) {
+        long start = System.nanoTime();
+        try {
+            return delegate.mkdirs(paths);
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.MKDIRS, e);
+            throw e;
+        } finally {
+            metrics.record(Operation.MKDIRS, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void cd(String path) {
+        long start = System.nanoTime();
+        try {
+            delegate.cd(path);
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.CD, e);
+            throw e;
+        } finally {
+            metrics.record(Operation.CD, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public String pwd() {
+        long start = System.nanoTime();
+        try {
+            return delegate.pwd();
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.PWD, e);
+            throw e;
+        } finally {
+            metrics.record(Operation.PWD, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public PathStatus tryResolve(String path) {
+        long start = System.nanoTime();
+        try {
+            return delegate.tryResolve(path);
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.RESOLVE, e);
+            throw e;
+        } finally {
+            metrics.record(Operation.RESOLVE, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<String> ls() {
+        long start = System.nanoTime();
+        try {
+            return delegate.ls();
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.LS, e);
+            throw e;
+        } finally {
+            metrics.record(Operation.LS, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<String> ls(String path) {
+        long start = System.nanoTime();
+        try {
+            return delegate.ls(path);
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.LS, e);
+            throw e;
+        } finally {
+            metrics.record(Operation.LS, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<String> ls(String path, String startAfter, int limit) {
+        long start = System.nanoTime();
+        try {
+            return delegate.ls(path, startAfter, limit);
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.LS, e);
+            throw e;
+        } finally {
+            metrics.record(Operation.LS, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void ls(String path, Consumer<? super String> sink) {
+        long start = System.nanoTime();
+        try {
+            delegate.ls(path, sink);
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.LS, e);
+            throw e;
+        } finally {
+            metrics.record(Operation.LS, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public List<String> find(String pattern) {
+        long start = System.nanoTime();
+        try {
+            return delegate.find(pattern);
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.FIND, e);
+            throw e;
+        } finally {
+            metrics.record(Operation.FIND, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void find(String pattern, Consumer<? super String> sink) {
+        long start = System.nanoTime();
+        try {
+            delegate.find(pattern, sink);
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.FIND, e);
+            throw e;
+        } finally {
+            metrics.record(Operation.FIND, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void touch(String filename) {
+        long start = System.nanoTime();
+        try {
+            delegate.touch(filename);
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.TOUCH, e);
+            throw e;
+        } finally {
+            metrics.record(Operation.TOUCH, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void rm(String path, boolean recursive) {
+        long start = System.nanoTime();
+        try {
+            delegate.rm(path, recursive);
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.RM, e);
+            throw e;
+        } finally {
+            metrics.record(Operation.RM, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void mv(String source, String target) {
+        long start = System.nanoTime();
+        try {
+            delegate.mv(source, target);
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.MV, e);
+            throw e;
+        } finally {
+            metrics.record(Operation.MV, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void cp(String source, String target, boolean recursive) {
+        long start = System.nanoTime();
+        try {
+            delegate.cp(source, target, recursive);
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.CP, e);
+            throw e;
+        } finally {
+            metrics.record(Operation.CP, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void write(String path, byte[] data) {
+        long start = System.nanoTime();
+        try {
+            delegate.write(path, data);
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.WRITE, e);
+            throw e;
+        } finally {
+            metrics.record(Operation.WRITE, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void append(String path, byte[] data) {
+        long start = System.nanoTime();
+        try {
+            delegate.append(path, data);
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.APPEND, e);
+            throw e;
+        } finally {
+            metrics.record(Operation.APPEND, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public byte[] read(String path, long offset, int length) {
+        long start = System.nanoTime();
+        try {
+            return delegate.read(path, offset, length);
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.READ, e);
+            throw e;
+        } finally {
+            metrics.record(Operation.READ, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public SeekableByteChannel newByteChannel(String path, OpenOption... options) {
+        long start = System.nanoTime();
+        try {
+            return delegate.newByteChannel(path, options);
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.OPEN, e);
+            throw e;
+        } finally {
+            metrics.record(Operation.OPEN, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public InputStream newInputStream(String path) {
+        long start = System.nanoTime();
+        try {
+            return delegate.newInputStream(path);
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.OPEN, e);
+            throw e;
+        } finally {
+            metrics.record(Operation.OPEN, System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public OutputStream newOutputStream(String path, OpenOption... options) {
+        long start = System.nanoTime();
+        try {
+            return delegate.newOutputStream(path, options);
+        } catch (RuntimeException e) {
+            metrics.failed(Operation.OPEN, e);
+            throw e;
+        } finally {
+            metrics.record(Operation.OPEN, System.nanoTime() - start);
+        }
+    }
+}
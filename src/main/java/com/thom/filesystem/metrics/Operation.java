@@ -0,0 +1,30 @@
+package com.thom.filesystem.metrics;
+
+import java.util.Locale;
+
+// The FileSystem calls MeteredFileSystem times. Every form of ls (paged, streamed) counts as LS,
+// both forms of find as FIND, exists as RESOLVE and a bulk mkdirs as one MKDIRS; OPEN covers
+// channels and streams, timing only the open itself.
+public enum Operation {
+    MKDIR,
+    MKDIRS,
+    CD,
+    PWD,
+    RESOLVE,
+    LS,
+    FIND,
+    TOUCH,
+    RM,
+    MV,
+    CP,
+    WRITE,
+    APPEND,
+    READ,
+    OPEN;
+
+    private final String label = name().toLowerCase(Locale.ROOT);
+
+    public String label() {
+        return label;
+    }
+}
@@ -3,21 +3,57 @@ package com.thom.filesystem.models;
 import com.thom.filesystem.errors.AlreadyExistsException;
 import com.thom.filesystem.errors.InvalidPathException;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.NavigableMap;
 import java.util.Objects;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 public final class DirectoryNode implements Node {
-    private final String name;
-    private final DirectoryNode parent;
+    private static final Comparator<CharSequence> NAME_ORDER = CharSequence::compare;
+    private static final Node[] NO_CHILDREN = new Node[0];
 
-    private final NavigableMap<String, Node> children = new TreeMap<>();
+    // Compact directories keep up to this many children in a sorted array before switching to a map.
+    static final int SMALL_DIRECTORY_LIMIT = 32;
+
+    // Only change through relink, while moving the node (see FileTree).
+    private volatile String name;
+    private volatile DirectoryNode parent;
+    private final boolean concurrent;
+    private final boolean compact;
+    // Set once this directory is unlinked by a removal; directories inside it are not marked.
+    private volatile boolean removed;
+
+    // Either a Node[] sorted by name or a NavigableMap<String, Node>. Arrays are never modified once
+    // published; adding a child installs a copy, so readers of concurrent directories see a
+    // consistent array without locking. Map keys are always Strings; lookups may pass any
+    // CharSequence (e.g. a slice of a path) because the map only ever compares through NAME_ORDER,
+    // which orders the same way as String.compareTo.
+    private volatile Object children;
 
     public DirectoryNode(String name, DirectoryNode parent) {
+        this(name, parent, parent != null && parent.concurrent, parent != null && parent.compact);
+    }
+
+    public DirectoryNode(String name, DirectoryNode parent, boolean concurrent) {
+        this(name, parent, concurrent, false);
+    }
+
+    // Concurrent directories keep their children in a ConcurrentSkipListMap so lookups never lock.
+    // Structural changes are made while holding the directory's own monitor (see FileTree), which
+    // keeps writers to unrelated directories independent. Compact directories start with a shared
+    // empty array instead of a map, which is most of the cost of a small directory. Children inherit
+    // both modes from their parent.
+    public DirectoryNode(String name, DirectoryNode parent, boolean concurrent, boolean compact) {
         this.name = Objects.requireNonNull(name, "name");
         this.parent = parent;
+        this.concurrent = concurrent;
+        this.compact = compact;
+        this.children = compact ? NO_CHILDREN : newMap();
 
         if (isRoot()) {
             if (!"/".equals(name)) {
@@ -41,6 +77,14 @@ public final class DirectoryNode implements Node {
         }
     }
 
+    public boolean isConcurrent() {
+        return concurrent;
+    }
+
+    public boolean isCompact() {
+        return compact;
+    }
+
     @Override
     public String name() {
         return name;
@@ -51,9 +95,27 @@ public final class DirectoryNode implements Node {
         return parent;
     }
 
-    public Node getChild(String childName) {
+    public boolean isRemoved() {
+        return removed;
+    }
+
+    public void markRemoved() {
+        removed = true;
+    }
+
+    void relink(DirectoryNode newParent, String newName) {
+        parent = Objects.requireNonNull(newParent, "newParent");
+        name = newName;
+    }
+
+    public Node getChild(CharSequence childName) {
         Objects.requireNonNull(childName, "childName");
-        return children.get(childName);
+        var current = children;
+        if (current instanceof Node[] array) {
+            int index = indexOf(array, childName);
+            return index >= 0 ? array[index] : null;
+        }
+        return map(current).get(childName);
     }
 
     public Node addChild(Node node) {
@@ -61,19 +123,136 @@ public final class DirectoryNode implements Node {
         if (node.parent() != this) {
             throw new IllegalArgumentException("child node parent must be this directory");
         }
-        var existing = children.get(node.name());
+        var current = children;
+        if (current instanceof Node[] array) {
+            int index = indexOf(array, node.name());
+            if (index >= 0) {
+                throw new AlreadyExistsException("name already exists: " + node.name());
+            }
+            int insertAt = -index - 1;
+            if (array.length < SMALL_DIRECTORY_LIMIT) {
+                var grown = new Node[array.length + 1];
+                System.arraycopy(array, 0, grown, 0, insertAt);
+                grown[insertAt] = node;
+                System.arraycopy(array, insertAt, grown, insertAt + 1, array.length - insertAt);
+                children = grown;
+                return node;
+            }
+            var promoted = newMap();
+            for (var child : array) {
+                promoted.put(child.name(), child);
+            }
+            promoted.put(node.name(), node);
+            children = promoted;
+            return node;
+        }
+        var existing = map(current).putIfAbsent(node.name(), node);
         if (existing != null) {
             throw new AlreadyExistsException("name already exists: " + node.name());
         }
-        children.put(node.name(), node);
         return node;
     }
 
+    // Removes child if it is still linked here under its current name.
+    public boolean removeChild(Node child) {
+        Objects.requireNonNull(child, "child");
+        var current = children;
+        if (current instanceof Node[] array) {
+            int index = indexOf(array, child.name());
+            if (index < 0 || array[index] != child) {
+                return false;
+            }
+            var shrunk = array.length == 1 ? NO_CHILDREN : new Node[array.length - 1];
+            System.arraycopy(array, 0, shrunk, 0, index);
+            System.arraycopy(array, index + 1, shrunk, index, array.length - index - 1);
+            children = shrunk;
+            return true;
+        }
+        return map(current).remove(child.name(), child);
+    }
+
+    // Unlinks child from this directory and links it into target as newName. The caller holds the
+    // monitors of both directories and has checked that newName is free in target.
+    public void moveChild(Node child, DirectoryNode target, String newName) {
+        Objects.requireNonNull(target, "target");
+        Objects.requireNonNull(newName, "newName");
+        validateNonRootName(newName, child instanceof DirectoryNode ? "directory" : "file");
+        if (child.parent() != this || !removeChild(child)) {
+            throw new IllegalArgumentException("not a child of this directory: " + child.name());
+        }
+        switch (child) {
+            case DirectoryNode dir -> dir.relink(target, newName);
+            case FileNode file -> file.relink(target, newName);
+        }
+        target.addChild(child);
+    }
+
+    public int childCount() {
+        var current = children;
+        return current instanceof Node[] array ? array.length : map(current).size();
+    }
+
     public Collection<Node> children() {
-        return children.values();
+        var current = children;
+        return current instanceof Node[] array ? Collections.unmodifiableList(Arrays.asList(array)) : map(current).values();
+    }
+
+    // The children named after startAfter (all of them if null) in name order. Like children(), this
+    // is a view rather than a copy, and concurrent directories iterate it weakly consistently.
+    public Collection<Node> childrenAfter(CharSequence startAfter) {
+        return startAfter == null ? children() : tail(startAfter, false);
+    }
+
+    // The children named from on, in name order; the same kind of view as childrenAfter.
+    public Collection<Node> childrenFrom(CharSequence from) {
+        return tail(Objects.requireNonNull(from, "from"), true);
+    }
+
+    private Collection<Node> tail(CharSequence key, boolean inclusive) {
+        var current = children;
+        if (current instanceof Node[] array) {
+            int index = indexOf(array, key);
+            int from = index >= 0 ? (inclusive ? index : index + 1) : -index - 1;
+            return Collections.unmodifiableList(Arrays.asList(array).subList(from, array.length));
+        }
+        return map(current).tailMap(key.toString(), inclusive).values();
     }
 
     public List<String> childNames() {
-        return List.copyOf(children.navigableKeySet());
+        var current = children;
+        if (current instanceof Node[] array) {
+            var names = new String[array.length];
+            for (int i = 0; i < array.length; i++) {
+                names[i] = array[i].name();
+            }
+            return List.of(names);
+        }
+        return List.copyOf(map(current).navigableKeySet());
+    }
+
+    private NavigableMap<String, Node> newMap() {
+        return concurrent ? new ConcurrentSkipListMap<>(NAME_ORDER) : new TreeMap<>(NAME_ORDER);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static NavigableMap<String, Node> map(Object children) {
+        return (NavigableMap<String, Node>) children;
+    }
+
+    private static int indexOf(Node[] array, CharSequence childName) {
+        int low = 0;
+        int high = array.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = NAME_ORDER.compare(array[mid].name(), childName);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
     }
 }
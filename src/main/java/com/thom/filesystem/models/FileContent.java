@@ -0,0 +1,374 @@
+package com.thom.filesystem.models;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// File data split into fixed-size chunks. Chunks are allocated on first write, so gaps left by
+// writing past the end stay unallocated and read back as zeros. Direct chunks live outside the
+// Java heap (bounded by -XX:MaxDirectMemorySize) and are released when the content becomes
+// unreachable, which keeps large amounts of file data out of GC marking and copying. The first
+// chunk starts small and doubles up to the chunk size, so small files only pay for what they hold.
+public final class FileContent {
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    private static final int MIN_FIRST_CHUNK = 64;
+    private static final ByteBuffer[] NO_CHUNKS = new ByteBuffer[0];
+    private static final ByteBuffer ZEROS = ByteBuffer.allocateDirect(4096).asReadOnlyBuffer();
+
+    private final int chunkSize;
+    private final boolean direct;
+
+    private ByteBuffer[] chunks = NO_CHUNKS;
+    private long size;
+
+    // The chunks as they were at this content's last copy (taken or made). A chunk still identical
+    // to its entry here may be shared with another content, so it is replaced before it is changed.
+    // Any content holding a shared chunk has it in its own array, which is never modified.
+    private ByteBuffer[] shared = NO_CHUNKS;
+
+    public FileContent() {
+        this(DEFAULT_CHUNK_SIZE, true);
+    }
+
+    public FileContent(int chunkSize, boolean direct) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive");
+        }
+        this.chunkSize = chunkSize;
+        this.direct = direct;
+    }
+
+    public int chunkSize() {
+        return chunkSize;
+    }
+
+    public boolean isDirect() {
+        return direct;
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+
+    // An independent copy with the same chunking; unallocated gaps stay unallocated. Chunks are
+    // shared until either side writes to them, so copying costs one array of references and each
+    // side pays for a chunk only when it first changes it.
+    public synchronized FileContent copy() {
+        var copy = new FileContent(chunkSize, direct);
+        copy.size = size;
+        if (chunks.length > 0) {
+            shared = chunks.clone();
+            copy.shared = shared;
+            copy.chunks = chunks.clone();
+        }
+        return copy;
+    }
+
+    public synchronized int read(long position, ByteBuffer dst) {
+        requireNonNegative(position, "position");
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+        if (position >= size) {
+            return -1;
+        }
+
+        int total = 0;
+        while (dst.hasRemaining() && position < size) {
+            int index = chunkIndex(position);
+            int offset = chunkOffset(position);
+            int length = (int) Math.min(Math.min(chunkSize - offset, size - position), dst.remaining());
+
+            var chunk = chunks[index];
+            if (chunk == null) {
+                putZeros(dst, length);
+            } else {
+                dst.put(dst.position(), chunk, offset, length);
+                dst.position(dst.position() + length);
+            }
+            position += length;
+            total += length;
+        }
+        return total;
+    }
+
+    public synchronized byte[] read(long position, int length) {
+        requireNonNegative(position, "position");
+        requireNonNegative(length, "length");
+        if (position >= size) {
+            return new byte[0];
+        }
+        var bytes = new byte[(int) Math.min(length, size - position)];
+        read(position, ByteBuffer.wrap(bytes));
+        return bytes;
+    }
+
+    public synchronized int write(long position, ByteBuffer src) {
+        requireNonNegative(position, "position");
+        int written = src.remaining();
+        long end = position + written;
+        ensureChunkSlots(end);
+
+        while (src.hasRemaining()) {
+            int index = chunkIndex(position);
+            int offset = chunkOffset(position);
+            int length = Math.min(chunkSize - offset, src.remaining());
+
+            chunkForWrite(index, offset + length).put(offset, src, src.position(), length);
+            src.position(src.position() + length);
+            position += length;
+        }
+
+        extendTo(end);
+        return written;
+    }
+
+    public synchronized int append(ByteBuffer src) {
+        return write(size, src);
+    }
+
+    public synchronized int replace(ByteBuffer src) {
+        truncate(0);
+        return write(0, src);
+    }
+
+    // Writes chunk views straight to the target; nothing is staged in an intermediate array. The
+    // views are taken under the lock and written outside it, so a slow target never blocks writers
+    // and two contents can transfer into each other without lock-ordering concerns. The chunks
+    // behind the views are marked shared first, so a writer replaces them instead of changing
+    // bytes the target has yet to see.
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        requireNonNegative(position, "position");
+        requireNonNegative(count, "count");
+
+        List<ByteBuffer> views;
+        synchronized (this) {
+            if (position >= size || count == 0) {
+                return 0;
+            }
+            long end = Math.min(size, position + Math.min(count, Long.MAX_VALUE - position));
+            views = viewsOf(position, end);
+            pin(chunkIndex(position), Math.min(chunkCount(end), chunks.length));
+        }
+
+        long total = 0;
+        for (var view : views) {
+            while (view.hasRemaining()) {
+                int written = target.write(view);
+                if (written == 0) {
+                    return total;
+                }
+                total += written;
+            }
+        }
+        return total;
+    }
+
+    // Nothing is read into memory the file can already see: a whole chunk is read into a new
+    // buffer that replaces the old one only if no writer replaced it meanwhile, and anything smaller
+    // goes through a scratch buffer and write. Like FileChannel.transferFrom, nothing is transferred
+    // when position is past the end.
+    public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+        requireNonNegative(position, "position");
+        requireNonNegative(count, "count");
+
+        ByteBuffer scratch = null;
+        long total = 0;
+        while (total < count) {
+            long at = position + total;
+            int offset = chunkOffset(at);
+            int length = (int) Math.min(chunkSize - offset, count - total);
+            int index = chunkIndex(at);
+            ByteBuffer before;
+            synchronized (this) {
+                if (at > size) {
+                    return total;
+                }
+                before = index < chunks.length ? chunks[index] : null;
+            }
+
+            boolean wholeChunk = length == chunkSize;
+            ByteBuffer buffer;
+            if (wholeChunk) {
+                buffer = allocate(chunkSize);
+            } else {
+                if (scratch == null) {
+                    scratch = ByteBuffer.allocate((int) Math.min(chunkSize, count));
+                }
+                buffer = scratch.clear().limit(length);
+            }
+            int read = src.read(buffer);
+            if (read <= 0) {
+                return total;
+            }
+            synchronized (this) {
+                long end = at + read;
+                // The new chunk may drop bytes of the old one past what was read only if they are
+                // past the end of the file.
+                if (wholeChunk && (read == length || end >= size)
+                        && (index < chunks.length ? chunks[index] : null) == before) {
+                    ensureChunkSlots(end);
+                    chunks[index] = buffer;
+                    extendTo(end);
+                } else {
+                    write(at, buffer.flip());
+                }
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    public synchronized void truncate(long newSize) {
+        requireNonNegative(newSize, "newSize");
+        if (newSize >= size) {
+            return;
+        }
+
+        int keep = chunkCount(newSize);
+        Arrays.fill(chunks, keep, chunks.length, null);
+        int tail = chunkOffset(newSize);
+        if (tail != 0 && chunks[keep - 1] != null && chunks[keep - 1].capacity() > tail) {
+            var last = unshare(keep - 1);
+            zero(last, tail, last.capacity() - tail);
+        }
+        size = newSize;
+    }
+
+    private List<ByteBuffer> viewsOf(long position, long end) {
+        var views = new ArrayList<ByteBuffer>(chunkCount(end - position) + 1);
+        while (position < end) {
+            int offset = chunkOffset(position);
+            int length = (int) Math.min(chunkSize - offset, end - position);
+
+            var chunk = chunks[chunkIndex(position)];
+            if (chunk == null) {
+                for (int remaining = length; remaining > 0; remaining -= ZEROS.capacity()) {
+                    views.add(ZEROS.slice(0, Math.min(remaining, ZEROS.capacity())));
+                }
+            } else {
+                views.add(chunk.slice(offset, length).asReadOnlyBuffer());
+            }
+            position += length;
+        }
+        return views;
+    }
+
+    // Marks chunks [from, to) as shared so that writers replace them rather than change them. The
+    // shared array may be another content's too, so it is copied rather than changed.
+    private void pin(int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        var pinned = Arrays.copyOf(shared, Math.max(shared.length, to));
+        System.arraycopy(chunks, from, pinned, from, to - from);
+        shared = pinned;
+    }
+
+    private ByteBuffer chunkForWrite(int index, int endInChunk) {
+        var chunk = chunks[index];
+        int required = index == 0 ? firstChunkCapacity(Math.max(endInChunk, Math.min(size, chunkSize))) : chunkSize;
+        if (chunk == null) {
+            chunk = allocate(required);
+            chunks[index] = chunk;
+        } else if (chunk.capacity() < required) {
+            chunk = grow(chunk, required);
+            chunks[index] = chunk;
+        } else {
+            chunk = unshare(index);
+        }
+        return chunk;
+    }
+
+    private ByteBuffer unshare(int index) {
+        var chunk = chunks[index];
+        if (index < shared.length && shared[index] == chunk) {
+            chunk = grow(chunk, chunk.capacity());
+            chunks[index] = chunk;
+        }
+        return chunk;
+    }
+
+    // Every byte below size must be backed by its chunk (or by a missing chunk), so when the file
+    // grows past a small first chunk, that chunk grows with it.
+    private void extendTo(long end) {
+        if (end <= size) {
+            return;
+        }
+        size = end;
+        var first = chunks.length == 0 ? null : chunks[0];
+        if (first != null && first.capacity() < Math.min(end, chunkSize)) {
+            chunks[0] = grow(first, firstChunkCapacity(Math.min(end, chunkSize)));
+        }
+    }
+
+    private int firstChunkCapacity(long needed) {
+        if (needed >= chunkSize) {
+            return chunkSize;
+        }
+        int capacity = Math.max(MIN_FIRST_CHUNK, Integer.highestOneBit((int) Math.max(1, needed - 1)) << 1);
+        return Math.min(capacity, chunkSize);
+    }
+
+    private ByteBuffer grow(ByteBuffer chunk, int capacity) {
+        var grown = allocate(capacity);
+        grown.put(0, chunk, 0, chunk.capacity());
+        return grown;
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    private void ensureChunkSlots(long end) {
+        int needed = chunkCount(end);
+        if (needed > chunks.length) {
+            chunks = Arrays.copyOf(chunks, Math.max(needed, chunks.length * 2));
+        }
+    }
+
+    private int chunkCount(long bytes) {
+        long count = (bytes + chunkSize - 1) / chunkSize;
+        if (count > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("file too large: " + bytes + " bytes");
+        }
+        return (int) count;
+    }
+
+    private int chunkIndex(long position) {
+        return (int) (position / chunkSize);
+    }
+
+    private int chunkOffset(long position) {
+        return (int) (position % chunkSize);
+    }
+
+    private static void putZeros(ByteBuffer dst, int length) {
+        while (length > 0) {
+            int n = Math.min(length, ZEROS.capacity());
+            dst.put(dst.position(), ZEROS, 0, n);
+            dst.position(dst.position() + n);
+            length -= n;
+        }
+    }
+
+    private static void zero(ByteBuffer chunk, int offset, int length) {
+        while (length > 0) {
+            int n = Math.min(length, ZEROS.capacity());
+            chunk.put(offset, ZEROS, 0, n);
+            offset += n;
+            length -= n;
+        }
+    }
+
+    private static void requireNonNegative(long value, String name) {
+        if (value < 0) {
+            throw new IllegalArgumentException(name + " cannot be negative");
+        }
+    }
+}
@@ -5,8 +5,11 @@ import com.thom.filesystem.errors.InvalidPathException;
 import java.util.Objects;
 
 public final class FileNode implements Node {
-    private final String name;
-    private final DirectoryNode parent;
+    // Only change through relink, while moving the node (see FileTree).
+    private volatile String name;
+    private volatile DirectoryNode parent;
+    // Created on first use, as most files in large trees are never written.
+    private volatile FileContent content;
 
     public FileNode(String name, DirectoryNode parent) {
         this.name = Objects.requireNonNull(name, "name");
@@ -20,6 +23,16 @@ public final class FileNode implements Node {
         }
     }
 
+    public FileNode(String name, DirectoryNode parent, FileContent content) {
+        this(name, parent);
+        this.content = Objects.requireNonNull(content, "content");
+    }
+
+    void relink(DirectoryNode newParent, String newName) {
+        parent = Objects.requireNonNull(newParent, "newParent");
+        name = newName;
+    }
+
     @Override
     public String name() {
         return name;
@@ -29,4 +42,27 @@ public final class FileNode implements Node {
     public DirectoryNode parent() {
         return parent;
     }
+
+    // Null until the file is first written; a file without content is empty.
+    public FileContent content() {
+        return content;
+    }
+
+    public FileContent content(int chunkSize, boolean direct) {
+        var current = content;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (content == null) {
+                content = new FileContent(chunkSize, direct);
+            }
+            return content;
+        }
+    }
+
+    public long size() {
+        var current = content;
+        return current == null ? 0 : current.size();
+    }
 }
@@ -0,0 +1,76 @@
+package com.thom.filesystem.nio;
+
+import com.thom.filesystem.models.DirectoryNode;
+import com.thom.filesystem.models.Node;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+final class ImfsDirectoryStream implements DirectoryStream<Path> {
+    private final ImfsPath dirPath;
+    private final Iterator<Node> children;
+    private final Filter<? super Path> filter;
+    private boolean iteratorReturned;
+    private boolean closed;
+
+    // Concurrent directories iterate their live, weakly consistent child map. Plain directories
+    // are not safe to iterate while the caller mutates them, so they are iterated from a copy.
+    ImfsDirectoryStream(ImfsPath dirPath, DirectoryNode dir, Filter<? super Path> filter) {
+        this.dirPath = dirPath;
+        this.children = dir.isConcurrent() ? dir.children().iterator() : List.copyOf(dir.children()).iterator();
+        this.filter = filter;
+    }
+
+    @Override
+    public Iterator<Path> iterator() {
+        if (closed) {
+            throw new IllegalStateException("directory stream is closed");
+        }
+        if (iteratorReturned) {
+            throw new IllegalStateException("iterator already returned");
+        }
+        iteratorReturned = true;
+
+        return new Iterator<>() {
+            private Path next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && !closed && children.hasNext()) {
+                    var candidate = dirPath.resolveChild(children.next().name());
+                    try {
+                        if (filter == null || filter.accept(candidate)) {
+                            next = candidate;
+                        }
+                    } catch (IOException e) {
+                        throw new DirectoryIteratorException(e);
+                    } catch (UncheckedIOException e) {
+                        throw new DirectoryIteratorException(e.getCause());
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public Path next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                var result = next;
+                next = null;
+                return result;
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
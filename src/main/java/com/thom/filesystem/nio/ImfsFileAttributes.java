@@ -0,0 +1,91 @@
+package com.thom.filesystem.nio;
+
+import com.thom.filesystem.models.DirectoryNode;
+import com.thom.filesystem.models.FileNode;
+import com.thom.filesystem.models.Node;
+
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Nodes carry no timestamps, so every time attribute reports the epoch.
+final class ImfsFileAttributes implements BasicFileAttributes {
+    private static final FileTime EPOCH = FileTime.fromMillis(0);
+
+    private final Node node;
+
+    ImfsFileAttributes(Node node) {
+        this.node = node;
+    }
+
+    @Override
+    public FileTime lastModifiedTime() {
+        return EPOCH;
+    }
+
+    @Override
+    public FileTime lastAccessTime() {
+        return EPOCH;
+    }
+
+    @Override
+    public FileTime creationTime() {
+        return EPOCH;
+    }
+
+    @Override
+    public boolean isRegularFile() {
+        return node instanceof FileNode;
+    }
+
+    @Override
+    public boolean isDirectory() {
+        return node instanceof DirectoryNode;
+    }
+
+    @Override
+    public boolean isSymbolicLink() {
+        return false;
+    }
+
+    @Override
+    public boolean isOther() {
+        return false;
+    }
+
+    @Override
+    public long size() {
+        return node instanceof FileNode file ? file.size() : 0;
+    }
+
+    @Override
+    public Object fileKey() {
+        return node;
+    }
+
+    Map<String, Object> toMap(String attributes) {
+        var all = new LinkedHashMap<String, Object>();
+        all.put("lastModifiedTime", lastModifiedTime());
+        all.put("lastAccessTime", lastAccessTime());
+        all.put("creationTime", creationTime());
+        all.put("size", size());
+        all.put("isRegularFile", isRegularFile());
+        all.put("isDirectory", isDirectory());
+        all.put("isSymbolicLink", isSymbolicLink());
+        all.put("isOther", isOther());
+        all.put("fileKey", fileKey());
+        if ("*".equals(attributes)) {
+            return all;
+        }
+
+        var selected = new LinkedHashMap<String, Object>();
+        for (var name : attributes.split(",")) {
+            if (!all.containsKey(name)) {
+                throw new IllegalArgumentException("unknown attribute: " + name);
+            }
+            selected.put(name, all.get(name));
+        }
+        return selected;
+    }
+}
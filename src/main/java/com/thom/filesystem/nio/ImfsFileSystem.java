@@ -0,0 +1,184 @@
+package com.thom.filesystem.nio;
+
+import com.thom.filesystem.core.FileTree;
+import com.thom.filesystem.core.Glob;
+import com.thom.filesystem.errors.InvalidPathException;
+import com.thom.filesystem.models.DirectoryNode;
+import com.thom.filesystem.models.Node;
+
+import java.nio.file.ClosedFileSystemException;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.UserPrincipalLookupService;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+public final class ImfsFileSystem extends FileSystem {
+    private final ImfsFileSystemProvider provider;
+    private final String name;
+    private final FileTree tree;
+    private final ImfsPath root;
+    private volatile boolean open = true;
+
+    ImfsFileSystem(ImfsFileSystemProvider provider, String name, FileTree tree) {
+        this.provider = provider;
+        this.name = name;
+        this.tree = tree;
+        this.root = new ImfsPath(this, true, new String[0]);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public FileTree tree() {
+        return tree;
+    }
+
+    // Relative paths resolve against the root, which acts as this file system's working directory.
+    Node lookup(ImfsPath path) throws NoSuchFileException, NotDirectoryException {
+        ensureOpen();
+        Node node = tree.root();
+        for (var segment : path.names()) {
+            if (".".equals(segment)) {
+                continue;
+            }
+            if (!(node instanceof DirectoryNode dir)) {
+                throw new NotDirectoryException(path.toString());
+            }
+            if ("..".equals(segment)) {
+                node = dir.parent() == null ? dir : dir.parent();
+                continue;
+            }
+            node = dir.getChild(segment);
+            if (node == null) {
+                throw new NoSuchFileException(path.toString());
+            }
+        }
+        return node;
+    }
+
+    DirectoryNode lookupDirectory(ImfsPath path) throws NoSuchFileException, NotDirectoryException {
+        if (lookup(path) instanceof DirectoryNode dir) {
+            return dir;
+        }
+        throw new NotDirectoryException(path.toString());
+    }
+
+    @Override
+    public ImfsFileSystemProvider provider() {
+        return provider;
+    }
+
+    @Override
+    public void close() {
+        if (open) {
+            open = false;
+            provider.unregister(this);
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return false;
+    }
+
+    @Override
+    public String getSeparator() {
+        return "/";
+    }
+
+    @Override
+    public Iterable<Path> getRootDirectories() {
+        return List.of(root);
+    }
+
+    @Override
+    public Iterable<FileStore> getFileStores() {
+        return List.of();
+    }
+
+    @Override
+    public Set<String> supportedFileAttributeViews() {
+        return Set.of("basic");
+    }
+
+    @Override
+    public ImfsPath getPath(String first, String... more) {
+        Objects.requireNonNull(first, "first");
+        if (more.length == 0) {
+            return ImfsPath.parse(this, first);
+        }
+        var joined = new StringBuilder(first);
+        for (var part : more) {
+            if (!part.isEmpty()) {
+                if (!joined.isEmpty()) {
+                    joined.append('/');
+                }
+                joined.append(part);
+            }
+        }
+        return ImfsPath.parse(this, joined.toString());
+    }
+
+    @Override
+    public PathMatcher getPathMatcher(String syntaxAndPattern) {
+        int colon = syntaxAndPattern.indexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("expected syntax:pattern, got: " + syntaxAndPattern);
+        }
+        var syntax = syntaxAndPattern.substring(0, colon);
+        var pattern = syntaxAndPattern.substring(colon + 1);
+        return switch (syntax.toLowerCase()) {
+            case "regex" -> {
+                var regex = Pattern.compile(pattern);
+                yield path -> regex.matcher(path.toString()).matches();
+            }
+            case "glob" -> {
+                var glob = globMatcher(pattern);
+                yield path -> glob.test(path.toString());
+            }
+            default -> throw new UnsupportedOperationException("unsupported syntax: " + syntax);
+        };
+    }
+
+    // The same dialect as find (see Glob): "**" is a whole segment matching any number of
+    // directories, including none.
+    private static Predicate<String> globMatcher(String pattern) {
+        try {
+            return Glob.matcher(pattern);
+        } catch (InvalidPathException e) {
+            throw new PatternSyntaxException(e.getMessage(), pattern, -1);
+        }
+    }
+
+    @Override
+    public UserPrincipalLookupService getUserPrincipalLookupService() {
+        throw new UnsupportedOperationException("user principals are not supported");
+    }
+
+    @Override
+    public WatchService newWatchService() {
+        throw new UnsupportedOperationException("watch service is not supported");
+    }
+
+    void ensureOpen() {
+        if (!open) {
+            throw new ClosedFileSystemException();
+        }
+    }
+}
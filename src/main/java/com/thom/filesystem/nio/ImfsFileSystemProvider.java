@@ -0,0 +1,381 @@
+package com.thom.filesystem.nio;
+
+import com.thom.filesystem.core.FileTree;
+import com.thom.filesystem.errors.AlreadyExistsException;
+import com.thom.filesystem.errors.NotADirectoryException;
+import com.thom.filesystem.errors.NotFoundException;
+import com.thom.filesystem.models.DirectoryNode;
+import com.thom.filesystem.models.FileNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AccessMode;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileAttributeView;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Exposes FileTrees as java.nio.file file systems under URIs of the form imfs://<name>/<path>.
+// Pass an existing tree in the environment map under "tree" to wrap it; otherwise a new tree is
+// created ("concurrent" -> true selects FileTree.concurrent()).
+public final class ImfsFileSystemProvider extends FileSystemProvider {
+    public static final String SCHEME = "imfs";
+
+    private final Map<String, ImfsFileSystem> fileSystems = new ConcurrentHashMap<>();
+
+    @Override
+    public String getScheme() {
+        return SCHEME;
+    }
+
+    public ImfsFileSystem newFileSystem(String name, FileTree tree) {
+        Objects.requireNonNull(name, "name");
+        Objects.requireNonNull(tree, "tree");
+        var fs = new ImfsFileSystem(this, name, tree);
+        if (fileSystems.putIfAbsent(name, fs) != null) {
+            throw new FileSystemAlreadyExistsException(name);
+        }
+        return fs;
+    }
+
+    @Override
+    public ImfsFileSystem newFileSystem(URI uri, Map<String, ?> env) {
+        var name = fileSystemName(uri);
+        FileTree tree;
+        if (env.get("tree") instanceof FileTree existing) {
+            tree = existing;
+        } else if (Boolean.TRUE.equals(env.get("concurrent")) || "true".equals(env.get("concurrent"))) {
+            tree = FileTree.concurrent();
+        } else {
+            tree = new FileTree();
+        }
+        return newFileSystem(name, tree);
+    }
+
+    @Override
+    public ImfsFileSystem getFileSystem(URI uri) {
+        var fs = fileSystems.get(fileSystemName(uri));
+        if (fs == null) {
+            throw new FileSystemNotFoundException(uri.toString());
+        }
+        return fs;
+    }
+
+    @Override
+    public ImfsPath getPath(URI uri) {
+        var path = uri.getPath();
+        return getFileSystem(uri).getPath(path == null || path.isEmpty() ? "/" : path);
+    }
+
+    void unregister(ImfsFileSystem fs) {
+        fileSystems.remove(fs.name(), fs);
+    }
+
+    @Override
+    public SeekableByteChannel newByteChannel(Path path, Set<? extends OpenOption> options, FileAttribute<?>... attrs)
+            throws IOException {
+        var target = normalized(path);
+        var parent = parentDirectory(target);
+        try {
+            return target.getFileSystem().tree().newByteChannel(target.leafName(), options, parent);
+        } catch (com.thom.filesystem.errors.FileSystemException e) {
+            throw translate(e, target);
+        }
+    }
+
+    @Override
+    public InputStream newInputStream(Path path, OpenOption... options) throws IOException {
+        for (var option : options) {
+            if (option == StandardOpenOption.APPEND || option == StandardOpenOption.WRITE) {
+                throw new UnsupportedOperationException("'" + option + "' not allowed");
+            }
+        }
+        var target = normalized(path);
+        var parent = parentDirectory(target);
+        try {
+            return target.getFileSystem().tree().newInputStream(target.leafName(), parent);
+        } catch (com.thom.filesystem.errors.FileSystemException e) {
+            throw translate(e, target);
+        }
+    }
+
+    @Override
+    public OutputStream newOutputStream(Path path, OpenOption... options) throws IOException {
+        var target = normalized(path);
+        var parent = parentDirectory(target);
+        try {
+            return target.getFileSystem().tree().newOutputStream(
+                    target.leafName(), new HashSet<>(Arrays.asList(options)), parent);
+        } catch (com.thom.filesystem.errors.FileSystemException e) {
+            throw translate(e, target);
+        }
+    }
+
+    @Override
+    public DirectoryStream<Path> newDirectoryStream(Path dir, DirectoryStream.Filter<? super Path> filter)
+            throws IOException {
+        var path = toImfsPath(dir);
+        return new ImfsDirectoryStream(path, path.getFileSystem().lookupDirectory(path), filter);
+    }
+
+    @Override
+    public void createDirectory(Path dir, FileAttribute<?>... attrs) throws IOException {
+        var target = normalized(dir);
+        if (target.getNameCount() == 0) {
+            throw new FileAlreadyExistsException(target.toString());
+        }
+        var parent = parentDirectory(target);
+        try {
+            target.getFileSystem().tree().mkdir(target.leafName(), parent);
+        } catch (com.thom.filesystem.errors.FileSystemException e) {
+            throw translate(e, target);
+        }
+    }
+
+    @Override
+    public void delete(Path path) throws IOException {
+        var target = normalized(path);
+        if (target.getNameCount() == 0) {
+            throw new FileSystemException(target.toString(), null, "is the root directory");
+        }
+        var fs = target.getFileSystem();
+        try {
+            fs.tree().remove(fs.lookup(target), false);
+        } catch (com.thom.filesystem.errors.FileSystemException e) {
+            throw translate(e, target);
+        }
+    }
+
+    @Override
+    public void copy(Path source, Path target, CopyOption... options) throws IOException {
+        var from = normalized(source);
+        var to = normalized(target);
+        if (from.getFileSystem() != to.getFileSystem()) {
+            throw new ProviderMismatchException();
+        }
+        var fs = from.getFileSystem();
+        var sourceNode = fs.lookup(from);
+        var parent = parentDirectory(to);
+        var replace = Arrays.asList(options).contains(StandardCopyOption.REPLACE_EXISTING);
+
+        var existing = parent.getChild(to.leafName());
+        if (existing == sourceNode) {
+            return;
+        }
+        if (existing != null && !replace) {
+            throw new FileAlreadyExistsException(to.toString());
+        }
+
+        try {
+            // A file replacing a file is overwritten in place; anything else replaces a file or an
+            // empty directory.
+            if (existing != null && (existing instanceof DirectoryNode || sourceNode instanceof DirectoryNode)) {
+                fs.tree().remove(existing, false);
+            }
+            if (sourceNode instanceof FileNode file) {
+                var writeOptions = Set.of(StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING);
+                try (var out = fs.tree().newByteChannel(to.leafName(), writeOptions, parent)) {
+                    var content = file.content();
+                    if (content != null) {
+                        content.transferTo(0, Long.MAX_VALUE, out);
+                    }
+                }
+            } else {
+                fs.tree().mkdir(to.leafName(), parent);
+            }
+        } catch (com.thom.filesystem.errors.FileSystemException e) {
+            throw translate(e, to);
+        }
+    }
+
+    // One FileTree.move does the whole move, including removing a file or empty directory at the
+    // target for REPLACE_EXISTING, so every move is atomic and ATOMIC_MOVE needs no special handling.
+    @Override
+    public void move(Path source, Path target, CopyOption... options) throws IOException {
+        var from = normalized(source);
+        var to = normalized(target);
+        if (from.getFileSystem() != to.getFileSystem()) {
+            throw new ProviderMismatchException();
+        }
+        if (from.getNameCount() == 0) {
+            throw new FileSystemException(from.toString(), null, "is the root directory");
+        }
+        var fs = from.getFileSystem();
+        var sourceNode = fs.lookup(from);
+        var parent = parentDirectory(to);
+        var replace = Arrays.asList(options).contains(StandardCopyOption.REPLACE_EXISTING);
+
+        var existing = parent.getChild(to.leafName());
+        if (existing == sourceNode) {
+            return;
+        }
+        if (existing != null && !replace) {
+            throw new FileAlreadyExistsException(to.toString());
+        }
+        try {
+            fs.tree().move(sourceNode, parent, to.leafName(), replace);
+        } catch (com.thom.filesystem.errors.FileSystemException e) {
+            throw translate(e, to);
+        }
+    }
+
+    @Override
+    public boolean isSameFile(Path path, Path path2) throws IOException {
+        if (path.equals(path2)) {
+            return true;
+        }
+        if (!(path2 instanceof ImfsPath other) || other.getFileSystem() != toImfsPath(path).getFileSystem()) {
+            return false;
+        }
+        var first = toImfsPath(path);
+        return first.getFileSystem().lookup(first) == other.getFileSystem().lookup(other);
+    }
+
+    @Override
+    public boolean isHidden(Path path) {
+        var name = toImfsPath(path).getFileName();
+        return name != null && name.toString().startsWith(".");
+    }
+
+    @Override
+    public FileStore getFileStore(Path path) {
+        throw new UnsupportedOperationException("file stores are not supported");
+    }
+
+    @Override
+    public void checkAccess(Path path, AccessMode... modes) throws IOException {
+        var target = toImfsPath(path);
+        target.getFileSystem().lookup(target);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <V extends FileAttributeView> V getFileAttributeView(Path path, Class<V> type, LinkOption... options) {
+        if (type != BasicFileAttributeView.class) {
+            return null;
+        }
+        var target = toImfsPath(path);
+        return (V) new BasicFileAttributeView() {
+            @Override
+            public String name() {
+                return "basic";
+            }
+
+            @Override
+            public BasicFileAttributes readAttributes() throws IOException {
+                return new ImfsFileAttributes(target.getFileSystem().lookup(target));
+            }
+
+            @Override
+            public void setTimes(FileTime lastModifiedTime, FileTime lastAccessTime, FileTime createTime) {
+                throw new UnsupportedOperationException("timestamps are not supported");
+            }
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <A extends BasicFileAttributes> A readAttributes(Path path, Class<A> type, LinkOption... options)
+            throws IOException {
+        if (type != BasicFileAttributes.class) {
+            throw new UnsupportedOperationException("unsupported attributes: " + type.getName());
+        }
+        var target = toImfsPath(path);
+        return (A) new ImfsFileAttributes(target.getFileSystem().lookup(target));
+    }
+
+    @Override
+    public Map<String, Object> readAttributes(Path path, String attributes, LinkOption... options)
+            throws IOException {
+        int colon = attributes.indexOf(':');
+        if (colon != -1 && !"basic".equals(attributes.substring(0, colon))) {
+            throw new UnsupportedOperationException("unsupported attribute view: " + attributes.substring(0, colon));
+        }
+        var target = toImfsPath(path);
+        return new ImfsFileAttributes(target.getFileSystem().lookup(target)).toMap(attributes.substring(colon + 1));
+    }
+
+    @Override
+    public void setAttribute(Path path, String attribute, Object value, LinkOption... options) {
+        throw new UnsupportedOperationException("attributes are read-only");
+    }
+
+    private static ImfsPath toImfsPath(Path path) {
+        Objects.requireNonNull(path, "path");
+        if (!(path instanceof ImfsPath imfsPath)) {
+            throw new ProviderMismatchException();
+        }
+        imfsPath.getFileSystem().ensureOpen();
+        return imfsPath;
+    }
+
+    private static ImfsPath normalized(Path path) {
+        return toImfsPath(path).toAbsolutePath().normalize();
+    }
+
+    private static DirectoryNode parentDirectory(ImfsPath target) throws IOException {
+        var parent = target.getParent();
+        if (parent == null) {
+            throw new FileSystemException(target.toString(), null, "is the root directory");
+        }
+        return target.getFileSystem().lookupDirectory(parent);
+    }
+
+    private static String fileSystemName(URI uri) {
+        if (!SCHEME.equalsIgnoreCase(uri.getScheme())) {
+            throw new IllegalArgumentException("URI scheme is not '" + SCHEME + "': " + uri);
+        }
+        var name = uri.getAuthority();
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("URI must name the file system, e.g. imfs://name/: " + uri);
+        }
+        return name;
+    }
+
+    private static IOException translate(com.thom.filesystem.errors.FileSystemException e, ImfsPath path) {
+        var file = path.toString();
+        IOException translated;
+        if (e instanceof NotFoundException) {
+            translated = new NoSuchFileException(file);
+        } else if (e instanceof AlreadyExistsException) {
+            translated = new FileAlreadyExistsException(file);
+        } else if (e instanceof NotADirectoryException) {
+            translated = new NotDirectoryException(file);
+        } else if (e instanceof com.thom.filesystem.errors.DirectoryNotEmptyException) {
+            translated = new DirectoryNotEmptyException(file);
+        } else {
+            translated = new FileSystemException(file, null, e.getMessage());
+        }
+        translated.initCause(e);
+        return translated;
+    }
+}
@@ -0,0 +1,251 @@
+package com.thom.filesystem.nio;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Objects;
+
+// Paths keep their names as an array of segments, which is what the tree walk consumes, so
+// resolving a path against the tree never rebuilds or re-parses a path string.
+public final class ImfsPath implements Path {
+    private static final String[] NO_NAMES = new String[0];
+
+    private final ImfsFileSystem fs;
+    private final boolean absolute;
+    private final String[] names;
+
+    ImfsPath(ImfsFileSystem fs, boolean absolute, String[] names) {
+        this.fs = fs;
+        this.absolute = absolute;
+        this.names = names;
+    }
+
+    static ImfsPath parse(ImfsFileSystem fs, String path) {
+        var names = new ArrayList<String>();
+        int i = 0;
+        while (i < path.length()) {
+            int slash = path.indexOf('/', i);
+            int end = slash == -1 ? path.length() : slash;
+            if (end > i) {
+                names.add(path.substring(i, end));
+            }
+            i = end + 1;
+        }
+        return new ImfsPath(fs, path.startsWith("/"), names.toArray(NO_NAMES));
+    }
+
+    String[] names() {
+        return names;
+    }
+
+    String leafName() {
+        return names[names.length - 1];
+    }
+
+    @Override
+    public ImfsFileSystem getFileSystem() {
+        return fs;
+    }
+
+    @Override
+    public boolean isAbsolute() {
+        return absolute;
+    }
+
+    @Override
+    public ImfsPath getRoot() {
+        return absolute ? new ImfsPath(fs, true, NO_NAMES) : null;
+    }
+
+    @Override
+    public ImfsPath getFileName() {
+        return names.length == 0 ? null : new ImfsPath(fs, false, new String[]{leafName()});
+    }
+
+    @Override
+    public ImfsPath getParent() {
+        if (names.length == 0 || (!absolute && names.length == 1)) {
+            return null;
+        }
+        return new ImfsPath(fs, absolute, Arrays.copyOf(names, names.length - 1));
+    }
+
+    @Override
+    public int getNameCount() {
+        return names.length;
+    }
+
+    @Override
+    public ImfsPath getName(int index) {
+        Objects.checkIndex(index, names.length);
+        return new ImfsPath(fs, false, new String[]{names[index]});
+    }
+
+    @Override
+    public ImfsPath subpath(int beginIndex, int endIndex) {
+        if (beginIndex < 0 || beginIndex >= endIndex || endIndex > names.length) {
+            throw new IllegalArgumentException("invalid subpath range: " + beginIndex + ".." + endIndex);
+        }
+        return new ImfsPath(fs, false, Arrays.copyOfRange(names, beginIndex, endIndex));
+    }
+
+    @Override
+    public boolean startsWith(Path other) {
+        if (!(other instanceof ImfsPath that) || that.fs != fs || that.absolute != absolute) {
+            return false;
+        }
+        if (that.names.length > names.length) {
+            return false;
+        }
+        return Arrays.equals(names, 0, that.names.length, that.names, 0, that.names.length);
+    }
+
+    @Override
+    public boolean endsWith(Path other) {
+        if (!(other instanceof ImfsPath that) || that.fs != fs) {
+            return false;
+        }
+        if (that.absolute) {
+            return equals(that);
+        }
+        if (that.names.length > names.length || (that.names.length == 0 && names.length != 0)) {
+            return false;
+        }
+        int offset = names.length - that.names.length;
+        return Arrays.equals(names, offset, names.length, that.names, 0, that.names.length);
+    }
+
+    @Override
+    public ImfsPath normalize() {
+        var normalized = new ArrayList<String>(names.length);
+        for (var name : names) {
+            if (".".equals(name)) {
+                continue;
+            }
+            if ("..".equals(name)) {
+                if (!normalized.isEmpty() && !"..".equals(normalized.getLast())) {
+                    normalized.removeLast();
+                    continue;
+                }
+                if (absolute) {
+                    continue;
+                }
+            }
+            normalized.add(name);
+        }
+        if (normalized.size() == names.length) {
+            return this;
+        }
+        return new ImfsPath(fs, absolute, normalized.toArray(NO_NAMES));
+    }
+
+    @Override
+    public ImfsPath resolve(Path other) {
+        var that = checkPath(other);
+        if (that.absolute) {
+            return that;
+        }
+        if (that.names.length == 0) {
+            return this;
+        }
+        var joined = Arrays.copyOf(names, names.length + that.names.length);
+        System.arraycopy(that.names, 0, joined, names.length, that.names.length);
+        return new ImfsPath(fs, absolute, joined);
+    }
+
+    ImfsPath resolveChild(String name) {
+        var joined = Arrays.copyOf(names, names.length + 1);
+        joined[names.length] = name;
+        return new ImfsPath(fs, absolute, joined);
+    }
+
+    @Override
+    public ImfsPath relativize(Path other) {
+        var that = checkPath(other);
+        if (that.absolute != absolute) {
+            throw new IllegalArgumentException("'other' is different type of Path");
+        }
+        var from = normalize().names;
+        var to = that.normalize().names;
+
+        int common = 0;
+        while (common < from.length && common < to.length && from[common].equals(to[common])) {
+            common++;
+        }
+        var relative = new ArrayList<String>();
+        for (int i = common; i < from.length; i++) {
+            relative.add("..");
+        }
+        relative.addAll(Arrays.asList(to).subList(common, to.length));
+        return new ImfsPath(fs, false, relative.toArray(NO_NAMES));
+    }
+
+    @Override
+    public URI toUri() {
+        try {
+            return new URI(ImfsFileSystemProvider.SCHEME, fs.name(), toAbsolutePath().toString(), null);
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public ImfsPath toAbsolutePath() {
+        return absolute ? this : new ImfsPath(fs, true, names);
+    }
+
+    @Override
+    public ImfsPath toRealPath(LinkOption... options) throws IOException {
+        var real = toAbsolutePath().normalize();
+        fs.lookup(real);
+        return real;
+    }
+
+    @Override
+    public WatchKey register(WatchService watcher, WatchEvent.Kind<?>[] events, WatchEvent.Modifier... modifiers) {
+        throw new UnsupportedOperationException("watch service is not supported");
+    }
+
+    @Override
+    public int compareTo(Path other) {
+        return toString().compareTo(checkPath(other).toString());
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ImfsPath that
+                && that.fs == fs
+                && that.absolute == absolute
+                && Arrays.equals(that.names, names);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(names) * 31 + (absolute ? 1 : 0);
+    }
+
+    @Override
+    public String toString() {
+        if (names.length == 0) {
+            return absolute ? "/" : "";
+        }
+        var joined = String.join("/", names);
+        return absolute ? "/" + joined : joined;
+    }
+
+    private ImfsPath checkPath(Path other) {
+        Objects.requireNonNull(other, "other");
+        if (!(other instanceof ImfsPath that) || that.fs != fs) {
+            throw new ProviderMismatchException();
+        }
+        return that;
+    }
+}
@@ -53,4 +53,24 @@ class AppTest {
         assertTrue(stdout.contains("€ "));
         assertEquals("unknown command: nope\n", errBytes.toString(StandardCharsets.UTF_8));
     }
+
+    @Test
+    void batchModeRunsWithoutPromptsAndNumbersErrors() throws Exception {
+        var script = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            script.append("mkdir /d").append(i).append('\n');
+        }
+        script.append("\nnope\nmkdir /d5\nls /d9999\ncd /d1\ntouch f\nls\nquit\nls /\n");
+
+        var in = new ByteArrayInputStream(script.toString().getBytes(StandardCharsets.UTF_8));
+        var outBytes = new ByteArrayOutputStream();
+        var errBytes = new ByteArrayOutputStream();
+
+        long failures = App.runBatch(in, new PrintStream(outBytes), new PrintStream(errBytes));
+
+        assertEquals(2, failures);
+        assertEquals("f\n", outBytes.toString(StandardCharsets.UTF_8));
+        assertEquals("line 10002: unknown command: nope\nline 10003: name already exists: d5\n",
+                errBytes.toString(StandardCharsets.UTF_8));
+    }
 }
@@ -1,9 +1,14 @@
 package com.thom.filesystem.cli;
 
 import com.thom.filesystem.core.InMemoryFileSystem;
+import com.thom.filesystem.errors.InvalidCommandException;
+import com.thom.filesystem.errors.NotFoundException;
 import org.junit.jupiter.api.Test;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class CommandDispatcherTest {
 
@@ -18,5 +23,41 @@ class CommandDispatcherTest {
 
         var result = dispatcher.dispatch("ls");
         assertEquals(java.util.List.of("x"), result.outputLines());
+
+        var streamed = new java.util.ArrayList<String>();
+        dispatcher.dispatch("ls /", streamed::add);
+        assertEquals(java.util.List.of("a/"), streamed);
+    }
+
+    @Test
+    void dispatchAllParsesEverythingBeforeRunning() {
+        var fs = new InMemoryFileSystem();
+        var dispatcher = new CommandDispatcher(fs);
+
+        var results = dispatcher.dispatchAll(java.util.List.of("mkdir /a", "", "cd /a", "touch x", "ls", "cd /"));
+        assertEquals(6, results.size());
+        assertEquals(java.util.List.of("x"), results.get(4).outputLines());
+
+        assertThrows(InvalidCommandException.class, () -> dispatcher.dispatchAll(java.util.List.of("mkdir /b", "nope")));
+        assertEquals(java.util.List.of("a/"), fs.ls("/"));
+        var partial = dispatcher.dispatchAll(java.util.List.of("mkdir /b", "cd /missing", "mkdir /c", "ls /"));
+        assertEquals(4, partial.size());
+        assertTrue(partial.get(0).succeeded());
+        assertInstanceOf(NotFoundException.class, partial.get(1).error());
+        assertTrue(partial.get(2).succeeded());
+        assertEquals(java.util.List.of("a/", "b/", "c/"), partial.get(3).outputLines());
+    }
+
+    @Test
+    void compiledScriptsRunAgainWithoutParsing() {
+        var script = Script.compile(java.util.List.of("mkdir /a", "cd /a", "write f hi", "cat f", "pwd"));
+        assertEquals(5, script.size());
+        for (int run = 0; run < 2; run++) {
+            var fs = new InMemoryFileSystem();
+            var lines = new java.util.ArrayList<String>();
+            script.run(fs, lines::add);
+            assertEquals(java.util.List.of("hi", "/a"), lines);
+        }
+        assertThrows(InvalidCommandException.class, () -> Script.compile(java.util.List.of("ls", "nope")));
     }
 }
@@ -1,13 +1,26 @@
 package com.thom.filesystem.cli;
 
 import com.thom.filesystem.api.FileSystem;
+import com.thom.filesystem.api.PathStatus;
 import com.thom.filesystem.errors.InvalidCommandException;
+import com.thom.filesystem.metrics.FileSystemMetrics;
+import com.thom.filesystem.metrics.MeteredFileSystem;
 import org.junit.jupiter.api.Test;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.OpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class CommandParserTest {
 
@@ -22,6 +35,25 @@ class CommandParserTest {
         assertEquals(null, fs.lastCall);
     }
 
+    @Test
+    void statsReportsMetricsOnlyWhenEnabled() {
+        var plain = new RecordingFileSystem();
+        var metrics = FileSystemMetrics.create();
+        var metered = new MeteredFileSystem(plain, metrics);
+
+        var e = assertThrows(InvalidCommandException.class, () -> new CommandParser().parse("stats").execute(metered));
+        assertEquals("stats: metrics are not enabled", e.getMessage());
+        var parser = new CommandParser(metrics::report);
+        assertThrows(InvalidCommandException.class, () -> parser.parse("stats now"));
+
+        parser.parse("mkdir /a").execute(metered);
+        assertEquals(parser.parse("stats").execute(plain).outputLines(),
+                parser.parse("stats", new ReusableCommand()).execute(plain).outputLines());
+        var lines = parser.parse("stats").execute(metered).outputLines();
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).startsWith("mkdir count=1 errors=0 p50="), lines.get(0));
+    }
+
     @Test
     void parsesMkdirCdTouchAndLs() {
         var parser = new CommandParser();
@@ -31,6 +63,15 @@ class CommandParserTest {
         assertEquals("mkdir", fs.lastCall);
         assertEquals("/a", fs.lastArg);
 
+        parser.parse("mkdir -p /a/b c").execute(fs);
+        assertEquals("mkdirs", fs.lastCall);
+        assertEquals("/a/b c", fs.lastArg);
+        parser.parse("mkdir -pp").execute(fs);
+        assertEquals("mkdir", fs.lastCall);
+        assertEquals("-pp", fs.lastArg);
+        assertThrows(InvalidCommandException.class, () -> parser.parse("mkdir -p  "));
+        assertThrows(InvalidCommandException.class, () -> parser.parse("mkdir -p"));
+
         parser.parse("cd /a").execute(fs);
         assertEquals("cd", fs.lastCall);
         assertEquals("/a", fs.lastArg);
@@ -39,6 +80,10 @@ class CommandParserTest {
         assertEquals("touch", fs.lastCall);
         assertEquals("x", fs.lastArg);
 
+        assertEquals(List.of("/work/dir"), parser.parse("pwd").execute(fs).outputLines());
+        assertEquals("pwd", fs.lastCall);
+        assertThrows(InvalidCommandException.class, () -> parser.parse("pwd /a"));
+
         fs.lsReturn = List.of("a", "b");
         var result = parser.parse("ls").execute(fs);
         assertEquals("ls", fs.lastCall);
@@ -52,6 +97,122 @@ class CommandParserTest {
         assertEquals(List.of("x"), resultWithPath.outputLines());
     }
 
+    @Test
+    void lsStreamsWhenGivenASink() {
+        var parser = new CommandParser();
+        var fs = new RecordingFileSystem();
+        fs.lsPathReturn = List.of("a/", "b");
+
+        var lines = new ArrayList<String>();
+        parser.parse("ls /x").execute(fs, lines::add);
+        assertEquals("lsStream", fs.lastCall);
+        assertEquals("/x", fs.lastArg);
+        assertEquals(List.of("a/", "b"), lines);
+
+        lines.clear();
+        parser.parse("find /x/**/*.txt").execute(fs, lines::add);
+        assertEquals("findStream", fs.lastCall);
+        assertEquals("/x/**/*.txt", fs.lastArg);
+        assertEquals(List.of("a/", "b"), lines);
+        assertEquals(List.of("a/", "b"), parser.parse("find *").execute(fs).outputLines());
+        assertEquals("find", fs.lastCall);
+        assertThrows(InvalidCommandException.class, () -> parser.parse("find"));
+
+        // Other commands fall back to their result.
+        fs.readReturn = "one\ntwo\n".getBytes(StandardCharsets.UTF_8);
+        lines.clear();
+        parser.parse("cat f").execute(fs, lines::add);
+        assertEquals(List.of("one", "two"), lines);
+    }
+
+    @Test
+    void parsesCatAndWrite() {
+        var parser = new CommandParser();
+        var fs = new RecordingFileSystem();
+
+        parser.parse("write /a/f hello   world").execute(fs);
+        assertEquals("write", fs.lastCall);
+        assertEquals("/a/f", fs.lastArg);
+        assertEquals("hello   world\n", new String(fs.lastData, StandardCharsets.UTF_8));
+
+        parser.parse("write f").execute(fs);
+        assertEquals("f", fs.lastArg);
+        assertEquals(0, fs.lastData.length);
+
+        fs.readReturn = "one\ntwo\n".getBytes(StandardCharsets.UTF_8);
+        var result = parser.parse("cat /a/f").execute(fs);
+        assertEquals("read", fs.lastCall);
+        assertEquals("/a/f", fs.lastArg);
+        assertEquals(List.of("one", "two"), result.outputLines());
+
+        assertThrows(InvalidCommandException.class, () -> parser.parse("cat"));
+        assertThrows(InvalidCommandException.class, () -> parser.parse("write"));
+    }
+
+    @Test
+    void parsesRmMvAndCp() {
+        var parser = new CommandParser();
+        var fs = new RecordingFileSystem();
+
+        parser.parse("rm /a/f").execute(fs);
+        assertEquals("rm", fs.lastCall);
+        assertEquals("/a/f", fs.lastArg);
+        assertEquals(false, fs.lastRecursive);
+
+        parser.parse("rm -r  /a").execute(fs);
+        assertEquals("/a", fs.lastArg);
+        assertEquals(true, fs.lastRecursive);
+
+        parser.parse("mv /a /b").execute(fs);
+        assertEquals("mv", fs.lastCall);
+        assertEquals("/a", fs.lastArg);
+        assertEquals("/b", fs.lastTarget);
+
+        parser.parse("cp -r /b /c").execute(fs);
+        assertEquals("cp", fs.lastCall);
+        assertEquals("/b", fs.lastArg);
+        assertEquals("/c", fs.lastTarget);
+        assertEquals(true, fs.lastRecursive);
+
+        assertThrows(InvalidCommandException.class, () -> parser.parse("rm"));
+        assertThrows(InvalidCommandException.class, () -> parser.parse("rm -r"));
+        assertThrows(InvalidCommandException.class, () -> parser.parse("rm a b"));
+        assertThrows(InvalidCommandException.class, () -> parser.parse("mv a"));
+        assertThrows(InvalidCommandException.class, () -> parser.parse("cp -r a"));
+    }
+
+    @Test
+    void reusableCommandIsRefilledInPlace() {
+        var parser = new CommandParser();
+        var fs = new RecordingFileSystem();
+        var command = new ReusableCommand();
+        var line = new StringBuilder();
+        var lines = new ArrayList<String>();
+
+        line.append("  cp   -r /b\t/c  ");
+        assertSame(command, parser.parse(line, command));
+        command.execute(fs, lines::add);
+        assertEquals("cp", fs.lastCall);
+        assertEquals("/b", fs.lastArg);
+        assertEquals("/c", fs.lastTarget);
+        assertEquals(true, fs.lastRecursive);
+
+        line.setLength(0);
+        line.append("rm /b");
+        parser.parse(line, command).execute(fs, lines::add);
+        assertEquals("rm", fs.lastCall);
+        assertEquals(false, fs.lastRecursive);
+
+        fs.lsPathReturn = List.of("a/", "b");
+        parser.parse("ls /x", command).execute(fs, lines::add);
+        assertEquals("lsStream", fs.lastCall);
+        assertEquals(List.of("a/", "b"), lines);
+
+        assertTrue(parser.parse(" \t", command).isEmpty());
+        assertThrows(InvalidCommandException.class, () -> parser.parse("mv a b c", command));
+        assertThrows(InvalidCommandException.class, () -> parser.parse("mkdirs a", command));
+    }
+
     @Test
     void unknownCommandThrows() {
         var parser = new CommandParser();
@@ -69,9 +230,13 @@ class CommandParserTest {
     private static final class RecordingFileSystem implements FileSystem {
         String lastCall;
         String lastArg;
+        String lastTarget;
+        boolean lastRecursive;
+        byte[] lastData;
 
         List<String> lsReturn = List.of();
         List<String> lsPathReturn = List.of();
+        byte[] readReturn = new byte[0];
 
         @Override
         public void mkdir(String path) {
@@ -79,6 +244,19 @@ class CommandParserTest {
             lastArg = path;
         }
 
+        @Override
+        public void mkdirs(String path) {
+            lastCall = "mkdirs";
+            lastArg = path;
+        }
+
+        @Override
+        public long mkdirs(Collection<String> paths) {
+            lastCall = "mkdirsAll";
+            lastArg = String.join(",", paths);
+            return paths.size();
+        }
+
         @Override
         public void cd(String path) {
             lastCall = "cd";
@@ -99,10 +277,110 @@ class CommandParserTest {
             return lsPathReturn;
         }
 
+        @Override
+        public List<String> ls(String path, String startAfter, int limit) {
+            lastCall = "lsPage";
+            lastArg = path;
+            return lsPathReturn;
+        }
+
+        @Override
+        public void ls(String path, Consumer<? super String> sink) {
+            lastCall = "lsStream";
+            lastArg = path;
+            (path == null ? lsReturn : lsPathReturn).forEach(sink);
+        }
+
+        @Override
+        public String pwd() {
+            lastCall = "pwd";
+            lastArg = null;
+            return "/work/dir";
+        }
+
+        @Override
+        public PathStatus tryResolve(String path) {
+            lastCall = "tryResolve";
+            lastArg = path;
+            return PathStatus.MISSING;
+        }
+
+        @Override
+        public List<String> find(String pattern) {
+            lastCall = "find";
+            lastArg = pattern;
+            return lsPathReturn;
+        }
+
+        @Override
+        public void find(String pattern, Consumer<? super String> sink) {
+            lastCall = "findStream";
+            lastArg = pattern;
+            lsPathReturn.forEach(sink);
+        }
+
         @Override
         public void touch(String filename) {
             lastCall = "touch";
             lastArg = filename;
         }
+
+        @Override
+        public void rm(String path, boolean recursive) {
+            lastCall = "rm";
+            lastArg = path;
+            lastRecursive = recursive;
+        }
+
+        @Override
+        public void mv(String source, String target) {
+            lastCall = "mv";
+            lastArg = source;
+            lastTarget = target;
+        }
+
+        @Override
+        public void cp(String source, String target, boolean recursive) {
+            lastCall = "cp";
+            lastArg = source;
+            lastTarget = target;
+            lastRecursive = recursive;
+        }
+
+        @Override
+        public void write(String path, byte[] data) {
+            lastCall = "write";
+            lastArg = path;
+            lastData = data;
+        }
+
+        @Override
+        public void append(String path, byte[] data) {
+            lastCall = "append";
+            lastArg = path;
+            lastData = data;
+        }
+
+        @Override
+        public byte[] read(String path, long offset, int length) {
+            lastCall = "read";
+            lastArg = path;
+            return readReturn;
+        }
+
+        @Override
+        public SeekableByteChannel newByteChannel(String path, OpenOption... options) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public InputStream newInputStream(String path) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public OutputStream newOutputStream(String path, OpenOption... options) {
+            throw new UnsupportedOperationException();
+        }
     }
 }
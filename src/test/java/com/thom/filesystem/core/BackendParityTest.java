@@ -0,0 +1,362 @@
+package com.thom.filesystem.core;
+
+import com.thom.filesystem.api.FileSystem;
+import com.thom.filesystem.core.InMemoryFileSystem.Backend;
+import com.thom.filesystem.errors.AlreadyExistsException;
+import com.thom.filesystem.errors.NotFoundException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Function;
+
+import static com.thom.filesystem.TestBytes.bytes;
+import static com.thom.filesystem.TestBytes.string;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BackendParityTest {
+    @Test
+    void createSelectsBackend() {
+        assertInstanceOf(InMemoryFileSystem.class, InMemoryFileSystem.create(Backend.TREE));
+        assertInstanceOf(ArrayFileSystem.class, InMemoryFileSystem.create(Backend.ARRAY));
+        assertInstanceOf(PersistentFileSystem.class, InMemoryFileSystem.create(Backend.PERSISTENT));
+    }
+
+    @Test
+    void createRejectsOptionsTheBackendCannotHonour() {
+        var defaults = FileTreeOptions.defaults();
+        assertThrows(IllegalArgumentException.class, () -> InMemoryFileSystem.create(Backend.ARRAY, defaults.withConcurrent(true)));
+        for (var backend : List.of(Backend.ARRAY, Backend.PERSISTENT)) {
+            assertThrows(IllegalArgumentException.class, () -> InMemoryFileSystem.create(backend, defaults.withCompact(true)));
+            assertThrows(IllegalArgumentException.class,
+                    () -> InMemoryFileSystem.create(backend, defaults.withResolutionCacheSize(16)));
+            InMemoryFileSystem.create(backend, defaults.withContentChunkSize(4).withDirectContent(false));
+        }
+        InMemoryFileSystem.create(Backend.PERSISTENT, defaults.withConcurrent(true));
+        InMemoryFileSystem.create(Backend.TREE, defaults.withConcurrent(true).withCompact(true).withResolutionCacheSize(16));
+    }
+
+    // Every operation, including the failing ones, must give the same answer as on the TREE backend.
+    @ParameterizedTest
+    @EnumSource(value = Backend.class, names = {"ARRAY", "PERSISTENT"})
+    void matchesTreeBackendOperationByOperation(Backend backend) {
+        var script = List.<Function<FileSystem, Object>>of(
+                fs -> ls(fs, null),
+                fs -> { fs.mkdir("/a"); return null; },
+                fs -> { fs.mkdir("a/b//"); return null; },
+                fs -> { fs.mkdir("/a/./b/../c"); return null; },
+                fs -> { fs.mkdir("/a"); return null; },
+                fs -> { fs.mkdir("/missing/x"); return null; },
+                fs -> { fs.mkdir("/a/.."); return null; },
+                fs -> { fs.mkdir("/a/ "); return null; },
+                fs -> { fs.mkdir("   "); return null; },
+                fs -> { fs.mkdir(null); return null; },
+                fs -> { fs.mkdirs("/p/q/r"); return null; },
+                fs -> { fs.mkdirs("/p/q/"); return null; },
+                fs -> { fs.mkdirs("p/./x/../y//z"); return null; },
+                fs -> { fs.mkdirs("/p/ /z"); return null; },
+                fs -> fs.mkdirs(List.of("/p/q/r/s", "/p/q/t", "/p/q/r/s/u", "/p/y/z", "/p/q-1", "/p/q/t/../v")),
+                fs -> fs.find("/p/**"),
+                fs -> { fs.rm("/p", true); return null; },
+                fs -> { fs.cd("/a/b"); return null; },
+                fs -> fs.pwd(),
+                fs -> { fs.touch("f"); return null; },
+                fs -> { fs.touch("f"); return null; },
+                fs -> { fs.touch("x/y"); return null; },
+                fs -> { fs.touch(".."); return null; },
+                fs -> ls(fs, "."),
+                fs -> ls(fs, "f"),
+                fs -> ls(fs, "f/"),
+                fs -> { fs.cd("f"); return null; },
+                fs -> { fs.cd("f/g"); return null; },
+                fs -> { fs.cd("../../../.."); return null; },
+                fs -> fs.pwd(),
+                fs -> ls(fs, ""),
+                fs -> { fs.write("/a/c/notes", bytes("hello")); return null; },
+                fs -> { fs.append("a/c/notes", bytes(" world")); return null; },
+                fs -> { fs.write("/a/c", bytes("x")); return null; },
+                fs -> { fs.write("/a/c/notes/deeper", bytes("x")); return null; },
+                fs -> string(fs.read("/a/c/notes", 0, 100)),
+                fs -> string(fs.read("/a/c/notes", 6, 3)),
+                fs -> { fs.mkdirs("/a/c/notes"); return null; },
+                fs -> { fs.mkdirs("/a/c/notes/x"); return null; },
+                fs -> fs.mkdirs(List.of("/a/c/new", "/a/c/notes/x", "/a/c/z")),
+                fs -> ls(fs, "/a/c"),
+                fs -> string(fs.read("/a/b/f", 0, 100)),
+                fs -> { fs.read("/a", 0, 1); return null; },
+                fs -> { fs.read("/nope", 0, 1); return null; },
+                fs -> ls(fs, "/a/c"),
+                fs -> ls(fs, "/a/c/notes"),
+                fs -> fs.tryResolve("/a/c/notes"),
+                fs -> fs.tryResolve("../c/./notes"),
+                fs -> fs.tryResolve("/a/c/"),
+                fs -> fs.tryResolve("/a/c/notes/"),
+                fs -> fs.tryResolve("/a/c/notes/x"),
+                fs -> fs.tryResolve("/a/nope"),
+                fs -> fs.tryResolve("/../.."),
+                fs -> fs.exists("f"),
+                fs -> fs.exists("g"),
+                fs -> fs.tryResolve(" "),
+                fs -> { fs.rm("/a/c", false); return null; },
+                fs -> { fs.rm("/a/c/notes/", false); return null; },
+                fs -> { fs.rm("/", true); return null; },
+                fs -> { fs.rm("/a/missing", true); return null; },
+                fs -> { fs.cp("/a", "/copy", false); return null; },
+                fs -> { fs.cp("/a", "/a/b", true); return null; },
+                fs -> { fs.cp("/a", "/copy", true); return null; },
+                fs -> { fs.cp("/a/c/notes", "/copy/b/f", false); return null; },
+                fs -> { fs.cp("/a/c/notes", "/copy/b", false); return null; },
+                fs -> string(fs.read("/copy/c/notes", 0, 100)),
+                fs -> { fs.write("/copy/c/notes", bytes("changed")); return null; },
+                fs -> string(fs.read("/a/c/notes", 0, 100)),
+                fs -> { fs.mv("/a", "/a/b/inside"); return null; },
+                fs -> { fs.mv("/copy/b/notes", "/copy/b/f"); return null; },
+                fs -> { fs.mv("/copy/c", "/a"); return null; },
+                fs -> { fs.mv("/a/c", "/a/b/renamed"); return null; },
+                fs -> ls(fs, "/a"),
+                fs -> ls(fs, "/a/b"),
+                fs -> ls(fs, "/a/b/renamed"),
+                fs -> fs.ls("/a/b", null, 1),
+                fs -> fs.ls("/a/b", "f", 5),
+                fs -> fs.ls("/a/b", "f/", 5),
+                fs -> fs.ls("/a", "b", 5),
+                fs -> fs.ls("", "a", 1),
+                fs -> fs.ls("/a", null, 0),
+                fs -> fs.ls("/nope", null, 1),
+                fs -> streamed(fs, "/a/b"),
+                fs -> streamed(fs, null),
+                fs -> fs.find("/**"),
+                fs -> fs.find("**/*o*"),
+                fs -> fs.find("/a/b/[e-g]*"),
+                fs -> fs.find("/**/b/**/"),
+                fs -> fs.find("/a/b/f/*"),
+                fs -> fs.find("/nope/*"),
+                fs -> fs.find("/a/*/.."),
+                fs -> ls(fs, "/a/c"),
+                fs -> { fs.cd("/copy/b"); return null; },
+                fs -> { fs.mv("/copy", "/z"); return null; },
+                fs -> fs.pwd(),
+                fs -> ls(fs, null),
+                fs -> { fs.touch("t"); return null; },
+                fs -> { fs.cd(".."); return null; },
+                fs -> fs.pwd(),
+                fs -> { fs.mv("/z", "/a/b"); return null; },
+                fs -> fs.pwd(),
+                fs -> ls(fs, "b"),
+                fs -> { fs.mv("/a/b/z", "/copy"); return null; },
+                fs -> fs.pwd(),
+                fs -> ls(fs, null),
+                fs -> { fs.rm("/copy", true); return null; },
+                fs -> ls(fs, "/"),
+                fs -> { fs.mkdir("/copy"); return null; },
+                fs -> ls(fs, "/copy"),
+                fs -> fs.pwd(),
+                fs -> ls(fs, null));
+
+        var tree = InMemoryFileSystem.create(Backend.TREE);
+        var other = InMemoryFileSystem.create(backend);
+        for (int i = 0; i < script.size(); i++) {
+            assertEquals(outcome(tree, script.get(i)), outcome(other, script.get(i)), "step " + i);
+        }
+    }
+
+    // A removed working directory stays removed: relative paths fail, even once something is created
+    // at its old path, until cd moves somewhere else.
+    @ParameterizedTest
+    @EnumSource(value = Backend.class, names = {"ARRAY", "PERSISTENT"})
+    void removingTheWorkingDirectoryMatchesTreeBackend(Backend backend) {
+        var script = List.<Function<FileSystem, Object>>of(
+                fs -> { fs.mkdirs("/a/b/c"); return null; },
+                fs -> { fs.cd("/a/b/c"); return null; },
+                fs -> { fs.rm("/a/b", true); return null; },
+                fs -> fs.pwd(),
+                fs -> { fs.touch("f"); return null; },
+                fs -> { fs.mkdir("x"); return null; },
+                fs -> { fs.mkdirs("x/y"); return null; },
+                fs -> { fs.write("g", bytes("g")); return null; },
+                fs -> ls(fs, null),
+                fs -> fs.find("*"),
+                fs -> fs.tryResolve("."),
+                fs -> { fs.cd(".."); return null; },
+                fs -> { fs.mkdirs("/a/b/c"); return null; },
+                fs -> fs.pwd(),
+                fs -> ls(fs, null),
+                fs -> ls(fs, "/a/b/c"),
+                fs -> { fs.cd("/a"); return null; },
+                fs -> fs.pwd(),
+                fs -> { fs.touch("f"); return null; },
+                fs -> ls(fs, null),
+                fs -> { fs.mkdir("/x"); return null; },
+                fs -> { fs.mkdir("/x/y"); return null; },
+                fs -> ls(fs, "/"),
+                fs -> ls(fs, "/x"));
+
+        var tree = InMemoryFileSystem.create(Backend.TREE);
+        var other = InMemoryFileSystem.create(backend);
+        var outcomes = new ArrayList<Object>();
+        for (int i = 0; i < script.size(); i++) {
+            outcomes.add(outcome(tree, script.get(i)));
+            assertEquals(outcomes.get(i), outcome(other, script.get(i)), "step " + i);
+        }
+        assertEquals("/a/b/c", outcomes.get(3));
+        assertEquals("NotFoundException: not found: b", outcomes.get(4));
+        assertEquals("NotFoundException: not found: b", outcomes.get(14));
+    }
+
+    // Touched files have no content until they are written, and read like empty ones until then.
+    @ParameterizedTest
+    @EnumSource(value = Backend.class, names = {"ARRAY", "PERSISTENT"})
+    void unwrittenFilesReadAsEmpty(Backend backend) {
+        var script = List.<Function<FileSystem, Object>>of(
+                fs -> { fs.touch("f"); return null; },
+                fs -> string(fs.read("/f", 0, 10)),
+                fs -> { fs.read("/f", -1, 10); return null; },
+                fs -> { fs.read("/f", 0, -1); return null; },
+                fs -> readAll(fs, "/f"),
+                fs -> { fs.append("/f", bytes("x")); return null; },
+                fs -> string(fs.read("/f", 0, 10)),
+                fs -> { fs.touch("g"); return null; },
+                fs -> { fs.cp("/g", "/h", false); return null; },
+                fs -> string(fs.read("/h", 0, 10)),
+                fs -> { fs.write("/g", bytes("g")); return null; },
+                fs -> string(fs.read("/h", 0, 10)),
+                fs -> string(fs.read("/g", 0, 10)));
+
+        var tree = InMemoryFileSystem.create(Backend.TREE);
+        var other = InMemoryFileSystem.create(backend);
+        for (int i = 0; i < script.size(); i++) {
+            assertEquals(outcome(tree, script.get(i)), outcome(other, script.get(i)), "step " + i);
+        }
+    }
+
+    @Test
+    void readingAnUnwrittenFileAllocatesNoContent() {
+        var fs = (ArrayFileSystem) InMemoryFileSystem.create(Backend.ARRAY);
+        fs.touch("f");
+        assertEquals(0, fs.read("/f", 0, 10).length);
+        assertNull(fs.store().contentOrNull(fs.store().child(NodeStore.ROOT, "f", 0, 1)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = Backend.class, names = {"ARRAY", "PERSISTENT"})
+    void channelsAndStreamsShareOpenOptionRules(Backend backend) throws IOException {
+        var fs = InMemoryFileSystem.create(backend);
+        assertThrows(NotFoundException.class, () -> fs.newByteChannel("/f", StandardOpenOption.READ));
+        try (var channel = fs.newByteChannel("/f", StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes("abcdef")));
+        }
+        assertThrows(AlreadyExistsException.class,
+                () -> fs.newByteChannel("/f", StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+        assertThrows(IllegalArgumentException.class,
+                () -> fs.newByteChannel("/f", StandardOpenOption.READ, StandardOpenOption.APPEND));
+
+        try (var out = fs.newOutputStream("/f", StandardOpenOption.APPEND)) {
+            out.write(bytes("gh"));
+        }
+        try (var in = fs.newInputStream("/f")) {
+            assertEquals("abcdefgh", string(in.readAllBytes()));
+        }
+        try (var out = fs.newOutputStream("/f")) {
+            out.write(bytes("new"));
+        }
+        assertEquals("new", string(fs.read("/f", 0, 100)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = Backend.class, names = {"ARRAY", "PERSISTENT"})
+    void pagesSeeChangesMadeBetweenThem(Backend backend) {
+        var tree = InMemoryFileSystem.create(Backend.TREE);
+        var other = InMemoryFileSystem.create(backend);
+        var script = List.<Function<FileSystem, Object>>of(
+                fs -> fs.ls("/d", null, 10),
+                fs -> fs.ls("/d", "n109", 10),
+                fs -> { fs.rm("/d/n120", false); fs.mkdir("/d/n1195"); return null; },
+                fs -> fs.ls("/d", "n119", 10),
+                fs -> { fs.mv("/d/n130", "/d/n0"); return null; },
+                fs -> fs.ls("/d", "n125", 10),
+                fs -> fs.ls("/d", null, 3),
+                fs -> fs.ls("/d"));
+        for (var fs : List.of(tree, other)) {
+            fs.mkdir("/d");
+            for (int i = 100; i < 200; i++) {
+                fs.mkdir("/d/n" + i);
+            }
+        }
+        for (var op : script) {
+            assertEquals(outcome(tree, op), outcome(other, op));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = Backend.class, names = {"ARRAY", "PERSISTENT"})
+    void largeRandomTreeMatchesTreeBackend(Backend backend) {
+        var random = new Random(42);
+        var tree = InMemoryFileSystem.create(Backend.TREE);
+        var other = InMemoryFileSystem.create(backend);
+        var dirs = new ArrayList<String>();
+        dirs.add("");
+        for (int i = 0; i < 20_000; i++) {
+            var parent = dirs.get(random.nextInt(dirs.size()));
+            var path = parent + "/n" + random.nextInt(200);
+            var target = dirs.get(random.nextInt(dirs.size())) + "/n" + random.nextInt(200);
+            var nested = path + "/m" + random.nextInt(3) + "/../k";
+            Function<FileSystem, Object> op = switch (random.nextInt(16)) {
+                case 0, 1, 2, 3 -> fs -> { fs.write(path, bytes(path)); return null; };
+                case 4 -> fs -> { fs.rm(path, true); return null; };
+                case 5 -> fs -> { fs.mv(path, target); return null; };
+                case 6 -> fs -> { fs.cp(path, target, true); return null; };
+                case 7 -> fs -> { fs.mkdirs(nested); return null; };
+                default -> fs -> { fs.mkdir(path); return null; };
+            };
+            var expected = outcome(tree, op);
+            assertEquals(expected, outcome(other, op), path);
+            if (expected == null && other.ls(parent.isEmpty() ? "/" : parent).contains(path.substring(parent.length() + 1) + "/")) {
+                dirs.add(path);
+            }
+        }
+        for (var dir : dirs) {
+            var path = dir.isEmpty() ? "/" : dir;
+            assertEquals(outcome(tree, fs -> fs.ls(path)), outcome(other, fs -> fs.ls(path)), path);
+            assertEquals(outcome(tree, fs -> fs.ls(path, "n150", 20)), outcome(other, fs -> fs.ls(path, "n150", 20)), path);
+        }
+        for (var pattern : List.of("/**", "/n1*/**/n2?", "/**/n[0-4]/")) {
+            assertEquals(tree.find(pattern), other.find(pattern), pattern);
+        }
+    }
+
+    private static Object outcome(FileSystem fs, Function<FileSystem, Object> op) {
+        try {
+            return op.apply(fs);
+        } catch (RuntimeException e) {
+            return e.getClass().getSimpleName() + ": " + e.getMessage();
+        }
+    }
+
+    private static List<String> streamed(FileSystem fs, String path) {
+        var lines = new ArrayList<String>();
+        fs.ls(path, lines::add);
+        return lines;
+    }
+
+    private static String readAll(FileSystem fs, String path) {
+        try (var in = fs.newInputStream(path)) {
+            return string(in.readAllBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<String> ls(FileSystem fs, String path) {
+        return path == null ? fs.ls() : fs.ls(path);
+    }
+}
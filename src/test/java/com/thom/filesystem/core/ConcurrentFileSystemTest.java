@@ -0,0 +1,197 @@
+package com.thom.filesystem.core;
+
+import com.thom.filesystem.errors.AlreadyExistsException;
+import com.thom.filesystem.errors.NotFoundException;
+import com.thom.filesystem.models.DirectoryNode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrentFileSystemTest {
+    private static final int THREADS = 8;
+
+    @Test
+    void rejectsNonConcurrentTree() {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentFileSystem(new FileTree()));
+    }
+
+    @Test
+    void behavesLikeInMemoryFileSystemOnOneThread() {
+        var fs = new ConcurrentFileSystem();
+
+        fs.mkdir("/a");
+        fs.cd("/a");
+        fs.touch("x");
+        fs.mkdir("b");
+
+        assertEquals(List.of("b/", "x"), fs.ls());
+        fs.cd("..");
+        assertEquals(List.of("a/"), fs.ls());
+    }
+
+    @Test
+    void independentSubtreesKeepEveryInsert() throws Exception {
+        var tree = FileTree.concurrent();
+        var root = tree.root();
+        int perThread = 2_000;
+        for (int t = 0; t < THREADS; t++) {
+            tree.mkdir("/t" + t, root);
+        }
+
+        runConcurrently(t -> {
+            var dir = tree.resolveDir("/t" + t, root);
+            for (int i = 0; i < perThread; i++) {
+                tree.mkdir("d" + i, dir);
+                tree.touch("f" + i, dir);
+            }
+            return null;
+        });
+
+        for (int t = 0; t < THREADS; t++) {
+            assertEquals(2 * perThread, tree.ls("/t" + t, root).size());
+        }
+    }
+
+    @Test
+    void contendedNamesAreCreatedExactlyOnce() throws Exception {
+        var tree = FileTree.concurrent();
+        var root = tree.root();
+        tree.mkdir("/shared", root);
+        var shared = tree.resolveDir("/shared", root);
+        int names = 1_000;
+        var created = new AtomicInteger();
+        var collisions = new AtomicInteger();
+
+        runConcurrently(t -> {
+            for (int i = 0; i < names; i++) {
+                try {
+                    if ((i + t) % 2 == 0) {
+                        tree.mkdir("/shared/n" + i, root);
+                    } else {
+                        tree.touch("n" + i, shared);
+                    }
+                    created.incrementAndGet();
+                } catch (AlreadyExistsException e) {
+                    collisions.incrementAndGet();
+                }
+            }
+            return null;
+        });
+
+        assertEquals(names, created.get());
+        assertEquals(names * (THREADS - 1), collisions.get());
+        assertEquals(names, tree.ls("/shared", root).size());
+    }
+
+    @Test
+    void readersNeverSeeAPartialTree() throws Exception {
+        var tree = FileTree.concurrent();
+        var root = tree.root();
+        int depth = 200;
+        var writerDone = new CountDownLatch(1);
+        var observedDepth = new AtomicInteger();
+
+        runConcurrently(t -> {
+            if (t == 0) {
+                try {
+                    DirectoryNode current = root;
+                    for (int i = 0; i < depth; i++) {
+                        current = tree.mkdir("d" + i, current);
+                    }
+                } finally {
+                    writerDone.countDown();
+                }
+                return null;
+            }
+
+            while (writerDone.getCount() > 0) {
+                var path = new StringBuilder();
+                DirectoryNode current = root;
+                for (int i = 0; i < depth; i++) {
+                    path.append("/d").append(i);
+                    try {
+                        current = assertInstanceOf(DirectoryNode.class, tree.resolve(path.toString(), root));
+                    } catch (NotFoundException e) {
+                        break;
+                    }
+                    assertEquals("d" + i, current.name());
+                    observedDepth.accumulateAndGet(i + 1, Math::max);
+                }
+            }
+            return null;
+        });
+
+        assertTrue(observedDepth.get() <= depth);
+        assertEquals(List.of("d0/"), tree.ls("/", root));
+    }
+
+    // Moves in opposite directions lock the same two directories in opposite orders.
+    @Test
+    void crossingMovesNeitherDeadlockNorLoseNodes() throws Exception {
+        var tree = FileTree.concurrent();
+        var root = tree.root();
+        var left = tree.mkdir("/left", root);
+        var right = tree.mkdir("/right", root);
+        int nodes = 200;
+        for (int i = 0; i < nodes; i++) {
+            tree.mkdir("/left/n" + i, root);
+        }
+
+        runConcurrently(t -> {
+            var from = t % 2 == 0 ? left : right;
+            var to = t % 2 == 0 ? right : left;
+            for (int round = 0; round < 2_000; round++) {
+                tree.mkdir("/" + from.name() + "/t" + t + "-" + round, root);
+                var child = from.getChild("n" + (round % nodes));
+                if (child == null) {
+                    continue;
+                }
+                try {
+                    tree.move(child, to, child.name());
+                } catch (NotFoundException | AlreadyExistsException e) {
+                    // Another thread moved it first.
+                }
+            }
+            return null;
+        });
+
+        assertEquals(nodes + THREADS * 2_000, left.childCount() + right.childCount());
+    }
+
+    private static void runConcurrently(IndexedTask task) throws Exception {
+        var pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            var start = new CountDownLatch(1);
+            var futures = new ArrayList<Future<Void>>();
+            for (int t = 0; t < THREADS; t++) {
+                int index = t;
+                Callable<Void> callable = () -> {
+                    start.await();
+                    return task.run(index);
+                };
+                futures.add(pool.submit(callable));
+            }
+            start.countDown();
+            for (var future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private interface IndexedTask {
+        Void run(int threadIndex) throws Exception;
+    }
+}
@@ -0,0 +1,63 @@
+package com.thom.filesystem.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class FileSystemSessionTest {
+
+    @Test
+    void sessionsShareTheTreeButNotTheCwd() {
+        var tree = new FileTree();
+        var alice = tree.openSession();
+        var bob = tree.openSession();
+
+        alice.mkdir("/a");
+        alice.cd("/a");
+        alice.touch("x");
+
+        assertSame(tree, bob.tree());
+        assertEquals(List.of("a/"), bob.ls());
+        assertEquals(List.of("x"), alice.ls());
+
+        bob.cd("a");
+        bob.touch("y");
+        assertEquals(List.of("x", "y"), alice.ls());
+    }
+
+    @Test
+    void sessionsOnAConcurrentTreeRunOnTheirOwnThreads() throws Exception {
+        var tree = FileTree.concurrent();
+        int clients = 16;
+        var pool = Executors.newFixedThreadPool(4);
+        try {
+            var futures = new ArrayList<Future<List<String>>>();
+            for (int c = 0; c < clients; c++) {
+                var name = "client" + c;
+                futures.add(pool.submit(() -> {
+                    var session = tree.openSession();
+                    session.mkdir(name);
+                    session.cd(name);
+                    for (int i = 0; i < 100; i++) {
+                        session.touch("f" + i);
+                    }
+                    session.cd("..");
+                    return session.ls(name);
+                }));
+            }
+            for (var future : futures) {
+                assertEquals(100, future.get().size());
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(clients, tree.openSession().ls().size());
+    }
+}
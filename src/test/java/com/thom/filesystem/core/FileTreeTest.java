@@ -1,15 +1,32 @@
 package com.thom.filesystem.core;
 
 import com.thom.filesystem.errors.AlreadyExistsException;
+import com.thom.filesystem.errors.DirectoryNotEmptyException;
 import com.thom.filesystem.errors.InvalidPathException;
+import com.thom.filesystem.errors.IsADirectoryException;
 import com.thom.filesystem.errors.NotADirectoryException;
 import com.thom.filesystem.errors.NotFoundException;
 import org.junit.jupiter.api.Test;
 import com.thom.filesystem.models.DirectoryNode;
+import com.thom.filesystem.models.FileNode;
+import com.thom.filesystem.models.Node;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static com.thom.filesystem.TestBytes.bytes;
+import static com.thom.filesystem.TestBytes.string;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class FileTreeTest {
 
@@ -105,6 +122,197 @@ class FileTreeTest {
         assertEquals(java.util.List.of("a/", "b/", "m", "z"), tree.ls("/", root));
     }
 
+    // Small compact directories are arrays and large ones maps; both page the same way.
+    @Test
+    void lsPagesFollowTheirCursor() {
+        for (var options : List.of(FileTreeOptions.defaults(), FileTreeOptions.defaults().withCompact(true))) {
+            var tree = new FileTree(options);
+            var root = tree.root();
+            for (int count : new int[]{5, 100}) {
+                var dir = "/d" + count;
+                tree.mkdir(dir, root);
+                for (int i = 0; i < count; i++) {
+                    if (i % 3 == 0) {
+                        tree.mkdir(dir + "/n" + (1000 + i), root);
+                    } else {
+                        tree.touch("n" + (1000 + i), tree.cd(dir, root));
+                    }
+                }
+
+                var paged = new ArrayList<String>();
+                String cursor = null;
+                while (true) {
+                    var page = tree.ls(dir, cursor, 7, root);
+                    paged.addAll(page);
+                    if (page.size() < 7) {
+                        break;
+                    }
+                    cursor = page.get(page.size() - 1);
+                }
+                var streamed = new ArrayList<String>();
+                tree.ls(dir, streamed::add, root);
+
+                assertEquals(tree.ls(dir, root), paged);
+                assertEquals(paged, streamed);
+                assertEquals(List.of("n1002", "n1003/"), tree.ls(dir, "n1001x", 2, root));
+            }
+            assertThrows(IllegalArgumentException.class, () -> tree.ls("/", null, 0, root));
+        }
+    }
+
+    @Test
+    void findMatchesPatternsAtEveryDepth() {
+        var tree = new FileTree();
+        var root = tree.root();
+        for (var dir : List.of("/src", "/src/main", "/src/main/util", "/src/test", "/docs")) {
+            tree.mkdir(dir, root);
+        }
+        for (var file : List.of("/src/a.java", "/src/main/b.java", "/src/main/b.txt", "/src/main/util/c.java",
+                "/src/test/d.java", "/docs/e.md", "/top.java")) {
+            tree.write(file, new byte[0], root);
+        }
+
+        assertEquals(List.of("/src/main/b.java", "/src/main/b.txt"), tree.find("/src/main/b.*", root));
+        assertEquals(List.of("src/a.java", "src/main/b.java", "src/main/util/c.java", "src/test/d.java"),
+                tree.find("src/**/*.java", root));
+        assertEquals(List.of("/src/main/", "/src/main/util/", "/src/test/"), tree.find("/src/**", root)
+                .stream().filter(path -> path.endsWith("/")).toList());
+        assertEquals(List.of("docs/", "src/"), tree.find("*/", root));
+        assertEquals(List.of("../src/main/util/c.java"), tree.find("../src/*/u*/c.java", tree.cd("/docs", root)));
+        assertEquals(List.of("top.java"), tree.find("top.java", root));
+        assertEquals(List.of(), tree.find("nope*", root));
+        assertThrows(NotFoundException.class, () -> tree.find("/nope/*", root));
+
+        // Two "**" can reach the same entry along different splits of its path.
+        assertEquals(List.of("/src/main/util/c.java"), tree.find("/**/main/**/c.java", root));
+        assertEquals(List.of("/src/main/b.java", "/src/main/b.txt", "/src/main/util/c.java"),
+                tree.find("/**/main/**/*", root).stream().filter(path -> !path.endsWith("/")).toList());
+        for (var pattern : List.of("/**", "/**/**/*.java", "**/[a-c]*", "/src/*/")) {
+            var streamed = new ArrayList<String>();
+            tree.find(pattern, streamed::add, root);
+            assertEquals(tree.find(pattern, root), streamed, pattern);
+        }
+    }
+
+    @Test
+    void pathOfFollowsMovesAndDeepTrees() {
+        var tree = new FileTree();
+        var root = tree.root();
+        assertEquals("/", FileTree.pathOf(root));
+        tree.mkdir("/a", root);
+        var b = tree.mkdir("/a/b", root);
+        var file = tree.touch("f", b);
+        assertEquals("/a/b/f", FileTree.pathOf(file));
+        tree.mv("/a", "/renamed", root);
+        assertEquals("/renamed/b/f", FileTree.pathOf(file));
+
+        var expected = new StringBuilder("/renamed/b");
+        var dir = b;
+        for (int i = 0; i < 2_000; i++) {
+            var name = "level-" + i;
+            dir = tree.mkdir(name, dir);
+            expected.append('/').append(name);
+        }
+        assertEquals(expected.toString(), FileTree.pathOf(dir));
+    }
+
+    @Test
+    void mkdirsCreatesMissingParents() {
+        var tree = new FileTree();
+        var root = tree.root();
+        var created = new ArrayList<String>();
+        tree.addListener(new TreeListener() {
+            @Override
+            public void created(Node node) {
+                created.add(node.name());
+            }
+        });
+
+        var c = tree.mkdirs("/a/b/c", root);
+        assertSame(c, tree.resolve("/a/b/c", root));
+        assertSame(c, tree.mkdirs("a/b/c/", root));
+        assertSame(root, tree.mkdirs("/", root));
+        assertEquals(List.of("a", "b", "c"), created);
+
+        tree.touch("f", c);
+        assertThrows(AlreadyExistsException.class, () -> tree.mkdirs("/a/b/c/f", root));
+        assertThrows(NotADirectoryException.class, () -> tree.mkdirs("/a/b/c/f/g", root));
+        assertThrows(InvalidPathException.class, () -> tree.mkdirs("/a/ /x", root));
+        assertThrows(InvalidPathException.class, () -> tree.mkdirs(" ", root));
+    }
+
+    @Test
+    void bulkMkdirsSharesPrefixesBetweenSortedPaths() {
+        var tree = new FileTree();
+        var root = tree.root();
+        var work = tree.mkdir("/work", root);
+
+        long created = tree.mkdirs(List.of(
+                "/x/y/z", "/x/y", "/x/y/w", "x", "/x/y2/../y3", "x/q", "/x/y/z/../../v", "/x/y-1"), work);
+
+        assertEquals(10, created);
+        assertEquals(List.of("v/", "y/", "y-1/", "y2/", "y3/"), tree.ls("/x", root));
+        assertEquals(List.of("w/", "z/"), tree.ls("/x/y", root));
+        assertEquals(List.of("q/"), tree.ls("/work/x", root));
+        assertEquals(0, tree.mkdirs(List.of("/x/y/z", "/x/y3"), work));
+        assertThrows(InvalidPathException.class, () -> tree.mkdirs(Arrays.asList("/x", null), work));
+    }
+
+    @Test
+    void tryResolveReturnsNullWhereResolveThrows() {
+        var tree = new FileTree(FileTreeOptions.defaults().withResolutionCacheSize(16));
+        var root = tree.root();
+        var a = tree.mkdir("/a", root);
+        var file = tree.touch("f", a);
+
+        assertSame(file, tree.tryResolve("/a/f", root));
+        assertSame(file, tree.tryResolve("f", a));
+        assertSame(root, tree.tryResolve("..", a));
+        assertEquals(null, tree.tryResolve("/a/g", root));
+        assertEquals(null, tree.tryResolve("/a/f/", root));
+        assertEquals(null, tree.tryResolve("/a/f/g", root));
+        assertTrue(tree.exists("/a", root));
+        assertTrue(!tree.exists("/b", root));
+        assertThrows(InvalidPathException.class, () -> tree.tryResolve(" ", root));
+
+        // A miss is not cached, so the name is found once it exists.
+        var g = tree.touch("g", a);
+        assertSame(g, tree.tryResolve("/a/g", root));
+    }
+
+    @Test
+    void lookupFailuresCarryNoStackTrace() {
+        var tree = new FileTree();
+        var root = tree.root();
+        tree.touch("f", root);
+
+        var notFound = assertThrows(NotFoundException.class, () -> tree.resolve("/missing", root));
+        assertEquals("not found: missing", notFound.getMessage());
+        assertEquals(0, notFound.getStackTrace().length);
+        var notADirectory = assertThrows(NotADirectoryException.class, () -> tree.resolve("/f/x", root));
+        assertEquals("not a directory: f", notADirectory.getMessage());
+        assertEquals(0, notADirectory.getStackTrace().length);
+    }
+
+    @Test
+    void statsCountsNodesDepthAndWidth() {
+        var tree = new FileTree();
+        var root = tree.root();
+        assertEquals(new TreeStats(1, 0, 0), tree.stats());
+
+        tree.mkdir("/a", root);
+        tree.mkdir("/a/b", root);
+        var c = tree.mkdir("/a/b/c", root);
+        tree.mkdir("/d", root);
+        for (int i = 0; i < 5; i++) {
+            tree.touch("f" + i, c);
+        }
+        assertEquals(new TreeStats(10, 4, 5), tree.stats());
+
+        tree.rm("/a/b", true, root);
+        assertEquals(new TreeStats(3, 1, 2), tree.stats());
+    }
+
     @Test
     void mkdirSupportsRelativeDotDot() {
         var tree = new FileTree();
@@ -123,4 +331,368 @@ class FileTreeTest {
         DirectoryNode root = tree.root();
         assertEquals(root.name(), "/");
     }
+
+    @Test
+    void resolveTreatsFileFollowedByMoreSegmentsAsNotADirectory() {
+        var tree = new FileTree();
+        var root = tree.root();
+
+        var f = tree.touch("f", root);
+
+        assertSame(f, tree.resolve("/f/.", root));
+        assertSame(f, tree.resolve("/f/./.", root));
+        assertThrows(NotADirectoryException.class, () -> tree.resolve("/f/..", root));
+    }
+
+    @Test
+    void resolveRejectsBlankPaths() {
+        var tree = new FileTree();
+        assertThrows(InvalidPathException.class, () -> tree.resolve(null, tree.root()));
+        assertThrows(InvalidPathException.class, () -> tree.resolve("", tree.root()));
+        assertThrows(InvalidPathException.class, () -> tree.resolve("   ", tree.root()));
+    }
+
+    @Test
+    void resolveParentValidatesLeaf() {
+        var tree = new FileTree();
+        var root = tree.root();
+
+        tree.mkdir("/a", root);
+
+        assertThrows(InvalidPathException.class, () -> tree.resolveParent("/a/", root));
+        assertThrows(InvalidPathException.class, () -> tree.resolveParent("/", root));
+        assertThrows(InvalidPathException.class, () -> tree.resolveParent("/a/..", root));
+        assertThrows(InvalidPathException.class, () -> tree.resolveParent("/a/  ", root));
+
+        var resolved = tree.resolveParent("/a/./b/.", root);
+        assertSame(tree.resolve("/a", root), resolved.parent());
+        assertEquals("b", resolved.leafName());
+    }
+
+    @Test
+    void mkdirRejectsRootAndBlankPaths() {
+        var tree = new FileTree();
+        var root = tree.root();
+
+        assertThrows(InvalidPathException.class, () -> tree.mkdir("/", root));
+        assertThrows(InvalidPathException.class, () -> tree.mkdir("///", root));
+        assertThrows(InvalidPathException.class, () -> tree.mkdir("  /", root));
+        assertThrows(InvalidPathException.class, () -> tree.mkdir(null, root));
+    }
+
+    @Test
+    void mkdirStripsRepeatedTrailingSlashes() {
+        var tree = new FileTree();
+        var root = tree.root();
+
+        var a = tree.mkdir("a//", root);
+        assertSame(a, tree.resolve("/a", root));
+        assertEquals("a", a.name());
+    }
+
+    @Test
+    void writeCreatesFileAndReplacesContent() {
+        var tree = new FileTree();
+        var root = tree.root();
+        tree.mkdir("/a", root);
+
+        var file = tree.write("/a/f", bytes("hello"), root);
+        assertSame(file, tree.resolve("/a/f", root));
+        assertEquals("hello", string(tree.read("/a/f", 0, 100, root)));
+
+        tree.write("/a/f", bytes("bye"), root);
+        assertEquals("bye", string(tree.read("/a/f", 0, 100, root)));
+    }
+
+    @Test
+    void appendAndReadWithOffsets() {
+        var tree = new FileTree();
+        var root = tree.root();
+
+        tree.touch("f", root);
+        tree.append("f", bytes("hello "), root);
+        tree.append("/f", bytes("world"), root);
+
+        assertEquals("hello world", string(tree.read("f", 0, 100, root)));
+        assertEquals("world", string(tree.read("f", 6, 100, root)));
+        assertEquals("lo", string(tree.read("f", 3, 2, root)));
+        assertEquals("", string(tree.read("f", 50, 2, root)));
+    }
+
+    @Test
+    void contentOperationsRejectDirectories() {
+        var tree = new FileTree();
+        var root = tree.root();
+        tree.mkdir("/a", root);
+
+        assertThrows(IsADirectoryException.class, () -> tree.write("/a", bytes("x"), root));
+        assertThrows(IsADirectoryException.class, () -> tree.append("/a", bytes("x"), root));
+        assertThrows(IsADirectoryException.class, () -> tree.read("/a", 0, 1, root));
+        assertThrows(NotFoundException.class, () -> tree.read("/missing", 0, 1, root));
+        assertThrows(NotFoundException.class, () -> tree.write("/missing/f", bytes("x"), root));
+    }
+
+    @Test
+    void contentIsCreatedOnFirstWrite() {
+        var tree = new FileTree();
+        var root = tree.root();
+        var file = tree.touch("f", root);
+
+        assertNull(file.content());
+        assertEquals(0, file.size());
+        assertEquals(0, tree.read("/f", 0, 10, root).length);
+        assertNull(((FileNode) tree.cp("/f", "/g", false, root)).content());
+        assertNull(file.content());
+
+        tree.append("/f", bytes("x"), root);
+        assertEquals(1, file.content().size());
+    }
+
+    @Test
+    void contentHonoursTreeOptions() {
+        var tree = new FileTree(FileTreeOptions.defaults().withContentChunkSize(4).withDirectContent(false));
+        var file = tree.write("/f", bytes("0123456789"), tree.root());
+
+        assertEquals(4, file.content().chunkSize());
+        assertEquals(false, file.content().isDirect());
+        assertEquals("3456", string(tree.read("/f", 3, 4, tree.root())));
+    }
+
+    @Test
+    void listenersSeeMutationsBeforeTheyArePublished() {
+        var tree = new FileTree();
+        var root = tree.root();
+        var events = new ArrayList<String>();
+        var listener = new TreeListener() {
+            @Override
+            public void created(Node node) {
+                assertEquals(null, node.parent().getChild(node.name()));
+                events.add("created " + node.name());
+            }
+
+            @Override
+            public void written(FileNode file, long position, ByteBuffer data) {
+                var bytes = new byte[data.remaining()];
+                data.get(bytes);
+                events.add("written " + file.name() + "@" + position + " " + string(bytes));
+            }
+
+            @Override
+            public void truncated(FileNode file, long size) {
+                events.add("truncated " + file.name() + " " + size);
+            }
+
+            @Override
+            public void completed() {
+                events.add("completed");
+            }
+        };
+        tree.addListener(listener);
+
+        tree.mkdir("/a", root);
+        tree.write("/a/f", bytes("hi"), root);
+        tree.append("/a/f", bytes("!"), root);
+        assertThrows(AlreadyExistsException.class, () -> tree.mkdir("/a", root));
+
+        assertEquals(List.of(
+                "created a", "completed",
+                "created f", "completed", "truncated f 0", "written f@0 hi", "completed",
+                "written f@2 !", "completed"), events);
+
+        assertEquals(true, tree.removeListener(listener));
+        assertEquals(false, tree.removeListener(listener));
+        tree.mkdir("/b", root);
+        assertEquals(9, events.size());
+    }
+
+    @Test
+    void throwingFromCreatedCancelsTheMutation() {
+        var tree = new FileTree();
+        var root = tree.root();
+        tree.addListener(new TreeListener() {
+            @Override
+            public void created(Node node) {
+                throw new IllegalStateException("rejected");
+            }
+        });
+
+        assertThrows(IllegalStateException.class, () -> tree.mkdir("/a", root));
+        assertThrows(IllegalStateException.class, () -> tree.touch("f", root));
+        assertEquals(List.of(), tree.ls("/", root));
+    }
+
+    @Test
+    void compactTreesShareRepeatedNames() {
+        var tree = new FileTree(FileTreeOptions.defaults().withCompact(true));
+        var root = tree.root();
+        var a = tree.mkdir("/a/", root);
+        var b = tree.mkdir("b", root);
+        var first = tree.mkdir("/a/src", root);
+        var second = tree.mkdir("b/src", root);
+        var firstKeep = tree.touch(".gitkeep", first);
+        var secondKeep = tree.write("/b/src/.gitkeep", bytes(""), root);
+
+        assertTrue(a.isCompact());
+        assertTrue(first.isCompact());
+        assertSame(first.name(), second.name());
+        assertSame(firstKeep.name(), secondKeep.name());
+        assertNotSame(b.name(), a.name());
+        assertEquals(List.of("a/", "b/"), tree.ls("/", root));
+        assertSame(secondKeep, tree.resolve("b/src/.gitkeep", root));
+    }
+
+    @Test
+    void rmRemovesFilesAndWholeSubtrees() {
+        var tree = new FileTree(FileTreeOptions.defaults().withResolutionCacheSize(64));
+        var root = tree.root();
+        tree.mkdir("/a", root);
+        tree.mkdir("/a/b", root);
+        tree.write("/a/b/f", bytes("x"), root);
+        tree.write("/g", bytes("y"), root);
+        tree.resolve("/a/b/f", root);
+
+        assertThrows(IsADirectoryException.class, () -> tree.rm("/a", false, root));
+        assertThrows(NotADirectoryException.class, () -> tree.rm("/g/", false, root));
+        assertThrows(InvalidPathException.class, () -> tree.rm("/", true, root));
+        assertThrows(InvalidPathException.class, () -> tree.rm("/a/..", true, root));
+        assertThrows(InvalidPathException.class, () -> tree.remove(root, true));
+
+        tree.rm("/g", false, root);
+        tree.rm("/a/", true, root);
+        assertEquals(List.of(), tree.ls("/", root));
+        assertThrows(NotFoundException.class, () -> tree.resolve("/a/b/f", root));
+        assertThrows(NotFoundException.class, () -> tree.rm("/a", true, root));
+    }
+
+    @Test
+    void removeWithoutRecursionOnlyTakesEmptyDirectories() {
+        var tree = new FileTree();
+        var root = tree.root();
+        var a = tree.mkdir("/a", root);
+        tree.touch("f", a);
+
+        assertThrows(DirectoryNotEmptyException.class, () -> tree.remove(a, false));
+        tree.remove(a.getChild("f"), false);
+        tree.remove(a, false);
+        assertThrows(NotFoundException.class, () -> tree.remove(a, false));
+    }
+
+    @Test
+    void nothingIsCreatedInARemovedDirectory() {
+        var tree = new FileTree(FileTreeOptions.defaults().withResolutionCacheSize(64));
+        var root = tree.root();
+        var c = tree.mkdirs("/a/b/c", root);
+        tree.resolve("..", c);
+        tree.rm("/a/b", true, root);
+
+        assertThrows(NotFoundException.class, () -> tree.mkdir("x", c));
+        assertThrows(NotFoundException.class, () -> tree.touch("f", c));
+        assertThrows(NotFoundException.class, () -> tree.write("f", bytes("x"), c));
+        assertThrows(NotFoundException.class, () -> tree.resolve("..", c));
+        assertEquals(0, c.childCount());
+        assertEquals("/a/b/c", FileTree.pathOf(c));
+        tree.mkdirs("/a/b/c", root);
+        assertThrows(NotFoundException.class, () -> tree.ls(null, c));
+    }
+
+    @Test
+    void mvRelinksTheSameNode() {
+        var tree = new FileTree(FileTreeOptions.defaults().withResolutionCacheSize(64));
+        var root = tree.root();
+        var a = tree.mkdir("/a", root);
+        var b = tree.mkdir("/b", root);
+        var file = tree.write("/a/f", bytes("data"), root);
+        assertSame(file, tree.resolve("/a/f", root));
+
+        assertSame(file, tree.mv("/a/f", "/a/g", root));
+        assertEquals("g", file.name());
+        assertThrows(NotFoundException.class, () -> tree.resolve("/a/f", root));
+
+        tree.mv("/a", "/b", root);
+        assertSame(b, a.parent());
+        assertSame(file, tree.resolve("/b/a/g", root));
+        assertEquals("data", string(tree.read("b/a/g", 0, 10, root)));
+
+        tree.touch("h", root);
+        assertThrows(AlreadyExistsException.class, () -> tree.mv("/b/a/g", "/h", root));
+        assertThrows(InvalidPathException.class, () -> tree.mv("/b", "/b/a", root));
+        assertThrows(InvalidPathException.class, () -> tree.mv("/b", "/b/a/new", root));
+        assertThrows(NotFoundException.class, () -> tree.mv("/b/a/g", "/missing/g", root));
+        assertEquals(List.of("b/", "h"), tree.ls("/", root));
+    }
+
+    @Test
+    void cpCopiesSubtreesIndependently() {
+        var tree = new FileTree();
+        var root = tree.root();
+        tree.mkdir("/src", root);
+        for (int i = 0; i < 10; i++) {
+            tree.mkdir("/src/d" + i, root);
+            for (int j = 0; j < 10; j++) {
+                tree.mkdir("/src/d" + i + "/e" + j, root);
+                tree.write("/src/d" + i + "/e" + j + "/f", bytes(i + "." + j), root);
+            }
+        }
+
+        var copy = (DirectoryNode) tree.cp("/src", "/dst", true, root);
+        assertSame(root, copy.parent());
+        for (int i = 0; i < 10; i++) {
+            for (int j = 0; j < 10; j++) {
+                var path = "/d" + i + "/e" + j + "/f";
+                assertEquals(i + "." + j, string(tree.read("/dst" + path, 0, 10, root)));
+                assertNotSame(tree.resolve("/src" + path, root), tree.resolve("/dst" + path, root));
+            }
+        }
+        tree.write("/dst/d0/e0/f", bytes("changed"), root);
+        assertEquals("0.0", string(tree.read("/src/d0/e0/f", 0, 10, root)));
+
+        tree.cp("/src/d1/e1/f", "/dst", false, root);
+        assertEquals("1.1", string(tree.read("/dst/f", 0, 10, root)));
+        assertThrows(IsADirectoryException.class, () -> tree.cp("/src", "/other", false, root));
+        assertThrows(AlreadyExistsException.class, () -> tree.cp("/src/d1/e1/f", "/dst/f", false, root));
+        assertThrows(InvalidPathException.class, () -> tree.cp("/src", "/src/d0", true, root));
+    }
+
+    @Test
+    void listenersSeeRemovesAndMovesAndCopiedSubtrees() throws IOException {
+        var tree = new FileTree();
+        var root = tree.root();
+        tree.mkdir("/a", root);
+        tree.write("/a/f", bytes("hi"), root);
+        var events = new ArrayList<String>();
+        tree.addListener(new TreeListener() {
+            @Override
+            public void created(Node node) {
+                events.add("created " + node.name() + (node instanceof DirectoryNode dir ? "/" + dir.childCount() : ""));
+            }
+
+            @Override
+            public void removed(Node node) {
+                assertSame(node, node.parent().getChild(node.name()));
+                events.add("removed " + node.name());
+            }
+
+            @Override
+            public void moved(Node node, DirectoryNode target, String name) {
+                events.add("moved " + node.name() + " " + target.name() + " " + name);
+            }
+
+            @Override
+            public void written(FileNode file, long position, ByteBuffer data) {
+                events.add("written " + file.name());
+            }
+        });
+
+        tree.cp("/a", "/b", true, root);
+        tree.mv("/b", "/a", root);
+        var removed = tree.resolveDir("/a", root);
+        try (var channel = tree.newByteChannel("/a/f", Set.of(StandardOpenOption.WRITE), root)) {
+            tree.rm("/a", true, root);
+            // Neither shows up under a path that now names nothing.
+            assertThrows(NotFoundException.class, () -> tree.touch("g", removed));
+            channel.write(ByteBuffer.wrap(bytes("!")));
+        }
+
+        assertEquals(List.of("created b/1", "moved b a b", "removed a"), events);
+    }
 }
@@ -0,0 +1,107 @@
+package com.thom.filesystem.core;
+
+import com.thom.filesystem.errors.InvalidPathException;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GlobTest {
+    @Test
+    void wildcardsAndClassesMatchOneSegment() {
+        var segment = Glob.compile("log-*.t?t").segment(0);
+        assertEquals(Glob.Kind.PATTERN, segment.kind());
+        assertEquals("log-", segment.prefix());
+        assertTrue(segment.matches("log-.txt"));
+        assertTrue(segment.matches("log-2024-01.tst"));
+        assertFalse(segment.matches("log-1.txt.gz"));
+        assertFalse(segment.matches("xlog-1.txt"));
+
+        var classes = Glob.compile("[a-c]x[!0-9]").segment(0);
+        assertTrue(classes.matches("bxy"));
+        assertFalse(classes.matches("dxy"));
+        assertFalse(classes.matches("bx7"));
+        assertTrue(Glob.compile("[]x]").segment(0).matches("]"));
+        assertTrue(Glob.compile("a*b*c").segment(0).matches("aXbYbZc"));
+        assertFalse(Glob.compile("a*b*c").segment(0).matches("aXbYbZ"));
+    }
+
+    @Test
+    void escapedWildcardsAreLiteral() {
+        var glob = Glob.compile("/d/a\\*b");
+        assertEquals("/d", glob.base());
+        assertEquals(Glob.Kind.LITERAL, glob.segment(0).kind());
+        assertEquals("a*b", glob.segment(0).name());
+        assertTrue(Glob.compile("x\\?*").segment(0).matches("x?yz"));
+        assertFalse(Glob.compile("x\\?*").segment(0).matches("xyz"));
+    }
+
+    @Test
+    void baseIsTheLeadingLiteralDirectories() {
+        var glob = Glob.compile("/a/./b/../c/*/**/**/d*/");
+        assertEquals("/a/b/../c", glob.base());
+        assertEquals(3, glob.length());
+        assertEquals(Glob.Kind.ANY_DEPTH, glob.segment(1).kind());
+        assertTrue(glob.directoriesOnly());
+        assertFalse(glob.mayRepeat());
+
+        assertEquals("", Glob.compile("*.txt").base());
+        assertEquals("/", Glob.compile("/*").base());
+        assertTrue(Glob.compile("**/x/**/y").mayRepeat());
+        assertEquals("a/b/c", Glob.child(Glob.child("a", "b"), "c"));
+        assertEquals("/x", Glob.child("/", "x"));
+    }
+
+    @Test
+    void malformedPatternsAreRejected() {
+        assertThrows(InvalidPathException.class, () -> Glob.compile("   "));
+        assertThrows(InvalidPathException.class, () -> Glob.compile("/"));
+        assertThrows(InvalidPathException.class, () -> Glob.compile("a/.."));
+        assertThrows(InvalidPathException.class, () -> Glob.compile("*/.."));
+        assertThrows(InvalidPathException.class, () -> Glob.compile("[abc"));
+        assertThrows(InvalidPathException.class, () -> Glob.compile("[z-a]"));
+        assertThrows(InvalidPathException.class, () -> Glob.compile("a\\"));
+    }
+
+    @Test
+    void matcherTakesWholePathsAndAlternatives() {
+        var logs = Glob.matcher("/logs/**/*.{log,txt}");
+        assertTrue(logs.test("/logs/app.log"));
+        assertTrue(logs.test("/logs/a/b/notes.txt"));
+        assertFalse(logs.test("/logs/app.bin"));
+        assertFalse(logs.test("logs/app.log"));
+
+        var mixed = Glob.matcher("{a/b,c}/[^x]\\*");
+        assertTrue(mixed.test("a/b/y*"));
+        assertTrue(mixed.test("c/y*"));
+        assertFalse(mixed.test("c/x*"));
+        assertFalse(mixed.test("c/yz"));
+        assertTrue(Glob.matcher("x{a,{b,c}}[{]").test("xc{"));
+        assertTrue(Glob.matcher("[\\]]").test("]"));
+        assertThrows(InvalidPathException.class, () -> Glob.matcher("{a,b"));
+    }
+
+    // find and the matcher share a dialect: over one tree they pick out the same paths.
+    @Test
+    void findAndMatcherAgree() {
+        var tree = new FileTree();
+        var root = tree.root();
+        tree.mkdirs("/src/main/java/app", root);
+        tree.mkdirs("/src/test/java", root);
+        tree.touch("a*b", tree.mkdir("/src/x", root));
+        tree.write("/src/main/java/app/Main.java", new byte[0], root);
+        tree.write("/src/test/java/MainTest.java", new byte[0], root);
+        tree.write("/notes.txt", new byte[0], root);
+        var all = tree.find("/**", root);
+
+        for (var pattern : List.of("/**", "/src/**/*.java", "/src/*/[!t]*", "/**/a\\*b", "/[^n]*/**/?a*", "/*.txt")) {
+            var matcher = Glob.matcher(pattern);
+            var matched = all.stream().filter(path -> matcher.test(path)).toList();
+            assertEquals(tree.find(pattern, root), matched, pattern);
+        }
+    }
+}
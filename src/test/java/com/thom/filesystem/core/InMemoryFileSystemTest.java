@@ -60,4 +60,17 @@ class InMemoryFileSystemTest {
         fs.touch("dup");
         assertThrows(AlreadyExistsException.class, () -> fs.touch("dup"));
     }
+
+    @Test
+    void writeAppendAndReadUseCwd() {
+        var fs = new InMemoryFileSystem();
+
+        fs.mkdir("/a");
+        fs.cd("/a");
+        fs.write("f", "abc".getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        fs.append("f", "def".getBytes(java.nio.charset.StandardCharsets.UTF_8));
+
+        assertEquals("cde", new String(fs.read("/a/f", 2, 3), java.nio.charset.StandardCharsets.UTF_8));
+        assertEquals(java.util.List.of("f"), fs.ls());
+    }
 }
@@ -0,0 +1,57 @@
+package com.thom.filesystem.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class NameIndexTest {
+    @Test
+    void followsCreatesRemovesMovesAndCopies() {
+        var tree = new FileTree();
+        var root = tree.root();
+        tree.mkdir("/a", root);
+        tree.write("/a/app.log", new byte[0], root);
+        var index = NameIndex.attach(tree, false);
+        assertEquals(2, index.size());
+
+        tree.mkdir("/a/logs", root);
+        tree.write("/a/logs/app.log", new byte[0], root);
+        assertEquals(List.of("/a/app.log", "/a/logs/app.log"), index.pathsNamed("app.log"));
+        assertEquals(List.of("/a/logs/"), index.pathsNamed("logs"));
+
+        tree.cp("/a/logs", "/b", true, root);
+        tree.mv("/a", "/moved", root);
+        assertEquals(List.of("/b/app.log", "/moved/app.log", "/moved/logs/app.log"), index.pathsNamed("app.log"));
+
+        tree.mv("/moved/app.log", "/moved/old.log", root);
+        tree.rm("/moved/logs", true, root);
+        assertEquals(List.of("/b/app.log"), index.pathsNamed("app.log"));
+        assertEquals(List.of("/moved/old.log"), index.pathsNamed("old.log"));
+        assertEquals(List.of(), index.pathsNamed("logs"));
+        assertEquals(4, index.size());
+        assertThrows(UnsupportedOperationException.class, () -> index.pathsEndingWith(".log"));
+
+        index.close();
+        tree.touch("late", root);
+        assertEquals(List.of(), index.pathsNamed("late"));
+    }
+
+    @Test
+    void suffixesAreRangeScans() {
+        var tree = new FileTree();
+        var root = tree.root();
+        var index = NameIndex.attach(tree, true);
+        for (var file : List.of("a.log", "b.log", "a.logx", "catalog", "log", "x.txt")) {
+            tree.touch(file, root);
+        }
+        tree.mkdir("/dir.log", root);
+
+        assertEquals(List.of("/a.log", "/b.log", "/catalog", "/dir.log/", "/log"), index.pathsEndingWith("log"));
+        assertEquals(List.of("/a.log", "/b.log", "/dir.log/"), index.pathsEndingWith(".log"));
+        assertEquals(List.of("/a.logx"), index.pathsNamed("a.logx"));
+        assertEquals(7, index.pathsEndingWith("").size());
+    }
+}
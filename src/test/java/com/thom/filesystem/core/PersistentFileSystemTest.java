@@ -0,0 +1,157 @@
+package com.thom.filesystem.core;
+
+import com.thom.filesystem.api.PathStatus;
+import com.thom.filesystem.errors.NotFoundException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static com.thom.filesystem.TestBytes.bytes;
+import static com.thom.filesystem.TestBytes.string;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PersistentFileSystemTest {
+    @Test
+    void snapshotsKeepTheirVersionAndRejectChanges() {
+        var fs = new PersistentFileSystem();
+        fs.mkdir("/a");
+        fs.write("/a/f", bytes("one"));
+        fs.cd("/a");
+        var snapshot = fs.snapshot();
+
+        fs.write("/a/f", bytes("two"));
+        fs.append("/a/f", bytes("!"));
+        fs.mkdir("/a/b");
+        fs.rm("/a", true);
+
+        assertTrue(snapshot.isReadOnly());
+        assertEquals(List.of("f"), snapshot.ls());
+        assertEquals("one", string(snapshot.read("f", 0, 100)));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.mkdir("/x"));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.write("/a/f", bytes("x")));
+        assertThrows(UnsupportedOperationException.class,
+                () -> snapshot.newByteChannel("/a/f", StandardOpenOption.WRITE));
+        assertEquals(List.of(), fs.ls("/"));
+    }
+
+    @Test
+    void forksChangeIndependently() {
+        var fs = new PersistentFileSystem();
+        fs.mkdir("/shared");
+        fs.write("/shared/f", bytes("base"));
+        var fork = fs.fork();
+
+        fork.append("/shared/f", bytes("+fork"));
+        fork.mv("/shared", "/moved");
+        fs.append("/shared/f", bytes("+origin"));
+        fs.cp("/shared", "/copy", true);
+
+        assertFalse(fork.isReadOnly());
+        assertEquals(List.of("moved/"), fork.ls("/"));
+        assertEquals("base+fork", string(fork.read("/moved/f", 0, 100)));
+        assertEquals(List.of("copy/", "shared/"), fs.ls("/"));
+        assertEquals("base+origin", string(fs.read("/copy/f", 0, 100)));
+    }
+
+    @Test
+    void channelsPublishEachWriteUntilTheFileIsReplaced() throws IOException {
+        var fs = new PersistentFileSystem();
+        try (var channel = fs.newByteChannel("/f", StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            assertEquals(List.of("f"), fs.ls("/"));
+            channel.write(ByteBuffer.wrap(bytes("abc")));
+            var before = fs.snapshot();
+            channel.write(ByteBuffer.wrap(bytes("def")));
+
+            assertEquals("abc", string(before.read("/f", 0, 100)));
+            assertEquals("abcdef", string(fs.read("/f", 0, 100)));
+
+            fs.write("/f", bytes("replaced"));
+            channel.write(ByteBuffer.wrap(bytes("ghi")));
+            assertEquals("replaced", string(fs.read("/f", 0, 100)));
+        }
+
+        // A read channel keeps reading the version it opened.
+        try (var channel = fs.newByteChannel("/f", StandardOpenOption.READ)) {
+            fs.write("/f", bytes("newer"));
+            var buffer = ByteBuffer.allocate(100);
+            channel.read(buffer);
+            assertEquals("replaced", new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void removedWorkingDirectoryStaysRemoved() {
+        var fs = new PersistentFileSystem();
+        fs.mkdir("/a");
+        fs.cd("/a");
+        fs.rm("/a", true);
+        assertEquals("/a", fs.pwd());
+        assertThrows(NotFoundException.class, () -> fs.ls());
+        assertThrows(NotFoundException.class, () -> fs.touch("f"));
+        assertEquals(PathStatus.MISSING, fs.tryResolve("."));
+        assertEquals(PathStatus.DIRECTORY, fs.tryResolve("/"));
+
+        fs.mkdir("/a");
+        assertThrows(NotFoundException.class, () -> fs.touch("f"));
+        assertThrows(NotFoundException.class, () -> fs.fork().touch("f"));
+        fs.cd("/a");
+        fs.touch("f");
+        assertEquals(List.of("f"), fs.ls("/a"));
+    }
+
+    // Readers on a snapshot see exactly the version it was taken at while a writer keeps going.
+    @Test
+    void snapshotReadersNeverSeeLaterWrites() throws InterruptedException {
+        var fs = new PersistentFileSystem();
+        for (int i = 0; i < 100; i++) {
+            fs.write("/f" + i, bytes("v0"));
+        }
+        var snapshot = fs.snapshot();
+        var failure = new AtomicReference<Throwable>();
+
+        var writer = new Thread(() -> {
+            for (int round = 1; round <= 50; round++) {
+                for (int i = 0; i < 100; i++) {
+                    fs.write("/f" + i, bytes("v" + round));
+                }
+                fs.mkdir("/d" + round);
+            }
+        });
+        var readers = new Thread[3];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                try {
+                    for (int round = 0; round < 200; round++) {
+                        assertEquals(100, snapshot.ls("/").size());
+                        for (int i = 0; i < 100; i++) {
+                            assertEquals("v0", string(snapshot.read("/f" + i, 0, 10)));
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+        }
+        writer.start();
+        for (var reader : readers) {
+            reader.start();
+        }
+        writer.join();
+        for (var reader : readers) {
+            reader.join();
+        }
+
+        assertNull(failure.get());
+        assertEquals(150, fs.ls("/").size());
+        assertEquals("v50", string(fs.read("/f99", 0, 10)));
+    }
+}
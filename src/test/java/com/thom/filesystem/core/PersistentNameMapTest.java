@@ -0,0 +1,86 @@
+package com.thom.filesystem.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PersistentNameMapTest {
+    @Test
+    void matchesTreeMapThroughSplitsAndRemovals() {
+        var random = new Random(7);
+        var expected = new TreeMap<String, Integer>();
+        var map = PersistentNameMap.<Integer>empty();
+        for (int i = 0; i < 50_000; i++) {
+            var key = "k" + random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.remove(key);
+            } else {
+                expected.put(key, i);
+                map = map.put(key, i);
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (int k = 0; k < 5_000; k++) {
+            assertEquals(expected.get("k" + k), map.get(new StringBuilder("k").append(k)));
+        }
+        assertEquals(List.copyOf(expected.keySet()), keys(map));
+
+        for (var key : List.copyOf(expected.keySet())) {
+            map = map.remove(key);
+        }
+        assertTrue(map.isEmpty());
+        assertEquals(List.of(), keys(map));
+    }
+
+    @Test
+    void pagesStartAfterTheirCursor() {
+        var map = PersistentNameMap.<Integer>empty();
+        for (int i = 0; i < 2_000; i += 2) {
+            map = map.put(String.format("k%04d", i), i);
+        }
+        var page = new ArrayList<Integer>();
+        map.forEach("k0999", 3, (key, value) -> page.add(value));
+        assertEquals(List.of(1000, 1002, 1004), page);
+
+        page.clear();
+        map.forEach("k1000", 3, (key, value) -> page.add(value));
+        assertEquals(List.of(1002, 1004, 1006), page);
+
+        page.clear();
+        map.forEach("k1997", 3, (key, value) -> page.add(value));
+        assertEquals(List.of(1998), page);
+    }
+
+    @Test
+    void updatesLeaveEarlierVersionsUntouched() {
+        var before = PersistentNameMap.<String>empty();
+        for (int i = 0; i < 1_000; i++) {
+            before = before.put("n" + i, "v" + i);
+        }
+        var after = before.put("n5", "changed").remove("n6").put("extra", "x");
+
+        assertEquals("v5", before.get("n5"));
+        assertEquals("v6", before.get("n6"));
+        assertNull(before.get("extra"));
+        assertEquals(1_000, before.size());
+        assertEquals("changed", after.get("n5"));
+        assertNull(after.get("n6"));
+        assertEquals(1_000, after.size());
+        assertSame(before, before.remove("missing"));
+    }
+
+    private static List<String> keys(PersistentNameMap<?> map) {
+        var keys = new ArrayList<String>();
+        map.forEach((key, value) -> keys.add(key));
+        return keys;
+    }
+}
@@ -0,0 +1,147 @@
+package com.thom.filesystem.core;
+
+import com.thom.filesystem.errors.NotADirectoryException;
+import com.thom.filesystem.errors.NotFoundException;
+import com.thom.filesystem.models.Node;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResolutionCacheTest {
+
+    private static FileTree cachedTree(int size) {
+        return new FileTree(FileTreeOptions.defaults().withResolutionCacheSize(size));
+    }
+
+    @Test
+    void disabledByDefault() {
+        assertTrue(new FileTree().resolutionCache().isEmpty());
+    }
+
+    @Test
+    void capacityRoundsUpToAPowerOfTwo() {
+        assertEquals(1024, cachedTree(1000).resolutionCache().orElseThrow().capacity());
+        assertEquals(2, cachedTree(2).resolutionCache().orElseThrow().capacity());
+    }
+
+    @Test
+    void repeatedLookupsHitTheCache() {
+        var tree = cachedTree(64);
+        var root = tree.root();
+        var cache = tree.resolutionCache().orElseThrow();
+
+        var c = tree.mkdir("/a", root);
+        c = tree.mkdir("/a/b", root);
+
+        assertSame(c, tree.resolve("/a/b", root));
+        assertSame(c, tree.resolve("/a/b", root));
+        assertSame(c, tree.cd("/a/b", root));
+
+        assertEquals(1, cache.misses());
+        assertEquals(2, cache.hits());
+    }
+
+    @Test
+    void absolutePathsShareEntriesAcrossWorkingDirectories() {
+        var tree = cachedTree(64);
+        var root = tree.root();
+        var cache = tree.resolutionCache().orElseThrow();
+
+        var a = tree.mkdir("/a", root);
+        tree.mkdir("/a/b", root);
+
+        tree.resolve("/a/b", root);
+        tree.resolve("/a/b", a);
+
+        assertEquals(1, cache.hits());
+    }
+
+    @Test
+    void relativePathsAreKeyedByWorkingDirectory() {
+        var tree = cachedTree(64);
+        var root = tree.root();
+
+        var a = tree.mkdir("/a", root);
+        var b = tree.mkdir("/b", root);
+        var ax = tree.mkdir("x", a);
+        var bx = tree.mkdir("x", b);
+
+        assertSame(ax, tree.resolve("x", a));
+        assertSame(bx, tree.resolve("x", b));
+        assertSame(ax, tree.resolve("x", a));
+    }
+
+    @Test
+    void failuresAreNotCached() {
+        var tree = cachedTree(64);
+        var root = tree.root();
+        var cache = tree.resolutionCache().orElseThrow();
+
+        assertThrows(NotFoundException.class, () -> tree.resolve("/a", root));
+        var a = tree.mkdir("/a", root);
+        assertSame(a, tree.resolve("/a", root));
+
+        tree.touch("f", root);
+        assertThrows(NotADirectoryException.class, () -> tree.resolve("/f/", root));
+        assertThrows(NotADirectoryException.class, () -> tree.resolve("/f/", root));
+        assertEquals(0, cache.hits());
+    }
+
+    @Test
+    void invalidateAllRetiresEveryEntry() {
+        var tree = cachedTree(64);
+        var root = tree.root();
+        var cache = tree.resolutionCache().orElseThrow();
+
+        tree.mkdir("/a", root);
+        tree.resolve("/a", root);
+        cache.invalidateAll();
+        tree.resolve("/a", root);
+
+        assertEquals(0, cache.hits());
+        assertEquals(2, cache.misses());
+    }
+
+    @Test
+    void entriesAreRetiredBeforeARemoveIsVisibleAndNothingIsCachedDuringIt() {
+        var tree = cachedTree(64);
+        var root = tree.root();
+        var cache = tree.resolutionCache().orElseThrow();
+        tree.mkdir("/a", root);
+        tree.mkdir("/b", root);
+        tree.resolve("/a", root);
+        tree.addListener(new TreeListener() {
+            @Override
+            public void removed(Node node) {
+                // Inside the change: the old entry is gone and this lookup is not cached.
+                tree.resolve("/a", root);
+            }
+        });
+
+        tree.rm("/a", true, root);
+
+        assertEquals(0, cache.hits());
+        assertThrows(NotFoundException.class, () -> tree.resolve("/a", root));
+        assertEquals(0, cache.hits());
+    }
+
+    @Test
+    void staysBoundedUnderManyDistinctPaths() {
+        var tree = cachedTree(4);
+        var root = tree.root();
+        var cache = tree.resolutionCache().orElseThrow();
+
+        for (int i = 0; i < 100; i++) {
+            tree.mkdir("/d" + i, root);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals("d" + i, tree.resolve("/d" + i, root).name());
+        }
+
+        assertEquals(4, cache.capacity());
+        assertEquals(100, cache.misses());
+    }
+}
@@ -0,0 +1,184 @@
+package com.thom.filesystem.io;
+
+import com.thom.filesystem.core.FileTree;
+import com.thom.filesystem.core.FileTreeOptions;
+import com.thom.filesystem.core.InMemoryFileSystem;
+import com.thom.filesystem.errors.AlreadyExistsException;
+import com.thom.filesystem.errors.NotFoundException;
+import com.thom.filesystem.models.FileContent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonReadableChannelException;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+
+import static com.thom.filesystem.TestBytes.ascii;
+import static com.thom.filesystem.TestBytes.string;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FileContentChannelTest {
+
+    @Test
+    void readWriteAndSeek() throws Exception {
+        var channel = new FileContentChannel(new FileContent(4, true), true, true, false);
+
+        channel.write(ascii("hello world"));
+        assertEquals(11, channel.position());
+        assertEquals(11, channel.size());
+
+        channel.position(6);
+        var dst = ByteBuffer.allocate(5);
+        assertEquals(5, channel.read(dst));
+        assertEquals("world", new String(dst.array(), StandardCharsets.US_ASCII));
+        assertEquals(-1, channel.read(ByteBuffer.allocate(1)));
+
+        channel.truncate(5);
+        assertEquals(5, channel.position());
+        assertEquals(5, channel.size());
+    }
+
+    @Test
+    void appendModeAlwaysWritesAtTheEnd() throws Exception {
+        var content = new FileContent(4, false);
+        content.write(0, ascii("abc"));
+        var channel = new FileContentChannel(content, false, false, true);
+
+        channel.position(0);
+        channel.write(ascii("def"));
+
+        assertEquals("abcdef", string(content.read(0, 10)));
+        assertEquals(6, channel.position());
+    }
+
+    @Test
+    void enforcesAccessModeAndClose() throws Exception {
+        var readOnly = new FileContentChannel(new FileContent(), true, false, false);
+        assertThrows(NonWritableChannelException.class, () -> readOnly.write(ascii("x")));
+
+        var writeOnly = new FileContentChannel(new FileContent(), false, true, false);
+        assertThrows(NonReadableChannelException.class, () -> writeOnly.read(ByteBuffer.allocate(1)));
+
+        writeOnly.close();
+        assertThrows(ClosedChannelException.class, () -> writeOnly.write(ascii("x")));
+    }
+
+    @Test
+    void transfersBetweenInMemoryFiles() throws Exception {
+        var source = new FileContent(8, true);
+        var payload = pattern(100);
+        source.write(0, ByteBuffer.wrap(payload));
+        var from = new FileContentChannel(source, true, false, false);
+        var to = new FileContentChannel(new FileContent(16, false), true, true, false);
+
+        assertEquals(100, from.transferTo(0, Long.MAX_VALUE, to));
+        assertArrayEquals(payload, to.content().read(0, 200));
+
+        var copy = new FileContentChannel(new FileContent(5, true), true, true, false);
+        assertEquals(100, copy.transferFrom(from.position(0), 0, 1_000));
+        assertArrayEquals(payload, copy.content().read(0, 200));
+    }
+
+    @Test
+    void transfersToAndFromARealFileChannel(@TempDir Path dir) throws Exception {
+        var payload = pattern(300_000);
+        var content = new FileContent(64 * 1024, true);
+        content.write(0, ByteBuffer.wrap(payload));
+        content.write(400_000, ascii("tail"));
+
+        var onDisk = dir.resolve("blob");
+        try (var out = FileChannel.open(onDisk, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            assertEquals(content.size(), content.transferTo(0, Long.MAX_VALUE, out));
+        }
+        assertEquals(400_004, Files.size(onDisk));
+
+        var restored = new FileContent(4096, false);
+        try (var in = FileChannel.open(onDisk, StandardOpenOption.READ)) {
+            assertEquals(400_004, restored.transferFrom(in, 0, Long.MAX_VALUE));
+        }
+        assertArrayEquals(content.read(0, 500_000), restored.read(0, 500_000));
+    }
+
+    @Test
+    void transferFromPastTheEndTransfersNothing() throws Exception {
+        var content = new FileContent(4, true);
+        var source = new FileContentChannel(new FileContent(), true, true, false);
+        source.write(ascii("abc"));
+        source.position(0);
+
+        assertEquals(0, content.transferFrom(source, 10, 3));
+        assertEquals(0, content.size());
+    }
+
+    @Test
+    void streamsOverATree() throws Exception {
+        var tree = new FileTree(FileTreeOptions.defaults().withContentChunkSize(7));
+        var root = tree.root();
+
+        try (var out = tree.newOutputStream("/f", Set.of(), root)) {
+            out.write("hello ".getBytes(StandardCharsets.UTF_8));
+            out.write('!');
+        }
+        try (var out = tree.newOutputStream("/f", Set.of(StandardOpenOption.APPEND), root)) {
+            out.write("more".getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (var in = tree.newInputStream("/f", root)) {
+            assertEquals("hello !more", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        try (var in = tree.newInputStream("/f", root);
+             var out = tree.newOutputStream("/copy", Set.of(), root)) {
+            assertEquals(2, in.skip(2));
+            assertEquals(9, in.transferTo(out));
+        }
+        assertEquals("llo !more", new String(tree.read("/copy", 0, 100, root), StandardCharsets.UTF_8));
+
+        var sink = new ByteArrayOutputStream();
+        try (var in = tree.newInputStream("/copy", root)) {
+            in.transferTo(sink);
+        }
+        assertEquals("llo !more", sink.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void openOptionsFollowFilesSemantics() throws Exception {
+        var fs = new InMemoryFileSystem();
+
+        assertThrows(NotFoundException.class, () -> fs.newByteChannel("/missing"));
+        assertThrows(NotFoundException.class, () -> fs.newByteChannel("/missing", StandardOpenOption.WRITE));
+
+        try (var channel = fs.newByteChannel("/f", StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            channel.write(ascii("abcdef"));
+        }
+        assertThrows(AlreadyExistsException.class,
+                () -> fs.newByteChannel("/f", StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE));
+        assertThrows(IllegalArgumentException.class,
+                () -> fs.newByteChannel("/f", StandardOpenOption.READ, StandardOpenOption.APPEND));
+
+        try (var channel = fs.newByteChannel("/f", StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ascii("xy"));
+        }
+        assertEquals("xy", string(fs.read("/f", 0, 10)));
+    }
+
+
+
+    private static byte[] pattern(int length) {
+        var bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 31 + 7);
+        }
+        return bytes;
+    }
+}
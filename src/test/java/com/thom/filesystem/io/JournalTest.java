@@ -0,0 +1,243 @@
+package com.thom.filesystem.io;
+
+import com.thom.filesystem.core.FileTree;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.thom.filesystem.TestBytes.bytes;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JournalTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysMutationsUnderEveryPolicy() throws IOException {
+        for (var policy : List.of(FsyncPolicy.everyOp(), FsyncPolicy.groupCommit(Duration.ofMillis(5)),
+                FsyncPolicy.none())) {
+            var file = dir.resolve(policy.mode() + ".journal");
+            var tree = new FileTree();
+            var journal = Journal.open(file, tree, policy);
+            try (journal) {
+                mutate(tree);
+            }
+
+            var restored = new FileTree();
+            assertEquals(7, Journal.replay(file, restored));
+            assertMutated(restored);
+        }
+    }
+
+    @Test
+    void journalsChannelAndStreamWrites() throws IOException {
+        var file = dir.resolve("tree.journal");
+        var tree = new FileTree();
+        var root = tree.root();
+        var journal = Journal.open(file, tree, FsyncPolicy.none());
+        try (journal) {
+            try (var channel = tree.newByteChannel("/log", Set.of(StandardOpenOption.CREATE, StandardOpenOption.WRITE), root)) {
+                channel.write(ByteBuffer.wrap(bytes("hello world")));
+                channel.truncate(5);
+                channel.position(7).write(ByteBuffer.wrap(bytes("!")));
+            }
+            try (var out = tree.newOutputStream("/copy", Set.of(), root);
+                 var in = tree.newInputStream("/log", root)) {
+                in.transferTo(out);
+            }
+            try (var channel = tree.newByteChannel("/copy", Set.of(StandardOpenOption.APPEND), root);
+                 var source = FileChannel.open(writeTemp("-tail"), StandardOpenOption.READ)) {
+                channel.transferFrom(source, 8, Long.MAX_VALUE);
+            }
+        }
+
+        var restored = new FileTree();
+        Journal.replay(file, restored);
+        var restoredRoot = restored.root();
+        assertEquals(tree.ls("/", root), restored.ls("/", restoredRoot));
+        assertEquals(text(tree, "/log"), text(restored, "/log"));
+        assertEquals("hello\0\0!-tail", text(restored, "/copy"));
+    }
+
+    @Test
+    void reopenReplaysOnTopOfSnapshotAndKeepsAppending() throws IOException {
+        var snapshot = dir.resolve("tree.snap");
+        var file = dir.resolve("tree.journal");
+
+        var tree = new FileTree();
+        var root = tree.root();
+        tree.mkdir("/base", root);
+        try (var journal = Journal.open(file, tree, FsyncPolicy.everyOp())) {
+            tree.write("/base/a", bytes("snapshotted"), root);
+            TreeSnapshot.write(tree, snapshot);
+            journal.reset();
+            tree.mkdir("/base/after", root);
+            tree.append("/base/a", bytes("+1"), root);
+        }
+
+        var restored = TreeSnapshot.read(snapshot);
+        var reopened = Journal.open(file, restored, FsyncPolicy.everyOp());
+        try (reopened) {
+            restored.append("/base/a", bytes("+2"), restored.root());
+            TreeSnapshot.write(restored, snapshot);
+        }
+        assertEquals("snapshotted+1+2", text(restored, "/base/a"));
+
+        // A crash between writing a snapshot and resetting the journal replays records the snapshot
+        // already holds; that must still converge on the same tree.
+        var again = TreeSnapshot.read(snapshot);
+        Journal.replay(file, again);
+        assertEquals(List.of("a", "after/"), again.ls("/base", again.root()));
+        assertEquals("snapshotted+1+2", text(again, "/base/a"));
+    }
+
+    @Test
+    void tornTailIsDroppedOnOpen() throws IOException {
+        var file = dir.resolve("tree.journal");
+        var tree = new FileTree();
+        var journal = Journal.open(file, tree, FsyncPolicy.none());
+        try (journal) {
+            tree.mkdir("/kept", tree.root());
+            tree.mkdir("/torn", tree.root());
+        }
+        long size = Files.size(file);
+        try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(size - 2);
+        }
+
+        var restored = new FileTree();
+        var reopened = Journal.open(file, restored, FsyncPolicy.none());
+        try (reopened) {
+            restored.mkdir("/next", restored.root());
+        }
+        assertEquals(List.of("kept/", "next/"), restored.ls("/", restored.root()));
+
+        var again = new FileTree();
+        assertEquals(2, Journal.replay(file, again));
+        assertEquals(List.of("kept/", "next/"), again.ls("/", again.root()));
+    }
+
+    @Test
+    void rejectsFilesThatAreNotJournals() throws IOException {
+        var file = dir.resolve("garbage");
+        Files.write(file, bytes("not a journal"));
+        assertThrows(IOException.class, () -> Journal.open(file, new FileTree(), FsyncPolicy.none()));
+    }
+
+    @Test
+    void closedJournalStopsListening() throws IOException {
+        var file = dir.resolve("tree.journal");
+        var tree = new FileTree();
+        var journal = Journal.open(file, tree, FsyncPolicy.none());
+        tree.mkdir("/before", tree.root());
+        journal.close();
+        journal.close();
+        tree.mkdir("/after", tree.root());
+
+        assertEquals(1, Journal.replay(file, new FileTree()));
+    }
+
+    @Test
+    void concurrentWritersAreAllDurableUnderEveryOp() throws Exception {
+        var file = dir.resolve("tree.journal");
+        var tree = FileTree.concurrent();
+        int threads = 8;
+        int perThread = 200;
+        var journal = Journal.open(file, tree, FsyncPolicy.everyOp());
+        try (journal) {
+            var pool = Executors.newFixedThreadPool(threads);
+            try {
+                var tasks = new ArrayList<Callable<Void>>();
+                for (int t = 0; t < threads; t++) {
+                    int id = t;
+                    tasks.add(() -> {
+                        var own = tree.mkdir("/t" + id, tree.root());
+                        for (int i = 0; i < perThread; i++) {
+                            tree.touch("f" + i, own);
+                        }
+                        return null;
+                    });
+                }
+                for (Future<Void> future : pool.invokeAll(tasks)) {
+                    future.get();
+                }
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        var restored = new FileTree();
+        assertEquals(threads * (perThread + 1), Journal.replay(file, restored));
+        for (int t = 0; t < threads; t++) {
+            assertEquals(perThread, restored.ls("/t" + t, restored.root()).size());
+        }
+    }
+
+    @Test
+    void replaysRemovesMovesAndCopies() throws IOException {
+        var file = dir.resolve("tree.journal");
+        var tree = new FileTree();
+        var root = tree.root();
+        var journal = Journal.open(file, tree, FsyncPolicy.none());
+        try (journal) {
+            mutate(tree);
+            tree.cp("/docs", "/backup", true, root);
+            tree.write("/docs/readme", bytes("changed"), root);
+            tree.mv("/backup/sub", "/docs/sub/moved", root);
+            tree.mv("/docs/readme", "/readme", root);
+            tree.rm("/docs/sub/empty", false, root);
+            tree.rm("/backup", true, root);
+            tree.mkdir("/backup", root);
+        }
+
+        var restored = new FileTree();
+        Journal.replay(file, restored);
+        var restoredRoot = restored.root();
+        assertEquals(List.of("backup/", "docs/", "readme"), restored.ls("/", restoredRoot));
+        assertEquals(List.of(), restored.ls("/backup", restoredRoot));
+        assertEquals(List.of("moved/"), restored.ls("/docs/sub", restoredRoot));
+        assertEquals(List.of("empty"), restored.ls("/docs/sub/moved", restoredRoot));
+        assertEquals("changed", text(restored, "/readme"));
+    }
+
+    private static void mutate(FileTree tree) {
+        var root = tree.root();
+        tree.mkdir("/docs", root);
+        tree.touch("empty", tree.mkdir("/docs/sub", root));
+        tree.write("/docs/readme", bytes("hello"), root);
+        tree.append("/docs/readme", bytes(" world"), root);
+    }
+
+    private static void assertMutated(FileTree tree) {
+        var root = tree.root();
+        assertEquals(List.of("readme", "sub/"), tree.ls("/docs", root));
+        assertEquals(List.of("empty"), tree.ls("/docs/sub", root));
+        assertEquals("hello world", text(tree, "/docs/readme"));
+        assertEquals(0, tree.resolveFile("/docs/sub/empty", root).size());
+    }
+
+    private Path writeTemp(String text) throws IOException {
+        var file = dir.resolve("source.txt");
+        Files.write(file, bytes(text));
+        return file;
+    }
+
+    private static String text(FileTree tree, String path) {
+        return new String(tree.read(path, 0, Integer.MAX_VALUE, tree.root()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,107 @@
+package com.thom.filesystem.io;
+
+import com.thom.filesystem.core.FileTree;
+import com.thom.filesystem.core.FileTreeOptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static com.thom.filesystem.TestBytes.bytes;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TreeExporterTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void exportsStructureAndContent() throws IOException {
+        var tree = new FileTree(FileTreeOptions.defaults().withContentChunkSize(1024));
+        var root = tree.root();
+        tree.mkdirs("/src/main", root);
+        tree.mkdir("/empty", root);
+        tree.touch("blank", root);
+        tree.write("/src/main/App.java", bytes("class App {}"), root);
+        var large = new byte[300_000];
+        for (int i = 0; i < large.length; i++) {
+            large[i] = (byte) i;
+        }
+        tree.write("/src/large.bin", large, root);
+        // A gap left by writing past the end reads back as zeros.
+        tree.resolveFile("/src/large.bin", root).content().write(400_000, ByteBuffer.wrap(new byte[]{1}));
+
+        var target = dir.resolve("out");
+        var result = TreeExporter.export(tree, target, 2);
+
+        assertEquals(treePaths(tree), diskPaths(target));
+        assertEquals("class App {}", Files.readString(target.resolve("src/main/App.java")));
+        assertEquals(0, Files.size(target.resolve("blank")));
+        assertArrayEquals(tree.read("/src/large.bin", 0, Integer.MAX_VALUE, root),
+                Files.readAllBytes(target.resolve("src/large.bin")));
+        assertEquals(3, result.directories());
+        assertEquals(3, result.files());
+        assertEquals(12 + 400_001, result.bytes());
+    }
+
+    @Test
+    void splitsWideDirectoriesAcrossTasks() throws IOException {
+        var tree = new FileTree();
+        var wide = tree.mkdir("/wide", tree.root());
+        for (int i = 0; i < 5 * TreeExporter.FILES_PER_TASK + 3; i++) {
+            tree.write("/wide/f" + i, bytes("file " + i), tree.root());
+        }
+
+        var target = dir.resolve("out");
+        var result = TreeExporter.export(tree, target, 2);
+
+        assertEquals(wide.childCount(), result.files());
+        assertEquals(treePaths(tree), diskPaths(target));
+        assertEquals("file 7", Files.readString(target.resolve("wide/f7")));
+    }
+
+    @Test
+    void overwritesExistingFilesAndFailsOnAFileInTheWay() throws IOException {
+        var tree = new FileTree();
+        tree.mkdir("/a", tree.root());
+        tree.write("/a/f", bytes("new"), tree.root());
+        var target = dir.resolve("out");
+        Files.createDirectories(target.resolve("a"));
+        Files.writeString(target.resolve("a/f"), "old and longer");
+
+        TreeExporter.export(tree, target);
+
+        assertEquals("new", Files.readString(target.resolve("a/f")));
+
+        tree.mkdir("/b", tree.root());
+        Files.writeString(target.resolve("b"), "a file");
+
+        assertThrows(IOException.class, () -> TreeExporter.export(tree, target));
+    }
+
+    static List<String> treePaths(FileTree tree) {
+        var paths = new ArrayList<>(tree.find("/**", tree.root()));
+        paths.sort(null);
+        return paths;
+    }
+
+    // Every path below root as find prints it: absolute, directories ending in '/'; sorted.
+    static List<String> diskPaths(Path root) throws IOException {
+        var paths = new ArrayList<String>();
+        try (Stream<Path> walk = Files.walk(root)) {
+            walk.filter(path -> !path.equals(root)).forEach(path -> {
+                var relative = root.relativize(path).toString().replace('\\', '/');
+                paths.add("/" + relative + (Files.isDirectory(path) ? "/" : ""));
+            });
+        }
+        paths.sort(null);
+        return paths;
+    }
+}
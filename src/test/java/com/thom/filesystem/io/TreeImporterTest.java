@@ -0,0 +1,99 @@
+package com.thom.filesystem.io;
+
+import com.thom.filesystem.core.FileTree;
+import com.thom.filesystem.core.FileTreeOptions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TreeImporterTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void importsDirectoryWithContent() throws IOException {
+        var source = dir.resolve("source");
+        Files.createDirectories(source.resolve("src/main"));
+        Files.createDirectories(source.resolve("empty"));
+        Files.writeString(source.resolve("src/main/App.java"), "class App {}");
+        Files.write(source.resolve("src/large.bin"), new byte[100_000]);
+        Files.createFile(source.resolve("blank"));
+
+        var result = TreeImporter.fromDirectory(source, FileTreeOptions.defaults().withContentChunkSize(1024), 2);
+        var tree = result.tree();
+        var root = tree.root();
+
+        assertEquals(List.of("blank", "empty/", "src/"), tree.ls("/", root));
+        assertEquals(List.of("large.bin", "main/"), tree.ls("/src", root));
+        assertEquals("class App {}", new String(tree.read("/src/main/App.java", 0, 100, root), StandardCharsets.UTF_8));
+        assertArrayEquals(new byte[100_000], tree.read("/src/large.bin", 0, Integer.MAX_VALUE, root));
+        assertEquals(3, result.directories());
+        assertEquals(3, result.files());
+        assertEquals(100_012, result.bytes());
+    }
+
+    @Test
+    void rejectsAFileAsSourceDirectory() throws IOException {
+        var file = Files.createFile(dir.resolve("file"));
+
+        assertThrows(NotDirectoryException.class, () -> TreeImporter.fromDirectory(file));
+    }
+
+    @Test
+    void importsManifestCreatingParentsOnce() throws IOException {
+        var manifest = manifest("a/b/c.txt", "", "a/b/", "/a/d/", "a/b/c.txt\r", "e");
+
+        var result = TreeImporter.fromManifest(manifest);
+        var tree = result.tree();
+
+        assertEquals(List.of("/a/", "/a/b/", "/a/b/c.txt", "/a/d/", "/e"), tree.find("/**", tree.root()));
+        assertEquals(3, result.directories());
+        assertEquals(2, result.files());
+        assertEquals(5, result.entries());
+    }
+
+    @Test
+    void rejectsConflictingAndRelativeManifestEntries() throws IOException {
+        assertThrows(IOException.class, () -> TreeImporter.fromManifest(manifest("a/b", "a/b/c")));
+        assertThrows(IOException.class, () -> TreeImporter.fromManifest(manifest("a/b/", "a/b")));
+        assertThrows(IOException.class, () -> TreeImporter.fromManifest(manifest("a/../b")));
+    }
+
+    @Test
+    void splitsLargeManifestsAcrossTasks() throws IOException {
+        var lines = new ArrayList<String>();
+        var expected = new FileTree();
+        for (int i = 0; i < 4 * TreeImporter.SPLIT_THRESHOLD; i++) {
+            var path = "d" + (i % 3) + "/e" + (i % 7) + "/f" + i;
+            lines.add(path);
+            var parent = expected.mkdirs("/d" + (i % 3) + "/e" + (i % 7), expected.root());
+            expected.touch("f" + i, parent);
+        }
+
+        var result = TreeImporter.fromManifest(manifest(lines.toArray(new String[0])), FileTreeOptions.defaults(), 2);
+
+        assertEquals(expected.find("/**", expected.root()), result.tree().find("/**", result.tree().root()));
+        assertEquals(3 + 21, result.directories());
+        assertEquals(lines.size(), result.files());
+
+        lines.sort(null);
+        var sorted = TreeImporter.fromManifest(manifest(lines.toArray(new String[0])), FileTreeOptions.defaults(), 2);
+
+        assertEquals(expected.find("/**", expected.root()), sorted.tree().find("/**", sorted.tree().root()));
+    }
+
+    private Path manifest(String... lines) throws IOException {
+        return Files.writeString(dir.resolve("manifest.txt"), String.join("\n", lines) + "\n");
+    }
+}
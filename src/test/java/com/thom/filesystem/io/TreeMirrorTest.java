@@ -0,0 +1,123 @@
+package com.thom.filesystem.io;
+
+import com.thom.filesystem.core.FileTree;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.thom.filesystem.TestBytes.bytes;
+import static com.thom.filesystem.io.TreeExporterTest.diskPaths;
+import static com.thom.filesystem.io.TreeExporterTest.treePaths;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TreeMirrorTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void openExportsAndSyncWritesOnlyChanges() throws IOException {
+        var tree = new FileTree();
+        var root = tree.root();
+        for (int i = 0; i < 10; i++) {
+            tree.mkdirs("/d" + i + "/sub", root);
+            tree.write("/d" + i + "/sub/f", bytes("file " + i), root);
+        }
+        var target = dir.resolve("out");
+
+        try (var mirror = TreeMirror.open(tree, target, 2)) {
+            assertEquals(treePaths(tree), diskPaths(target));
+            assertFalse(mirror.isDirty());
+
+            tree.append("/d3/sub/f", bytes(" more"), root);
+            tree.append("/d3/sub/f", bytes(" and more"), root);
+            assertTrue(mirror.isDirty());
+            var result = mirror.sync();
+
+            assertEquals(0, result.directories());
+            assertEquals(1, result.files());
+            assertEquals("file 3 more and more", Files.readString(target.resolve("d3/sub/f")));
+            assertFalse(mirror.isDirty());
+            assertEquals(0, mirror.sync().entries());
+        }
+    }
+
+    @Test
+    void syncReplaysRemovesAndMovesInOrder() throws IOException {
+        var tree = new FileTree();
+        var root = tree.root();
+        tree.mkdirs("/a/b", root);
+        tree.write("/a/b/f", bytes("f"), root);
+        tree.write("/gone", bytes("gone"), root);
+        tree.write("/x", bytes("x"), root);
+        var target = dir.resolve("out");
+
+        try (var mirror = TreeMirror.open(tree, target)) {
+            tree.rm("/gone", false, root);
+            // Moved on disk rather than written again, then changed in its new place.
+            tree.mv("/a", "/moved", root);
+            tree.write("/moved/b/f", bytes("changed"), root);
+            // Takes the old name once it is free.
+            tree.mkdir("/a", root);
+            tree.write("/a/new", bytes("new"), root);
+            // Created and moved between syncs, so never on disk under its first name.
+            tree.mkdir("/tmp", root);
+            tree.write("/tmp/t", bytes("t"), root);
+            tree.mv("/tmp", "/kept", root);
+            // Created and removed between syncs.
+            tree.write("/scratch", bytes("scratch"), root);
+            tree.rm("/scratch", false, root);
+            // Moved into a directory that is only created on disk when it is written.
+            tree.mkdir("/c", root);
+            tree.mv("/x", "/c/y", root);
+
+            var result = mirror.sync();
+
+            assertEquals(treePaths(tree), diskPaths(target));
+            assertEquals("changed", Files.readString(target.resolve("moved/b/f")));
+            assertEquals("new", Files.readString(target.resolve("a/new")));
+            assertEquals("t", Files.readString(target.resolve("kept/t")));
+            assertEquals("x", Files.readString(target.resolve("c/y")));
+            assertEquals(3, result.directories());
+            assertEquals(4, result.files());
+        }
+    }
+
+    @Test
+    void failedSyncIsRetried() throws IOException {
+        var tree = new FileTree();
+        var root = tree.root();
+        var target = dir.resolve("out");
+
+        try (var mirror = TreeMirror.open(tree, target)) {
+            tree.mkdir("/a", root);
+            tree.write("/a/f", bytes("f"), root);
+            Files.writeString(target.resolve("a"), "a file in the way");
+
+            assertThrows(IOException.class, mirror::sync);
+            assertTrue(mirror.isDirty());
+
+            Files.delete(target.resolve("a"));
+            mirror.sync();
+
+            assertEquals(treePaths(tree), diskPaths(target));
+        }
+    }
+
+    @Test
+    void closedMirrorStopsRecording() throws IOException {
+        var tree = new FileTree();
+        var mirror = TreeMirror.open(tree, dir.resolve("out"));
+        mirror.close();
+
+        tree.mkdir("/a", tree.root());
+
+        assertFalse(mirror.isDirty());
+        assertThrows(IllegalStateException.class, mirror::sync);
+    }
+}
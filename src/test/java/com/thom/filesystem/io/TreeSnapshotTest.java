@@ -0,0 +1,170 @@
+package com.thom.filesystem.io;
+
+import com.thom.filesystem.core.FileTree;
+import com.thom.filesystem.core.FileTreeOptions;
+import com.thom.filesystem.models.DirectoryNode;
+import com.thom.filesystem.models.FileNode;
+import com.thom.filesystem.models.Node;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.thom.filesystem.TestBytes.bytes;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TreeSnapshotTest {
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsStructureAndContent() throws IOException {
+        var tree = new FileTree(FileTreeOptions.defaults().withContentChunkSize(1024));
+        var root = tree.root();
+        tree.mkdir("/src", root);
+        tree.mkdir("/src/main", root);
+        tree.mkdir("/empty", root);
+        tree.touch("blank", root);
+        tree.write("/src/main/App.java", bytes("class App {}"), root);
+        var large = pattern(300_000);
+        tree.write("/src/large.bin", large, root);
+        tree.resolveFile("/src/large.bin", root).content().write(500_000, ByteBuffer.wrap(bytes("end")));
+
+        var file = dir.resolve("tree.snap");
+        TreeSnapshot.write(tree, file);
+        var restored = TreeSnapshot.read(file);
+        var restoredRoot = restored.root();
+
+        assertEquals(List.of("blank", "empty/", "src/"), restored.ls("/", restoredRoot));
+        assertEquals(List.of("large.bin", "main/"), restored.ls("/src", restoredRoot));
+        assertEquals(List.of(), restored.ls("/empty", restoredRoot));
+        assertEquals("class App {}", new String(restored.read("/src/main/App.java", 0, 100, restoredRoot),
+                StandardCharsets.UTF_8));
+        assertEquals(0, restored.resolveFile("/blank", restoredRoot).size());
+
+        var restoredLarge = restored.read("/src/large.bin", 0, Integer.MAX_VALUE, restoredRoot);
+        assertEquals(500_003, restoredLarge.length);
+        assertArrayEquals(tree.read("/src/large.bin", 0, Integer.MAX_VALUE, root), restoredLarge);
+        assertFalse(Files.exists(dir.resolve("tree.snap.tmp")));
+    }
+
+    @Test
+    void restoresIntoTheRequestedOptions() throws IOException {
+        var tree = new FileTree();
+        tree.write("/f", bytes("x"), tree.root());
+        var file = dir.resolve("tree.snap");
+        TreeSnapshot.write(tree, file);
+
+        var restored = TreeSnapshot.read(file, FileTreeOptions.defaults().withConcurrent(true).withDirectContent(false));
+        assertTrue(restored.isConcurrent());
+        assertFalse(restored.resolveFile("/f", restored.root()).content().isDirect());
+    }
+
+    @Test
+    void handlesVeryDeepTrees() throws IOException {
+        var tree = new FileTree();
+        DirectoryNode current = tree.root();
+        for (int i = 0; i < 20_000; i++) {
+            current = tree.mkdir("d", current);
+        }
+        tree.touch("leaf", current);
+
+        var file = dir.resolve("deep.snap");
+        TreeSnapshot.write(tree, file);
+        var restored = TreeSnapshot.read(file);
+
+        Node node = restored.root();
+        int depth = 0;
+        while (node instanceof DirectoryNode d && !d.children().isEmpty()) {
+            node = d.children().iterator().next();
+            depth++;
+        }
+        assertEquals(20_001, depth);
+        assertInstanceOf(FileNode.class, node);
+    }
+
+    @Test
+    void repeatedNamesAreStoredOnce() throws IOException {
+        var tree = new FileTree();
+        var root = tree.root();
+        var longName = "a-rather-long-directory-name-that-repeats";
+        for (int i = 0; i < 1_000; i++) {
+            var parent = tree.mkdir("/p" + i, root);
+            tree.mkdir(longName, parent);
+        }
+
+        var file = dir.resolve("names.snap");
+        TreeSnapshot.write(tree, file);
+
+        assertTrue(Files.size(file) < 1_000L * longName.length());
+        var restored = TreeSnapshot.read(file);
+        assertEquals(List.of(longName + "/"), restored.ls("/p999", restored.root()));
+    }
+
+    @Test
+    void compactTreesShareRestoredNamesThroughTheirNameTable() throws IOException {
+        var tree = new FileTree();
+        tree.mkdir("/a", tree.root());
+        tree.mkdir("/b", tree.root());
+        tree.mkdir("/a/src", tree.root());
+        tree.mkdir("/b/src", tree.root());
+        var file = dir.resolve("names.snap");
+        TreeSnapshot.write(tree, file);
+
+        var restored = TreeSnapshot.read(file, FileTreeOptions.defaults().withCompact(true));
+        var name = restored.resolve("/a/src", restored.root()).name();
+        assertSame(name, restored.intern(new String("src")));
+        assertSame(name, restored.resolve("/b/src", restored.root()).name());
+    }
+
+    @Test
+    void rejectsANameLongerThanTheFile() throws IOException {
+        var file = dir.resolve("long-name.snap");
+        // Header, a root with one child directory, and a new name claiming 2^62 bytes.
+        Files.write(file, new byte[]{'I', 'M', 'F', 'S', 1, 1, 1, 1, 0,
+                (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80,
+                (byte) 0x80, (byte) 0x80, (byte) 0x80, 0x40, 0});
+
+        var e = assertThrows(IOException.class, () -> TreeSnapshot.read(file));
+        assertTrue(e.getMessage().contains("runs past the end of the file"), e.getMessage());
+    }
+
+    @Test
+    void rejectsCorruptFiles() throws IOException {
+        var tree = new FileTree();
+        tree.mkdir("/a", tree.root());
+        tree.write("/a/f", bytes("hello"), tree.root());
+        var file = dir.resolve("tree.snap");
+        TreeSnapshot.write(tree, file);
+        var image = Files.readAllBytes(file);
+
+        var truncated = dir.resolve("truncated.snap");
+        Files.write(truncated, java.util.Arrays.copyOf(image, image.length - 3));
+        assertThrows(IOException.class, () -> TreeSnapshot.read(truncated));
+
+        var badMagic = dir.resolve("magic.snap");
+        image[0] = 'X';
+        Files.write(badMagic, image);
+        assertThrows(IOException.class, () -> TreeSnapshot.read(badMagic));
+    }
+
+
+    private static byte[] pattern(int length) {
+        var bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 13 + 1);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,46 @@
+package com.thom.filesystem.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketsCoverEveryValueWithinSixPercent() {
+        for (long value : new long[]{0, 1, 31, 32, 33, 63, 64, 1_000, 123_456_789, Long.MAX_VALUE / 3, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.index(value);
+            assertTrue(index >= 0 && index < LatencyHistogram.BUCKETS, "index of " + value);
+            long highest = LatencyHistogram.highestInBucket(index);
+            assertTrue(highest >= value, value + " above its bucket");
+            assertTrue(highest - value <= Math.max(0, value / 16), value + " in a bucket up to " + highest);
+            if (index > 0) {
+                assertTrue(LatencyHistogram.highestInBucket(index - 1) < value, value + " in the bucket below");
+            }
+        }
+    }
+
+    @Test
+    void percentilesComeFromRecordedValues() {
+        var histogram = new LatencyHistogram();
+        assertEquals(0, histogram.valueAtPercentile(99));
+
+        for (int i = 1; i <= 1_000; i++) {
+            histogram.record(i * 1_000L);
+        }
+
+        assertEquals(1_000, histogram.count());
+        assertEquals(1_000_000, histogram.max());
+        assertWithin(500_000, histogram.valueAtPercentile(50));
+        assertWithin(990_000, histogram.valueAtPercentile(99));
+        assertEquals(1_000_000, histogram.valueAtPercentile(100));
+        assertWithin(1_000, histogram.valueAtPercentile(0));
+        assertThrows(IllegalArgumentException.class, () -> histogram.valueAtPercentile(101));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual >= expected && actual <= expected + expected / 16, expected + " but was " + actual);
+    }
+}
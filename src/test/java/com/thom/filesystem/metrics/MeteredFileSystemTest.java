@@ -0,0 +1,72 @@
+package com.thom.filesystem.metrics;
+
+import com.thom.filesystem.core.FileTree;
+import com.thom.filesystem.core.InMemoryFileSystem;
+import com.thom.filesystem.core.TreeStats;
+import com.thom.filesystem.errors.AlreadyExistsException;
+import com.thom.filesystem.errors.NotFoundException;
+import org.junit.jupiter.api.Test;
+
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MeteredFileSystemTest {
+
+    @Test
+    void countsCallsAndFailuresByType() {
+        var tree = new FileTree();
+        var metrics = FileSystemMetrics.forTree(tree);
+        var fs = new MeteredFileSystem(new InMemoryFileSystem(tree), metrics);
+
+        fs.mkdir("/a");
+        fs.mkdir("/a/b");
+        assertThrows(AlreadyExistsException.class, () -> fs.mkdir("/a"));
+        assertThrows(NotFoundException.class, () -> fs.cd("/missing"));
+        fs.cd("/a");
+        assertEquals(List.of("b/"), fs.ls());
+
+        assertEquals(3, metrics.latency(Operation.MKDIR).count());
+        assertEquals(2, metrics.latency(Operation.CD).count());
+        assertEquals(1, metrics.latency(Operation.LS).count());
+        assertEquals(Map.of("AlreadyExistsException", 1L), metrics.errors(Operation.MKDIR));
+        assertEquals(Map.of("NotFoundException", 1L), metrics.errors(Operation.CD));
+        assertEquals(Map.of(), metrics.errors(Operation.LS));
+        assertEquals(new TreeStats(3, 2, 1), metrics.treeStats());
+
+        var report = metrics.report();
+        assertTrue(report.get(0).startsWith("mkdir count=3 errors=1 p50="), report.get(0));
+        assertEquals("mkdir errors: AlreadyExistsException=1", report.get(1));
+        assertEquals("tree nodes=3 maxDepth=2 widestDirectory=1", report.get(report.size() - 1));
+    }
+
+    @Test
+    void exposesMetricsOverJmx() throws Exception {
+        var tree = new FileTree();
+        var metrics = FileSystemMetrics.forTree(tree);
+        var fs = new MeteredFileSystem(new InMemoryFileSystem(tree), metrics);
+        fs.touch("x");
+        assertThrows(AlreadyExistsException.class, () -> fs.touch("x"));
+
+        var server = ManagementFactory.getPlatformMBeanServer();
+        var name = new ObjectName("com.thom.filesystem.test:type=FileSystemMetrics");
+        metrics.register(server, name);
+        try {
+            assertEquals(2L, server.getAttribute(name, "NodeCount"));
+            assertEquals(1, server.getAttribute(name, "WidestDirectory"));
+            assertTrue(server.getAttribute(name, "OperationCounts") instanceof TabularData);
+            assertEquals(2L, metrics.getOperationCounts().get("touch"));
+            assertEquals(1L, metrics.getErrorCounts().get("touch AlreadyExistsException"));
+            assertTrue(metrics.getLatencyPercentilesNanos().containsKey("touch p99"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+        assertEquals(-1, FileSystemMetrics.create().getNodeCount());
+    }
+}
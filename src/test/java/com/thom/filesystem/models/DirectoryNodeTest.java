@@ -0,0 +1,104 @@
+package com.thom.filesystem.models;
+
+import com.thom.filesystem.errors.AlreadyExistsException;
+import com.thom.filesystem.errors.InvalidPathException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DirectoryNodeTest {
+    @Test
+    void compactDirectoriesBehaveLikeMapBackedOnesAcrossPromotion() {
+        for (var concurrent : List.of(false, true)) {
+            var compact = new DirectoryNode("/", null, concurrent, true);
+            var plain = new DirectoryNode("/", null, concurrent, false);
+
+            // Insert in descending order so every add lands at the front of the sorted array.
+            for (int i = DirectoryNode.SMALL_DIRECTORY_LIMIT * 2; i >= 0; i--) {
+                var name = String.format("n%03d", i);
+                compact.addChild(new FileNode(name, compact));
+                plain.addChild(new FileNode(name, plain));
+                assertEquals(plain.childNames(), compact.childNames());
+                assertEquals(plain.childCount(), compact.childCount());
+            }
+
+            for (var name : plain.childNames()) {
+                assertEquals(name, compact.getChild(new StringBuilder(name)).name());
+            }
+            assertNull(compact.getChild("n"));
+            assertNull(compact.getChild("n999"));
+            assertThrows(AlreadyExistsException.class, () -> compact.addChild(new FileNode("n010", compact)));
+        }
+    }
+
+    @Test
+    void compactDirectoryRejectsDuplicatesBeforePromotion() {
+        var dir = new DirectoryNode("/", null, false, true);
+        var first = dir.addChild(new FileNode("a", dir));
+        dir.addChild(new FileNode("c", dir));
+
+        assertThrows(AlreadyExistsException.class, () -> dir.addChild(new FileNode("a", dir)));
+        assertSame(first, dir.getChild("a"));
+        assertEquals(List.of("a", "c"), dir.childNames());
+    }
+
+    @Test
+    void childrenInheritModesFromParent() {
+        var root = new DirectoryNode("/", null, true, true);
+        var child = new DirectoryNode("a", root);
+
+        assertTrue(child.isConcurrent());
+        assertTrue(child.isCompact());
+        assertEquals(0, child.childCount());
+        assertEquals(List.of(), new ArrayList<>(child.children()));
+    }
+
+    @Test
+    void removeChildOnlyRemovesTheLinkedInstance() {
+        for (var compact : List.of(false, true)) {
+            var dir = new DirectoryNode("/", null, false, compact);
+            var a = dir.addChild(new FileNode("a", dir));
+            dir.addChild(new FileNode("b", dir));
+
+            assertFalse(dir.removeChild(new FileNode("a", dir)));
+            assertTrue(dir.removeChild(a));
+            assertFalse(dir.removeChild(a));
+            assertEquals(List.of("b"), dir.childNames());
+        }
+    }
+
+    @Test
+    void moveChildRelinksUnderTheNewName() {
+        for (var compact : List.of(false, true)) {
+            var root = new DirectoryNode("/", null, false, compact);
+            var from = (DirectoryNode) root.addChild(new DirectoryNode("from", root));
+            var to = (DirectoryNode) root.addChild(new DirectoryNode("to", root));
+            var moved = (DirectoryNode) from.addChild(new DirectoryNode("x", from));
+
+            from.moveChild(moved, to, "y");
+
+            assertEquals(0, from.childCount());
+            assertSame(moved, to.getChild("y"));
+            assertSame(to, moved.parent());
+            assertEquals("y", moved.name());
+            assertThrows(IllegalArgumentException.class, () -> from.moveChild(moved, root, "z"));
+            assertThrows(InvalidPathException.class, () -> to.moveChild(moved, root, "a/b"));
+        }
+    }
+
+    @Test
+    void childrenViewOfCompactDirectoryIsReadOnly() {
+        var dir = new DirectoryNode("/", null, false, true);
+        dir.addChild(new FileNode("a", dir));
+
+        assertThrows(UnsupportedOperationException.class, () -> dir.children().clear());
+    }
+}
@@ -0,0 +1,231 @@
+package com.thom.filesystem.models;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+import static com.thom.filesystem.TestBytes.ascii;
+import static com.thom.filesystem.TestBytes.string;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FileContentTest {
+
+    @Test
+    void writesSpanChunkBoundaries() {
+        var content = new FileContent(4, true);
+        content.write(0, ascii("abcdefghij"));
+
+        assertEquals(10, content.size());
+        assertEquals("abcdefghij", string(content.read(0, 100)));
+        assertEquals("defg", string(content.read(3, 4)));
+    }
+
+    @Test
+    void writingPastTheEndLeavesAZeroFilledGap() {
+        var content = new FileContent(4, false);
+        content.write(10, ascii("xy"));
+
+        assertEquals(12, content.size());
+        var expected = new byte[12];
+        expected[10] = 'x';
+        expected[11] = 'y';
+        assertArrayEquals(expected, content.read(0, 12));
+    }
+
+    @Test
+    void truncateThenGrowReadsZeros() {
+        var content = new FileContent(4, true);
+        content.write(0, ascii("abcdefghij"));
+        content.truncate(5);
+        content.write(8, ascii("z"));
+
+        assertEquals(9, content.size());
+        assertArrayEquals(new byte[]{'a', 'b', 'c', 'd', 'e', 0, 0, 0, 'z'}, content.read(0, 9));
+    }
+
+    @Test
+    void appendAndReplace() {
+        var content = new FileContent(3, false);
+        content.append(ascii("ab"));
+        content.append(ascii("cd"));
+        assertEquals("abcd", string(content.read(0, 10)));
+
+        content.replace(ascii("x"));
+        assertEquals(1, content.size());
+        assertEquals("x", string(content.read(0, 10)));
+    }
+
+    @Test
+    void channelStyleReadReportsEndOfFile() {
+        var content = new FileContent(4, true);
+        content.write(0, ascii("abc"));
+
+        var dst = ByteBuffer.allocate(8);
+        assertEquals(3, content.read(0, dst));
+        assertEquals(-1, content.read(3, dst));
+        assertEquals(0, content.read(0, ByteBuffer.allocate(0)));
+    }
+
+    @Test
+    void rejectsNegativePositions() {
+        var content = new FileContent();
+        assertThrows(IllegalArgumentException.class, () -> content.read(-1, 1));
+        assertThrows(IllegalArgumentException.class, () -> content.write(-1, ascii("a")));
+        assertThrows(IllegalArgumentException.class, () -> content.truncate(-1));
+        assertThrows(IllegalArgumentException.class, () -> new FileContent(0, true));
+    }
+
+    @Test
+    void smallFilesGrowTheirFirstChunkOnDemand() {
+        var content = new FileContent(64 * 1024, false);
+        content.write(0, ascii("tiny"));
+        assertEquals("tiny", string(content.read(0, 10)));
+
+        var big = new byte[10_000];
+        big[9_999] = 'z';
+        content.write(4, ByteBuffer.wrap(big));
+        assertEquals(10_004, content.size());
+        assertEquals("tiny", string(content.read(0, 4)));
+        assertEquals('z', content.read(10_003, 1)[0]);
+    }
+
+    @Test
+    void sparseWritePastASmallFirstChunkReadsZeros() {
+        var content = new FileContent(1024, true);
+        content.write(0, ascii("ab"));
+        content.write(3000, ascii("c"));
+
+        var all = content.read(0, 4000);
+        assertEquals(3001, all.length);
+        assertEquals('a', all[0]);
+        assertEquals(0, all[500]);
+        assertEquals(0, all[1500]);
+        assertEquals('c', all[3000]);
+
+        content.truncate(1);
+        content.write(900, ascii("d"));
+        assertArrayEquals(new byte[]{'a', 0}, content.read(0, 2));
+        assertEquals('d', content.read(900, 1)[0]);
+    }
+
+    @Test
+    void copiesAreIndependentAndKeepGaps() {
+        var content = new FileContent(4, true);
+        content.write(0, ascii("ab"));
+        content.write(13, ascii("z"));
+
+        var copy = content.copy();
+        content.write(0, ascii("XY"));
+
+        assertEquals(14, copy.size());
+        assertEquals(4, copy.chunkSize());
+        assertEquals("ab", string(copy.read(0, 2)));
+        assertEquals(0, copy.read(6, 1)[0]);
+        assertEquals('z', copy.read(13, 1)[0]);
+        copy.write(13, ascii("q"));
+        assertEquals('z', content.read(13, 1)[0]);
+    }
+
+    // Copies share chunks, so every way of changing a chunk in place must leave the others alone,
+    // including for copies of copies.
+    @Test
+    void sharedChunksAreCopiedBeforeTheyChange() throws IOException {
+        var original = new FileContent(4, false);
+        original.write(0, ascii("abcdefgh"));
+        var first = original.copy();
+        var second = first.copy();
+        var third = original.copy();
+
+        first.write(1, ascii("1"));
+        second.truncate(6);
+        second.write(7, ascii("2"));
+        third.transferFrom(Channels.newChannel(new ByteArrayInputStream(ascii("33").array())), 4, 2);
+        original.write(3, ascii("0"));
+
+        assertEquals("abc0efgh", string(original.read(0, 8)));
+        assertEquals("a1cdefgh", string(first.read(0, 8)));
+        assertArrayEquals(new byte[]{'a', 'b', 'c', 'd', 'e', 'f', 0, '2'}, second.read(0, 8));
+        assertEquals("abcd33gh", string(third.read(0, 8)));
+    }
+
+    // The views handed to the target must not change under it, whatever writers do meanwhile.
+    @Test
+    void transferToIsNotTornByConcurrentWrites() throws IOException {
+        var content = new FileContent(4, false);
+        content.write(0, ascii("abcdefgh"));
+        var out = new ByteArrayOutputStream();
+        var sink = Channels.newChannel(out);
+
+        content.transferTo(0, 8, new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                content.write(0, ascii("XXXXXXXX"));
+                content.truncate(0);
+                return sink.write(src);
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+
+        assertEquals("abcdefgh", out.toString(StandardCharsets.US_ASCII));
+        assertEquals(0, content.size());
+    }
+
+    // A writer that grows the small first chunk while a transfer is reading replaces that chunk;
+    // the bytes read must still land in the file.
+    @Test
+    void transferFromSurvivesAChunkReplacedDuringTheRead() throws IOException {
+        var content = new FileContent(1024, false);
+        content.write(0, ascii("ab"));
+        var source = Channels.newChannel(new ByteArrayInputStream(ascii("cd").array()));
+
+        long transferred = content.transferFrom(new ReadableByteChannel() {
+            @Override
+            public int read(ByteBuffer dst) throws IOException {
+                content.write(100, ascii("z"));
+                return source.read(dst);
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        }, 2, 2);
+
+        assertEquals(2, transferred);
+        assertEquals("abcd", string(content.read(0, 4)));
+        assertEquals('z', content.read(100, 1)[0]);
+    }
+
+    @Test
+    void transferFromReadsWholeChunksIntoNewBuffers() throws IOException {
+        var content = new FileContent(4, true);
+        content.write(0, ascii("0123456789"));
+        var copy = content.copy();
+
+        content.transferFrom(Channels.newChannel(new ByteArrayInputStream(ascii("abcdefgh").array())), 4, 8);
+
+        assertEquals("0123abcdefgh", string(content.read(0, 12)));
+        assertEquals("0123456789", string(copy.read(0, 12)));
+    }
+}
@@ -0,0 +1,270 @@
+package com.thom.filesystem.nio;
+
+import com.thom.filesystem.core.FileTree;
+import com.thom.filesystem.core.TreeListener;
+import com.thom.filesystem.models.DirectoryNode;
+import com.thom.filesystem.models.Node;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ImfsFileSystemProviderTest {
+    private FileTree tree;
+    private FileSystem fs;
+    private URI uri;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        tree = new FileTree();
+        uri = URI.create("imfs://" + UUID.randomUUID() + "/");
+        fs = FileSystems.newFileSystem(uri, Map.of("tree", tree));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        fs.close();
+    }
+
+    @Test
+    void isInstalledAndResolvableByUri() throws Exception {
+        assertInstanceOf(ImfsFileSystem.class, fs);
+        assertSame(fs, FileSystems.getFileSystem(uri));
+        assertThrows(FileSystemAlreadyExistsException.class, () -> FileSystems.newFileSystem(uri, Map.of()));
+
+        Files.createDirectory(fs.getPath("/a"));
+        var viaUri = Paths.get(uri.resolve("a"));
+        assertEquals(fs.getPath("/a"), viaUri);
+        assertEquals(viaUri, Paths.get(viaUri.toUri()));
+    }
+
+    @Test
+    void filesApiReadsAndWritesTheWrappedTree() throws Exception {
+        Files.createDirectories(fs.getPath("/a/b/c"));
+        Files.writeString(fs.getPath("/a/b/c/hello.txt"), "hello");
+        Files.writeString(fs.getPath("/a/b/c/hello.txt"), " world", StandardOpenOption.APPEND);
+
+        assertEquals("hello world", Files.readString(fs.getPath("/a/b/c/hello.txt")));
+        assertEquals(List.of("hello.txt"), tree.ls("/a/b/c", tree.root()));
+        assertEquals(11, Files.size(fs.getPath("a/b/c/hello.txt")));
+
+        tree.write("/a/note", "from tree".getBytes(), tree.root());
+        assertEquals("from tree", Files.readString(fs.getPath("/a/note")));
+    }
+
+    @Test
+    void walkAndDirectoryStreamSeeTheWholeTree() throws Exception {
+        Files.createDirectories(fs.getPath("/x/y"));
+        Files.createFile(fs.getPath("/x/f1"));
+        Files.createFile(fs.getPath("/x/y/f2"));
+
+        try (var walk = Files.walk(fs.getPath("/x"))) {
+            var visited = walk.map(Path::toString).collect(Collectors.toList());
+            assertEquals(List.of("/x", "/x/f1", "/x/y", "/x/y/f2"), visited);
+        }
+
+        try (var stream = Files.newDirectoryStream(fs.getPath("/x"), "f*")) {
+            var names = new java.util.ArrayList<String>();
+            stream.forEach(p -> names.add(p.getFileName().toString()));
+            assertEquals(List.of("f1"), names);
+        }
+    }
+
+    @Test
+    void attributesReflectNodeKinds() throws Exception {
+        Files.createDirectory(fs.getPath("/d"));
+        Files.write(fs.getPath("/d/f"), new byte[42]);
+
+        var dirAttrs = Files.readAttributes(fs.getPath("/d"), BasicFileAttributes.class);
+        assertTrue(dirAttrs.isDirectory());
+        assertFalse(dirAttrs.isRegularFile());
+
+        var fileAttrs = Files.readAttributes(fs.getPath("/d/f"), BasicFileAttributes.class);
+        assertTrue(fileAttrs.isRegularFile());
+        assertEquals(42, fileAttrs.size());
+        assertEquals(42L, Files.getAttribute(fs.getPath("/d/f"), "basic:size"));
+
+        assertTrue(Files.exists(fs.getPath("/d/f")));
+        assertFalse(Files.exists(fs.getPath("/d/missing")));
+        assertTrue(Files.isSameFile(fs.getPath("/d/f"), fs.getPath("/d/../d/./f")));
+    }
+
+    @Test
+    void errorsMapToNioExceptions() throws Exception {
+        Files.createFile(fs.getPath("/f"));
+
+        assertThrows(NoSuchFileException.class, () -> Files.readString(fs.getPath("/missing")));
+        assertThrows(NoSuchFileException.class, () -> Files.createDirectory(fs.getPath("/missing/d")));
+        assertThrows(FileAlreadyExistsException.class, () -> Files.createDirectory(fs.getPath("/f")));
+        assertThrows(FileAlreadyExistsException.class, () -> Files.createFile(fs.getPath("/f")));
+        assertThrows(NotDirectoryException.class, () -> Files.newDirectoryStream(fs.getPath("/f")));
+        assertThrows(java.nio.file.FileSystemException.class, () -> Files.readString(fs.getPath("/")));
+    }
+
+    @Test
+    void copyTransfersFileContent() throws Exception {
+        Files.writeString(fs.getPath("/src"), "payload");
+        Files.copy(fs.getPath("/src"), fs.getPath("/dst"));
+        assertEquals("payload", Files.readString(fs.getPath("/dst")));
+
+        assertThrows(FileAlreadyExistsException.class, () -> Files.copy(fs.getPath("/src"), fs.getPath("/dst")));
+        Files.writeString(fs.getPath("/src"), "new");
+        Files.copy(fs.getPath("/src"), fs.getPath("/dst"), java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+        assertEquals("new", Files.readString(fs.getPath("/dst")));
+    }
+
+    @Test
+    void copyReplacesAFileOrAnEmptyDirectory() throws Exception {
+        Files.writeString(fs.getPath("/src"), "payload");
+        Files.createDirectory(fs.getPath("/empty"));
+        Files.createDirectories(fs.getPath("/full/child"));
+
+        Files.copy(fs.getPath("/src"), fs.getPath("/empty"), StandardCopyOption.REPLACE_EXISTING);
+        assertEquals("payload", Files.readString(fs.getPath("/empty")));
+        assertThrows(DirectoryNotEmptyException.class,
+                () -> Files.copy(fs.getPath("/src"), fs.getPath("/full"), StandardCopyOption.REPLACE_EXISTING));
+
+        Files.copy(fs.getPath("/full/child"), fs.getPath("/src"), StandardCopyOption.REPLACE_EXISTING);
+        assertTrue(Files.isDirectory(fs.getPath("/src")));
+    }
+
+    @Test
+    void moveReplacesTheTargetInOneStep() throws Exception {
+        Files.writeString(fs.getPath("/src"), "payload");
+        Files.createDirectory(fs.getPath("/empty"));
+        Files.createDirectories(fs.getPath("/full/child"));
+        var node = tree.resolve("/src", tree.root());
+        var events = new ArrayList<String>();
+        tree.addListener(new TreeListener() {
+            @Override
+            public void removed(Node removed) {
+                events.add("removed " + removed.name());
+            }
+
+            @Override
+            public void moved(Node moved, DirectoryNode target, String name) {
+                events.add("moved " + moved.name() + " to " + name);
+            }
+        });
+
+        assertThrows(DirectoryNotEmptyException.class, () -> Files.move(fs.getPath("/src"), fs.getPath("/full"),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE));
+        assertSame(node, tree.resolve("/src", tree.root()));
+        assertEquals(List.of(), events);
+
+        Files.move(fs.getPath("/src"), fs.getPath("/empty"),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        assertSame(node, tree.resolve("/empty", tree.root()));
+        assertEquals(List.of("removed empty", "moved src to empty"), events);
+    }
+
+    @Test
+    void deleteAndMoveRelinkTheWrappedTree() throws Exception {
+        Files.createDirectories(fs.getPath("/a/b"));
+        Files.writeString(fs.getPath("/a/b/f"), "payload");
+        var node = tree.resolve("/a/b/f", tree.root());
+
+        Files.move(fs.getPath("/a/b/f"), fs.getPath("/a/g"));
+        assertSame(node, tree.resolve("/a/g", tree.root()));
+        assertFalse(Files.exists(fs.getPath("/a/b/f")));
+
+        Files.writeString(fs.getPath("/h"), "old");
+        assertThrows(FileAlreadyExistsException.class, () -> Files.move(fs.getPath("/a/g"), fs.getPath("/h")));
+        Files.move(fs.getPath("/a/g"), fs.getPath("/h"), StandardCopyOption.REPLACE_EXISTING);
+        assertEquals("payload", Files.readString(fs.getPath("/h")));
+
+        assertThrows(DirectoryNotEmptyException.class, () -> Files.delete(fs.getPath("/a")));
+        assertThrows(java.nio.file.FileSystemException.class, () -> Files.move(fs.getPath("/a"), fs.getPath("/a/b/c")));
+        Files.delete(fs.getPath("/a/b"));
+        Files.delete(fs.getPath("/a"));
+        assertFalse(Files.deleteIfExists(fs.getPath("/a")));
+        assertThrows(NoSuchFileException.class, () -> Files.delete(fs.getPath("/a")));
+        assertThrows(java.nio.file.FileSystemException.class, () -> Files.delete(fs.getPath("/")));
+        assertEquals(List.of("h"), tree.ls("/", tree.root()));
+    }
+
+    @Test
+    void byteChannelsSupportRandomAccess() throws Exception {
+        try (var channel = Files.newByteChannel(fs.getPath("/r"), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap("0123456789".getBytes()));
+            channel.position(3);
+            var dst = ByteBuffer.allocate(4);
+            channel.read(dst);
+            assertEquals("3456", new String(dst.array()));
+        }
+    }
+
+    @Test
+    void pathOperations() {
+        var p = fs.getPath("/a/b/../c/./d");
+
+        assertTrue(p.isAbsolute());
+        assertEquals("/a/c/d", p.normalize().toString());
+        assertEquals("d", p.getFileName().toString());
+        assertEquals("/a/b/../c/.", p.getParent().toString());
+        assertEquals("/", p.getRoot().toString());
+        assertEquals(6, p.getNameCount());
+        assertEquals("b/..", p.subpath(1, 3).toString());
+
+        var base = fs.getPath("/a/b");
+        assertEquals("../c/d", base.relativize(fs.getPath("/a/c/d")).toString());
+        assertEquals(fs.getPath("/a/b/x"), base.resolve("x"));
+        assertEquals(fs.getPath("/x"), base.resolve("/x"));
+        assertTrue(base.resolve("x").startsWith(base));
+        assertTrue(base.resolve("x").endsWith(fs.getPath("b/x")));
+
+        var relative = fs.getPath("a", "b", "c");
+        assertFalse(relative.isAbsolute());
+        assertNull(relative.getRoot());
+        assertEquals("/a/b/c", relative.toAbsolutePath().toString());
+        assertEquals("", fs.getPath("").toString());
+    }
+
+    @Test
+    void pathMatchersSupportGlobAndRegex() {
+        var glob = fs.getPathMatcher("glob:/logs/**/*.{log,txt}");
+        assertTrue(glob.matches(fs.getPath("/logs/2024/app.log")));
+        assertTrue(glob.matches(fs.getPath("/logs/a/b/notes.txt")));
+        assertFalse(glob.matches(fs.getPath("/logs/app.bin")));
+
+        var regex = fs.getPathMatcher("regex:.*\\.log");
+        assertTrue(regex.matches(fs.getPath("x.log")));
+    }
+
+    @Test
+    void closedFileSystemIsUnregistered() throws Exception {
+        fs.close();
+        assertFalse(fs.isOpen());
+        assertThrows(java.nio.file.FileSystemNotFoundException.class, () -> FileSystems.getFileSystem(uri));
+        assertThrows(java.nio.file.ClosedFileSystemException.class, () -> Files.exists(fs.getPath("/")));
+    }
+}